@@ -27,20 +27,25 @@
  */
 package org.sola.clients.beans;
 
+import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import javax.validation.ConstraintViolation;
+import org.jdesktop.observablecollections.ObservableList;
 import org.sola.clients.beans.controls.ExtendedList;
 import org.sola.clients.beans.validation.ValidatorFactory;
 import org.sola.common.mapping.MappingManager;
@@ -55,14 +60,28 @@ import org.sola.webservices.transferobjects.EntityAction;
 public abstract class AbstractBindingBean implements Serializable {
 
     public final static String ENTITY_ACTION_PROPERTY = "entityAction";
-    protected transient final PropertyChangeSupport propertySupport;
+    protected transient PropertyChangeSupport propertySupport;
     private EntityAction entityAction;
     private transient String stateHash;
+    private transient boolean changeTracking;
+    private transient volatile boolean changed;
+    private transient PropertyChangeListener changeTrackingListener;
+    private transient List<WeakReference<AbstractBindingBean>> changeTrackingParents;
+    private transient IdentityHashMap<ObservableList, BeanChangeTracker.ListChangeListener> trackedLists;
 
     public AbstractBindingBean() {
         propertySupport = new PropertyChangeSupport(this);
     }
 
+    /**
+     * Restores property change support after the bean is deserialized, e.g.
+     * when reference data is read from the local cache snapshot.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        propertySupport = new PropertyChangeSupport(this);
+    }
+
     public EntityAction getEntityAction() {
         return entityAction;
     }
@@ -200,26 +219,50 @@ public abstract class AbstractBindingBean implements Serializable {
         propertySupport.firePropertyChange(property, null, refDataBean);
     }
 
+    /**
+     * Marks the bean as changed if a property, which is not held in a transient 
+     * field, is changed. The old value, if it is a bean or a list, is not tracked 
+     * anymore as part of this bean and the new value is tracked instead.
+     */
+    private class ChangeTrackingListener implements PropertyChangeListener {
+
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+            if (BeanChangeTracker.isStateProperty(AbstractBindingBean.this.getClass(),
+                    evt.getPropertyName())) {
+                markChanged();
+                if (evt.getOldValue() != evt.getNewValue()) {
+                    BeanChangeTracker.untrackValue(evt.getOldValue(), AbstractBindingBean.this);
+                }
+                BeanChangeTracker.trackValue(evt.getNewValue(), AbstractBindingBean.this);
+            }
+        }
+    }
+
     /** 
-     * Compares current object state with saved state. If they are different, returns true. 
+     * Returns true if the bean or any of its child beans and lists were changed 
+     * since the last call of {@link #saveStateHash()}. If state was never saved, 
+     * returns true. Changes reported by property change events and list 
+     * notifications are detected without hashing the bean graph. Otherwise the 
+     * hash of the bean is compared with the saved one, to detect changes made 
+     * by setters which don't fire property change events.
      * @see AbstractBindingBean#saveStateHash() 
      */
     public boolean hasChanges() throws IOException, NoSuchAlgorithmException{
-        String newState = getCheckSum();
-        if(stateHash == null || !stateHash.equals(newState)){
+        if (!changeTracking || changed || stateHash == null) {
             return true;
-        }else{
-            return false;
         }
+        return !stateHash.equals(getCheckSum());
     }
     
     /** 
-     * Generates hash of the object and saves it locally. It might be used to 
-     * compare this value, later after doing changes on the object.
-     * @see AbstractBindingBean#getCheckSum()  
+     * Saves current state of the object. Starts tracking changes on the bean and 
+     * on all child beans and lists, resets their changed flag and saves the 
+     * hash of the object. It is called after the bean is loaded or saved.
      * @see AbstractBindingBean#hasChanges()  
      */
     public void saveStateHash() throws IOException, NoSuchAlgorithmException{
+        BeanChangeTracker.track(this);
         stateHash = getCheckSum();
     }
     
@@ -231,7 +274,99 @@ public abstract class AbstractBindingBean implements Serializable {
         return stateHash;
     }
     
-    /** Calculates hash for this object and child objects. */
+    /**
+     * Marks the bean and the beans containing it as changed. Beans changing 
+     * their state without firing property change events may call this method.
+     */
+    protected void markChanged() {
+        if (changed) {
+            return;
+        }
+        changed = true;
+        List<WeakReference<AbstractBindingBean>> parents = changeTrackingParents;
+        if (parents != null) {
+            for (WeakReference<AbstractBindingBean> parentRef : parents.toArray(
+                    new WeakReference[parents.size()])) {
+                AbstractBindingBean parent = parentRef.get();
+                if (parent != null) {
+                    parent.markChanged();
+                }
+            }
+        }
+    }
+
+    /** Starts tracking changes on this bean and resets the changed flag. */
+    void startChangeTracking() {
+        if (changeTrackingListener == null) {
+            changeTrackingListener = new ChangeTrackingListener();
+            propertySupport.addPropertyChangeListener(changeTrackingListener);
+        }
+        changeTracking = true;
+        changed = false;
+    }
+
+    /** Adds the bean containing this one, which is marked as changed together with this bean. */
+    void addChangeTrackingParent(AbstractBindingBean parent) {
+        if (parent == null || parent == this) {
+            return;
+        }
+        if (changeTrackingParents == null) {
+            changeTrackingParents = new ArrayList<WeakReference<AbstractBindingBean>>(1);
+        }
+        // Parents are weakly referenced, because shared beans, like reference data, 
+        // may be held by beans of forms which are already closed
+        for (Iterator<WeakReference<AbstractBindingBean>> it = changeTrackingParents.iterator(); it.hasNext();) {
+            AbstractBindingBean bean = it.next().get();
+            if (bean == parent) {
+                return;
+            }
+            if (bean == null) {
+                it.remove();
+            }
+        }
+        changeTrackingParents.add(new WeakReference<AbstractBindingBean>(parent));
+    }
+
+    /** Removes the bean that does not contain this one anymore. */
+    void removeChangeTrackingParent(AbstractBindingBean parent) {
+        if (changeTrackingParents == null) {
+            return;
+        }
+        for (Iterator<WeakReference<AbstractBindingBean>> it = changeTrackingParents.iterator(); it.hasNext();) {
+            AbstractBindingBean bean = it.next().get();
+            if (bean == parent || bean == null) {
+                it.remove();
+            }
+        }
+    }
+
+    /** Tracks add, remove and replace notifications of a list held by this bean. */
+    void trackList(ObservableList list) {
+        if (trackedLists == null) {
+            trackedLists = new IdentityHashMap<ObservableList, BeanChangeTracker.ListChangeListener>();
+        }
+        if (!trackedLists.containsKey(list)) {
+            BeanChangeTracker.ListChangeListener listener = new BeanChangeTracker.ListChangeListener(this);
+            trackedLists.put(list, listener);
+            list.addObservableListListener(listener);
+        }
+    }
+
+    /** Stops tracking a list that is not held by this bean anymore. */
+    void untrackList(ObservableList list) {
+        if (trackedLists == null) {
+            return;
+        }
+        BeanChangeTracker.ListChangeListener listener = trackedLists.remove(list);
+        if (listener != null) {
+            list.removeObservableListListener(listener);
+        }
+    }
+    
+    /** 
+     * Calculates hash for this object and child objects. It serializes the whole 
+     * object graph, use {@link #hasChanges()} to check for changes.
+     */
     public String getCheckSum() throws IOException, NoSuchAlgorithmException {
         String hashString;
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -246,7 +381,6 @@ public abstract class AbstractBindingBean implements Serializable {
         byte[] bytes = baos.toByteArray();
         m.update(bytes);
         hashString = (new BigInteger(1, m.digest())).toString(16);
-        System.out.println("Bean="+ bytes.toString()); 
         return hashString;
     }
     
@@ -0,0 +1,259 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.beans;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jdesktop.observablecollections.ObservableList;
+import org.jdesktop.observablecollections.ObservableListListener;
+
+/**
+ * Attaches change tracking to a graph of beans. The graph is walked through the
+ * same fields that are serialized, i.e. non static and non transient fields, so
+ * the tracked state is the one that was hashed by the previous implementation
+ * of {@link AbstractBindingBean#hasChanges()}. <br/> Setters often fire events
+ * with names different from the field names (e.g. <code>genderType</code> for
+ * the field <code>genderTypeBean</code>), so any property change event marks
+ * the bean as changed, unless its name is the name of a transient field, like
+ * the selected item of a list. Beans and lists that are replaced or removed
+ * stop marking their former parent as changed.
+ */
+final class BeanChangeTracker {
+
+    /**
+     * Marks the owner bean as changed when items are added, removed or
+     * replaced in one of its lists, and tracks the new items.
+     */
+    static class ListChangeListener implements ObservableListListener {
+
+        private final AbstractBindingBean owner;
+
+        ListChangeListener(AbstractBindingBean owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public void listElementsAdded(ObservableList list, int index, int length) {
+            owner.markChanged();
+            for (int i = index; i < index + length && i < list.size(); i++) {
+                trackValue(list.get(i), owner);
+            }
+        }
+
+        @Override
+        public void listElementsRemoved(ObservableList list, int index, List oldElements) {
+            owner.markChanged();
+            if (oldElements != null) {
+                for (Object oldElement : oldElements.toArray()) {
+                    untrackValue(oldElement, owner);
+                }
+            }
+        }
+
+        @Override
+        public void listElementReplaced(ObservableList list, int index, Object oldElement) {
+            owner.markChanged();
+            if (index > -1 && index < list.size() && list.get(index) != oldElement) {
+                untrackValue(oldElement, owner);
+            }
+            if (index > -1 && index < list.size()) {
+                trackValue(list.get(index), owner);
+            }
+        }
+
+        @Override
+        public void listElementPropertyChanged(ObservableList list, int index) {
+        }
+    }
+
+    /**
+     * Serialized fields of a bean class.
+     */
+    private static class StateFields {
+
+        private final Set<String> transientNames = new HashSet<String>();
+        private final List<Field> children = new ArrayList<Field>();
+    }
+    private static final Map<Class<?>, StateFields> stateFields =
+            new ConcurrentHashMap<Class<?>, StateFields>();
+
+    private BeanChangeTracker() {
+    }
+
+    /**
+     * Starts tracking of the bean and all beans and lists reachable from it and
+     * resets their changed flag.
+     *
+     * @param root The bean to track.
+     */
+    static void track(AbstractBindingBean root) {
+        track(root, null, new IdentityHashMap<Object, Boolean>());
+    }
+
+    /**
+     * Starts tracking of the given value if it is a bean or a collection of
+     * beans, setting the owner as its parent.
+     */
+    static void trackValue(Object value, AbstractBindingBean owner) {
+        trackValue(value, owner, new IdentityHashMap<Object, Boolean>());
+    }
+
+    /**
+     * Stops tracking of the given value as part of the owner, if it is a bean or
+     * a collection of beans that the owner does not hold anymore.
+     */
+    static void untrackValue(Object value, AbstractBindingBean owner) {
+        if (value == null || holds(owner, value)) {
+            return;
+        }
+        if (value instanceof AbstractBindingBean) {
+            ((AbstractBindingBean) value).removeChangeTrackingParent(owner);
+        } else if (value instanceof Collection) {
+            if (value instanceof ObservableList) {
+                owner.untrackList((ObservableList) value);
+            }
+            for (Object item : ((Collection) value).toArray()) {
+                untrackValue(item, owner);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the property change is a change of the bean state, i.e.
+     * the property is not held in a transient field of the bean class.
+     */
+    static boolean isStateProperty(Class<?> beanClass, String propertyName) {
+        return propertyName == null
+                || !getStateFields(beanClass).transientNames.contains(propertyName);
+    }
+
+    /**
+     * Returns true if the owner still holds the value in one of its fields or
+     * in a collection held in one of its fields.
+     */
+    private static boolean holds(AbstractBindingBean owner, Object value) {
+        for (Field field : getStateFields(owner.getClass()).children) {
+            Object fieldValue;
+            try {
+                fieldValue = field.get(owner);
+            } catch (IllegalAccessException ex) {
+                continue;
+            }
+            if (fieldValue == value) {
+                return true;
+            }
+            if (fieldValue instanceof Collection) {
+                for (Object item : ((Collection) fieldValue).toArray()) {
+                    if (item == value) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void track(AbstractBindingBean bean, AbstractBindingBean parent,
+            Map<Object, Boolean> visited) {
+        bean.addChangeTrackingParent(parent);
+        if (visited.put(bean, Boolean.TRUE) != null) {
+            return;
+        }
+        bean.startChangeTracking();
+        for (Field field : getStateFields(bean.getClass()).children) {
+            Object value;
+            try {
+                value = field.get(bean);
+            } catch (IllegalAccessException ex) {
+                continue;
+            }
+            trackValue(value, bean, visited);
+        }
+    }
+
+    private static void trackValue(Object value, AbstractBindingBean owner,
+            Map<Object, Boolean> visited) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof AbstractBindingBean) {
+            track((AbstractBindingBean) value, owner, visited);
+        } else if (value instanceof Collection) {
+            if (visited.put(value, Boolean.TRUE) != null) {
+                return;
+            }
+            if (value instanceof ObservableList) {
+                owner.trackList((ObservableList) value);
+            }
+            for (Object item : ((Collection) value).toArray()) {
+                trackValue(item, owner, visited);
+            }
+        }
+    }
+
+    private static StateFields getStateFields(Class<?> beanClass) {
+        StateFields fields = stateFields.get(beanClass);
+        if (fields == null) {
+            fields = new StateFields();
+            for (Class<?> c = beanClass; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers)) {
+                        continue;
+                    }
+                    if (Modifier.isTransient(modifiers)) {
+                        fields.transientNames.add(field.getName());
+                        continue;
+                    }
+                    if (mayHoldBeans(field.getType())) {
+                        field.setAccessible(true);
+                        fields.children.add(field);
+                    }
+                }
+            }
+            stateFields.put(beanClass, fields);
+        }
+        return fields;
+    }
+
+    private static boolean mayHoldBeans(Class<?> type) {
+        return !(type.isPrimitive() || type.isEnum() || type.isArray()
+                || type == String.class || Number.class.isAssignableFrom(type)
+                || Date.class.isAssignableFrom(type) || type == Boolean.class
+                || type == Character.class);
+    }
+}
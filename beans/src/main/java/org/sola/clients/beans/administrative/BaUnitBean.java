@@ -764,19 +764,42 @@ public class BaUnitBean extends BaUnitSummaryBean {
         }
         newCadastreObjectList.clear();
         if(getId()!=null){
-            List<SpatialSearchResultTO> searchResults = 
-                    WSManager.getInstance().getSearchService()
-                    .searchSpatialObjects(BAUNIT_ID_SEARCH, getId(), -1);
-            if(searchResults!=null && searchResults.size()>0){
-                List<String> ids = new ArrayList<String>();
-                for(SpatialSearchResultTO result : searchResults){
-                    ids.add(result.getId());
-                }
-                TypeConverters.TransferObjectListToBeanList(WSManager.getInstance()
-                        .getCadastreService().getCadastreObjects(ids), 
-                        CadastreObjectBean.class, (List)newCadastreObjectList);
+            newCadastreObjectList.addAll(getNewParcels(getId()));
+        }
+    }
+    
+    /** 
+     * Sets the list of new parcels, when they are loaded in advance with 
+     * {@link #getNewParcels(java.lang.String)}. 
+     */
+    public void setNewCadastreObjectList(List<CadastreObjectBean> newParcels){
+        if(newCadastreObjectList == null){
+            newCadastreObjectList = new SolaList<CadastreObjectBean>();
+        }
+        newCadastreObjectList.clear();
+        newCadastreObjectList.addAll(newParcels);
+    }
+    
+    /** 
+     * Returns list of new parcels, created on the base of the parcels of the 
+     * given BA unit (e.g. result of subdivision). 
+     * @param baUnitId The ID of BA Unit.
+     */
+    public static List<CadastreObjectBean> getNewParcels(String baUnitId){
+        List<CadastreObjectBean> newParcels = new ArrayList<CadastreObjectBean>();
+        List<SpatialSearchResultTO> searchResults = 
+                WSManager.getInstance().getSearchService()
+                .searchSpatialObjects(BAUNIT_ID_SEARCH, baUnitId, -1);
+        if(searchResults!=null && searchResults.size()>0){
+            List<String> ids = new ArrayList<String>();
+            for(SpatialSearchResultTO result : searchResults){
+                ids.add(result.getId());
             }
+            TypeConverters.TransferObjectListToBeanList(WSManager.getInstance()
+                    .getCadastreService().getCadastreObjects(ids), 
+                    CadastreObjectBean.class, (List)newParcels);
         }
+        return newParcels;
     }
     
     /** Filters all child lists to keep only records with current status. */
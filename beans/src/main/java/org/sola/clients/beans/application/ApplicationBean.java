@@ -80,6 +80,7 @@ public class ApplicationBean extends ApplicationSummaryBean {
     public static final String ASSIGNEE_ID_PROPERTY = "assigneeId";
     public static final String STATUS_TYPE_PROPERTY = "statusType";
     public static final String APPLICATION_PROPERTY = "application";
+    public static final String SECTION_PROPERTY = "section";
     public static final String NOT_REQUIRE_FEE_PAID = "Registration Claim";
     private ApplicationActionTypeBean actionBean;
     private String actionNotes;
@@ -110,7 +111,9 @@ public class ApplicationBean extends ApplicationSummaryBean {
     }
 
     public void setSection(String section) {
+        String old = this.section;
         this.section = section;
+        propertySupport.firePropertyChange(SECTION_PROPERTY, old, section);
     }
     
     /**
@@ -136,6 +136,38 @@ public class ApplicationSearchResultBean extends ApplicationSummaryBean {
     public void setServiceStatusList(String serviceStatusList) {
         this.serviceStatusList = serviceStatusList;
     }
+
+    /**
+     * Returns true if the given application has the same row version and the
+     * same values as this one. It is used to find the applications that have
+     * changed when a list of applications is refreshed.
+     *
+     * @param app The application to compare with.
+     */
+    public boolean hasSameValues(ApplicationSearchResultBean app) {
+        return app != null
+                && getRowVersion() == app.getRowVersion()
+                && isFeePaid() == app.isFeePaid()
+                && same(getNr(), app.getNr())
+                && same(getLodgingDatetime(), app.getLodgingDatetime())
+                && same(getExpectedCompletionDate(), app.getExpectedCompletionDate())
+                && same(getAssignedDatetime(), app.getAssignedDatetime())
+                && same(getAgentId(), app.getAgentId())
+                && same(getContactPersonId(), app.getContactPersonId())
+                && same(status, app.getStatus())
+                && same(assigneeId, app.getAssigneeId())
+                && same(assigneeName, app.getAssigneeName())
+                && same(contactPerson, app.getContactPerson())
+                && same(agent, app.getAgent())
+                && same(serviceList, app.getServiceList())
+                && same(serviceStatusList, app.getServiceStatusList())
+                && same(parcel, app.getParcel())
+                && same(section, app.getSection());
+    }
+
+    private static boolean same(Object value1, Object value2) {
+        return value1 == null ? value2 == null : value1.equals(value2);
+    }
     
     
 }
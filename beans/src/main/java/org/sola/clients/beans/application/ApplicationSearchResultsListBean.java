@@ -29,8 +29,18 @@ package org.sola.clients.beans.application;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import javax.swing.SwingUtilities;
 import org.jdesktop.observablecollections.ObservableList;
 import org.jdesktop.observablecollections.ObservableListListener;
 import org.sola.clients.beans.AbstractBindingBean;
@@ -62,6 +72,19 @@ private class AppSearchResultListener implements PropertyChangeListener {
     private ApplicationSearchResultBean selectedApplication;
     
     private AppSearchResultListener appSearchResultListener = new AppSearchResultListener();
+    /**
+     * Loads the unassigned applications while the assigned are loaded by the
+     * calling thread.
+     */
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Application lists loader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
     
     /**
      * Creates object's instance and initializes collection of {@link ApplicationSearchResultBean}.
@@ -87,6 +110,7 @@ private class AppSearchResultListener implements PropertyChangeListener {
             @Override
             public void listElementReplaced(ObservableList list, int index, Object oldElement) {
                 ((ApplicationSearchResultBean) oldElement).removePropertyChangeListener(appSearchResultListener);
+                ((ApplicationSearchResultBean) list.get(index)).addPropertyChangeListener(appSearchResultListener);
             }
 
             @Override
@@ -96,27 +120,172 @@ private class AppSearchResultListener implements PropertyChangeListener {
     }
 
     /**
-     * Fills application search result list with unassigned applications.
+     * Fills application search result list with unassigned applications. The
+     * applications already in the list are kept if they have not changed. The
+     * list is updated on the event dispatch thread.
      */
     public void FillUnassigned() {
-        applicationSearchResultsList.clear();
-        List<ApplicationSearchResultTO> unassignedApplicationsTO =
-                WSManager.getInstance().getSearchService().getUnassignedApplications();
+        final List<ApplicationSearchResultBean> applications = toBeanList(
+                WSManager.getInstance().getSearchService().getUnassignedApplications());
+        runOnEventDispatchThread(new Runnable() {
 
-        TypeConverters.TransferObjectListToBeanList(unassignedApplicationsTO,
-                ApplicationSearchResultBean.class, (List) getApplicationSearchResultsList());
+            @Override
+            public void run() {
+                merge(applications);
+            }
+        });
     }
 
     /**
-     * Fills application search result list with assigned applications.
+     * Fills application search result list with assigned applications. The
+     * applications already in the list are kept if they have not changed. The
+     * list is updated on the event dispatch thread.
      */
     public void FillAssigned() {
-        applicationSearchResultsList.clear();
-        List<ApplicationSearchResultTO> assignedApplicationsTO =
-                WSManager.getInstance().getSearchService().getAssignedApplications();
+        final List<ApplicationSearchResultBean> applications = toBeanList(
+                WSManager.getInstance().getSearchService().getAssignedApplications());
+        runOnEventDispatchThread(new Runnable() {
 
-        TypeConverters.TransferObjectListToBeanList(assignedApplicationsTO,
-                ApplicationSearchResultBean.class, (List) getApplicationSearchResultsList());
+            @Override
+            public void run() {
+                merge(applications);
+            }
+        });
+    }
+
+    /**
+     * Fills both lists, the assigned and unassigned applications. The two
+     * lists are retrieved from the server at the same time. The lists are
+     * bound to tables, so they are updated on the event dispatch thread once
+     * both are retrieved.
+     *
+     * @param assignedList The list to fill with assigned applications.
+     * @param unassignedList The list to fill with unassigned applications.
+     */
+    public static void FillAssignedAndUnassigned(final ApplicationSearchResultsListBean assignedList,
+            final ApplicationSearchResultsListBean unassignedList) {
+        Future<List<ApplicationSearchResultTO>> unassigned = loader.submit(
+                new Callable<List<ApplicationSearchResultTO>>() {
+
+                    @Override
+                    public List<ApplicationSearchResultTO> call() throws Exception {
+                        return WSManager.getInstance().getSearchService().getUnassignedApplications();
+                    }
+                });
+        List<ApplicationSearchResultTO> assigned;
+        try {
+            assigned = WSManager.getInstance().getSearchService().getAssignedApplications();
+        } catch (RuntimeException ex) {
+            unassigned.cancel(true);
+            throw ex;
+        }
+        final List<ApplicationSearchResultBean> unassignedApps;
+        try {
+            unassignedApps = toBeanList(unassigned.get());
+        } catch (InterruptedException ex) {
+            unassigned.cancel(true);
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw new RuntimeException(ex.getCause());
+        }
+        final List<ApplicationSearchResultBean> assignedApps = toBeanList(assigned);
+        runOnEventDispatchThread(new Runnable() {
+
+            @Override
+            public void run() {
+                unassignedList.merge(unassignedApps);
+                assignedList.merge(assignedApps);
+            }
+        });
+    }
+
+    private static List<ApplicationSearchResultBean> toBeanList(
+            List<ApplicationSearchResultTO> applicationsTO) {
+        List<ApplicationSearchResultBean> applications = new ArrayList<ApplicationSearchResultBean>();
+        TypeConverters.TransferObjectListToBeanList(applicationsTO,
+                ApplicationSearchResultBean.class, (List) applications);
+        return applications;
+    }
+
+    /**
+     * Runs the task on the event dispatch thread and waits for it to finish.
+     * If the current thread is the event dispatch thread, the task is run
+     * directly.
+     */
+    private static void runOnEventDispatchThread(Runnable task) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            task.run();
+            return;
+        }
+        try {
+            SwingUtilities.invokeAndWait(task);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    /**
+     * Merges the applications into the list. Applications not in the new list
+     * are removed, changed applications are replaced and new applications are
+     * inserted in their position. Applications that did not change are kept,
+     * so only the changed rows fire list events. The checked state of the
+     * kept and replaced applications is preserved. It must be called on the
+     * event dispatch thread, as the list is bound to a table.
+     *
+     * @param applications The new list of applications.
+     */
+    void merge(List<ApplicationSearchResultBean> applications) {
+        HashSet<String> newIds = new HashSet<String>();
+        for (ApplicationSearchResultBean app : applications) {
+            newIds.add(app.getId());
+        }
+        for (int i = applicationSearchResultsList.size() - 1; i >= 0; i--) {
+            if (!newIds.contains(applicationSearchResultsList.get(i).getId())) {
+                applicationSearchResultsList.remove(i);
+            }
+        }
+
+        HashMap<String, ApplicationSearchResultBean> oldApps = new HashMap<String, ApplicationSearchResultBean>();
+        for (ApplicationSearchResultBean app : applicationSearchResultsList) {
+            oldApps.put(app.getId(), app);
+        }
+        for (int i = 0; i < applications.size(); i++) {
+            ApplicationSearchResultBean app = applications.get(i);
+            ApplicationSearchResultBean oldApp = oldApps.remove(app.getId());
+            if (oldApp == null) {
+                applicationSearchResultsList.add(i, app);
+                continue;
+            }
+            app.setChecked(oldApp.isChecked());
+            if (i < applicationSearchResultsList.size() && applicationSearchResultsList.get(i) == oldApp) {
+                if (!oldApp.hasSameValues(app)) {
+                    applicationSearchResultsList.set(i, app);
+                }
+            } else {
+                // The application has moved in the list
+                applicationSearchResultsList.remove(oldApp);
+                applicationSearchResultsList.add(i, oldApp.hasSameValues(app) ? oldApp : app);
+            }
+        }
+        while (applicationSearchResultsList.size() > applications.size()) {
+            // Only if the list had the same application more than once
+            applicationSearchResultsList.remove(applicationSearchResultsList.size() - 1);
+        }
     }
 
     /**
@@ -27,53 +27,218 @@
  */
 package org.sola.clients.beans.cache;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /** 
  * Cache object class with simple methods to store cached objects and values 
- * during the user's session.
+ * during the user's session. The cache can be safely used from different 
+ * threads. Objects may have optional time to live, after which they are 
+ * removed from the cache.
  */
 public class Cache {
     
-    private HashMap cache;
+    /** Holds cached object and its expiration time.*/
+    private static class Entry
+    {
+        private final Object value;
+        private final long expiresAt;
+        
+        Entry(Object value, long ttl)
+        {
+            this.value = value;
+            this.expiresAt = ttl > 0 ? System.currentTimeMillis() + ttl : 0;
+        }
+        
+        boolean isExpired()
+        {
+            return expiresAt > 0 && System.currentTimeMillis() > expiresAt;
+        }
+    }
     
-    /** Initializes {@link HashMap} object to keep cache data.*/
+    private final ConcurrentMap<String, Entry> cache;
+    private final ConcurrentMap<String, Long> timeToLive;
+    private final ConcurrentMap<String, FutureTask<Object>> loads;
+    private final List<CacheListener> listeners;
+    
+    /** Initializes {@link ConcurrentHashMap} objects to keep cache data.*/
     Cache()
     {
-        cache = new HashMap();
+        cache = new ConcurrentHashMap<String, Entry>();
+        timeToLive = new ConcurrentHashMap<String, Long>();
+        loads = new ConcurrentHashMap<String, FutureTask<Object>>();
+        listeners = new CopyOnWriteArrayList<CacheListener>();
     }
     
     /** Puts object into the cache.*/
     public void put(String name, Object obj)
     {
-        cache.put(name, obj);
+        Long ttl = timeToLive.get(name);
+        Entry old = cache.put(name, new Entry(obj, ttl == null ? 0 : ttl));
+        if (old != null && old.value != obj) {
+            fireInvalidated(name);
+        }
+    }
+    
+    /** Puts all objects from the given map into the cache at once.*/
+    public void putAll(Map<String, ?> objects)
+    {
+        for (Map.Entry<String, ?> entry : objects.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /** 
+     * Sets time to live for the objects stored under the given name. Applies 
+     * to the objects put into the cache after this call.
+     * @param name Object name.
+     * @param ttl Time to live in milliseconds. 0 or less means no expiration.
+     */
+    public void setTimeToLive(String name, long ttl)
+    {
+        if (ttl > 0) {
+            timeToLive.put(name, ttl);
+        } else {
+            timeToLive.remove(name);
+        }
     }
     
     /** Checks if object exists in the cache.*/
     public boolean contains(String name)
     {
-        return cache.containsKey(name);
+        return getEntry(name) != null;
     }
     
     /** Returns cached object.*/
     public Object get(String name)
     {
-        if(cache.containsKey(name))
-            return cache.get(name);
-        else
+        Entry entry = getEntry(name);
+        if (entry == null) {
             return null;
+        }
+        return entry.value;
+    }
+    
+    /** 
+     * Returns cached object or loads it with the given loader if object is 
+     * not in the cache. If several threads request the same missing object 
+     * at the same time, the loader is called only once and all threads 
+     * receive the same result.
+     * @param name Object name.
+     * @param loader Loader to call if object is missing.
+     * @throws Exception Exception thrown by the loader.
+     */
+    public Object get(final String name, Callable<?> loader) throws Exception
+    {
+        Entry entry = getEntry(name);
+        if (entry != null) {
+            return entry.value;
+        }
+        
+        final Callable<Object> load = (Callable<Object>) loader;
+        FutureTask<Object> task = new FutureTask<Object>(new Callable<Object>() {
+
+            @Override
+            public Object call() throws Exception {
+                // Another thread may have finished loading between the check
+                // above and putIfAbsent, and removed its task already
+                Entry loaded = getEntry(name);
+                return loaded != null ? loaded.value : load.call();
+            }
+        });
+        FutureTask<Object> loading = loads.putIfAbsent(name, task);
+        
+        if (loading == null) {
+            loading = task;
+            try {
+                task.run();
+                if (loads.get(name) == task && !task.isCancelled()) {
+                    try {
+                        Object value = task.get();
+                        Entry current = getEntry(name);
+                        if (current == null || current.value != value) {
+                            put(name, value);
+                        }
+                    } catch (ExecutionException ex) {
+                        // Will be rethrown below
+                    }
+                }
+            } finally {
+                loads.remove(name, task);
+            }
+        }
+        
+        try {
+            return loading.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
     }
     
     /** Removes object from the cache. */
     public void remove(String name)
     {
-        if(cache.containsKey(name))
-            cache.remove(name);
+        FutureTask<Object> loading = loads.remove(name);
+        if (cache.remove(name) != null || loading != null) {
+            fireInvalidated(name);
+        }
     }
     
     /** Clears all values from the cache. */
     public void clear()
     {
-        cache.clear();
+        List<String> names = new ArrayList<String>(cache.keySet());
+        loads.clear();
+        for (String name : names) {
+            if (cache.remove(name) != null) {
+                fireInvalidated(name);
+            }
+        }
+    }
+    
+    /** Registers listener to be notified when object is removed or replaced.*/
+    public void addCacheListener(CacheListener listener)
+    {
+        listeners.add(listener);
+    }
+    
+    /** Removes cache listener.*/
+    public void removeCacheListener(CacheListener listener)
+    {
+        listeners.remove(listener);
+    }
+    
+    /** Returns cache entry, removing it if it has expired.*/
+    private Entry getEntry(String name)
+    {
+        Entry entry = cache.get(name);
+        if (entry != null && entry.isExpired()) {
+            if (cache.remove(name, entry)) {
+                fireInvalidated(name);
+            }
+            return null;
+        }
+        return entry;
+    }
+    
+    private void fireInvalidated(String name)
+    {
+        for (CacheListener listener : listeners) {
+            listener.cacheInvalidated(name);
+        }
     }
 }
@@ -29,6 +29,11 @@ package org.sola.clients.beans.cache;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.sola.clients.beans.AbstractBindingBean;
@@ -46,7 +51,7 @@ import org.sola.webservices.transferobjects.AbstractTO;
 
 public final class CacheManager {
 
-    private static Cache cache = new Cache();
+    private static final Cache cache = new Cache();
     private static final String LIST_POSTFIX = "_LIST";
     private static final String MAP_POSTFIX = "_MAP";
     
@@ -499,6 +504,276 @@ public final class CacheManager {
                 GET_HIERARCHY_LEVELS, HIERARCHY_LEVEL_KEY);
     }
 
+    /**
+     * Describes the source of the reference data list, used to refresh lists
+     * kept in the local snapshot.
+     */
+    private static class CodeListSource {
+
+        private final Class<? extends AbstractBindingBean> beanClass;
+        private final String methodName;
+        private final boolean adminService;
+
+        CodeListSource(Class<? extends AbstractBindingBean> beanClass,
+                String methodName, boolean adminService) {
+            this.beanClass = beanClass;
+            this.methodName = methodName;
+            this.adminService = adminService;
+        }
+
+        AbstractWSClient getWsClient() {
+            if (adminService) {
+                return WSManager.getInstance().getAdminService();
+            }
+            return WSManager.getInstance().getReferenceDataService();
+        }
+    }
+    private static final int WARM_UP_THREADS = 6;
+    private static final Map<String, CodeListSource> CODE_LIST_SOURCES = new LinkedHashMap<String, CodeListSource>();
+    private static volatile CacheSnapshot snapshot;
+    private static volatile boolean snapshotEnabled = false;
+    private static volatile String snapshotServer = "";
+    private static final Set<String> snapshotServedKeys =
+            Collections.synchronizedSet(new HashSet<String>());
+    private static Thread refreshThread;
+
+    static {
+        register(BR_VALIDATION_TARGET_TYPE_KEY, BrValidationTargetTypeBean.class, GET_BR_VALIDATION_TARGET_TYPES, false);
+        register(BA_UNIT_REL_TYPE_KEY, BaUnitRelTypeBean.class, GET_BA_UNIT_REL_TYPES, false);
+        register(BR_TECHNICAL_TYPE_KEY, BrTechnicalTypeBean.class, GET_BR_TECHNICAL_TYPES, false);
+        register(BR_SEVERITY_TYPE_KEY, BrSeverityTypeBean.class, GET_BR_SEVERITY_TYPES, false);
+        register(REQUEST_CATEGORY_TYPE_KEY, RequestCategoryTypeBean.class, GET_REQUEST_CATEGORY_TYPES, false);
+        register(LANGUAGE_KEY, LanguageBean.class, GET_LANGUAGES, true);
+        register(ROLES_KEY, RoleBean.class, GET_ROLES, true);
+        register(TYPE_ACTIONS_KEY, TypeActionBean.class, GET_TYPE_ACTIONS, false);
+        register(CHANGE_STATUS_TYPE_CODES_KEY, ChangeStatusTypeBean.class, GET_CHANGE_STATUS_TYPES, false);
+        register(CADASTRE_OBJECT_TYPE_CODES_KEY, CadastreObjectTypeBean.class, GET_CADASTRE_OBJECT_TYPES, false);
+        register(LAND_USE_TYPE_CODES_KEY, LandUseTypeBean.class, GET_LAND_USE_TYPES, false);
+        register(SOURCE_BA_UNIT_RELATION_TYPE_CODES_KEY, SourceBaUnitRelationTypeBean.class, GET_SOURCE_BA_UNIT_RELATION_TYPES, false);
+        register(REGISTRATION_STATUS_TYPE_CODES_KEY, RegistrationStatusTypeBean.class, GET_REGISTRATION_STATUS_TYPES, false);
+        register(RRR_TYPE_CODES_KEY, RrrTypeBean.class, GET_RRR_TYPES, false);
+        register(RRR_GROUP_TYPE_CODES_KEY, RrrGroupTypeBean.class, GET_RRR_GROUP_TYPES, false);
+        register(MORTGAGE_TYPE_CODES_KEY, MortgageTypeBean.class, GET_MORTGAGE_TYPES, false);
+        register(BA_UNIT_TYPE_CODES_KEY, BaUnitTypeBean.class, GET_BA_UNIT_TYPES, false);
+        register(ID_TYPE_CODES_KEY, IdTypeBean.class, GET_ID_TYPES, false);
+        register(LEASE_CONDITION_CODES_KEY, LeaseConditionBean.class, GET_LEASE_CONDITIONS, false);
+        register(PARTY_TYPE_CODES_KEY, PartyTypeBean.class, GET_PARTY_TYPES, false);
+        register(PARTY_ROLE_TYPE_CODES_KEY, PartyRoleTypeBean.class, GET_PARTY_ROLES, false);
+        register(SERVICE_STATUS_TYPE_CODES_KEY, ServiceStatusTypeBean.class, GET_SERVICE_STATUS_TYPES, false);
+        register(SERVICE_ACTION_TYPE_CODES_KEY, ServiceActionTypeBean.class, GET_SERVICE_ACTION_TYPES, false);
+        register(APP_ACTION_TYPE_CODES_KEY, ApplicationActionTypeBean.class, GET_APPLICATION_ACTION_TYPES, false);
+        register(APP_STATUS_TYPE_CODES_KEY, ApplicationStatusTypeBean.class, GET_APPLICATION_STATUS_TYPES, false);
+        register(SOURCE_TYPES_KEY, SourceTypeBean.class, GET_SOURCE_TYPES, false);
+        register(COMMUNICATION_TYPES_KEY, CommunicationTypeBean.class, GET_COMMUNICATION_TYPES, false);
+        register(GENDER_TYPES_KEY, GenderTypeBean.class, GET_GENDER_TYPES, false);
+        register(nation_typeS_KEY, NationTypeBean.class, GET_nation_typeS, false);
+        register(REQUEST_TYPES_KEY, RequestTypeBean.class, GET_REQUEST_TYPES, false);
+        register(HIERARCHY_LEVEL_KEY, HierarchyLevelBean.class, GET_HIERARCHY_LEVELS, false);
+        register(DISPUTE_CATEGORY_CODES_KEY, DisputeCategoryBean.class, GET_DISPUTE_CATEGORY, false);
+        register(DISPUTE_STATUS_CODES_KEY, DisputeStatusBean.class, GET_DISPUTE_STATUS, false);
+        register(DISPUTE_TYPE_CODES_KEY, DisputeTypeBean.class, GET_DISPUTE_TYPE, false);
+        register(DISPUTE_ROLE_TYPE_CODES_KEY, DisputeRoleTypeBean.class, GET_DISPUTE_ROLE_TYPE, false);
+        register(OTHER_AUTHORITIES_CODES_KEY, OtherAuthoritiesBean.class, GET_OTHER_AUTHORITIES, false);
+    }
+
+    private static void register(String key, Class<? extends AbstractBindingBean> beanClass,
+            String methodName, boolean adminService) {
+        CODE_LIST_SOURCES.put(key, new CodeListSource(beanClass, methodName, adminService));
+    }
+
+    /**
+     * Sets web services configuration used to connect to the server. Snapshot
+     * is kept separately for every server, so the lists of one server are never
+     * served for another one. If the server has changed, the cache is cleared.
+     *
+     * @param config Configuration settings for the Web-services
+     * initialization.
+     */
+    public static synchronized void setServerConfig(Map<String, String> config) {
+        String server = config == null ? "" : new TreeMap<String, String>(config).toString();
+        if (!server.equals(snapshotServer)) {
+            clear();
+            snapshotServer = server;
+        }
+    }
+
+    /**
+     * Loads reference data lists saved in the local snapshot during previous
+     * sessions into the cache. Lists, which are not in the snapshot will be
+     * fetched from the server on the first request. Once loaded, snapshot is
+     * reloaded automatically after the cache is cleared.
+     *
+     * @see #refreshSnapshot()
+     */
+    public static synchronized void loadSnapshot() {
+        snapshotEnabled = true;
+        if (snapshot != null) {
+            return;
+        }
+        snapshot = CacheSnapshot.load(snapshotServer);
+        for (String key : snapshot.getKeys()) {
+            if (CODE_LIST_SOURCES.containsKey(key) && !cache.contains(key)) {
+                cache.put(key, new CachedList(snapshot.getList(key)));
+                snapshotServedKeys.add(key);
+            }
+        }
+    }
+
+    /**
+     * Starts background check of the lists served from the local snapshot in
+     * this session. Each list is requested from the server and replaced in the
+     * cache only if its content has changed. Lists already fetched from the
+     * server in this session are not requested again. Snapshot is saved when
+     * all lists are checked.
+     */
+    public static synchronized void refreshSnapshot() {
+        if (snapshot == null || snapshotServedKeys.isEmpty()
+                || (refreshThread != null && refreshThread.isAlive())) {
+            return;
+        }
+        final CacheSnapshot currentSnapshot = snapshot;
+        final List<String> keys;
+        synchronized (snapshotServedKeys) {
+            keys = new ArrayList<String>(snapshotServedKeys);
+        }
+
+        refreshThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                for (String key : keys) {
+                    CodeListSource source = CODE_LIST_SOURCES.get(key);
+                    if (source == null || !snapshotServedKeys.contains(key)) {
+                        continue;
+                    }
+                    try {
+                        List beanList = fetchBeanList(source.beanClass,
+                                source.getWsClient(), source.methodName);
+                        snapshotServedKeys.remove(key);
+                        if (currentSnapshot.update(key, beanList) && currentSnapshot == snapshot) {
+                            cache.put(key, new CachedList(beanList));
+                            cache.remove(key.replace(LIST_POSTFIX, MAP_POSTFIX));
+                        }
+                    } catch (Exception ex) {
+                        Logger.getLogger(CacheManager.class.getName()).log(Level.WARNING,
+                                "Failed to refresh reference data list " + key, ex);
+                    }
+                }
+                currentSnapshot.save();
+            }
+        }, "CacheManager-refresh");
+        refreshThread.setDaemon(true);
+        refreshThread.start();
+    }
+
+    /**
+     * Saves reference data lists, fetched from the server during current
+     * session, into the local snapshot.
+     */
+    public static synchronized void saveSnapshot() {
+        if (snapshot != null) {
+            snapshot.save();
+        }
+    }
+
+    /**
+     * Loads all reference data lists, which are not yet in the cache. Lists
+     * are requested from the server in parallel, using a bounded number of
+     * threads, and put into the cache at once when all requests are complete.
+     * Lists failed to load will be fetched on the first request. <br />This
+     * method blocks until all lists are loaded and should not be called from
+     * the Event Dispatch Thread.
+     *
+     * @return Map of list keys and time in milliseconds spent to load each
+     * list.
+     */
+    public static Map<String, Long> warmUp() {
+        final Map<String, CachedList> lists = new HashMap<String, CachedList>();
+        final Map<String, Long> timings = new LinkedHashMap<String, Long>();
+        Map<String, Future<List>> tasks = new LinkedHashMap<String, Future<List>>();
+        ExecutorService executor = Executors.newFixedThreadPool(WARM_UP_THREADS);
+        long start = System.currentTimeMillis();
+
+        try {
+            for (Map.Entry<String, CodeListSource> entry : CODE_LIST_SOURCES.entrySet()) {
+                if (cache.contains(entry.getKey())) {
+                    continue;
+                }
+                final String key = entry.getKey();
+                final CodeListSource source = entry.getValue();
+
+                tasks.put(key, executor.submit(new Callable<List>() {
+
+                    @Override
+                    public List call() throws Exception {
+                        long listStart = System.currentTimeMillis();
+                        List beanList = fetchBeanList(source.beanClass,
+                                source.getWsClient(), source.methodName);
+                        synchronized (timings) {
+                            timings.put(key, System.currentTimeMillis() - listStart);
+                        }
+                        return beanList;
+                    }
+                }));
+            }
+
+            for (Map.Entry<String, Future<List>> task : tasks.entrySet()) {
+                try {
+                    lists.put(task.getKey(), new CachedList(task.getValue().get()));
+                } catch (ExecutionException ex) {
+                    Logger.getLogger(CacheManager.class.getName()).log(Level.WARNING,
+                            "Failed to load reference data list " + task.getKey(), ex.getCause());
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Publish all loaded lists together
+        cache.putAll(lists);
+        for (Map.Entry<String, CachedList> list : lists.entrySet()) {
+            updateSnapshot(list.getKey(), list.getValue());
+        }
+
+        Logger logger = Logger.getLogger(CacheManager.class.getName());
+        synchronized (timings) {
+            for (Map.Entry<String, Long> timing : timings.entrySet()) {
+                logger.log(Level.INFO, "Reference data list {0} loaded in {1} ms",
+                        new Object[]{timing.getKey(), timing.getValue()});
+            }
+            logger.log(Level.INFO, "{0} reference data lists loaded in {1} ms",
+                    new Object[]{lists.size(), System.currentTimeMillis() - start});
+            return new LinkedHashMap<String, Long>(timings);
+        }
+    }
+
+    /**
+     * Puts the list fetched from the server into the snapshot. The list is not
+     * requested again by {@link #refreshSnapshot()} in this session.
+     */
+    private static void updateSnapshot(String key, List list) {
+        snapshotServedKeys.remove(key);
+        CacheSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null && CODE_LIST_SOURCES.containsKey(key)) {
+            currentSnapshot.update(key, list);
+        }
+    }
+
+    /**
+     * Calls web service method to get the list of transfer objects and
+     * converts it into the list of beans.
+     */
+    private static <T extends AbstractBindingBean, S extends AbstractTO, W extends AbstractWSClient> List<T> fetchBeanList(
+            Class<T> beanClass, W wsClient, String methodName)
+            throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        List<T> result = new ArrayList<T>();
+        List<S> toList = (List) wsClient.getClass().getMethod(methodName).invoke(wsClient);
+        TypeConverters.TransferObjectListToBeanList(toList, beanClass, (List) result);
+        return result;
+    }
+
     /**
      * Generic method to create cached list of the beans, representing reference
      * table data. The list holds full object, transfered from the server. If
@@ -511,19 +786,35 @@ public final class CacheManager {
      * @return Returns cached map.
      */
     private static <T extends AbstractBindingBean, S extends AbstractTO, W extends AbstractWSClient> List<T> getCachedBeanList(
-            Class<T> beanClass, W wsClient, String methodName, String key) {
+            final Class<T> beanClass, final W wsClient, final String methodName, final String key) {
 
         List<T> result = new ArrayList<T>();
 
+        if (snapshotEnabled && snapshot == null) {
+            // Snapshot was dropped together with the cache, e.g. on language change
+            loadSnapshot();
+        }
+
         if (cache.contains(key)) {
             result = (List<T>) cache.get(key);
+            if (!(result instanceof CachedList)) {
+                result = new CachedList<T>(result);
+                cache.put(key, result);
+            }
         } else {
             if (wsClient != null && methodName != null && !methodName.equals("")) {
                 try {
-                    List<S> toList;
-                    toList = (List) wsClient.getClass().getMethod(methodName).invoke(wsClient);
-                    TypeConverters.TransferObjectListToBeanList(toList, beanClass, (List) result);
-                    cache.put(key, result);
+                    // Concurrent requests of the same list share one web service call
+                    result = (List<T>) cache.get(key, new Callable<List<T>>() {
+
+                        @Override
+                        public List<T> call() throws Exception {
+                            CachedList<T> list = new CachedList<T>(
+                                    CacheManager.<T, S, W>fetchBeanList(beanClass, wsClient, methodName));
+                            updateSnapshot(key, list);
+                            return list;
+                        }
+                    });
                 } catch (IllegalAccessException ex) {
                     MessageUtility.displayMessage(ClientMessage.GENERAL_UNEXPECTED,
                             new Object[]{ex.getLocalizedMessage()});
@@ -538,9 +829,17 @@ public final class CacheManager {
                 } catch (SecurityException ex) {
                     MessageUtility.displayMessage(ClientMessage.GENERAL_UNEXPECTED,
                             new Object[]{ex.getLocalizedMessage()});
+                } catch (RuntimeException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    MessageUtility.displayMessage(ClientMessage.GENERAL_UNEXPECTED,
+                            new Object[]{ex.getLocalizedMessage()});
                 }
             }
         }
+        if (result instanceof CachedList) {
+            return result;
+        }
         return Collections.unmodifiableList(result);
     }
 
@@ -555,6 +854,9 @@ public final class CacheManager {
      */
     private static <T extends AbstractCodeBean> Map getCachedMap(
             List<T> beanList, String key) {
+        if (beanList instanceof CachedList) {
+            return ((CachedList<T>) beanList).getDisplayValues();
+        }
         Map map = new HashMap();
 
         if (cache.contains(key)) {
@@ -570,11 +872,15 @@ public final class CacheManager {
     }
 
     /**
-     * Generic method to find the bean by code in the given collection.
+     * Generic method to find the bean by code in the given collection. Lists
+     * returned by the cache manager are looked up by their code index.
      *
      * @return Returns bean or null if it wasn't found.
      */
     public static <T extends AbstractCodeBean> T getBeanByCode(List<T> list, String code) {
+        if (list instanceof CachedList) {
+            return ((CachedList<T>) list).getByCode(code);
+        }
         T result = null;
         for (Iterator<T> it = list.iterator(); it.hasNext();) {
             AbstractCodeBean bean = it.next();
@@ -587,11 +893,15 @@ public final class CacheManager {
     }
 
     /**
-     * Generic method to find the bean by ID in the given collection.
+     * Generic method to find the bean by ID in the given collection. Lists
+     * returned by the cache manager are looked up by their ID index.
      *
      * @return Returns bean or null if it wasn't found.
      */
     public static <T extends AbstractIdBean> T getBeanById(List<T> list, String id) {
+        if (list instanceof CachedList) {
+            return ((CachedList<T>) list).getById(id);
+        }
         T result = null;
         for (Iterator<T> it = list.iterator(); it.hasNext();) {
             AbstractIdBean bean = it.next();
@@ -623,6 +933,13 @@ public final class CacheManager {
     public static void clear() {
         // Clears all cache data
         cache.clear();
+        // Snapshot is locale specific and will be reloaded for the new locale
+        // on the next list request
+        synchronized (CacheManager.class) {
+            saveSnapshot();
+            snapshot = null;
+            snapshotServedKeys.clear();
+        }
     }
 
     /**
@@ -630,9 +947,34 @@ public final class CacheManager {
      */
     public static void remove(String key) {
         // Clears key 
-        if (cache.contains(key)) {
-            cache.remove(key);
-        }
+        cache.remove(key);
+    }
+
+    /**
+     * Sets time to live for the object stored under the given key. After this
+     * time object is removed from the cache and will be reloaded on the next
+     * request.
+     *
+     * @param key The key of the cached object.
+     * @param ttl Time to live in milliseconds. 0 or less means no expiration.
+     */
+    public static void setTimeToLive(String key, long ttl) {
+        cache.setTimeToLive(key, ttl);
+    }
+
+    /**
+     * Registers listener to be notified when cached object is removed,
+     * replaced or expired.
+     */
+    public static void addCacheListener(CacheListener listener) {
+        cache.addCacheListener(listener);
+    }
+
+    /**
+     * Removes cache listener.
+     */
+    public static void removeCacheListener(CacheListener listener) {
+        cache.removeCacheListener(listener);
     }
     
      /*
@@ -0,0 +1,232 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.beans.cache;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.sola.common.FileUtility;
+
+/**
+ * Local copy of the reference data lists, kept in the user's cache folder
+ * between sessions. Every list is stored together with the digest of its
+ * content, which is compared with the digest of the list returned by the
+ * server to decide whether the cached copy has to be replaced.
+ */
+class CacheSnapshot {
+
+    /**
+     * Version of the snapshot file format. Snapshots with different version
+     * are ignored and overwritten.
+     */
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_PREFIX = "refdata_";
+    private static final String FILE_EXTENSION = ".ser";
+
+    /**
+     * Holds cached list and the digest of its content.
+     */
+    private static class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private String digest;
+        private ArrayList beans;
+
+        Entry(String digest, ArrayList beans) {
+            this.digest = digest;
+            this.beans = beans;
+        }
+    }
+    private final String fileName;
+    private HashMap<String, Entry> entries;
+    private boolean changed;
+
+    private CacheSnapshot(String fileName) {
+        this.fileName = fileName;
+        this.entries = new HashMap<String, Entry>();
+        this.changed = false;
+    }
+
+    /**
+     * Reads snapshot for the given server and the current locale from the
+     * cache folder. If the file doesn't exist or can't be read, empty snapshot
+     * is returned.
+     *
+     * @param server Web services configuration of the server.
+     */
+    static CacheSnapshot load(String server) {
+        CacheSnapshot snapshot = new CacheSnapshot(FileUtility.getCachePath()
+                + FILE_PREFIX + getServerDigest(server) + "_"
+                + Locale.getDefault().toString() + FILE_EXTENSION);
+        File file = new File(snapshot.fileName);
+
+        if (!file.exists()) {
+            return snapshot;
+        }
+
+        ObjectInputStream in = null;
+        try {
+            in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() == FORMAT_VERSION) {
+                snapshot.entries = (HashMap<String, Entry>) in.readObject();
+            }
+        } catch (Exception ex) {
+            // Snapshot is outdated or corrupted, it will be rebuilt from the server data
+            Logger.getLogger(CacheSnapshot.class.getName()).log(Level.WARNING,
+                    "Failed to read reference data snapshot " + snapshot.fileName, ex);
+            snapshot.entries = new HashMap<String, Entry>();
+        } finally {
+            close(in);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns keys of the lists stored in the snapshot.
+     */
+    synchronized Set<String> getKeys() {
+        return new HashSet<String>(entries.keySet());
+    }
+
+    /**
+     * Returns list stored under the given key or null if there is no such
+     * list.
+     */
+    synchronized List getList(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        return entry.beans;
+    }
+
+    /**
+     * Puts the list into the snapshot if its content is different from the
+     * stored version.
+     *
+     * @param key The key of the list.
+     * @param beans List of beans to store.
+     * @return True if stored version was replaced, otherwise false.
+     */
+    synchronized boolean update(String key, List beans) {
+        String digest = getDigest(beans);
+        Entry entry = entries.get(key);
+
+        if (entry != null && digest != null && digest.equals(entry.digest)) {
+            return false;
+        }
+        entries.put(key, new Entry(digest, new ArrayList(beans)));
+        changed = true;
+        return true;
+    }
+
+    /**
+     * Writes snapshot into the cache folder if there were any changes since
+     * it was loaded or saved last time.
+     */
+    synchronized void save() {
+        if (!changed) {
+            return;
+        }
+
+        File file = new File(fileName);
+        File tmpFile = new File(fileName + ".tmp");
+        ObjectOutputStream out = null;
+
+        try {
+            out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            out.writeInt(FORMAT_VERSION);
+            out.writeObject(entries);
+            out.close();
+            out = null;
+
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Failed to replace " + fileName);
+            }
+            if (!tmpFile.renameTo(file)) {
+                throw new IOException("Failed to rename " + tmpFile.getName());
+            }
+            changed = false;
+        } catch (IOException ex) {
+            Logger.getLogger(CacheSnapshot.class.getName()).log(Level.WARNING,
+                    "Failed to save reference data snapshot " + fileName, ex);
+        } finally {
+            close(out);
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * Calculates SHA1 digest of the serialized list content.
+     */
+    private static String getDigest(List beans) {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(baos);
+            oos.writeObject(new ArrayList(beans));
+            oos.close();
+
+            MessageDigest m = MessageDigest.getInstance("SHA1");
+            m.update(baos.toByteArray());
+            return (new BigInteger(1, m.digest())).toString(16);
+        } catch (IOException ex) {
+            return null;
+        } catch (NoSuchAlgorithmException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Calculates SHA1 digest of the server configuration to use it in the file
+     * name.
+     */
+    private static String getServerDigest(String server) {
+        try {
+            MessageDigest m = MessageDigest.getInstance("SHA1");
+            m.update(server.getBytes("UTF-8"));
+            return (new BigInteger(1, m.digest())).toString(16);
+        } catch (IOException ex) {
+            return Integer.toHexString(server.hashCode());
+        } catch (NoSuchAlgorithmException ex) {
+            return Integer.toHexString(server.hashCode());
+        }
+    }
+
+    private static void close(Closeable stream) {
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException ex) {
+            }
+        }
+    }
+}
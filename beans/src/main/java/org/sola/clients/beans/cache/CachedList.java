@@ -0,0 +1,117 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.beans.cache;
+
+import java.io.Serializable;
+import java.util.*;
+import org.sola.clients.beans.AbstractBindingBean;
+import org.sola.clients.beans.AbstractCodeBean;
+import org.sola.clients.beans.AbstractIdBean;
+
+/**
+ * Read-only list of cached beans with code and ID indexes. Indexes are built
+ * once, when the list is created, to avoid scanning the list on every lookup.
+ * The list is serializable, because beans keep it in their fields.
+ */
+public final class CachedList<T extends AbstractBindingBean> extends AbstractList<T>
+        implements RandomAccess, Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private final List<T> list;
+    private final Map<String, T> codeIndex;
+    private final Map<String, T> idIndex;
+    private final Map<String, String> displayValues;
+
+    /**
+     * Class constructor.
+     *
+     * @param beans The list of beans to cache.
+     */
+    CachedList(List<T> beans) {
+        list = new ArrayList<T>(beans);
+        Map<String, T> codes = new HashMap<String, T>(list.size() * 2);
+        Map<String, T> ids = new HashMap<String, T>(list.size() * 2);
+        Map<String, String> values = new LinkedHashMap<String, String>(list.size() * 2);
+
+        for (T bean : list) {
+            if (bean instanceof AbstractCodeBean) {
+                AbstractCodeBean codeBean = (AbstractCodeBean) bean;
+                if (codeBean.getCode() != null && !codes.containsKey(codeBean.getCode())) {
+                    codes.put(codeBean.getCode(), bean);
+                }
+                values.put(codeBean.getCode(), codeBean.getDisplayValue());
+            }
+            if (bean instanceof AbstractIdBean) {
+                AbstractIdBean idBean = (AbstractIdBean) bean;
+                if (idBean.getId() != null && !ids.containsKey(idBean.getId())) {
+                    ids.put(idBean.getId(), bean);
+                }
+            }
+        }
+        codeIndex = Collections.unmodifiableMap(codes);
+        idIndex = Collections.unmodifiableMap(ids);
+        displayValues = Collections.unmodifiableMap(values);
+    }
+
+    @Override
+    public T get(int index) {
+        return list.get(index);
+    }
+
+    @Override
+    public int size() {
+        return list.size();
+    }
+
+    /**
+     * Returns bean by code or null if it wasn't found.
+     */
+    public T getByCode(String code) {
+        if (code == null) {
+            return null;
+        }
+        return codeIndex.get(code);
+    }
+
+    /**
+     * Returns bean by ID or null if it wasn't found.
+     */
+    public T getById(String id) {
+        if (id == null) {
+            return null;
+        }
+        return idIndex.get(id);
+    }
+
+    /**
+     * Returns read-only map of codes and display values.
+     */
+    public Map<String, String> getDisplayValues() {
+        return displayValues;
+    }
+}
@@ -47,6 +47,7 @@ public class CadastreObjectSearchResultListBean extends AbstractBindingBean {
     public CadastreObjectSearchResultListBean() {
         super();
         cadastreObjects = new SolaObservableList<CadastreObjectSearchResultBean>();
+        cadastreObjects.setIdentityIndexed(true);
     }
 
     public SolaObservableList<CadastreObjectSearchResultBean> getCadastreObjects() {
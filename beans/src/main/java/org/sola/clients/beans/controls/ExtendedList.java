@@ -28,13 +28,19 @@
 package org.sola.clients.beans.controls;
 
 import java.beans.*;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import ognl.Ognl;
 import ognl.OgnlContext;
@@ -63,7 +69,12 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
     private transient List<ObservableListListener> listeners;
     private ExtendedListFilter filter;
     private String filterExpression;
+    private transient Object compiledFilterExpression;
+    private transient OgnlContext filterContext;
     private PropertyChangeListener elementListener;
+    private transient boolean identityIndexed;
+    private transient IdentityIndex positions;
+    private transient Set<Object> newItems;
 
     /**
      * Default class constructor
@@ -109,6 +120,73 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
         initElementListener();
     }
 
+    /**
+     * Restores listeners collection after the list is deserialized.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        listeners = new CopyOnWriteArrayList<ObservableListListener>();
+    }
+
+    /**
+     * Writes the same fields as default serialization. In identity indexed mode
+     * the newly added elements are written from a copy of the identity set, so
+     * the list itself is not changed by serialization.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        List<E> newItemsCopy = newItemsList;
+        if (newItems != null) {
+            newItemsCopy = new ArrayList<E>((Collection<E>) newItems);
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("supportsElementPropertyChanged", supportsElementPropertyChanged);
+        fields.put("list", list);
+        fields.put("newItemsList", newItemsCopy);
+        fields.put("filteredList", filteredList);
+        fields.put("filter", filter);
+        fields.put("filterExpression", filterExpression);
+        fields.put("elementListener", elementListener);
+        out.writeFields();
+    }
+
+    /**
+     * Returns true if the list is in identity indexed mode.
+     *
+     * @see #setIdentityIndexed(boolean)
+     */
+    public boolean isIdentityIndexed() {
+        return identityIndexed;
+    }
+
+    /**
+     * Switches identity indexed mode. In this mode the list keeps positions of
+     * its elements and the set of newly added elements in identity maps, making
+     * {@link #getRealIndex(java.lang.Object)}, {@link #remove(java.lang.Object)},
+     * {@link #isNewlyAdded(java.lang.Object)} and filtering constant time
+     * operations instead of scanning the list. Elements are compared by
+     * reference, {@link #indexOf(java.lang.Object)} still uses {@code equals}
+     * method. Use it for large lists, e.g. populated with search results or
+     * imported objects.
+     */
+    public void setIdentityIndexed(boolean identityIndexed) {
+        if (this.identityIndexed == identityIndexed) {
+            return;
+        }
+        this.identityIndexed = identityIndexed;
+        if (identityIndexed) {
+            positions = new IdentityIndex();
+            positions.invalidate();
+            newItems = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+            newItems.addAll(newItemsList);
+            newItemsList.clear();
+        } else {
+            positions = null;
+            newItemsList = new ArrayList<E>((Collection<E>) newItems);
+            newItems = null;
+        }
+        filteredList.setIdentityIndexed(identityIndexed);
+    }
+
     /**
      * Creates new instance of element property change listener.
      */
@@ -137,6 +215,7 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
      */
     public void setFilterExpression(String filterExpression) {
         this.filterExpression = filterExpression;
+        this.compiledFilterExpression = null;
         filter();
     }
 
@@ -171,6 +250,9 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
      * @param element Element of the list.
      */
     public int getRealIndex(E element) {
+        if (identityIndexed) {
+            return positions.indexOf(element, list);
+        }
         return getRealIndex(list.indexOf(element));
     }
 
@@ -181,6 +263,9 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
      * @param element Index of the element in the list.
      */
     public int getRealIndex(int index) {
+        if (identityIndexed && index > -1 && index < list.size()) {
+            return positions.indexOf(list.get(index), list);
+        }
         return getRealIndex(index, this.list);
     }
 
@@ -219,6 +304,9 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
 
     private E set(int index, E element, boolean fireFilteredListEvent) {
         E oldValue = list.set(index, element);
+        if (identityIndexed) {
+            positions.invalidate();
+        }
 
         removePropertyChangeListener(oldValue);
         addPropertyChangeListener(element);
@@ -228,7 +316,7 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
         }
 
         if (fireFilteredListEvent) {
-            filteredList.set(filteredList.indexOf(oldValue), element, false);
+            filteredList.set(filteredList.identityIndexOf(oldValue), element, false);
         }
         return oldValue;
     }
@@ -318,6 +406,9 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
         }
 
         list.add(index, element);
+        if (identityIndexed) {
+            positions.added(element, index, list.size());
+        }
         addPropertyChangeListener(element);
 
         modCount++;
@@ -346,7 +437,11 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
      */
     public void addAsNew(E element) {
         if (!isNewlyAdded(element)) {
-            newItemsList.add(element);
+            if (identityIndexed) {
+                newItems.add(element);
+            } else {
+                newItemsList.add(element);
+            }
             this.add(element);
         }
     }
@@ -355,7 +450,9 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
      * Removes element from the list of newly added elements.
      */
     private void removeFromNewItemsList(E element) {
-        if (isNewlyAdded(element)) {
+        if (identityIndexed) {
+            newItems.remove(element);
+        } else if (isNewlyAdded(element)) {
             newItemsList.remove(getRealIndex(newItemsList.indexOf(element), newItemsList));
         }
     }
@@ -364,6 +461,9 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
      * Checks element existence in the list of newly added elements.
      */
     public boolean isNewlyAdded(E element) {
+        if (identityIndexed) {
+            return newItems.contains(element);
+        }
         for (E bean : newItemsList) {
             if (bean == element) {
                 return true;
@@ -373,7 +473,11 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
     }
 
     private E remove(int index, boolean fireFilteredListEvent) {
-        E oldValue = list.remove(getRealIndex(index));
+        int realIndex = getRealIndex(index);
+        E oldValue = list.remove(realIndex);
+        if (identityIndexed) {
+            positions.removed(oldValue, realIndex, list.size());
+        }
         removePropertyChangeListener(oldValue);
         removeFromNewItemsList(oldValue);
         modCount++;
@@ -384,7 +488,7 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
         }
 
         if (fireFilteredListEvent) {
-            filteredList.remove(filteredList.indexOf(oldValue), false);
+            filteredList.remove(filteredList.identityIndexOf(oldValue), false);
         }
         return oldValue;
     }
@@ -396,7 +500,11 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
 
     @Override
     public boolean remove(Object o) {
-        return this.remove(list.indexOf(o)) != null;
+        int index = identityIndexed ? positions.indexOf(o, list) : list.indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        return this.remove(index) != null;
     }
 
     /**
@@ -427,12 +535,12 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
         if (index > -1) {
             E element = list.get(index);
             boolean isAllowedByFilter = filteredList.isAllowedByFilter(element);
-            int indexInFilteredList = filteredList.indexOf(element);
+            boolean isInFilteredList = filteredList.isMember(element);
 
-            if (isAllowedByFilter && indexInFilteredList < 0) {
+            if (isAllowedByFilter && !isInFilteredList) {
                 filteredList.add(filteredList.size(), element, false);
-            } else if (!isAllowedByFilter && indexInFilteredList > -1) {
-                filteredList.remove(indexInFilteredList, false);
+            } else if (!isAllowedByFilter && isInFilteredList) {
+                filteredList.remove(filteredList.identityIndexOf(element), false);
             }
         }
     }
@@ -444,15 +552,38 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
 
     @Override
     public boolean addAll(int index, Collection<? extends E> c) {
-        if (list.addAll(index, c)) {
-            filteredList.addAll(filteredList.size(), c);
-            modCount++;
+        List<E> added = new ArrayList<E>(c.size());
+        for (E element : c) {
+            if (element != null) {
+                added.add(element);
+            }
+        }
+        if (added.isEmpty()) {
+            return false;
+        }
 
-            for (ObservableListListener listener : listeners) {
-                listener.listElementsAdded(this, index, c.size());
+        boolean append = index == list.size();
+        list.addAll(index, added);
+        if (identityIndexed) {
+            if (append) {
+                for (int i = 0; i < added.size(); i++) {
+                    positions.added(added.get(i), index + i, index + i + 1);
+                }
+            } else {
+                positions.invalidate();
             }
         }
-        return false;
+        for (E element : added) {
+            addPropertyChangeListener(element);
+        }
+        modCount++;
+
+        // Fire single event for the whole collection on both lists
+        for (ObservableListListener listener : listeners) {
+            listener.listElementsAdded(this, index, added.size());
+        }
+        filteredList.append(added);
+        return true;
     }
 
     private void clear(boolean fireFilteredListEvent) {
@@ -460,6 +591,12 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
         initElementListener();
 
         list.clear();
+        if (identityIndexed) {
+            positions.clear();
+            newItems.clear();
+        } else {
+            newItemsList.clear();
+        }
 
         if (fireFilteredListEvent) {
             filteredList.clear(false);
@@ -485,9 +622,41 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
      * @see #filterElement(java.lang.Object)
      */
     public void filter() {
+        // Remove elements not allowed anymore, going backwards to keep indexes valid
+        for (int i = filteredList.size() - 1; i >= 0; i--) {
+            if (!filteredList.isAllowedByFilter(filteredList.get(i))) {
+                filteredList.remove(i, false);
+            }
+        }
+        // Append allowed elements, which are not in the filtered list yet
         for (int i = 0; i < list.size(); i++) {
-            filterElement(i);
+            E element = list.get(i);
+            if (!filteredList.isMember(element) && filteredList.isAllowedByFilter(element)) {
+                filteredList.add(filteredList.size(), element, false);
+            }
+        }
+    }
+
+    /**
+     * Returns parsed filter expression. The expression is parsed once and
+     * reused until the expression is changed.
+     */
+    private Object getCompiledFilterExpression() throws OgnlException {
+        if (compiledFilterExpression == null) {
+            compiledFilterExpression = Ognl.parseExpression(filterExpression);
         }
+        return compiledFilterExpression;
+    }
+
+    /**
+     * Returns OGNL context, used to evaluate filter expression on the list
+     * elements.
+     */
+    private OgnlContext getFilterContext() {
+        if (filterContext == null) {
+            filterContext = new OgnlContext();
+        }
+        return filterContext;
     }
 
     @Override
@@ -535,6 +704,8 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
         private List<E> list;
         private ExtendedList<E> parentList;
         private transient List<ObservableListListener> listeners;
+        private transient IdentityHashMap<Object, Integer> members;
+        private transient IdentityIndex positions;
 
         /**
          * Class constructor to create new list.
@@ -552,6 +723,26 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
             }
         }
 
+        /**
+         * Restores listeners collection after the list is deserialized.
+         */
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            listeners = new CopyOnWriteArrayList<ObservableListListener>();
+        }
+
+        /**
+         * Switches identity indexed mode of the filtered list.
+         */
+        private void setIdentityIndexed(boolean identityIndexed) {
+            if (identityIndexed) {
+                positions = new IdentityIndex();
+                positions.invalidate();
+            } else {
+                positions = null;
+            }
+        }
+
         @Override
         public E get(int index) {
             return list.get(index);
@@ -567,6 +758,11 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
 
             if (index > -1 && element != null && isAllowedByFilter(element)) {
                 oldValue = list.set(index, element);
+                if (positions != null) {
+                    positions.invalidate();
+                }
+                removeMember(oldValue);
+                addMember(element);
 
                 for (ObservableListListener listener : listeners) {
                     listener.listElementReplaced(this, index, oldValue);
@@ -574,7 +770,7 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
             }
 
             if (fireMainListEvent) {
-                parentList.set(parentList.indexOf(oldValue), element, false);
+                parentList.set(parentIndexOf(oldValue), element, false);
             }
             return oldValue;
         }
@@ -587,6 +783,10 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
         private void add(int index, E element, boolean fireMainListEvent) {
             if (element != null && isAllowedByFilter(element)) {
                 list.add(index, element);
+                if (positions != null) {
+                    positions.added(element, index, list.size());
+                }
+                addMember(element);
                 modCount++;
 
                 for (ObservableListListener listener : listeners) {
@@ -618,7 +818,13 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
             E oldValue = null;
 
             if (index > -1) {
-                oldValue = list.remove(getRealIndex(index, list));
+                int realIndex = positions != null
+                        ? positions.indexOf(list.get(index), list) : getRealIndex(index, list);
+                oldValue = list.remove(realIndex);
+                if (positions != null) {
+                    positions.removed(oldValue, realIndex, list.size());
+                }
+                removeMember(oldValue);
                 modCount++;
 
                 for (ObservableListListener listener : listeners) {
@@ -627,7 +833,7 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
                 }
             }
             if (fireMainListEvent) {
-                parentList.remove(parentList.indexOf(oldValue), false);
+                parentList.remove(parentIndexOf(oldValue), false);
             }
             return oldValue;
         }
@@ -655,12 +861,40 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
             return false;
         }
 
+        /**
+         * Appends elements allowed by the filter to the end of the list, firing
+         * single event for all of them. Elements are not added to the parent
+         * list.
+         */
+        private void append(Collection<? extends E> c) {
+            int index = list.size();
+            for (E element : c) {
+                if (element != null && isAllowedByFilter(element)) {
+                    list.add(element);
+                    if (positions != null) {
+                        positions.added(element, list.size() - 1, list.size());
+                    }
+                    addMember(element);
+                }
+            }
+            if (list.size() > index) {
+                modCount++;
+                for (ObservableListListener listener : listeners) {
+                    listener.listElementsAdded(this, index, list.size() - index);
+                }
+            }
+        }
+
         /**
          * Removes all elements from the list.
          */
         private void clear(boolean fireMainListEvent) {
             List<E> dup = new ArrayList<E>(list);
             list.clear();
+            members = null;
+            if (positions != null) {
+                positions.clear();
+            }
             if (fireMainListEvent) {
                 parentList.clear(false);
             }
@@ -679,6 +913,78 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
             this.clear(true);
         }
 
+        /**
+         * Returns identity map of the elements in the filtered list with the
+         * number of times each element is in the list.
+         */
+        private IdentityHashMap<Object, Integer> getMembers() {
+            if (members == null) {
+                members = new IdentityHashMap<Object, Integer>();
+                for (E item : list) {
+                    addMember(item);
+                }
+            }
+            return members;
+        }
+
+        private void addMember(Object element) {
+            if (members == null) {
+                getMembers();
+                return;
+            }
+            Integer count = members.get(element);
+            members.put(element, count == null ? 1 : count + 1);
+        }
+
+        private void removeMember(Object element) {
+            if (members == null) {
+                return;
+            }
+            Integer count = members.get(element);
+            if (count == null || count <= 1) {
+                members.remove(element);
+            } else {
+                members.put(element, count - 1);
+            }
+        }
+
+        /**
+         * Checks if the given object is in the filtered list, comparing by
+         * reference.
+         */
+        private boolean isMember(Object element) {
+            return element != null && getMembers().containsKey(element);
+        }
+
+        /**
+         * Returns index of the given object in the filtered list, comparing by
+         * reference.
+         */
+        private int identityIndexOf(Object element) {
+            if (!isMember(element)) {
+                return -1;
+            }
+            if (positions != null) {
+                return positions.indexOf(element, list);
+            }
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i) == element) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns index of the given object in the parent list.
+         */
+        private int parentIndexOf(Object element) {
+            if (parentList.isIdentityIndexed()) {
+                return parentList.getRealIndex((E) element);
+            }
+            return parentList.indexOf(element);
+        }
+
         /**
          * Checks filter criteria against the given element. Returns true if
          * element conforms to the criteria.
@@ -692,9 +998,8 @@ public class ExtendedList<E> extends AbstractList<E> implements ObservableList<E
             // Evaluate against fileter expression
             if (filterExpression != null && filterExpression.length() > 0) {
                 try {
-                    Object expr = Ognl.parseExpression(filterExpression);
-                    OgnlContext ctx = new OgnlContext();
-                    result = (Boolean) Ognl.getValue(expr, ctx, element);
+                    result = (Boolean) Ognl.getValue(getCompiledFilterExpression(),
+                            getFilterContext(), element);
                 } catch (OgnlException ex) {
                     throw new RuntimeException(String.format("Exception occured, while "
                             + "evaluating filter expression - %s", ex.getMessage()));
@@ -0,0 +1,119 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.beans.controls;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Keeps position of the elements in a list, comparing elements by reference.
+ * Appending and removing the last element keep the index up to date, other
+ * changes invalidate it and it is rebuilt on the next lookup.
+ */
+final class IdentityIndex {
+
+    private final IdentityHashMap<Object, Integer> positions = new IdentityHashMap<Object, Integer>();
+    private boolean valid = true;
+
+    /**
+     * Returns position of the first occurrence of the element in the list or
+     * -1 if the element is not in the list.
+     */
+    int indexOf(Object element, List<?> list) {
+        if (element == null) {
+            return -1;
+        }
+        if (!valid) {
+            positions.clear();
+            for (int i = 0; i < list.size(); i++) {
+                Object item = list.get(i);
+                if (item != null && !positions.containsKey(item)) {
+                    positions.put(item, i);
+                }
+            }
+            valid = true;
+        }
+        Integer position = positions.get(element);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * Updates index after element was inserted into the list.
+     *
+     * @param index Position of the element in the list.
+     * @param size Size of the list after insertion.
+     */
+    void added(Object element, int index, int size) {
+        if (!valid) {
+            return;
+        }
+        if (index == size - 1) {
+            if (element != null && !positions.containsKey(element)) {
+                positions.put(element, index);
+            }
+        } else {
+            invalidate();
+        }
+    }
+
+    /**
+     * Updates index after element was removed from the list.
+     *
+     * @param index Position of the element before removal.
+     * @param size Size of the list after removal.
+     */
+    void removed(Object element, int index, int size) {
+        if (!valid) {
+            return;
+        }
+        if (index == size) {
+            Integer position = positions.get(element);
+            if (position != null && position == index) {
+                positions.remove(element);
+            }
+        } else {
+            invalidate();
+        }
+    }
+
+    /**
+     * Invalidates index after the list was changed.
+     */
+    void invalidate() {
+        positions.clear();
+        valid = false;
+    }
+
+    /**
+     * Resets index after the list was cleared.
+     */
+    void clear() {
+        positions.clear();
+        valid = true;
+    }
+}
@@ -27,6 +27,8 @@
  */
 package org.sola.clients.beans.controls;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.AbstractList;
 import java.util.ArrayList;
@@ -45,6 +47,7 @@ public class SolaObservableList<E> extends AbstractList<E>
     private final boolean supportsElementPropertyChanged = false;
     private List<E> list;
     private transient List<ObservableListListener> listeners;
+    private transient IdentityIndex positions;
 
     public SolaObservableList() {
         this(new ArrayList<E>());
@@ -55,6 +58,66 @@ public class SolaObservableList<E> extends AbstractList<E>
         listeners = new CopyOnWriteArrayList<ObservableListListener>();
     }
 
+    /**
+     * Restores listeners collection after the list is deserialized.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        listeners = new CopyOnWriteArrayList<ObservableListListener>();
+    }
+
+    /**
+     * Returns true if the list is in identity indexed mode.
+     *
+     * @see #setIdentityIndexed(boolean)
+     */
+    public boolean isIdentityIndexed() {
+        return positions != null;
+    }
+
+    /**
+     * Switches identity indexed mode. In this mode the list keeps positions of
+     * its elements in identity map and {@link #indexOf(java.lang.Object)},
+     * {@link #contains(java.lang.Object)} and {@link #remove(java.lang.Object)}
+     * compare elements by reference in constant time instead of scanning the
+     * list with {@code equals} method. Use it for large read only lists, like
+     * search results and listings.
+     */
+    public void setIdentityIndexed(boolean identityIndexed) {
+        if (identityIndexed && positions == null) {
+            positions = new IdentityIndex();
+            positions.invalidate();
+        } else if (!identityIndexed) {
+            positions = null;
+        }
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (positions != null) {
+            return positions.indexOf(o, list);
+        }
+        return super.indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (positions != null) {
+            return positions.indexOf(o, list) > -1;
+        }
+        return super.contains(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
     @Override
     public E get(int index) {
         return list.get(index);
@@ -68,6 +131,9 @@ public class SolaObservableList<E> extends AbstractList<E>
     @Override
     public E set(int index, E element) {
         E oldValue = list.set(index, element);
+        if (positions != null) {
+            positions.invalidate();
+        }
 
         for (ObservableListListener listener : listeners) {
             listener.listElementReplaced(this, index, oldValue);
@@ -79,6 +145,9 @@ public class SolaObservableList<E> extends AbstractList<E>
     @Override
     public void add(int index, E element) {
         list.add(index, element);
+        if (positions != null) {
+            positions.added(element, index, list.size());
+        }
         modCount++;
 
         for (ObservableListListener listener : listeners) {
@@ -89,6 +158,9 @@ public class SolaObservableList<E> extends AbstractList<E>
     @Override
     public E remove(int index) {
         E oldValue = list.remove(index);
+        if (positions != null) {
+            positions.removed(oldValue, index, list.size());
+        }
         modCount++;
 
         for (ObservableListListener listener : listeners) {
@@ -107,11 +179,15 @@ public class SolaObservableList<E> extends AbstractList<E>
     @Override
     public boolean addAll(int index, Collection<? extends E> c) {
         if (list.addAll(index, c)) {
+            if (positions != null) {
+                positions.invalidate();
+            }
             modCount++;
 
             for (ObservableListListener listener : listeners) {
                 listener.listElementsAdded(this, index, c.size());
             }
+            return true;
         }
 
         return false;
@@ -121,6 +197,9 @@ public class SolaObservableList<E> extends AbstractList<E>
     public void clear() {
         List<E> dup = new ArrayList<E>(list);
         list.clear();
+        if (positions != null) {
+            positions.clear();
+        }
         modCount++;
 
         if (!dup.isEmpty()) {
@@ -27,10 +27,9 @@
  */
 package org.sola.clients.beans.converters;
 
-import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
 import java.util.List;
 import org.dozer.DozerEventListener;
+import org.dozer.Mapper;
 import org.dozer.event.DozerEvent;
 import org.sola.clients.beans.AbstractBindingBean;
 import org.sola.common.SOLAException;
@@ -86,8 +85,9 @@ public class GenericTranslatorListener implements DozerEventListener {
     }
 
     /**
-     * Uses reflection to check for any list methods that are exposed with getters only and ensures
-     * they are translated by the Dozer Bean Mapper.
+     * Checks for any list methods that are exposed with getters only and ensures they are
+     * translated by the Dozer Bean Mapper. The getters to follow are resolved once for every pair
+     * of classes by {@link MappingPlan}.
      *
      * @param sourceObject The source object for the mapping
      * @param destinationObject The destination object for the mapping
@@ -96,105 +96,53 @@ public class GenericTranslatorListener implements DozerEventListener {
      */
     private void mapGetterLists(Object sourceObject, Object destinationObject) throws RuntimeException, SecurityException {
 
-        if (destinationObject != null && sourceObject != null
-                && (AbstractTO.class.isAssignableFrom(destinationObject.getClass())
-                || AbstractBindingBean.class.isAssignableFrom(destinationObject.getClass()))) {
+        if (destinationObject == null || sourceObject == null) {
+            return;
+        }
+        MappingPlan plan = MappingPlan.getPlan(sourceObject.getClass(), destinationObject.getClass());
+        if (plan.isEmpty()) {
+            return;
+        }
 
-            // Only map the getterLists if the source and destination are of different class types. 
-            // This check is required because the client uses the mapper to duplciate beans. Some beans
-            // have methods that instanitate a version of themselves which can cause nasty never
-            // ending loops.
-            if (AbstractBindingBean.class.isAssignableFrom(destinationObject.getClass())
-                    && AbstractBindingBean.class.isAssignableFrom(sourceObject.getClass())) {
-                return;
+        // Lighthouse #118 - Check  child objects for any nested lists
+        for (MappingPlan.ChildProperty child : plan.getChildren()) {
+            Object childSourceObject = null;
+            Object childDestinationObject = null;
+            try {
+                childSourceObject = child.sourceGetter.invoke(sourceObject);
+                childDestinationObject = child.destinationGetter.invoke(destinationObject);
+            } catch (Exception e) {
+                throw new SOLAException(ClientMessage.GENERAL_UNEXPECTED,
+                        new Object[]{"Translation error", sourceObject.toString(),
+                            child.sourceGetter.getName(), e.toString()});
             }
-            if (AbstractTO.class.isAssignableFrom(destinationObject.getClass())
-                    && AbstractTO.class.isAssignableFrom(sourceObject.getClass())) {
-                return;
-            }
-            Method[] methods = destinationObject.getClass().getMethods();
-
-            // Loop through the getter methods of destination object
-            for (Method destinationGetter : methods) {
-
-                if (destinationGetter.getName().substring(0, 3).equalsIgnoreCase("get")) {
-                    Class<?> returnType = destinationGetter.getReturnType();
-
-                    if (AbstractTO.class.isAssignableFrom(returnType)
-                            || AbstractBindingBean.class.isAssignableFrom(returnType)) {
-                        // Lighthouse #118 - Check  child objects for any nested lists
-                        Object childSourceObject = null;
-                        Object childDestinationObject = null;
-                        Method sourceGetter = null;
-                        try {
-                            sourceGetter = sourceObject.getClass().getMethod(destinationGetter.getName());
-                        } catch (NoSuchMethodException e) {
-                            continue;
-                        }
-                        try {
-                            childSourceObject = sourceGetter.invoke(sourceObject);
-                            childDestinationObject = destinationGetter.invoke(destinationObject);
-                        } catch (Exception e) {
-                            throw new SOLAException(ClientMessage.GENERAL_UNEXPECTED,
-                                    new Object[]{"Translation error", sourceObject.toString(),
-                                        sourceGetter.getName(), e.toString()});
-                        }
-                        mapGetterLists(childSourceObject, childDestinationObject);
-
-                    } else if (Iterable.class.isAssignableFrom(returnType)) {
-                        Method sourceGetter = null;
-
-                        // Get relevant source object getter method
-                        try {
-                            sourceGetter = sourceObject.getClass().getMethod(destinationGetter.getName());
-                        } catch (NoSuchMethodException e) {
-                            continue;
-                        }
-
-                        // Check for destination setter method to exist
-                        try {
-                            if (destinationObject.getClass().getMethod("set" + destinationGetter.getName().substring(3)) != null) {
-                                // Skip this method if there is setter.
-                                continue;
-                            }
-                        } catch (NoSuchMethodException e) {
-                        }
-
-                        // Get destination list inner type
-                        ParameterizedType destinationListType =
-                                (ParameterizedType) destinationGetter.getGenericReturnType();
-                        Class<?> destinationChildClass =
-                                ((Class<?>) destinationListType.getActualTypeArguments()[0]);
-
-                        List sourceList = null;
-                        List destinationList = null;
-                        try {
-                            // Get source and destination lists
-                            sourceList = (List) sourceGetter.invoke(sourceObject);
-                            destinationList = (List) destinationGetter.invoke(destinationObject);
-                        } catch (Exception e) {
-                            throw new SOLAException(ClientMessage.GENERAL_UNEXPECTED,
-                                    new Object[]{"Translation error", sourceObject.toString(),
-                                        sourceGetter.getName(), e.toString()});
-                        }
+            mapGetterLists(childSourceObject, childDestinationObject);
+        }
 
-                        if (destinationList == null || sourceList == null) {
-                            continue;
-                        }
+        for (MappingPlan.ListProperty listProperty : plan.getLists()) {
+            List sourceList = null;
+            List destinationList = null;
+            try {
+                // Get source and destination lists
+                sourceList = (List) listProperty.sourceGetter.invoke(sourceObject);
+                destinationList = (List) listProperty.destinationGetter.invoke(destinationObject);
+            } catch (Exception e) {
+                throw new SOLAException(ClientMessage.GENERAL_UNEXPECTED,
+                        new Object[]{"Translation error", sourceObject.toString(),
+                            listProperty.sourceGetter.getName(), e.toString()});
+            }
 
-                        destinationList.clear();
+            if (destinationList == null || sourceList == null) {
+                continue;
+            }
 
-                        // Loop through the source list and add items into destination list
-                        if (sourceList != null && destinationList != null) {
-                            for (Object o : sourceList) {
-                                // Call object mapping before adding into the list
-                                destinationList.add(MappingManager.getMapper(
-                                        new GenericTranslatorListener()).map(o, destinationChildClass));
-                            }
-                        }
+            destinationList.clear();
 
-                    }
-                }
+            // Loop through the source list and add items into destination list
+            Mapper mapper = MappingManager.getMapper(this);
+            for (Object o : sourceList) {
+                // Call object mapping before adding into the list
+                destinationList.add(mapper.map(o, listProperty.destinationItemClass));
             }
         }
     }
@@ -0,0 +1,211 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.beans.converters;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.sola.clients.beans.AbstractBindingBean;
+import org.sola.webservices.transferobjects.AbstractTO;
+
+/**
+ * Holds the getter methods that {@link GenericTranslatorListener} has to follow after Dozer maps
+ * a source class onto a destination class. The plan is resolved with reflection once for every
+ * pair of classes and then shared by all the mappings of the same pair.
+ */
+final class MappingPlan {
+
+    /**
+     * Nested object that is checked for lists exposed only through a getter.
+     */
+    static final class ChildProperty {
+
+        final Method sourceGetter;
+        final Method destinationGetter;
+
+        ChildProperty(Method sourceGetter, Method destinationGetter) {
+            this.sourceGetter = sourceGetter;
+            this.destinationGetter = destinationGetter;
+        }
+    }
+
+    /**
+     * List exposed only through a getter, that has to be populated item by item.
+     */
+    static final class ListProperty {
+
+        final Method sourceGetter;
+        final Method destinationGetter;
+        final Class<?> destinationItemClass;
+
+        ListProperty(Method sourceGetter, Method destinationGetter, Class<?> destinationItemClass) {
+            this.sourceGetter = sourceGetter;
+            this.destinationGetter = destinationGetter;
+            this.destinationItemClass = destinationItemClass;
+        }
+    }
+    private static final MappingPlan EMPTY_PLAN = new MappingPlan(
+            Collections.<ChildProperty>emptyList(), Collections.<ListProperty>emptyList());
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, MappingPlan>> plans =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, MappingPlan>>();
+    private final List<ChildProperty> children;
+    private final List<ListProperty> lists;
+
+    private MappingPlan(List<ChildProperty> children, List<ListProperty> lists) {
+        this.children = children;
+        this.lists = lists;
+    }
+
+    /**
+     * Returns the nested objects to check for getter lists.
+     */
+    List<ChildProperty> getChildren() {
+        return children;
+    }
+
+    /**
+     * Returns the lists to populate through the getter.
+     */
+    List<ListProperty> getLists() {
+        return lists;
+    }
+
+    /**
+     * Returns true if there is nothing to map after Dozer for this pair of classes.
+     */
+    boolean isEmpty() {
+        return children.isEmpty() && lists.isEmpty();
+    }
+
+    /**
+     * Returns the plan for the given pair of classes, resolving it on first use.
+     *
+     * @param sourceClass The class of the source object
+     * @param destinationClass The class of the destination object
+     */
+    static MappingPlan getPlan(Class<?> sourceClass, Class<?> destinationClass) {
+        ConcurrentMap<Class<?>, MappingPlan> sourcePlans = plans.get(sourceClass);
+        if (sourcePlans == null) {
+            sourcePlans = new ConcurrentHashMap<Class<?>, MappingPlan>();
+            ConcurrentMap<Class<?>, MappingPlan> existing = plans.putIfAbsent(sourceClass, sourcePlans);
+            if (existing != null) {
+                sourcePlans = existing;
+            }
+        }
+        MappingPlan plan = sourcePlans.get(destinationClass);
+        if (plan == null) {
+            plan = build(sourceClass, destinationClass);
+            MappingPlan existing = sourcePlans.putIfAbsent(destinationClass, plan);
+            if (existing != null) {
+                plan = existing;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Resolves the plan for the given pair of classes with reflection, without using the cache.
+     *
+     * @param sourceClass The class of the source object
+     * @param destinationClass The class of the destination object
+     */
+    static MappingPlan build(Class<?> sourceClass, Class<?> destinationClass) {
+        if (!AbstractTO.class.isAssignableFrom(destinationClass)
+                && !AbstractBindingBean.class.isAssignableFrom(destinationClass)) {
+            return EMPTY_PLAN;
+        }
+        // Only map the getterLists if the source and destination are of different class types. 
+        // This check is required because the client uses the mapper to duplciate beans. Some beans
+        // have methods that instanitate a version of themselves which can cause nasty never
+        // ending loops.
+        if (AbstractBindingBean.class.isAssignableFrom(destinationClass)
+                && AbstractBindingBean.class.isAssignableFrom(sourceClass)) {
+            return EMPTY_PLAN;
+        }
+        if (AbstractTO.class.isAssignableFrom(destinationClass)
+                && AbstractTO.class.isAssignableFrom(sourceClass)) {
+            return EMPTY_PLAN;
+        }
+
+        List<ChildProperty> children = new ArrayList<ChildProperty>();
+        List<ListProperty> lists = new ArrayList<ListProperty>();
+
+        // Loop through the getter methods of destination class
+        for (Method destinationGetter : destinationClass.getMethods()) {
+            String name = destinationGetter.getName();
+            if (name.length() < 3 || !name.substring(0, 3).equalsIgnoreCase("get")) {
+                continue;
+            }
+            Class<?> returnType = destinationGetter.getReturnType();
+
+            if (AbstractTO.class.isAssignableFrom(returnType)
+                    || AbstractBindingBean.class.isAssignableFrom(returnType)) {
+                // Lighthouse #118 - Check  child objects for any nested lists
+                Method sourceGetter = getMethod(sourceClass, name);
+                if (sourceGetter != null) {
+                    children.add(new ChildProperty(sourceGetter, destinationGetter));
+                }
+
+            } else if (Iterable.class.isAssignableFrom(returnType)) {
+                // Get relevant source class getter method
+                Method sourceGetter = getMethod(sourceClass, name);
+                if (sourceGetter == null) {
+                    continue;
+                }
+
+                // Skip this method if there is setter.
+                if (getMethod(destinationClass, "set" + name.substring(3)) != null) {
+                    continue;
+                }
+
+                // Get destination list inner type
+                ParameterizedType destinationListType =
+                        (ParameterizedType) destinationGetter.getGenericReturnType();
+                Class<?> destinationItemClass =
+                        ((Class<?>) destinationListType.getActualTypeArguments()[0]);
+                lists.add(new ListProperty(sourceGetter, destinationGetter, destinationItemClass));
+            }
+        }
+        if (children.isEmpty() && lists.isEmpty()) {
+            return EMPTY_PLAN;
+        }
+        return new MappingPlan(children, lists);
+    }
+
+    private static Method getMethod(Class<?> clazz, String name) {
+        try {
+            return clazz.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -45,6 +45,9 @@ import org.sola.common.mapping.MappingManager;
  */
 public final class TypeConverters {
 
+    /** The listener has no state, so one instance is shared by all the mappings. */
+    private static final GenericTranslatorListener translatorListener = new GenericTranslatorListener();
+
     /** Converts {@link XMLGregorianCalendar} to {@link Date}*/
     public static Date XMLDateToDate(XMLGregorianCalendar xmlDate) {
         if (xmlDate == null) {
@@ -88,7 +91,7 @@ public final class TypeConverters {
      * @return 
      */
     private static Mapper getMapper() {
-        return MappingManager.getMapper(new GenericTranslatorListener());        
+        return MappingManager.getMapper(translatorListener);
     }
     
     /** 
@@ -144,9 +147,14 @@ public final class TypeConverters {
 
         if (toList != null && toList.size() > 0) {
             resultList.clear();
+            // The mapper and the mapping plan of the TO and bean classes are shared by all items
+            Mapper mapper = getMapper();
+            List<T> beans = new ArrayList<T>(toList.size());
             for (Object to : toList) {
-                resultList.add(TransferObjectToBean(to, beanClass, null));
+                beans.add(to == null ? null : mapper.map(to, beanClass));
             }
+            // Observable lists fire single event for the whole collection
+            resultList.addAll(beans);
         }
         return resultList;
     }
@@ -175,8 +183,9 @@ public final class TypeConverters {
     public static void BeanListToTransferObjectList(
             List<AbstractBindingBean> beanList, List toList, Class<?> toClass) {
         if (beanList != null && beanList.size() > 0 && toList != null) {
+            Mapper mapper = getMapper();
             for (AbstractBindingBean bean : beanList) {
-                toList.add(BeanToTrasferObject(bean, toClass));
+                toList.add(bean == null ? null : mapper.map(bean, toClass));
             }
         }
     }
@@ -164,6 +164,28 @@ public class DocumentBean extends AbstractIdBean {
         return null;
     }
 
+    /**
+     * Creates digital archive document from the file in the local folder. The file
+     * is streamed to the remote folder, without reading it into memory, and the
+     * document is created from there. It is used to load big numbers of files.
+     *
+     * @param file File object in the local folder.
+     */
+    public static DocumentBean uploadDocumentFromLocalFile(File file) {
+        if (file != null && file.getName().contains(".")) {
+            String serverFileName = WSManager.getInstance().getFileStreamingService().upload(
+                    file.getAbsolutePath());
+            DocumentTO document = new DocumentTO();
+            document.setDescription(file.getName());
+            document = WSManager.getInstance().getDigitalArchive().createDocumentFromServer(
+                    document, serverFileName);
+            DocumentBean documentBean = TypeConverters.TransferObjectToBean(document,
+                    DocumentBean.class, null);
+            return documentBean;
+        }
+        return null;
+    }
+
     /**
      * Opens document from the digital archive. This method will not check the local documents cache
      * before retrieving the document.
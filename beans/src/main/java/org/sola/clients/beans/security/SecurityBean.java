@@ -31,6 +31,7 @@ package org.sola.clients.beans.security;
 
 import java.util.HashMap;
 import org.sola.clients.beans.AbstractBindingBean;
+import org.sola.clients.beans.cache.CacheManager;
 import org.sola.clients.beans.converters.TypeConverters;
 import org.sola.common.SOLAException;
 import org.sola.common.messaging.ClientMessage;
@@ -133,6 +134,8 @@ public class SecurityBean extends AbstractBindingBean {
             // Initialize web services
             result = WSManager.getInstance().initWebServices(userName, password, config);
             if (result) {
+                // Reference data snapshot is kept per server
+                CacheManager.setServerConfig(config);
                 // Set current user
                 UserBean user = TypeConverters.TransferObjectToBean(
                         WSManager.getInstance().getAdminService().getCurrentUser(),
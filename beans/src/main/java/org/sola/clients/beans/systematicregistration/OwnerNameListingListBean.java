@@ -47,6 +47,7 @@ public class OwnerNameListingListBean extends AbstractBindingBean {
     public OwnerNameListingListBean() {
         super();
         parcels = new SolaObservableList<OwnerNameListingBean>();
+        parcels.setIdentityIndexed(true);
     }
 
     public SolaObservableList<OwnerNameListingBean> getOwnerNameListing() {
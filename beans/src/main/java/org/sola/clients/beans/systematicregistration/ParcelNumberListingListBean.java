@@ -48,6 +48,7 @@ public class ParcelNumberListingListBean extends AbstractBindingBean {
     public ParcelNumberListingListBean() {
         super();
         parcels = new SolaObservableList<ParcelNumberListingBean>();
+        parcels.setIdentityIndexed(true);
     }
 
     public SolaObservableList<ParcelNumberListingBean> getParcelNumberListing() {
@@ -48,6 +48,7 @@ public class SigningListListBean extends AbstractBindingBean {
     public SigningListListBean() {
         super();
         parcels = new SolaObservableList<SigningListBean>();
+        parcels.setIdentityIndexed(true);
     }
 
     public SolaObservableList<SigningListBean> getSigningList() {
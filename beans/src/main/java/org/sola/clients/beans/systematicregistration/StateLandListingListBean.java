@@ -46,6 +46,7 @@ public class StateLandListingListBean extends AbstractBindingBean {
     public StateLandListingListBean() {
         super();
         parcels = new SolaObservableList<StateLandListingBean>();
+        parcels.setIdentityIndexed(true);
     }
 
     public SolaObservableList<StateLandListingBean> getStateLandListing() {
@@ -0,0 +1,237 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.beans;
+
+import java.math.BigDecimal;
+import static org.junit.Assert.*;
+import org.junit.*;
+import org.sola.clients.beans.administrative.RrrBean;
+import org.sola.clients.beans.controls.SolaList;
+
+/**
+ * Tests the change tracking of {@link AbstractBindingBean}.
+ */
+public class AbstractBindingBeanTest {
+
+    public static class ChildBean extends AbstractBindingBean {
+
+        private String name;
+        private transient boolean selected;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            String oldValue = this.name;
+            this.name = name;
+            propertySupport.firePropertyChange("name", oldValue, name);
+        }
+
+        public boolean isSelected() {
+            return selected;
+        }
+
+        public void setSelected(boolean selected) {
+            boolean oldValue = this.selected;
+            this.selected = selected;
+            propertySupport.firePropertyChange("selected", oldValue, selected);
+        }
+    }
+
+    public static class TypeBean extends AbstractCodeBean {
+    }
+
+    public static class ParentBean extends AbstractBindingBean {
+
+        private ChildBean child = new ChildBean();
+        private SolaList<ChildBean> children = new SolaList<ChildBean>();
+        private TypeBean typeBean = new TypeBean();
+        private ChildBean statusBean = new ChildBean();
+
+        public ChildBean getChild() {
+            return child;
+        }
+
+        public void setChild(ChildBean child) {
+            ChildBean oldValue = this.child;
+            this.child = child;
+            propertySupport.firePropertyChange("child", oldValue, child);
+        }
+
+        public SolaList<ChildBean> getChildren() {
+            return children;
+        }
+
+        public TypeBean getType() {
+            return typeBean;
+        }
+
+        public void setType(TypeBean type) {
+            setJointRefDataBean(typeBean, type, "type");
+        }
+
+        public ChildBean getStatusType() {
+            return statusBean;
+        }
+
+        public void setStatusType(ChildBean statusType) {
+            ChildBean oldValue = this.statusBean;
+            this.statusBean = statusType;
+            propertySupport.firePropertyChange("statusType", oldValue, statusType);
+        }
+    }
+
+    @Test
+    public void testHasChanges() throws Exception {
+        System.out.println("Changes of the bean and child beans");
+        ParentBean parent = new ParentBean();
+        assertTrue(parent.hasChanges());
+
+        parent.saveStateHash();
+        assertFalse(parent.hasChanges());
+
+        // Transient properties are not part of the state
+        parent.getChild().setSelected(true);
+        assertFalse(parent.hasChanges());
+
+        parent.getChild().setName("child");
+        assertTrue(parent.getChild().hasChanges());
+        assertTrue(parent.hasChanges());
+
+        parent.saveStateHash();
+        assertFalse(parent.hasChanges());
+
+        // The new child is tracked after it is set
+        ChildBean newChild = new ChildBean();
+        parent.setChild(newChild);
+        assertTrue(parent.hasChanges());
+        parent.saveStateHash();
+        newChild.setName("new child");
+        assertTrue(parent.hasChanges());
+    }
+
+    @Test
+    public void testListChanges() throws Exception {
+        System.out.println("Changes of the bean lists");
+        ParentBean parent = new ParentBean();
+        ChildBean child = new ChildBean();
+        parent.getChildren().add(child);
+        parent.saveStateHash();
+        assertFalse(parent.hasChanges());
+
+        child.setName("child");
+        assertTrue(parent.hasChanges());
+        parent.saveStateHash();
+
+        ChildBean addedChild = new ChildBean();
+        parent.getChildren().addAsNew(addedChild);
+        assertTrue(parent.hasChanges());
+        parent.saveStateHash();
+
+        addedChild.setName("added");
+        assertTrue(parent.hasChanges());
+        parent.saveStateHash();
+
+        parent.getChildren().remove(child);
+        assertTrue(parent.hasChanges());
+    }
+
+    @Test
+    public void testCodeBeanChanges() throws Exception {
+        System.out.println("Changes of the code beans");
+        ParentBean parent = new ParentBean();
+        parent.getType().setCode("code");
+        parent.saveStateHash();
+        assertFalse(parent.hasChanges());
+
+        parent.setType(null);
+        assertTrue(parent.hasChanges());
+        parent.saveStateHash();
+
+        parent.getType().setCode("other code");
+        assertTrue(parent.hasChanges());
+    }
+
+    @Test
+    public void testPropertyNameDiffersFromField() throws Exception {
+        System.out.println("Changes of the property with a different field name");
+        ParentBean parent = new ParentBean();
+        parent.saveStateHash();
+
+        ChildBean status = new ChildBean();
+        parent.setStatusType(status);
+        assertTrue(parent.hasChanges());
+        parent.saveStateHash();
+
+        status.setName("status");
+        assertTrue(parent.hasChanges());
+    }
+
+    @Test
+    public void testDetachedChildren() throws Exception {
+        System.out.println("Changes of the detached child beans");
+        ParentBean parent = new ParentBean();
+        ChildBean oldChild = parent.getChild();
+        ChildBean listChild = new ChildBean();
+        parent.getChildren().add(listChild);
+
+        parent.setChild(new ChildBean());
+        parent.getChildren().remove(listChild);
+        parent.saveStateHash();
+        assertFalse(parent.hasChanges());
+
+        oldChild.setName("old child");
+        listChild.setName("removed child");
+        assertFalse(parent.hasChanges());
+
+        // A bean still held by the parent keeps being tracked
+        ChildBean shared = new ChildBean();
+        parent.setChild(shared);
+        parent.getChildren().add(shared);
+        parent.getChildren().remove(shared);
+        parent.saveStateHash();
+        shared.setName("shared");
+        assertTrue(parent.hasChanges());
+    }
+
+    @Test
+    public void testSetterWithoutEvent() throws Exception {
+        System.out.println("Changes made by setters without property change events");
+        RrrBean rrr = new RrrBean();
+        rrr.saveStateHash();
+        assertFalse(rrr.hasChanges());
+
+        // setAmount doesn't fire property change event
+        rrr.setAmount(new BigDecimal("1000"));
+        assertTrue(rrr.hasChanges());
+
+        rrr.saveStateHash();
+        assertFalse(rrr.hasChanges());
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.beans.application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.jdesktop.observablecollections.ObservableList;
+import org.jdesktop.observablecollections.ObservableListListener;
+import org.junit.*;
+
+/**
+ * Tests merging of the application lists in
+ * {@link ApplicationSearchResultsListBean}.
+ */
+public class ApplicationSearchResultsListBeanTest {
+
+    private int listEvents;
+
+    @Test
+    public void testMerge() {
+        System.out.println("Merge successive application lists");
+        ApplicationSearchResultsListBean listBean = new ApplicationSearchResultsListBean();
+        List<ApplicationSearchResultBean> list = listBean.getApplicationSearchResultsList();
+
+        ApplicationSearchResultBean a1 = createApp("A", "lodged");
+        ApplicationSearchResultBean b1 = createApp("B", "lodged");
+        ApplicationSearchResultBean c1 = createApp("C", "lodged");
+        listBean.merge(Arrays.asList(a1, b1, c1));
+        assertApps(list, "A", "B", "C");
+        assertSame(a1, list.get(0));
+        a1.setChecked(true);
+
+        // B has not changed and moves first, A has changed, C is removed and D is new
+        ApplicationSearchResultBean b2 = createApp("B", "lodged");
+        ApplicationSearchResultBean a2 = createApp("A", "approved");
+        ApplicationSearchResultBean d2 = createApp("D", "lodged");
+        listBean.merge(Arrays.asList(b2, a2, d2));
+        assertApps(list, "B", "A", "D");
+        assertSame(b1, list.get(0));
+        assertSame(a2, list.get(1));
+        assertSame(d2, list.get(2));
+        assertTrue(list.get(1).isChecked());
+        assertFalse(list.get(0).isChecked());
+        assertFalse(list.get(2).isChecked());
+
+        // The same values again keep all the applications and fire no list events
+        listBean.getApplicationSearchResultsList().addObservableListListener(new CountingListener());
+        listBean.merge(Arrays.asList(createApp("B", "lodged"), createApp("A", "approved"),
+                createApp("D", "lodged")));
+        assertApps(list, "B", "A", "D");
+        assertSame(b1, list.get(0));
+        assertSame(a2, list.get(1));
+        assertSame(d2, list.get(2));
+        assertTrue(list.get(1).isChecked());
+        assertEquals(0, listEvents);
+    }
+
+    private ApplicationSearchResultBean createApp(String id, String status) {
+        ApplicationSearchResultBean app = new ApplicationSearchResultBean();
+        app.setId(id);
+        app.setNr("NR-" + id);
+        app.setStatus(status);
+        return app;
+    }
+
+    private void assertApps(List<ApplicationSearchResultBean> list, String... ids) {
+        List<String> listIds = new ArrayList<String>();
+        for (ApplicationSearchResultBean app : list) {
+            listIds.add(app.getId());
+        }
+        assertEquals(Arrays.asList(ids), listIds);
+    }
+
+    private class CountingListener implements ObservableListListener {
+
+        @Override
+        public void listElementsAdded(ObservableList list, int index, int length) {
+            listEvents++;
+        }
+
+        @Override
+        public void listElementsRemoved(ObservableList list, int index, List oldElements) {
+            listEvents++;
+        }
+
+        @Override
+        public void listElementReplaced(ObservableList list, int index, Object oldElement) {
+            listEvents++;
+        }
+
+        @Override
+        public void listElementPropertyChanged(ObservableList list, int index) {
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.beans.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.*;
+
+/**
+ * Tests loading of the missing objects by {@link Cache}.
+ */
+public class CacheTest {
+
+    private static final String KEY = "list";
+
+    @Test
+    public void testLoadOnce() throws Exception {
+        System.out.println("Missing object is loaded once");
+        Cache cache = new Cache();
+        CountingLoader loader = new CountingLoader("loaded");
+        assertEquals("loaded", cache.get(KEY, loader));
+        assertEquals("loaded", cache.get(KEY, loader));
+        assertEquals(1, loader.calls.get());
+    }
+
+    /**
+     * Another thread finishes loading the object after the first check of the
+     * cache and before the loading task is registered. The object must not be
+     * loaded again.
+     */
+    @Test
+    public void testLoadFinishedBeforeRegistration() throws Exception {
+        System.out.println("Load finished by another thread before registration");
+        final Cache cache = new Cache();
+        final CountingLoader otherLoader = new CountingLoader("other");
+        CountingLoader loader = new CountingLoader("this");
+
+        // The expired entry is removed in the first check, which notifies the
+        // listener before the loading task is registered
+        cache.setTimeToLive(KEY, 1);
+        cache.put(KEY, "expired");
+        Thread.sleep(10);
+        cache.setTimeToLive(KEY, 0);
+        cache.addCacheListener(new CacheListener() {
+
+            private boolean loaded = false;
+
+            @Override
+            public void cacheInvalidated(String key) {
+                if (loaded) {
+                    return;
+                }
+                loaded = true;
+                Thread other = new Thread(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            cache.get(KEY, otherLoader);
+                        } catch (Exception ex) {
+                            fail(ex.getMessage());
+                        }
+                    }
+                });
+                other.start();
+                try {
+                    other.join();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        assertEquals("other", cache.get(KEY, loader));
+        assertEquals(1, otherLoader.calls.get());
+        assertEquals(0, loader.calls.get());
+        assertEquals("other", cache.get(KEY));
+    }
+
+    private static class CountingLoader implements Callable<Object> {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Object value;
+
+        CountingLoader(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object call() throws Exception {
+            calls.incrementAndGet();
+            return value;
+        }
+    }
+}
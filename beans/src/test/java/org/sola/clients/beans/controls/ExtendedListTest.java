@@ -0,0 +1,245 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.beans.controls;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.jdesktop.observablecollections.ObservableList;
+import org.jdesktop.observablecollections.ObservableListListener;
+import org.junit.*;
+
+/**
+ * Tests filtering of {@link ExtendedList}.
+ */
+public class ExtendedListTest {
+
+    public static class Item implements Serializable {
+
+        private String status;
+
+        public Item(String status) {
+            this.status = status;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+    }
+
+    private ExtendedList<Item> createList(int count) {
+        ExtendedList<Item> list = new ExtendedList<Item>();
+        for (int i = 0; i < count; i++) {
+            list.add(new Item(i % 2 == 0 ? "current" : "historic"));
+        }
+        return list;
+    }
+
+    @Test
+    public void testFilterExpression() {
+        System.out.println("Filter by expression");
+        ExtendedList<Item> list = createList(10);
+        assertEquals(10, list.getFilteredList().size());
+
+        list.setFilterExpression("status == 'current'");
+        assertEquals(5, list.getFilteredList().size());
+        for (Item item : list.getFilteredList()) {
+            assertEquals("current", item.getStatus());
+        }
+
+        Item item = list.get(1);
+        item.setStatus("current");
+        list.filterElement(item);
+        assertEquals(6, list.getFilteredList().size());
+        assertSame(item, list.getFilteredList().get(5));
+
+        item.setStatus("historic");
+        list.filter();
+        assertEquals(5, list.getFilteredList().size());
+
+        list.remove(list.get(0));
+        assertEquals(4, list.getFilteredList().size());
+
+        list.setFilterExpression(null);
+        assertEquals(9, list.getFilteredList().size());
+    }
+
+    @Test
+    public void testFilterTime() {
+        System.out.println("Filter 20000 items");
+        ExtendedList<Item> list = createList(20000);
+        long start = System.currentTimeMillis();
+        list.setFilterExpression("status == 'current'");
+        list.setFilterExpression("status == 'historic'");
+        list.filter();
+        System.out.println(String.format("Filtered in %s ms", System.currentTimeMillis() - start));
+        assertEquals(10000, list.getFilteredList().size());
+    }
+
+    private static class CountingListener implements ObservableListListener {
+
+        int added;
+        int removed;
+
+        @Override
+        public void listElementsAdded(ObservableList list, int index, int length) {
+            added++;
+        }
+
+        @Override
+        public void listElementsRemoved(ObservableList list, int index, List oldElements) {
+            removed++;
+        }
+
+        @Override
+        public void listElementReplaced(ObservableList list, int index, Object oldElement) {
+        }
+
+        @Override
+        public void listElementPropertyChanged(ObservableList list, int index) {
+        }
+    }
+
+    @Test
+    public void testAddAll() {
+        System.out.println("Add all");
+        ExtendedList<Item> list = new ExtendedList<Item>();
+        list.setFilterExpression("status == 'current'");
+        CountingListener listener = new CountingListener();
+        CountingListener filteredListener = new CountingListener();
+        list.addObservableListListener(listener);
+        list.getFilteredList().addObservableListListener(filteredListener);
+
+        assertTrue(list.addAll(createList(10)));
+        assertEquals(10, list.size());
+        assertEquals(5, list.getFilteredList().size());
+        assertEquals(1, listener.added);
+        assertEquals(1, filteredListener.added);
+
+        list.clear();
+        assertEquals(0, list.getFilteredList().size());
+        assertEquals(1, listener.removed);
+        assertEquals(1, filteredListener.removed);
+    }
+
+    @Test
+    public void testIdentityIndexed() {
+        System.out.println("Identity indexed mode");
+        ExtendedList<Item> list = createList(10);
+        Item newItem = new Item("current");
+        list.addAsNew(newItem);
+        list.setIdentityIndexed(true);
+        list.setFilterExpression("status == 'current'");
+
+        assertTrue(list.isNewlyAdded(newItem));
+        assertEquals(10, list.getRealIndex(newItem));
+        assertEquals(6, list.getFilteredList().size());
+
+        Item item = list.get(3);
+        assertEquals(3, list.getRealIndex(item));
+        assertTrue(list.remove(item));
+        assertFalse(list.remove(item));
+        assertEquals(-1, list.getRealIndex(item));
+        assertEquals(9, list.getRealIndex(newItem));
+
+        list.remove(list.get(0));
+        assertEquals(5, list.getFilteredList().size());
+        assertEquals(8, list.getRealIndex(newItem));
+
+        assertTrue(list.remove(newItem));
+        assertFalse(list.isNewlyAdded(newItem));
+        assertEquals(4, list.getFilteredList().size());
+
+        list.addAll(createList(4));
+        assertEquals(12, list.size());
+        assertEquals(6, list.getFilteredList().size());
+        assertEquals(11, list.getRealIndex(list.get(11)));
+
+        list.setIdentityIndexed(false);
+        Item other = new Item("historic");
+        list.addAsNew(other);
+        assertTrue(list.isNewlyAdded(other));
+        assertEquals(12, list.getRealIndex(other));
+    }
+
+    @Test
+    public void testIdentityIndexedTime() {
+        System.out.println("Remove 20000 items in identity indexed mode");
+        ExtendedList<Item> list = new ExtendedList<Item>();
+        list.setIdentityIndexed(true);
+        List<Item> items = createList(20000);
+        for (Item item : items) {
+            list.addAsNew(item);
+        }
+        list.setFilterExpression("status == 'current'");
+        long start = System.currentTimeMillis();
+        for (int i = items.size() - 1; i >= 0; i--) {
+            list.remove(items.get(i));
+        }
+        System.out.println(String.format("Removed in %s ms", System.currentTimeMillis() - start));
+        assertEquals(0, list.size());
+        assertEquals(0, list.getFilteredList().size());
+    }
+
+    @Test
+    public void testSerializeIdentityIndexed() throws Exception {
+        System.out.println("Serialize in identity indexed mode");
+        ExtendedList<Item> list = createList(4);
+        list.setIdentityIndexed(true);
+        Item newItem = new Item("current");
+        list.addAsNew(newItem);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(list);
+        out.close();
+
+        // Serialization must leave the list as it was
+        assertTrue(list.isIdentityIndexed());
+        assertTrue(list.isNewlyAdded(newItem));
+        list.setIdentityIndexed(false);
+        assertTrue(list.isNewlyAdded(newItem));
+        assertEquals(4, list.getRealIndex(newItem));
+
+        ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        ExtendedList<Item> copy = (ExtendedList<Item>) in.readObject();
+        in.close();
+        assertEquals(5, copy.size());
+        assertTrue(copy.isNewlyAdded(copy.get(4)));
+        assertFalse(copy.isNewlyAdded(copy.get(0)));
+    }
+}
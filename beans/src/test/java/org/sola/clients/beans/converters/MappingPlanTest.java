@@ -0,0 +1,99 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.beans.converters;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+import org.sola.clients.beans.administrative.BaUnitBean;
+import org.sola.clients.beans.application.ApplicationBean;
+import org.sola.webservices.transferobjects.administrative.BaUnitTO;
+import org.sola.webservices.transferobjects.casemanagement.ApplicationTO;
+
+/**
+ * Tests the mapping plans used by {@link GenericTranslatorListener} and compares the time spent
+ * resolving the getters for every mapped object, as done before the plans were cached, with the
+ * cached plans.
+ */
+public class MappingPlanTest {
+
+    private static final int OBJECT_COUNT = 5000;
+
+    @Test
+    public void testPlanIsCached() {
+        System.out.println("Mapping plan is cached");
+        MappingPlan plan = MappingPlan.getPlan(BaUnitTO.class, BaUnitBean.class);
+        assertSame(plan, MappingPlan.getPlan(BaUnitTO.class, BaUnitBean.class));
+        assertNotSame(plan, MappingPlan.getPlan(ApplicationTO.class, ApplicationBean.class));
+        assertFalse(plan.isEmpty());
+    }
+
+    @Test
+    public void testPlanContents() {
+        System.out.println("Mapping plan contents");
+        MappingPlan plan = MappingPlan.getPlan(BaUnitTO.class, BaUnitBean.class);
+        boolean hasRrrList = false;
+        for (MappingPlan.ListProperty list : plan.getLists()) {
+            if (list.destinationGetter.getName().equals("getRrrList")) {
+                hasRrrList = true;
+            }
+        }
+        assertTrue(hasRrrList);
+
+        // Bean to bean copies are not followed
+        assertTrue(MappingPlan.getPlan(BaUnitBean.class, BaUnitBean.class).isEmpty());
+        assertTrue(MappingPlan.getPlan(String.class, String.class).isEmpty());
+    }
+
+    @Test
+    public void testPlanTime() {
+        System.out.println("Resolve mapping plan for " + OBJECT_COUNT + " objects");
+        // Warm up
+        for (int i = 0; i < 100; i++) {
+            MappingPlan.build(BaUnitTO.class, BaUnitBean.class);
+            MappingPlan.getPlan(BaUnitTO.class, BaUnitBean.class);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < OBJECT_COUNT; i++) {
+            MappingPlan.build(BaUnitTO.class, BaUnitBean.class);
+            MappingPlan.build(ApplicationTO.class, ApplicationBean.class);
+        }
+        long reflectionTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < OBJECT_COUNT; i++) {
+            MappingPlan.getPlan(BaUnitTO.class, BaUnitBean.class);
+            MappingPlan.getPlan(ApplicationTO.class, ApplicationBean.class);
+        }
+        long cachedTime = System.nanoTime() - start;
+
+        System.out.println(String.format("Reflection for every object: %s ms, cached plan: %s ms",
+                reflectionTime / 1000000, cachedTime / 1000000));
+        assertTrue(cachedTime < reflectionTime);
+    }
+}
@@ -60,6 +60,7 @@ import java.awt.Dimension;
 import java.awt.Toolkit;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import org.sola.clients.beans.cache.CacheManager;
 import org.sola.clients.swing.common.laf.LafManager;
 import org.sola.clients.swing.ui.localization.LocalizationManager;
 import org.sola.clients.swing.ui.security.LoginPanel;
@@ -127,8 +128,7 @@ public class AdminApplication {
                                     loginForm.enableLoginPanel(true);
                                 } else {
                                     loginForm.dispose();
-                                    MainForm mainForm = new MainForm();
-                                    mainForm.setVisible(true);
+                                    openMainForm();
                                 }
                             }
                         }
@@ -139,4 +139,38 @@ public class AdminApplication {
             }
         });
     }
+
+    /**
+     * Shows splash screen while reference data lists are loaded into the
+     * cache and opens main form afterwards.
+     */
+    private static void openMainForm() {
+        Dimension dim = Toolkit.getDefaultToolkit().getScreenSize();
+        final SplashForm splash = new SplashForm();
+        splash.setLocation((dim.width - splash.getWidth()) / 2, (dim.height - splash.getHeight()) / 2);
+        splash.setVisible(true);
+
+        Thread warmUpThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    CacheManager.loadSnapshot();
+                    CacheManager.warmUp();
+                } finally {
+                    java.awt.EventQueue.invokeLater(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            splash.setVisible(false);
+                            splash.dispose();
+                            MainForm mainForm = new MainForm();
+                            mainForm.setVisible(true);
+                        }
+                    });
+                }
+            }
+        }, "CacheManager-warmUp");
+        warmUpThread.start();
+    }
 }
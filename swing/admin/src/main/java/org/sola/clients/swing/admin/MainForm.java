@@ -40,6 +40,7 @@ import javax.swing.JOptionPane;
 import net.sf.jasperreports.engine.JasperPrint;
 import org.sola.clients.beans.AbstractBindingBean;
 import org.sola.clients.beans.AbstractCodeBean;
+import org.sola.clients.beans.cache.CacheManager;
 import org.sola.clients.beans.referencedata.*;
 import org.sola.clients.beans.security.SecurityBean;
 import org.sola.clients.reports.ReportManager;
@@ -75,6 +76,8 @@ public class MainForm extends javax.swing.JFrame {
      * Creates new form MainForm
      */
     public MainForm() {
+        // Use reference data saved during previous sessions
+        CacheManager.loadSnapshot();
         initComponents();
 
 //        this.setTitle("SOLA Admin - " + LocalizationManager.getVersionNumber());
@@ -143,6 +146,7 @@ public class MainForm extends javax.swing.JFrame {
     private void customizeForm() {
         // #321 Set size and location of form
         configureForm();
+        CacheManager.refreshSnapshot();
 
         boolean hasSecurityRole = SecurityBean.isInRole(RolesConstants.ADMIN_MANAGE_SECURITY);
         boolean hasRefdataRole = SecurityBean.isInRole(RolesConstants.ADMIN_MANAGE_REFDATA);
@@ -213,6 +217,7 @@ public class MainForm extends javax.swing.JFrame {
      * preference just before the screen is is closed.
      */
     private void preClose() {
+        CacheManager.saveSnapshot();
 //        if (WindowUtility.hasUserPreferences()) {
 //            Preferences prefs = WindowUtility.getUserPreferences();
 //            prefs.put(MAIN_FORM_HEIGHT, Integer.toString(this.getHeight()));
@@ -51,6 +51,13 @@ public class DxfEntityBean {
 
     private Geometry geometry;
     private String label="";
+    private String layer;
+
+    public DxfEntityBean(Geometry geometry, String label, String layer) {
+        this.geometry = geometry;
+        this.label = label == null ? "" : label;
+        this.layer = layer;
+    }
 
     public DxfEntityBean(DXFEntity entity) {
         if (entity.getType().equals(DXFConstants.ENTITY_TYPE_POLYLINE)) {
@@ -58,16 +65,16 @@ public class DxfEntityBean {
         }        if (entity.getType().equals(DXFConstants.ENTITY_TYPE_LWPOLYLINE)) {
             geometry = getGeometryFromEntityPolyline((DXFPolyline) entity);
         } else if (entity.getType().equals(DXFConstants.ENTITY_TYPE_POINT)) {
-            geometry = getGeometryFromEntityWithPoint(
+            geometry = getGeometryFromPoint(
                     ((DXFPoint) entity).getX(),
                     ((DXFPoint) entity).getY());
         } else if (entity.getType().equals(DXFConstants.ENTITY_TYPE_TEXT)) {
-            geometry = getGeometryFromEntityWithPoint(
+            geometry = getGeometryFromPoint(
                     ((DXFText) entity).getInsertPoint().getX(),
                     ((DXFText) entity).getInsertPoint().getY());
             label = ((DXFText) entity).getText();
         } else if (entity.getType().equals(DXFConstants.ENTITY_TYPE_ATTRIB)) {
-            getGeometryFromEntityWithPoint(
+            getGeometryFromPoint(
                     ((DXFAttrib) entity).getInsertPoint().getX(),
                     ((DXFAttrib) entity).getInsertPoint().getY());
             label = ((DXFAttrib) entity).getText();
@@ -80,8 +87,17 @@ public class DxfEntityBean {
             DXFVertex vertex = polyline.getVertex(i);
             coordinates[i] = new Coordinate(vertex.getX(), vertex.getY());
         }
+        return getGeometryFromCoordinates(coordinates);
+    }
+
+    /**
+     * Gets the geometry of a polyline. If the first and the last coordinate are
+     * the same, the geometry is a polygon, otherwise a line string.
+     */
+    public static Geometry getGeometryFromCoordinates(Coordinate[] coordinates) {
         Geometry geom;
-        if (coordinates[0].equals2D(coordinates[coordinates.length - 1])) {
+        if (coordinates.length > 3
+                && coordinates[0].equals2D(coordinates[coordinates.length - 1])) {
             //It means it is a polygon
             geom = GeometryUtility.getGeometryFactory().createPolygon(
                     GeometryUtility.getGeometryFactory().createLinearRing(coordinates), null);
@@ -91,7 +107,7 @@ public class DxfEntityBean {
         return geom;
     }
 
-    private Geometry getGeometryFromEntityWithPoint(double x, double y) {
+    public static Geometry getGeometryFromPoint(double x, double y) {
         return GeometryUtility.getGeometryFactory().createPoint(new Coordinate(x, y));
     }
 
@@ -111,6 +127,13 @@ public class DxfEntityBean {
         this.label = label;
     }
     
+    /**
+     * The layer of the entity in the DXF document.
+     */
+    public String getLayer() {
+        return layer;
+    }
+
     public String getGeometryType(){
         return geometry.getGeometryType();
     }
@@ -0,0 +1,319 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.swing.bulkoperations.beans;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the entities of an ASCII DXF file one by one, without loading the whole
+ * document in memory. Only the entities of the ENTITIES section are read. The
+ * supported entity types are POLYLINE, LWPOLYLINE, POINT, TEXT and ATTRIB, other
+ * entities are skipped. <br/> The encoding of the file is taken from its header.
+ * Files of AutoCAD 2007 or later ($ACADVER AC1021 and up) are UTF-8, older files
+ * use the code page given in $DWGCODEPAGE.
+ */
+public class DxfEntityReader {
+
+    public static final String ENTITY_TYPE_POLYLINE = "POLYLINE";
+    public static final String ENTITY_TYPE_LWPOLYLINE = "LWPOLYLINE";
+    public static final String ENTITY_TYPE_POINT = "POINT";
+    public static final String ENTITY_TYPE_TEXT = "TEXT";
+    public static final String ENTITY_TYPE_ATTRIB = "ATTRIB";
+    private static final String BINARY_DXF_SENTINEL = "AutoCAD Binary DXF";
+    private static final String DEFAULT_ENCODING = "ISO-8859-1";
+    private static final String UTF8_ENCODING = "UTF-8";
+    private static final String UTF8_ACADVER = "AC1021";
+    private static final String ANSI_CODEPAGE_PREFIX = "ANSI_";
+    private static final char UTF8_BOM = '\uFEFF';
+    private final BufferedReader reader;
+    private final Set<String> layers;
+    private final Set<String> entityTypes;
+    private int groupCode;
+    private String value;
+    private boolean pushedBack = false;
+    private boolean inEntities = false;
+
+    /**
+     * Opens the DXF file for reading.
+     *
+     * @param file The DXF file
+     * @param layers The layers to read. If null, all the layers are read.
+     * @param entityTypes The entity types to read. If null, all the supported
+     * types are read.
+     */
+    public DxfEntityReader(File file, Set<String> layers, Set<String> entityTypes)
+            throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), getEncoding(file)));
+        this.layers = layers;
+        this.entityTypes = entityTypes;
+    }
+
+    /**
+     * Gets the encoding of the DXF file from the $ACADVER and $DWGCODEPAGE
+     * variables of its header. If the header does not give a supported
+     * encoding, ISO-8859-1 is used.
+     *
+     * @param file The DXF file
+     */
+    public static String getEncoding(File file) throws IOException {
+        String acadVersion = null;
+        String codePage = null;
+        // The header variables are ASCII, so the header can be read in any encoding
+        BufferedReader header = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), DEFAULT_ENCODING));
+        try {
+            String variable = null;
+            String codeLine;
+            while ((codeLine = header.readLine()) != null) {
+                String valueLine = header.readLine();
+                if (valueLine == null) {
+                    break;
+                }
+                String code = codeLine.trim();
+                String value = valueLine.trim();
+                if ("0".equals(code) && "ENDSEC".equals(value)) {
+                    // Only the first section, the HEADER, has the variables
+                    break;
+                } else if ("9".equals(code)) {
+                    variable = value;
+                } else if ("$ACADVER".equals(variable)) {
+                    acadVersion = value;
+                    variable = null;
+                } else if ("$DWGCODEPAGE".equals(variable)) {
+                    codePage = value;
+                    variable = null;
+                }
+            }
+        } finally {
+            header.close();
+        }
+        if (acadVersion != null && acadVersion.compareToIgnoreCase(UTF8_ACADVER) >= 0) {
+            return UTF8_ENCODING;
+        }
+        if (codePage != null && codePage.toUpperCase().startsWith(ANSI_CODEPAGE_PREFIX)) {
+            String number = codePage.substring(ANSI_CODEPAGE_PREFIX.length());
+            for (String name : new String[]{"windows-" + number, "Cp" + number, "MS" + number}) {
+                try {
+                    if (Charset.isSupported(name)) {
+                        return name;
+                    }
+                } catch (IllegalArgumentException ex) {
+                    // Not a valid charset name, try the next one
+                }
+            }
+        }
+        return DEFAULT_ENCODING;
+    }
+
+    /**
+     * Reads the next entity that is in the selected layers and of the selected
+     * types.
+     *
+     * @return The entity or null if the end of the file is reached
+     */
+    public DxfEntityBean next() throws IOException {
+        while (moveToNextEntity()) {
+            String type = value;
+            DxfEntityBean bean = readEntity(type);
+            if (bean != null) {
+                return bean;
+            }
+        }
+        return null;
+    }
+
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException ex) {
+            // Nothing to do, the file is only read
+        }
+    }
+
+    /**
+     * Moves to the start of the next entity in the ENTITIES section.
+     */
+    private boolean moveToNextEntity() throws IOException {
+        while (readPair()) {
+            if (groupCode != 0) {
+                continue;
+            }
+            if ("SECTION".equals(value)) {
+                inEntities = readPair() && groupCode == 2 && "ENTITIES".equals(value);
+            } else if ("ENDSEC".equals(value)) {
+                inEntities = false;
+            } else if ("EOF".equals(value)) {
+                return false;
+            } else if (inEntities) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the group codes of the entity until the next entity starts. Returns
+     * null if the entity is not supported or not selected.
+     */
+    private DxfEntityBean readEntity(String type) throws IOException {
+        boolean isPolyline = ENTITY_TYPE_POLYLINE.equals(type);
+        boolean isLwPolyline = ENTITY_TYPE_LWPOLYLINE.equals(type);
+        String layer = "0";
+        String text = "";
+        double x = 0;
+        double y = 0;
+        List<Coordinate> coordinates = new ArrayList<Coordinate>();
+
+        while (readPair()) {
+            if (groupCode == 0) {
+                if (isPolyline && "VERTEX".equals(value)) {
+                    coordinates.add(readVertex());
+                    continue;
+                }
+                if (isPolyline && "SEQEND".equals(value)) {
+                    skipEntity();
+                    break;
+                }
+                pushedBack = true;
+                break;
+            }
+            switch (groupCode) {
+                case 1:
+                    text = value;
+                    break;
+                case 8:
+                    layer = value.trim();
+                    break;
+                case 10:
+                    x = parseDouble(value);
+                    break;
+                case 20:
+                    y = parseDouble(value);
+                    if (isLwPolyline) {
+                        coordinates.add(new Coordinate(x, y));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if ((layers != null && !layers.contains(layer))
+                || (entityTypes != null && !entityTypes.contains(type))) {
+            return null;
+        }
+        if (isPolyline || isLwPolyline) {
+            if (coordinates.size() < 2) {
+                return null;
+            }
+            return new DxfEntityBean(DxfEntityBean.getGeometryFromCoordinates(
+                    coordinates.toArray(new Coordinate[coordinates.size()])), "", layer);
+        }
+        if (ENTITY_TYPE_POINT.equals(type)) {
+            return new DxfEntityBean(DxfEntityBean.getGeometryFromPoint(x, y), "", layer);
+        }
+        if (ENTITY_TYPE_TEXT.equals(type) || ENTITY_TYPE_ATTRIB.equals(type)) {
+            return new DxfEntityBean(DxfEntityBean.getGeometryFromPoint(x, y), text, layer);
+        }
+        return null;
+    }
+
+    private Coordinate readVertex() throws IOException {
+        double x = 0;
+        double y = 0;
+        while (readPair()) {
+            if (groupCode == 0) {
+                pushedBack = true;
+                break;
+            } else if (groupCode == 10) {
+                x = parseDouble(value);
+            } else if (groupCode == 20) {
+                y = parseDouble(value);
+            }
+        }
+        return new Coordinate(x, y);
+    }
+
+    private void skipEntity() throws IOException {
+        while (readPair()) {
+            if (groupCode == 0) {
+                pushedBack = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads the next group code and value pair.
+     */
+    private boolean readPair() throws IOException {
+        if (pushedBack) {
+            pushedBack = false;
+            return true;
+        }
+        String codeLine = reader.readLine();
+        if (codeLine == null) {
+            return false;
+        }
+        if (codeLine.length() > 0 && codeLine.charAt(0) == UTF8_BOM) {
+            codeLine = codeLine.substring(1);
+        }
+        if (codeLine.startsWith(BINARY_DXF_SENTINEL)) {
+            throw new IOException("Binary DXF files are not supported.");
+        }
+        String valueLine = reader.readLine();
+        if (valueLine == null) {
+            return false;
+        }
+        try {
+            groupCode = Integer.parseInt(codeLine.trim());
+        } catch (NumberFormatException ex) {
+            throw new IOException("Invalid group code in DXF file: " + codeLine);
+        }
+        value = groupCode == 1 ? valueLine : valueLine.trim();
+        return true;
+    }
+
+    private static double parseDouble(String value) throws IOException {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            throw new IOException("Invalid coordinate in DXF file: " + value);
+        }
+    }
+}
@@ -31,28 +31,117 @@
  */
 package org.sola.clients.swing.bulkoperations.beans;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.sola.clients.beans.cache.CacheManager;
 import org.sola.clients.beans.digitalarchive.DocumentBean;
 import org.sola.clients.beans.source.SourceBean;
 import org.sola.clients.beans.validation.ValidationResultBean;
+import org.sola.common.logging.LogUtility;
 import org.sola.common.messaging.ClientMessage;
 import org.sola.common.messaging.MessageUtility;
 
 /**
  * It is used to upload documents (sources is called within the framework of Sola)
- * from a given folder to the source schema in the database.
+ * from a given folder to the source schema in the database. <br/>
+ * The files are streamed to the server by {@link #UPLOAD_THREADS} parallel uploads
+ * and the sources are saved in chunks of {@link #CHUNK_SIZE}, each chunk in its own
+ * transaction. The files of the saved chunks are written in a manifest file in the
+ * base folder, so if the load is interrupted, the next load skips them. The documents
+ * uploaded for sources that are not saved yet are also written in the manifest, so
+ * the next load reuses them instead of uploading the files again.
  * 
  * @author Elton Manoku
  */
 public class SourceBulkMoveBean extends AbstractBulkMoveBean{
 
+    public static final String PROPERTY_LOADED_FILES = "loadedFiles";
+    public static final String MANIFEST_FILE_NAME = "sola_bulk_load_manifest.txt";
+    public static final int UPLOAD_THREADS = 4;
+    public static final int CHUNK_SIZE = 100;
+    /**
+     * Prefix of the manifest entries of the files uploaded to the digital archive,
+     * followed by the document id.
+     */
+    private static final String UPLOADED_PREFIX = "document:";
     private File baseFolder;
-    private List<SourceBean> sourceList = null;
     private List<String> allowedExtensions = new ArrayList<String>();
+    private List<TransactionBulkOperationSource> transactions =
+            new ArrayList<TransactionBulkOperationSource>();
+    private int loadedFiles = 0;
+    private int filesNumber = 0;
+
+    /**
+     * Source file found in the base folder, together with the source type.
+     */
+    private static class SourceFile {
+
+        private final String sourceType;
+        private final File file;
+        private final String documentId;
+
+        SourceFile(String sourceType, File file, String documentId) {
+            this.sourceType = sourceType;
+            this.file = file;
+            this.documentId = documentId;
+        }
+
+        /**
+         * Key of the file in the manifest.
+         */
+        String getKey() {
+            return sourceType + "/" + file.getName();
+        }
+    }
+
+    /**
+     * Uploads one file to the digital archive and creates the source bean for it. If
+     * the file is already uploaded by a previous load, the document is reused.
+     */
+    private class UploadTask implements Callable<SourceBean> {
+
+        private final SourceFile sourceFile;
+
+        UploadTask(SourceFile sourceFile) {
+            this.sourceFile = sourceFile;
+        }
+
+        @Override
+        public SourceBean call() throws Exception {
+            SourceBean sourceBean = new SourceBean();
+            sourceBean.setTypeCode(sourceFile.sourceType);
+            sourceBean.setReferenceNr(getReferenceNrFromFileName(sourceFile.file.getName()));
+            if (sourceFile.documentId != null) {
+                DocumentBean document = new DocumentBean();
+                document.setId(sourceFile.documentId);
+                sourceBean.setArchiveDocument(document);
+            } else {
+                sourceBean.setArchiveDocument(DocumentBean.uploadDocumentFromLocalFile(sourceFile.file));
+            }
+            return sourceBean;
+        }
+    }
 
     /**
      * The constructor initializes also the filter for files that will be considered
@@ -91,12 +180,273 @@ public class SourceBulkMoveBean extends AbstractBulkMoveBean{
         return allowedExtensions;
     }
 
+    /**
+     * Gets the number of files loaded so far.
+     * @return 
+     */
+    public int getLoadedFiles() {
+        return loadedFiles;
+    }
+
+    /**
+     * Gets the number of files to load, without the files loaded by a previous load.
+     * @return 
+     */
+    public int getFilesNumber() {
+        return filesNumber;
+    }
+
+    /**
+     * Gets the transactions created in the server, one for each chunk of sources.
+     * @return 
+     */
+    public List<TransactionBulkOperationSource> getTransactions() {
+        return transactions;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        transactions.clear();
+        loadedFiles = 0;
+        filesNumber = 0;
+    }
+
     @Override
     public void sendToServer() {
         getValidationResults().clear();
-        setTransaction(new TransactionBulkOperationSource());
-        getTransaction().setSourceList(getSources());
-        getValidationResults().addAll(getTransaction().save());
+        transactions.clear();
+        setTransaction(null);
+        loadedFiles = 0;
+        Map<String, String> uploadedDocuments = new HashMap<String, String>();
+        Set<String> loadedKeys = readManifest(uploadedDocuments);
+        List<SourceFile> sourceFiles = getSourceFiles(loadedKeys, uploadedDocuments);
+        filesNumber = sourceFiles.size();
+
+        ExecutorService uploaders = Executors.newFixedThreadPool(UPLOAD_THREADS, new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "SourceBulkMoveBean-upload-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // Only a few uploads are queued ahead, the results are taken in the original order
+        LinkedList<Future<SourceBean>> pending = new LinkedList<Future<SourceBean>>();
+        LinkedList<SourceFile> pendingFiles = new LinkedList<SourceFile>();
+        try {
+            List<SourceBean> chunk = new ArrayList<SourceBean>();
+            List<String> chunkKeys = new ArrayList<String>();
+            Iterator<SourceFile> it = sourceFiles.iterator();
+            while (it.hasNext() || !pending.isEmpty()) {
+                while (it.hasNext() && pending.size() < UPLOAD_THREADS * 2) {
+                    SourceFile sourceFile = it.next();
+                    pendingFiles.add(sourceFile);
+                    pending.add(uploaders.submit(new UploadTask(sourceFile)));
+                }
+                SourceFile sourceFile = pendingFiles.removeFirst();
+                try {
+                    SourceBean source = pending.removeFirst().get();
+                    recordUpload(sourceFile, source);
+                    chunk.add(source);
+                    chunkKeys.add(sourceFile.getKey());
+                } catch (ExecutionException ex) {
+                    LogUtility.log("Error uploading " + sourceFile.file.getAbsolutePath(), ex);
+                    addFileNotLoadedResult(sourceFile, ex.getCause());
+                }
+                if (chunk.size() >= CHUNK_SIZE) {
+                    saveChunk(chunk, chunkKeys);
+                    chunk = new ArrayList<SourceBean>();
+                    chunkKeys = new ArrayList<String>();
+                }
+                int old = loadedFiles;
+                loadedFiles++;
+                propertySupport.firePropertyChange(PROPERTY_LOADED_FILES, old, loadedFiles);
+            }
+            saveChunk(chunk, chunkKeys);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } finally {
+            uploaders.shutdownNow();
+            // The documents already uploaded ahead are reused by the next load
+            for (int i = 0; i < pending.size(); i++) {
+                Future<SourceBean> upload = pending.get(i);
+                if (upload.isDone() && !upload.isCancelled()) {
+                    try {
+                        recordUpload(pendingFiles.get(i), upload.get());
+                    } catch (ExecutionException ex) {
+                        // The file is not uploaded
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Rejects all the transactions created by the last load and removes their files
+     * from the manifest, so they can be loaded again. The documents uploaded for them
+     * stay in the manifest and are reused.
+     */
+    public void reject() {
+        Set<String> rejectedIds = new HashSet<String>();
+        try {
+            Iterator<TransactionBulkOperationSource> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                TransactionBulkOperationSource transaction = iterator.next();
+                transaction.reject();
+                rejectedIds.add(transaction.getId());
+                iterator.remove();
+            }
+            setTransaction(null);
+        } finally {
+            removeFromManifest(rejectedIds);
+        }
+    }
+
+    /**
+     * Writes the document uploaded for the file in the manifest, unless it was
+     * reused from a previous load.
+     */
+    private void recordUpload(SourceFile sourceFile, SourceBean source) {
+        if (sourceFile.documentId == null && source.getArchiveDocumentId() != null) {
+            appendToManifest(Collections.singletonList(sourceFile.getKey()),
+                    UPLOADED_PREFIX + source.getArchiveDocumentId());
+        }
+    }
+
+    /**
+     * Saves the sources of the chunk in a new transaction and adds their files to
+     * the manifest.
+     */
+    private void saveChunk(List<SourceBean> chunk, List<String> chunkKeys) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        TransactionBulkOperationSource transaction = new TransactionBulkOperationSource();
+        transaction.setSourceList(chunk);
+        getValidationResults().addAll(transaction.save());
+        transaction.setSourceList(null);
+        transactions.add(transaction);
+        if (getTransaction() == null) {
+            setTransaction(transaction);
+        }
+        appendToManifest(chunkKeys, transaction.getId());
+    }
+
+    private void addFileNotLoadedResult(SourceFile sourceFile, Throwable cause) {
+        ValidationResultBean validationBean = new ValidationResultBean();
+        validationBean.setSeverity(ValidationResultBean.SEVERITY_WARNING);
+        validationBean.setName(sourceFile.getKey());
+        validationBean.setFeedback(String.format("File %s is not loaded. %s",
+                sourceFile.getKey(), cause == null ? "" : cause.getMessage()));
+        validationBean.setSuccessful(false);
+        getValidationResults().add(validationBean);
+    }
+
+    private File getManifestFile() {
+        return new File(getBaseFolder(), MANIFEST_FILE_NAME);
+    }
+
+    /**
+     * Reads the keys of the files that are already loaded from the manifest.
+     *
+     * @param uploadedDocuments Filled with the ids of the documents already uploaded,
+     * by file key.
+     */
+    private Set<String> readManifest(Map<String, String> uploadedDocuments) {
+        Set<String> keys = new HashSet<String>();
+        File manifest = getManifestFile();
+        if (!manifest.exists()) {
+            return keys;
+        }
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(manifest));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int pos = line.lastIndexOf('\t');
+                    if (pos <= 0) {
+                        continue;
+                    }
+                    String value = line.substring(pos + 1);
+                    if (value.startsWith(UPLOADED_PREFIX)) {
+                        uploadedDocuments.put(line.substring(0, pos),
+                                value.substring(UPLOADED_PREFIX.length()));
+                    } else {
+                        keys.add(line.substring(0, pos));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Error reading the manifest file.", ex);
+        }
+        return keys;
+    }
+
+    /**
+     * Adds the files to the manifest, one line per file with the file key and the
+     * transaction id or the uploaded document id.
+     */
+    private void appendToManifest(List<String> keys, String transactionId) {
+        try {
+            Writer writer = new FileWriter(getManifestFile(), true);
+            try {
+                for (String key : keys) {
+                    writer.write(key + "\t" + transactionId + "\n");
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Error writing the manifest file.", ex);
+        }
+    }
+
+    /**
+     * Removes the files of the given transactions from the manifest.
+     */
+    private void removeFromManifest(Set<String> transactionIds) {
+        File manifest = getManifestFile();
+        if (transactionIds.isEmpty() || !manifest.exists()) {
+            return;
+        }
+        List<String> lines = new ArrayList<String>();
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(manifest));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int pos = line.lastIndexOf('\t');
+                    if (pos > 0 && !transactionIds.contains(line.substring(pos + 1))) {
+                        lines.add(line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            if (lines.isEmpty()) {
+                manifest.delete();
+                return;
+            }
+            Writer writer = new FileWriter(manifest, false);
+            try {
+                for (String line : lines) {
+                    writer.write(line + "\n");
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Error writing the manifest file.", ex);
+        }
     }
 
     private FileFilter getSourceFileFilter() {
@@ -117,18 +467,24 @@ public class SourceBulkMoveBean extends AbstractBulkMoveBean{
         };
     }
 
-    private List<SourceBean> getSources() {
-        sourceList = new ArrayList<SourceBean>();
+    /**
+     * Gets the files to load from the source type folders, skipping the files that
+     * are in the manifest.
+     */
+    private List<SourceFile> getSourceFiles(Set<String> loadedKeys,
+            Map<String, String> uploadedDocuments) {
+        List<SourceFile> sourceFiles = new ArrayList<SourceFile>();
         for (File subFolderObj : getBaseFolder().listFiles()) {
             if (!subFolderObj.isDirectory()) {
                 continue;
             }
-            treatSourceTypeFolder(subFolderObj);
+            treatSourceTypeFolder(subFolderObj, sourceFiles, loadedKeys, uploadedDocuments);
         }
-        return sourceList;
+        return sourceFiles;
     }
 
-    private void treatSourceTypeFolder(File sourceTypeFolder) {
+    private void treatSourceTypeFolder(File sourceTypeFolder, List<SourceFile> sourceFiles,
+            Set<String> loadedKeys, Map<String, String> uploadedDocuments) {
         String sourceType = sourceTypeFolder.getName();
         if (CacheManager.getBeanByCode(CacheManager.getSourceTypes(), sourceType) == null) {
             ValidationResultBean validationBean = new ValidationResultBean();
@@ -143,12 +499,10 @@ public class SourceBulkMoveBean extends AbstractBulkMoveBean{
             return;
         }
         for (File sourceFile : sourceTypeFolder.listFiles(getSourceFileFilter())) {
-            SourceBean sourceBean = new SourceBean();
-            sourceBean.setTypeCode(sourceType);
-            sourceBean.setReferenceNr(getReferenceNrFromFileName(sourceFile.getName()));
-            DocumentBean document = DocumentBean.createDocumentFromLocalFile(sourceFile);
-            sourceBean.setArchiveDocument(document);
-            sourceList.add(sourceBean);
+            String key = sourceType + "/" + sourceFile.getName();
+            if (!loadedKeys.contains(key)) {
+                sourceFiles.add(new SourceFile(sourceType, sourceFile, uploadedDocuments.get(key)));
+            }
         }
     }
 
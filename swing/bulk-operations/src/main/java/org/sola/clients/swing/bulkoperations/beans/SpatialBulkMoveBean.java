@@ -31,7 +31,9 @@
  */
 package org.sola.clients.swing.bulkoperations.beans;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import javax.validation.ConstraintViolation;
@@ -44,7 +46,11 @@ import org.sola.clients.swing.gis.data.PojoDataAccess;
 /**
  * It is used to upload spatial features from a spatial dataset like a shapefile
  * to cadastre schema. Depending in the destination, the features are uploaded
- * as cadastre objects or spatial units.
+ * as cadastre objects or spatial units. <br/>
+ * The features are read from the source one by one and sent to the server in
+ * chunks of {@link #getChunkSize()} features, each chunk in its own transaction.
+ * If sending of a chunk fails, the load can be resumed from that chunk with
+ * {@link #resume()}.
  * 
 * @author Elton Manoku
  */
@@ -52,9 +58,19 @@ public class SpatialBulkMoveBean extends AbstractBulkMoveBean {
 
     public static final String PROPERTY_SOURCE = "source";
     public static final String PROPERTY_DESTINATION = "destination";
+    public static final String PROPERTY_SENT_FEATURES = "sentFeatures";
+    public static final int DEFAULT_CHUNK_SIZE = 2000;
     private SpatialSourceBean source = new SpatialSourceShapefileBean();
     private SpatialDestinationBean destination = new SpatialDestinationCadastreObjectBean();
     private TransactionCadastreChangeBean transactionCadastreChange = null;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private List<TransactionBulkOperationSpatial> transactions =
+            new ArrayList<TransactionBulkOperationSpatial>();
+    private TransactionBulkOperationSpatial transactionWithProblems = null;
+    private int sentFeatures = 0;
+    private int skippedFeatures = 0;
+    private List<SpatialUnitTemporaryBean> failedChunk = null;
+    private int failedChunkEnd = 0;
 
     @NotNull(message = "Source must be present")
     public SpatialSourceBean getSource() {
@@ -78,8 +94,59 @@ public class SpatialBulkMoveBean extends AbstractBulkMoveBean {
         propertySupport.firePropertyChange(PROPERTY_DESTINATION, old, value);
     }
 
+    /**
+     * Gets the number of features sent to the server in one chunk.
+     *
+     * @return
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize < 1 ? DEFAULT_CHUNK_SIZE : chunkSize;
+    }
+
+    /**
+     * Gets the number of source features that are already processed.
+     *
+     * @return
+     */
+    public int getSentFeatures() {
+        return sentFeatures;
+    }
+
+    /**
+     * Gets the number of source features skipped, because they have no
+     * geometry.
+     *
+     * @return
+     */
+    public int getSkippedFeatures() {
+        return skippedFeatures;
+    }
+
+    /**
+     * Gets the transactions created in the server, one for each chunk.
+     *
+     * @return
+     */
+    public List<TransactionBulkOperationSpatial> getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * True if sending of a chunk has failed and the load can be resumed.
+     *
+     * @return
+     */
+    public boolean canResume() {
+        return failedChunk != null;
+    }
+
     /**
      * Gets the list of beans that are derived from the source features.
+     * All the features are kept in memory.
      * 
      * @return 
      */
@@ -96,28 +163,143 @@ public class SpatialBulkMoveBean extends AbstractBulkMoveBean {
         return (TransactionBulkOperationSpatial) super.getTransaction();
     }
 
+    /**
+     * Resets the bulk move. If the last load has failed and was not resumed,
+     * the transactions of the chunks that are already in the server are
+     * rejected, so they are not left orphaned.
+     */
     @Override
     public void reset() {
+        if (canResume()) {
+            reject();
+        }
         super.reset();
         transactionCadastreChange = null;
+        transactions.clear();
+        transactionWithProblems = null;
+        sentFeatures = 0;
+        skippedFeatures = 0;
+        failedChunk = null;
+        failedChunkEnd = 0;
     }
 
     @Override
     public void sendToServer() {
         reset();
-        setTransaction(new TransactionBulkOperationSpatial());
-        if (getDestination().getClass().equals(SpatialDestinationCadastreObjectBean.class)) {
-            getTransaction().setGenerateFirstPart(
-                    ((SpatialDestinationCadastreObjectBean) getDestination()).isGenerateFirstPart());
+        sendFeatures();
+    }
+
+    /**
+     * Resends the chunk that has failed and continues with the rest of the
+     * features of the source. Chunks that are already in the server are not
+     * sent again.
+     */
+    public void resume() {
+        if (!canResume()) {
+            return;
+        }
+        sendChunk(failedChunk, failedChunkEnd);
+        sendFeatures();
+    }
+
+    /**
+     * Rejects all the transactions created in the server by the last load. The
+     * rejected transactions are removed from the list, so they are not
+     * rejected again and the load cannot be resumed anymore.
+     */
+    public void reject() {
+        Iterator<TransactionBulkOperationSpatial> iterator = transactions.iterator();
+        while (iterator.hasNext()) {
+            iterator.next().reject();
+            iterator.remove();
+        }
+        failedChunk = null;
+        failedChunkEnd = 0;
+    }
+
+    /**
+     * Reads the source features after the ones that are already sent, converts
+     * them to beans and sends them to the server in chunks.
+     */
+    private void sendFeatures() {
+        SpatialSourceObjectIterator features = getSource().getFeatureIterator(
+                getDestination().getSourceAttributes());
+        try {
+            features.skip(sentFeatures);
+            List<SpatialUnitTemporaryBean> chunk = new ArrayList<SpatialUnitTemporaryBean>();
+            while (features.hasNext()) {
+                SpatialSourceObjectBean sourceObject = features.next();
+                if (sourceObject.getTheGeom() == null) {
+                    skippedFeatures++;
+                } else {
+                    chunk.add(getDestination().getBean(sourceObject));
+                }
+                if (chunk.size() >= chunkSize) {
+                    sendChunk(chunk, features.getPosition());
+                    chunk = new ArrayList<SpatialUnitTemporaryBean>();
+                }
+            }
+            sendChunk(chunk, features.getPosition());
+        } finally {
+            features.close();
+        }
+
+        if (skippedFeatures > 0) {
+            ValidationResultBean result = new ValidationResultBean();
+            result.setName("Features without geometry");
+            result.setFeedback(String.format(
+                    "%s features without geometry were not loaded.", skippedFeatures));
+            result.setSeverity(ValidationResultBean.SEVERITY_WARNING);
+            result.setSuccessful(false);
+            getValidationResults().add(result);
         }
-        getTransaction().setSpatialUnitTemporaryList(getBeans());
-        getValidationResults().addAll(getTransaction().save());
         if (getDestination().getClass().equals(SpatialDestinationCadastreObjectBean.class)
-                && hasValidationProblems()) {
+                && transactionWithProblems != null) {
             transactionCadastreChange =
                     PojoDataAccess.getInstance().getTransactionCadastreChangeById(
-                    getTransaction().getId());
+                    transactionWithProblems.getId());
+        }
+    }
+
+    /**
+     * Sends one chunk of beans to the server in a new transaction. If sending
+     * fails, the chunk is kept, so it can be resent with {@link #resume()}.
+     *
+     * @param chunk The beans to send
+     * @param endPosition The position in the source after the last feature of
+     * the chunk
+     */
+    private void sendChunk(List<SpatialUnitTemporaryBean> chunk, int endPosition) {
+        if (!chunk.isEmpty()) {
+            TransactionBulkOperationSpatial transaction = new TransactionBulkOperationSpatial();
+            if (getDestination().getClass().equals(SpatialDestinationCadastreObjectBean.class)) {
+                transaction.setGenerateFirstPart(
+                        ((SpatialDestinationCadastreObjectBean) getDestination()).isGenerateFirstPart());
+            }
+            transaction.setSpatialUnitTemporaryList(chunk);
+            List<ValidationResultBean> results;
+            try {
+                results = transaction.save();
+            } catch (RuntimeException ex) {
+                failedChunk = chunk;
+                failedChunkEnd = endPosition;
+                throw ex;
+            }
+            // Only the list of beans of the chunk that is being sent is kept in memory
+            transaction.setSpatialUnitTemporaryList(null);
+            transactions.add(transaction);
+            if (getTransaction() == null) {
+                setTransaction(transaction);
+            }
+            getValidationResults().addAll(results);
+            if (transactionWithProblems == null && hasValidationProblems()) {
+                transactionWithProblems = transaction;
+            }
         }
+        failedChunk = null;
+        int old = sentFeatures;
+        sentFeatures = endPosition;
+        propertySupport.firePropertyChange(PROPERTY_SENT_FEATURES, old, sentFeatures);
     }
     
     /**
@@ -31,6 +31,7 @@
  */
 package org.sola.clients.swing.bulkoperations.beans;
 
+import java.util.ArrayList;
 import java.util.List;
 import org.sola.clients.beans.AbstractCodeBean;
 
@@ -59,9 +60,30 @@ public abstract class SpatialDestinationBean extends AbstractCodeBean{
     
     /**
      * The list of spatial beans converted from the source. These beans can be sent
-     * to the server for further processing.
+     * to the server for further processing. Features without geometry are skipped.
      * @param fromSource The spatial source
      * @return 
      */
-    public abstract List<SpatialUnitTemporaryBean> getBeans(SpatialSourceBean fromSource);
+    public List<SpatialUnitTemporaryBean> getBeans(SpatialSourceBean fromSource) {
+        List<SpatialUnitTemporaryBean> beans = new ArrayList<SpatialUnitTemporaryBean>();
+        for (SpatialSourceObjectBean sourceObject : fromSource.getFeatures(getSourceAttributes())) {
+            if (sourceObject.getTheGeom() != null) {
+                beans.add(getBean(sourceObject));
+            }
+        }
+        return beans;
+    }
+
+    /**
+     * The list of source attributes that are needed to convert a feature.
+     * @return 
+     */
+    protected abstract List<SpatialAttributeBean> getSourceAttributes();
+
+    /**
+     * Converts one feature of the source to a spatial bean.
+     * @param sourceObject The feature of the source
+     * @return 
+     */
+    protected abstract SpatialUnitTemporaryBean getBean(SpatialSourceObjectBean sourceObject);
 }
@@ -137,33 +137,33 @@ public class SpatialDestinationCadastreObjectBean extends SpatialDestinationBean
     }
 
     @Override
-    public List<SpatialUnitTemporaryBean> getBeans(SpatialSourceBean fromSource) {
-        List<SpatialUnitTemporaryBean> beans = new ArrayList<SpatialUnitTemporaryBean>();
+    protected List<SpatialAttributeBean> getSourceAttributes() {
         List<SpatialAttributeBean> onlyAttributes = new ArrayList<SpatialAttributeBean>();
         onlyAttributes.add(officialArea);
         if (!isGenerateFirstPart()) {
             onlyAttributes.add(nameFirstPart);
         }
-        
-        for (SpatialSourceObjectBean sourceObject : fromSource.getFeatures(onlyAttributes)) {
-            SpatialUnitTemporaryBean bean = new SpatialUnitTemporaryBean();
-            bean.setTypeCode(code);
-            bean.setCadastreObjectTypeCode(getCadastreObjectTypeCode());
-            bean.setGeom(sourceObject.getTheGeom());
-            try {
-                bean.setOfficialArea(BigDecimal.valueOf(
-                        Double.valueOf(sourceObject.getFieldsWithValues().get(
-                        officialArea.getName()).toString())));
-            } catch (NumberFormatException ex) {
-                bean.setOfficialArea(null);
-            }
-            bean.setNameLastpart(getNameLastPart());
-            if (!isGenerateFirstPart()) {
-                bean.setNameFirstpart(
-                        sourceObject.getFieldsWithValues().get(nameFirstPart.getName()).toString());
-            }
-            beans.add(bean);
+        return onlyAttributes;
+    }
+
+    @Override
+    protected SpatialUnitTemporaryBean getBean(SpatialSourceObjectBean sourceObject) {
+        SpatialUnitTemporaryBean bean = new SpatialUnitTemporaryBean();
+        bean.setTypeCode(code);
+        bean.setCadastreObjectTypeCode(getCadastreObjectTypeCode());
+        bean.setGeom(sourceObject.getTheGeom());
+        try {
+            bean.setOfficialArea(BigDecimal.valueOf(
+                    Double.valueOf(sourceObject.getFieldsWithValues().get(
+                    officialArea.getName()).toString())));
+        } catch (NumberFormatException ex) {
+            bean.setOfficialArea(null);
+        }
+        bean.setNameLastpart(getNameLastPart());
+        if (!isGenerateFirstPart()) {
+            bean.setNameFirstpart(
+                    sourceObject.getFieldsWithValues().get(nameFirstPart.getName()).toString());
         }
-        return beans;
+        return bean;
     }
 }
@@ -91,19 +91,19 @@ public class SpatialDestinationOtherObjectBean extends SpatialDestinationBean {
     
 
     @Override
-    public List<SpatialUnitTemporaryBean> getBeans(SpatialSourceBean fromSource) {
-        List<SpatialUnitTemporaryBean> beans = new ArrayList<SpatialUnitTemporaryBean>();
+    protected List<SpatialAttributeBean> getSourceAttributes() {
         List<SpatialAttributeBean> onlyAttributes = new ArrayList<SpatialAttributeBean>();
         onlyAttributes.add(labelAttribute);
+        return onlyAttributes;
+    }
 
-        for (SpatialSourceObjectBean sourceObject : fromSource.getFeatures(onlyAttributes)) {
-            SpatialUnitTemporaryBean bean = new  SpatialUnitTemporaryBean();
-            bean.setTypeCode(getType());
-            bean.setLabel(
-                    sourceObject.getFieldsWithValues().get(labelAttribute.getName()).toString());
-            bean.setGeom(sourceObject.getTheGeom());            
-            beans.add(bean);
-        }
-        return beans;
+    @Override
+    protected SpatialUnitTemporaryBean getBean(SpatialSourceObjectBean sourceObject) {
+        SpatialUnitTemporaryBean bean = new  SpatialUnitTemporaryBean();
+        bean.setTypeCode(getType());
+        bean.setLabel(
+                sourceObject.getFieldsWithValues().get(labelAttribute.getName()).toString());
+        bean.setGeom(sourceObject.getTheGeom());
+        return bean;
     }
 }
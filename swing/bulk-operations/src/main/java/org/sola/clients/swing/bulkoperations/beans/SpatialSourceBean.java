@@ -121,6 +121,22 @@ public abstract class  SpatialSourceBean extends AbstractCodeBean {
      */
     protected abstract List<SpatialSourceObjectBean> getFeatures(
             List<SpatialAttributeBean> onlyAttributes);
+
+    /**
+     * Opens an iterator over the features of the source. The iterator must be
+     * closed after use. <br/>
+     * The default implementation iterates over the list retrieved with
+     * {@link #getFeatures(java.util.List)}. Sources that can be read feature by
+     * feature should override it, so big sources can be loaded without keeping
+     * all the features in memory.
+     *
+     * @param onlyAttributes The attributes to read together with the geometry
+     * @return
+     */
+    protected SpatialSourceObjectIterator getFeatureIterator(
+            List<SpatialAttributeBean> onlyAttributes) {
+        return SpatialSourceObjectIterator.fromList(getFeatures(onlyAttributes));
+    }
     
     /**
      * Retrieves the extent where all the features are found.
@@ -31,34 +31,77 @@
  */
 package org.sola.clients.swing.bulkoperations.beans;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.index.strtree.STRtree;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.swing.extended.util.GeometryUtility;
-import org.kabeja.dxf.Bounds;
-import org.kabeja.dxf.DXFConstants;
-
-import org.kabeja.dxf.DXFDocument;
-import org.kabeja.dxf.DXFEntity;
-import org.kabeja.dxf.DXFLayer;
-import org.kabeja.parser.DXFParser;
-import org.kabeja.parser.ParseException;
-import org.kabeja.parser.Parser;
-import org.kabeja.parser.ParserBuilder;
 
 /**
+ * The spatial source of type DXF. The DXF file is read entity by entity with
+ * {@link DxfEntityReader}. When the file is set, it is scanned once to find the
+ * layers, the number of entities by geometry type and the extent. The result
+ * of the scan is cached by file and modification time. The features are read
+ * again from the file only for the selected layers and geometry type. If the
+ * geometry type is polygon, the texts of the selected layers that are inside a
+ * polygon are used as the label of the polygon.
  *
  * @author Elton Manoku
  */
 public class SpatialSourceDxfBean extends SpatialSourceBean {
 
-    private DXFDocument doc = null;
+    private static final String GEOMETRY_TYPE_POLYGON = "Polygon";
+    private static final String GEOMETRY_TYPE_LINESTRING = "LineString";
+    private static final String GEOMETRY_TYPE_POINT = "Point";
+    private static final int CACHE_SIZE = 4;
+    private static final Map<String, DxfSummary> summaryCache =
+            new LinkedHashMap<String, DxfSummary>(CACHE_SIZE, 0.75f, true) {
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, DxfSummary> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
     private final String ATTRIBUTE_LABEL = "label";
     private final String ATTRIBUTE_AREA = "area";
-    private List<DxfEntityBean> dxfEntityBeans;
+    private DxfSummary summary = null;
+    private Set<String> selectedLayers = null;
+
+    /**
+     * Result of scanning a DXF file.
+     */
+    private static class DxfSummary {
+
+        /** Number of polygons, line strings and points by layer. */
+        private final Map<String, int[]> layerCounts = new LinkedHashMap<String, int[]>();
+        private final Envelope extent = new Envelope();
+    }
+
+    /**
+     * Text of the DXF file, used as label for the polygon that contains it.
+     */
+    private static class DxfLabel {
+
+        private final Geometry point;
+        private final String text;
+        private final int order;
+
+        DxfLabel(Geometry point, String text, int order) {
+            this.point = point;
+            this.text = text;
+            this.order = order;
+        }
+    }
 
     public SpatialSourceDxfBean() {
         super();
@@ -66,82 +109,137 @@ public class SpatialSourceDxfBean extends SpatialSourceBean {
         setDisplayValue("Dxf");
     }
 
-    private void parseDxfDocument() {
-        dxfEntityBeans = new ArrayList<DxfEntityBean>();
-        if (getSourceFile() == null) {
-            return;
+    /**
+     * Gets the summary of the file from the cache or scans the file if it is
+     * not in the cache or it is changed since it is scanned.
+     */
+    private static DxfSummary getSummary(File file) {
+        String key = String.format("%s|%s|%s",
+                file.getAbsolutePath(), file.lastModified(), file.length());
+        synchronized (summaryCache) {
+            DxfSummary cached = summaryCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        DxfSummary scanned = scan(file);
+        synchronized (summaryCache) {
+            summaryCache.put(key, scanned);
         }
-        Parser parser = ParserBuilder.createDefaultParser();
+        return scanned;
+    }
+
+    private static DxfSummary scan(File file) {
+        DxfSummary result = new DxfSummary();
+        DxfEntityReader reader = openReader(file, null, null);
         try {
-            //parse
-            parser.parse(new FileInputStream(getSourceFile()), DXFParser.DEFAULT_ENCODING);
-
-            //get the documnet
-            doc = parser.getDocument();
-            Iterator layerIterator = doc.getDXFLayerIterator();
-            while (layerIterator.hasNext()) {
-                DXFLayer layer = (DXFLayer) layerIterator.next();
-                List<DXFEntity> entities = new ArrayList<DXFEntity>();
-                if (layer.hasDXFEntities(DXFConstants.ENTITY_TYPE_POLYLINE)) {
-                    entities.addAll(layer.getDXFEntities(DXFConstants.ENTITY_TYPE_POLYLINE));
-                }
-                if (layer.hasDXFEntities(DXFConstants.ENTITY_TYPE_LWPOLYLINE)) {
-                    entities.addAll(layer.getDXFEntities(DXFConstants.ENTITY_TYPE_LWPOLYLINE));
-                }
-                if (layer.hasDXFEntities(DXFConstants.ENTITY_TYPE_POINT)) {
-                    entities.addAll(layer.getDXFEntities(DXFConstants.ENTITY_TYPE_POINT));
-                }
-                if (layer.hasDXFEntities(DXFConstants.ENTITY_TYPE_TEXT)) {
-                    entities.addAll(layer.getDXFEntities(DXFConstants.ENTITY_TYPE_TEXT));
-                }
-                if (layer.hasDXFEntities(DXFConstants.ENTITY_TYPE_ATTRIB)) {
-                    entities.addAll(layer.getDXFEntities(DXFConstants.ENTITY_TYPE_ATTRIB));
-                }
-                setGeometryType("Point");
-
-                for (DXFEntity entity : entities) {
-                    DxfEntityBean bean = new DxfEntityBean(entity);
-                    if (!getGeometryType().equals("Polygon")) {
-                        if (bean.getGeometryType().equals("Polygon")) {
-                            setGeometryType("Polygon");
-                        } else if (bean.getGeometryType().equals("LineString")) {
-                            setGeometryType("LineString");
-                        }
-                    }
-                    dxfEntityBeans.add(bean);
+            DxfEntityBean bean;
+            while ((bean = reader.next()) != null) {
+                int[] counts = result.layerCounts.get(bean.getLayer());
+                if (counts == null) {
+                    counts = new int[3];
+                    result.layerCounts.put(bean.getLayer(), counts);
                 }
+                counts[getGeometryTypeIndex(bean.getGeometryType())]++;
+                result.extent.expandToInclude(bean.getGeometry().getEnvelopeInternal());
             }
-
-        } catch (ParseException ex) {
+        } catch (IOException ex) {
             throw new RuntimeException(ex);
-        } catch (FileNotFoundException ex) {
+        } finally {
+            reader.close();
+        }
+        return result;
+    }
+
+    private static DxfEntityReader openReader(File file, Set<String> layers, Set<String> entityTypes) {
+        try {
+            return new DxfEntityReader(file, layers, entityTypes);
+        } catch (IOException ex) {
             throw new RuntimeException(ex);
         }
+    }
 
-        List<DxfEntityBean> tmpList = new ArrayList();
-        int label_generator = 1;
+    private static int getGeometryTypeIndex(String geometryType) {
+        if (GEOMETRY_TYPE_POLYGON.equals(geometryType)) {
+            return 0;
+        } else if (GEOMETRY_TYPE_LINESTRING.equals(geometryType)) {
+            return 1;
+        }
+        return 2;
+    }
 
-        for (DxfEntityBean bean : dxfEntityBeans) {
-            if (bean.getGeometryType().equals(getGeometryType())) {
-                if (bean.getLabel().isEmpty()) {
-                    bean.setLabel(String.format("%s", label_generator++));
-                }
-                tmpList.add(bean);
-            }
+    /**
+     * Gets the names of the layers found in the DXF file.
+     */
+    public List<String> getLayers() {
+        if (summary == null) {
+            return new ArrayList<String>();
         }
-        dxfEntityBeans = tmpList;
+        return new ArrayList<String>(summary.layerCounts.keySet());
+    }
+
+    /**
+     * Gets the layers from which the features are read. If null, all the
+     * layers are read.
+     */
+    public Set<String> getSelectedLayers() {
+        return selectedLayers;
+    }
+
+    /**
+     * Sets the layers from which the features are read. The geometry type and
+     * the number of features are calculated again for the selected layers.
+     *
+     * @param selectedLayers The layers to read or null to read all the layers
+     */
+    public void setSelectedLayers(Set<String> selectedLayers) {
+        this.selectedLayers = selectedLayers == null
+                ? null : Collections.unmodifiableSet(new HashSet<String>(selectedLayers));
+        applyLayerSelection();
     }
 
     @Override
     protected void loadAttributes() {
-        parseDxfDocument();
-        setFeaturesNumber(dxfEntityBeans.size());
+        summary = null;
+        selectedLayers = null;
+        if (getSourceFile() != null) {
+            summary = getSummary(getSourceFile());
+        }
+        applyLayerSelection();
+    }
+
+    /**
+     * Finds the geometry type and the number of features of the selected
+     * layers and sets the attributes of the source.
+     */
+    private void applyLayerSelection() {
+        int[] counts = new int[3];
+        if (summary != null) {
+            for (Map.Entry<String, int[]> layerCount : summary.layerCounts.entrySet()) {
+                if (selectedLayers == null || selectedLayers.contains(layerCount.getKey())) {
+                    for (int i = 0; i < counts.length; i++) {
+                        counts[i] += layerCount.getValue()[i];
+                    }
+                }
+            }
+        }
+        if (counts[0] > 0) {
+            setGeometryType(GEOMETRY_TYPE_POLYGON);
+            setFeaturesNumber(counts[0]);
+        } else if (counts[1] > 0) {
+            setGeometryType(GEOMETRY_TYPE_LINESTRING);
+            setFeaturesNumber(counts[1]);
+        } else {
+            setGeometryType(GEOMETRY_TYPE_POINT);
+            setFeaturesNumber(counts[2]);
+        }
+
         getAttributes().clear();
         SpatialAttributeBean attributeBean = new SpatialAttributeBean();
         attributeBean.setName(ATTRIBUTE_LABEL);
         attributeBean.setDataType("String");
         getAttributes().add(attributeBean);
-        if (getGeometryType().equals("Polygon")) {
+        if (getGeometryType().equals(GEOMETRY_TYPE_POLYGON)) {
             attributeBean = new SpatialAttributeBean();
             attributeBean.setName(ATTRIBUTE_AREA);
             attributeBean.setDataType("Double");
@@ -149,29 +247,146 @@ public class SpatialSourceDxfBean extends SpatialSourceBean {
         }
     }
 
+    /**
+     * Reads the texts of the selected layers in a spatial index, so each
+     * polygon can find the texts inside it.
+     */
+    private STRtree getLabelIndex() {
+        STRtree index = new STRtree();
+        DxfEntityReader reader = openReader(getSourceFile(), selectedLayers,
+                new HashSet<String>(Arrays.asList(
+                DxfEntityReader.ENTITY_TYPE_TEXT, DxfEntityReader.ENTITY_TYPE_ATTRIB)));
+        try {
+            DxfEntityBean bean;
+            int order = 0;
+            while ((bean = reader.next()) != null) {
+                if (!bean.getLabel().trim().isEmpty()) {
+                    index.insert(bean.getGeometry().getEnvelopeInternal(),
+                            new DxfLabel(bean.getGeometry(), bean.getLabel(), order++));
+                }
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            reader.close();
+        }
+        index.build();
+        return index;
+    }
+
+    /**
+     * Gets the first text, in the order of the file, that is inside the
+     * polygon.
+     */
+    private static String findLabel(STRtree labelIndex, Geometry polygon) {
+        DxfLabel found = null;
+        for (Object item : labelIndex.query(polygon.getEnvelopeInternal())) {
+            DxfLabel label = (DxfLabel) item;
+            if ((found == null || label.order < found.order) && polygon.intersects(label.point)) {
+                found = label;
+            }
+        }
+        return found == null ? "" : found.text;
+    }
+
     @Override
     protected List<SpatialSourceObjectBean> getFeatures(List<SpatialAttributeBean> onlyAttributes) {
         List<SpatialSourceObjectBean> spatialObjectList = new ArrayList<SpatialSourceObjectBean>();
-        for (DxfEntityBean bean : dxfEntityBeans) {
-            SpatialSourceObjectBean spatialObject = new SpatialSourceObjectBean();
-            bean.getGeometry().setSRID(getSrid());
-            spatialObject.setTheGeom(GeometryUtility.getWkbFromGeometry(bean.getGeometry()));
-            spatialObject.getFieldsWithValues().put(ATTRIBUTE_LABEL, bean.getLabel());
-            if (getGeometryType().equals("Polygon")) {
-                spatialObject.getFieldsWithValues().put(
-                        ATTRIBUTE_AREA, String.format("%s", bean.getGeometry().getArea()));
+        SpatialSourceObjectIterator iterator = getFeatureIterator(onlyAttributes);
+        try {
+            while (iterator.hasNext()) {
+                spatialObjectList.add(iterator.next());
             }
-            spatialObjectList.add(spatialObject);
+        } finally {
+            iterator.close();
         }
         return spatialObjectList;
     }
 
+    /**
+     * Reads from the file only the entities of the selected layers, that have
+     * the geometry type of the source.
+     */
+    @Override
+    protected SpatialSourceObjectIterator getFeatureIterator(
+            List<SpatialAttributeBean> onlyAttributes) {
+        final boolean isPolygon = getGeometryType().equals(GEOMETRY_TYPE_POLYGON);
+        Set<String> entityTypes = new HashSet<String>();
+        if (getGeometryType().equals(GEOMETRY_TYPE_POINT)) {
+            entityTypes.add(DxfEntityReader.ENTITY_TYPE_POINT);
+            entityTypes.add(DxfEntityReader.ENTITY_TYPE_TEXT);
+            entityTypes.add(DxfEntityReader.ENTITY_TYPE_ATTRIB);
+        } else {
+            entityTypes.add(DxfEntityReader.ENTITY_TYPE_POLYLINE);
+            entityTypes.add(DxfEntityReader.ENTITY_TYPE_LWPOLYLINE);
+        }
+        final STRtree labelIndex = isPolygon ? getLabelIndex() : null;
+        final DxfEntityReader reader = openReader(getSourceFile(), selectedLayers, entityTypes);
+
+        return new SpatialSourceObjectIterator() {
+
+            private DxfEntityBean nextBean = readNext();
+            private int labelGenerator = 1;
+
+            private DxfEntityBean readNext() {
+                try {
+                    DxfEntityBean bean;
+                    while ((bean = reader.next()) != null) {
+                        if (bean.getGeometryType().equals(getGeometryType())) {
+                            return bean;
+                        }
+                    }
+                    return null;
+                } catch (IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextBean != null;
+            }
+
+            @Override
+            protected SpatialSourceObjectBean read() {
+                DxfEntityBean bean = nextBean;
+                nextBean = readNext();
+                if (isPolygon) {
+                    bean.setLabel(findLabel(labelIndex, bean.getGeometry()));
+                }
+                if (bean.getLabel().isEmpty()) {
+                    bean.setLabel(String.format("%s", labelGenerator++));
+                }
+                SpatialSourceObjectBean spatialObject = new SpatialSourceObjectBean();
+                bean.getGeometry().setSRID(getSrid());
+                spatialObject.setTheGeom(GeometryUtility.getWkbFromGeometry(bean.getGeometry()));
+                spatialObject.getFieldsWithValues().put(ATTRIBUTE_LABEL, bean.getLabel());
+                if (isPolygon) {
+                    spatialObject.getFieldsWithValues().put(
+                            ATTRIBUTE_AREA, String.format("%s", bean.getGeometry().getArea()));
+                }
+                return spatialObject;
+            }
+
+            @Override
+            protected void skipOne() {
+                // Skipped features are converted too, so the generated labels stay the same
+                read();
+            }
+
+            @Override
+            public void close() {
+                reader.close();
+            }
+        };
+    }
+
     @Override
     public ReferencedEnvelope getExtent() {
-        Bounds bounds = doc.getBounds();
+        Envelope extent = summary == null ? new Envelope() : summary.extent;
         return new ReferencedEnvelope(
-                bounds.getMinimumX(), bounds.getMaximumX(),
-                bounds.getMinimumY(), bounds.getMaximumY(),
+                extent.getMinX(), extent.getMaxX(),
+                extent.getMinY(), extent.getMaxY(),
                 null);
     }
 }
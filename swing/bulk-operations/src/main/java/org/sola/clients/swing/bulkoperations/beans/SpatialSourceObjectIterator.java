@@ -0,0 +1,125 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.swing.bulkoperations.beans;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Iterator over the features of a spatial source. Features are read and
+ * converted to {@link SpatialSourceObjectBean} one by one, so the source is
+ * never held in memory as a whole. The iterator must be closed after use.
+ */
+public abstract class SpatialSourceObjectIterator implements Iterator<SpatialSourceObjectBean> {
+
+    private int position = 0;
+
+    /**
+     * Creates iterator over the given list of already retrieved features.
+     *
+     * @param features The list of features
+     * @return
+     */
+    public static SpatialSourceObjectIterator fromList(List<SpatialSourceObjectBean> features) {
+        final Iterator<SpatialSourceObjectBean> iterator = features.iterator();
+        return new SpatialSourceObjectIterator() {
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            protected SpatialSourceObjectBean read() {
+                return iterator.next();
+            }
+
+            @Override
+            protected void skipOne() {
+                iterator.next();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Gets the number of source features read so far.
+     *
+     * @return
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public SpatialSourceObjectBean next() {
+        SpatialSourceObjectBean spatialObject = read();
+        position++;
+        return spatialObject;
+    }
+
+    /**
+     * Skips the given number of source features without converting them. It is
+     * used to continue reading from the position where a previous read has
+     * stopped.
+     *
+     * @param count The number of features to skip
+     */
+    public void skip(int count) {
+        for (int i = 0; i < count && hasNext(); i++) {
+            skipOne();
+            position++;
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Spatial source is read only.");
+    }
+
+    /**
+     * Reads and converts the next feature of the source. If the feature has no
+     * geometry, the geometry of the returned object is null.
+     *
+     * @return
+     */
+    protected abstract SpatialSourceObjectBean read();
+
+    /**
+     * Moves to the next feature of the source without converting it.
+     */
+    protected abstract void skipOne();
+
+    /**
+     * Releases resources used to read the source.
+     */
+    public abstract void close();
+}
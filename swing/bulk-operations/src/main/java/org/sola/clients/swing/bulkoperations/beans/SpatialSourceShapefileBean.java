@@ -93,34 +93,79 @@ public class SpatialSourceShapefileBean extends SpatialSourceBean {
     @Override
     protected List<SpatialSourceObjectBean> getFeatures(List<SpatialAttributeBean> onlyAttributes) {
         List<SpatialSourceObjectBean> spatialObjectList = new ArrayList<SpatialSourceObjectBean>();
+        SpatialSourceObjectIterator iterator = getFeatureIterator(onlyAttributes);
         try {
-            SimpleFeature feature;
-            SimpleFeatureIterator iterator = featureSource.getFeatures().features();
             while (iterator.hasNext()) {
-                feature = iterator.next();
-                SpatialSourceObjectBean spatialObject = new SpatialSourceObjectBean();
-                Geometry geometry =(Geometry)feature.getDefaultGeometry();
-                if (geometry.getGeometryType().toLowerCase().startsWith("multi")
-                        && isIfMultiUseFirstGeometry()){
-                    geometry = geometry.getGeometryN(0);
-                }
-                geometry.setSRID(getSrid());
-                spatialObject.setTheGeom(GeometryUtility.getWkbFromGeometry(geometry));
-                for(SpatialAttributeBean attribute: onlyAttributes){
-                    spatialObject.getFieldsWithValues().put(
-                            attribute.getName(),
-                            feature.getAttribute(attribute.getName()));
-                }
-                spatialObjectList.add(spatialObject);
+                spatialObjectList.add(iterator.next());
             }
+        } finally {
             iterator.close();
-        } catch (IOException ex) {
-             LogUtility.log("Error retrieving features from shapefile.", ex);
-             throw new RuntimeException("Error retrieving features from shapefile.", ex);
         }
         return spatialObjectList;
     }
 
+    /**
+     * Reads the features from the shapefile one by one. Only the feature that
+     * is being read is kept in memory.
+     */
+    @Override
+    protected SpatialSourceObjectIterator getFeatureIterator(
+            final List<SpatialAttributeBean> onlyAttributes) {
+        final SimpleFeatureIterator iterator;
+        try {
+            iterator = featureSource.getFeatures().features();
+        } catch (IOException ex) {
+            LogUtility.log("Error retrieving features from shapefile.", ex);
+            throw new RuntimeException("Error retrieving features from shapefile.", ex);
+        }
+        return new SpatialSourceObjectIterator() {
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            protected SpatialSourceObjectBean read() {
+                return getSpatialObject(iterator.next(), onlyAttributes);
+            }
+
+            @Override
+            protected void skipOne() {
+                iterator.next();
+            }
+
+            @Override
+            public void close() {
+                iterator.close();
+            }
+        };
+    }
+
+    /**
+     * Converts the feature to a spatial source object. If the feature has no
+     * geometry, the geometry of the spatial object is left null.
+     */
+    private SpatialSourceObjectBean getSpatialObject(
+            SimpleFeature feature, List<SpatialAttributeBean> onlyAttributes) {
+        SpatialSourceObjectBean spatialObject = new SpatialSourceObjectBean();
+        Geometry geometry = (Geometry) feature.getDefaultGeometry();
+        if (geometry != null && !geometry.isEmpty()) {
+            if (geometry.getGeometryType().toLowerCase().startsWith("multi")
+                    && isIfMultiUseFirstGeometry()) {
+                geometry = geometry.getGeometryN(0);
+            }
+            geometry.setSRID(getSrid());
+            spatialObject.setTheGeom(GeometryUtility.getWkbFromGeometry(geometry));
+        }
+        for (SpatialAttributeBean attribute : onlyAttributes) {
+            spatialObject.getFieldsWithValues().put(
+                    attribute.getName(),
+                    feature.getAttribute(attribute.getName()));
+        }
+        return spatialObject;
+    }
+
     @Override
     public ReferencedEnvelope getExtent() {
         try {
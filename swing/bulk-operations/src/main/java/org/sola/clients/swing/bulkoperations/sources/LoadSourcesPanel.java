@@ -31,7 +31,10 @@
  */
 package org.sola.clients.swing.bulkoperations.sources;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.File;
+import java.text.MessageFormat;
 import javax.swing.filechooser.FileFilter;
 import org.sola.clients.swing.bulkoperations.beans.SourceBulkMoveBean;
 import org.sola.clients.swing.bulkoperations.ValidationResultPanel;
@@ -99,9 +102,31 @@ public class LoadSourcesPanel extends ContentPanel {
 
             @Override
             public Void doTask() {
-                setMessage(MessageUtility.getLocalizedMessageText(
-                        ClientMessage.BULK_OPERATIONS_LOAD_SOURCE_AND_SENDTOSERVER));
-                bulkMove.sendToServer();
+                final String message = MessageUtility.getLocalizedMessageText(
+                        ClientMessage.BULK_OPERATIONS_LOAD_SOURCE_AND_SENDTOSERVER);
+                setMessage(message);
+                PropertyChangeListener progressListener = new PropertyChangeListener() {
+
+                    @Override
+                    public void propertyChange(PropertyChangeEvent evt) {
+                        if (SourceBulkMoveBean.PROPERTY_LOADED_FILES.equals(evt.getPropertyName())) {
+                            int loadedFiles = (Integer) evt.getNewValue();
+                            int filesNumber = bulkMove.getFilesNumber();
+                            setMessage(message + " " + MessageFormat.format(
+                                    bundle.getString("LoadSourcesPanel.progress.text"),
+                                    loadedFiles, filesNumber));
+                            if (filesNumber > 0) {
+                                setProgress(Math.min(100, loadedFiles * 100 / filesNumber));
+                            }
+                        }
+                    }
+                };
+                bulkMove.addPropertyChangeListener(progressListener);
+                try {
+                    bulkMove.sendToServer();
+                } finally {
+                    bulkMove.removePropertyChangeListener(progressListener);
+                }
                 return null;
             }
 
@@ -110,15 +135,23 @@ public class LoadSourcesPanel extends ContentPanel {
                 super.taskDone();
                 setPostLoadEnabled(true);
             }
+
+            @Override
+            protected void taskFailed(Throwable e) {
+                super.taskFailed(e);
+                // The chunks saved before the failure stay in the manifest and are
+                // skipped by the next load, unless they are rolled back
+                lblInformationText.setText(
+                        bundle.getString("LoadSourcesPanel.lblInformationText.text.failed"));
+                btnRollback.setEnabled(!bulkMove.getTransactions().isEmpty());
+            }
         };
         TaskManager.getInstance().runTask(t);
 
     }
 
     private void rollback() {
-        if (bulkMove.getTransaction() != null) {
-            bulkMove.getTransaction().reject();
-        }
+        bulkMove.reject();
         setPostLoadEnabled(false);
     }
 
@@ -34,6 +34,7 @@ package org.sola.clients.swing.bulkoperations.spatialobjects;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
+import java.text.MessageFormat;
 import java.util.Set;
 import javax.swing.JPanel;
 import org.jdesktop.beansbinding.Binding;
@@ -181,16 +182,47 @@ public class ImportSpatialPanel extends ContentPanel {
                 spatialBulkMove.getSource().getAttributes());
     }
 
-    private void convertAndSendToServer() {
+    /**
+     * Converts the source features and sends them to the server.
+     *
+     * @param resume If true, the load continues from the chunk that has failed
+     * in the previous load.
+     */
+    private void convertAndSendToServer(final boolean resume) {
 
         SolaTask t = new SolaTask<Void, Void>() {
 
             @Override
             public Void doTask() {
-                setMessage(MessageUtility.getLocalizedMessageText(
-                        ClientMessage.BULK_OPERATIONS_CONVERT_FEATURES_TO_BEANS_AND_SENDTOSERVER));
-                //transaction = 
+                final String message = MessageUtility.getLocalizedMessageText(
+                        ClientMessage.BULK_OPERATIONS_CONVERT_FEATURES_TO_BEANS_AND_SENDTOSERVER);
+                final int featuresNumber = spatialBulkMove.getSource().getFeaturesNumber();
+                setMessage(message);
+                PropertyChangeListener progressListener = new PropertyChangeListener() {
+
+                    @Override
+                    public void propertyChange(PropertyChangeEvent evt) {
+                        if (SpatialBulkMoveBean.PROPERTY_SENT_FEATURES.equals(evt.getPropertyName())) {
+                            int sentFeatures = (Integer) evt.getNewValue();
+                            setMessage(message + " " + MessageFormat.format(
+                                    bundle.getString("ImportSpatialPanel.progress.text"),
+                                    sentFeatures, featuresNumber));
+                            if (featuresNumber > 0) {
+                                setProgress(Math.min(100, sentFeatures * 100 / featuresNumber));
+                            }
+                        }
+                    }
+                };
+                spatialBulkMove.addPropertyChangeListener(progressListener);
+                try {
+                    if (resume) {
+                        spatialBulkMove.resume();
+                    } else {
                         spatialBulkMove.sendToServer();
+                    }
+                } finally {
+                    spatialBulkMove.removePropertyChangeListener(progressListener);
+                }
                 return null;
             }
 
@@ -199,11 +231,31 @@ public class ImportSpatialPanel extends ContentPanel {
                 super.taskDone();
                 afterConversion();
             }
+
+            @Override
+            protected void taskFailed(Throwable e) {
+                super.taskFailed(e);
+                afterFailure();
+            }
         };
         TaskManager.getInstance().runTask(t);
 
     }
 
+    /**
+     * Informs the user about the chunk that has failed. The user can continue
+     * the load from that chunk or roll back the chunks that are already sent.
+     */
+    private void afterFailure() {
+        if (!spatialBulkMove.canResume()) {
+            return;
+        }
+        lblInformationText.setText(MessageFormat.format(
+                bundle.getString("ImportSpatialPanel.lblInformationText.text.failed"),
+                spatialBulkMove.getSentFeatures()));
+        btnRollback.setEnabled(!spatialBulkMove.getTransactions().isEmpty());
+    }
+
     private void afterConversion() {
         String informationResourceName = "ImportSpatialPanel.lblInformationText.text.success";
         if (spatialBulkMove.hasValidationProblems()) {
@@ -245,9 +297,7 @@ public class ImportSpatialPanel extends ContentPanel {
     }
 
     private void rollback() {
-        if (spatialBulkMove.getTransaction() != null) {
-            spatialBulkMove.getTransaction().reject();
-        }
+        spatialBulkMove.reject();
         setPostLoadEnabled(false);
     }
 
@@ -578,11 +628,16 @@ public class ImportSpatialPanel extends ContentPanel {
     }//GEN-LAST:event_cmdBrowseActionPerformed
 
     private void btnMoveActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnMoveActionPerformed
+        if (spatialBulkMove.canResume()) {
+            btnRollback.setEnabled(false);
+            convertAndSendToServer(true);
+            return;
+        }
         setPostLoadEnabled(false);
         if (spatialBulkMove.validate(true).size() > 0) {
             return;
         }
-        convertAndSendToServer();
+        convertAndSendToServer(false);
 
     }//GEN-LAST:event_btnMoveActionPerformed
 
@@ -31,7 +31,11 @@ import java.awt.ComponentOrientation;
 import java.awt.Font;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.util.List;
+import java.util.prefs.Preferences;
+import javax.swing.Timer;
 import org.sola.clients.beans.application.ApplicationBean;
 import org.sola.clients.beans.application.ApplicationSummaryBean;
 import org.sola.clients.swing.ui.renderers.DateTimeRenderer;
@@ -51,13 +55,23 @@ import org.sola.clients.swing.ui.MainContentPanel;
 import org.sola.clients.swing.ui.renderers.BooleanCellRenderer;
 import org.sola.common.RolesConstants;
 import org.sola.common.WindowUtility;
+import org.sola.common.logging.LogUtility;
 
 /**
  * This panel displays assigned and unassigned applications.<br />
  * {@link ApplicationSummaryListBean} is used to bind the data on the panel.
+ * The lists can be refreshed automatically by setting the refresh interval in
+ * seconds in the user preferences, see {@link #DASHBOARD_REFRESH_INTERVAL}.
  */
 public class DashBoardPanel extends ContentPanel {
 
+    /**
+     * User preference with the interval in seconds to refresh the lists
+     * automatically. If it is 0 or missing, the lists are not refreshed
+     * automatically.
+     */
+    public static final String DASHBOARD_REFRESH_INTERVAL = "dashboardRefreshInterval";
+
     private class AssignmentPanelListener implements PropertyChangeListener {
 
         @Override
@@ -68,6 +82,8 @@ public class DashBoardPanel extends ContentPanel {
         }
     }
     private AssignmentPanelListener assignmentPanelListener;
+    private SolaTask refreshTask;
+    private Timer autoRefreshTimer;
 
     /**
      * Panel constructor.
@@ -742,20 +758,71 @@ public class DashBoardPanel extends ContentPanel {
      * Refreshes assigned and unassigned application lists.
      */
     private void refreshApplications() {
-        SolaTask t = new SolaTask<Void, Void>() {
+        refreshApplications(false);
+    }
+
+    /**
+     * Refreshes assigned and unassigned application lists. Both lists are
+     * retrieved at the same time and only the changed applications are
+     * updated in the tables.
+     *
+     * @param automatic True if the refresh is started by the timer. In this
+     * case the refresh is skipped if the panel is not visible or other tasks
+     * are running, and errors are logged instead of shown.
+     */
+    private void refreshApplications(final boolean automatic) {
+        if (automatic && ((refreshTask != null && !refreshTask.isDone())
+                || !isShowing() || TaskManager.getInstance().getNumberOfActiveTasks() > 0)) {
+            return;
+        }
+        refreshTask = new SolaTask<Void, Void>() {
 
             @Override
             public Void doTask() {
-                setMessage(MessageUtility.getLocalizedMessageText(
-                        ClientMessage.APPLICATION_LOADING_UNASSIGNED));
-                unassignedAppListBean.FillUnassigned();
                 setMessage(MessageUtility.getLocalizedMessageText(
                         ClientMessage.APPLICATION_LOADING_ASSIGNED));
-                assignedAppListBean.FillAssigned();
+                try {
+                    ApplicationSearchResultsListBean.FillAssignedAndUnassigned(
+                            assignedAppListBean, unassignedAppListBean);
+                } catch (RuntimeException ex) {
+                    if (!automatic) {
+                        throw ex;
+                    }
+                    LogUtility.log("Failed to refresh the dashboard", ex);
+                }
                 return null;
             }
         };
-        TaskManager.getInstance().runTask(t);
+        TaskManager.getInstance().runTask(refreshTask);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        int interval = 0;
+        if (WindowUtility.hasUserPreferences()) {
+            Preferences prefs = WindowUtility.getUserPreferences();
+            interval = prefs.getInt(DASHBOARD_REFRESH_INTERVAL, 0);
+        }
+        if (interval > 0 && autoRefreshTimer == null) {
+            autoRefreshTimer = new Timer(interval * 1000, new ActionListener() {
+
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    refreshApplications(true);
+                }
+            });
+            autoRefreshTimer.start();
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        if (autoRefreshTimer != null) {
+            autoRefreshTimer.stop();
+            autoRefreshTimer = null;
+        }
+        super.removeNotify();
     }
 
     /**
@@ -31,6 +31,7 @@ package org.sola.clients.swing.desktop;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import org.sola.clients.beans.cache.CacheManager;
 import org.sola.clients.swing.common.laf.LafManager;
 import org.sola.clients.swing.ui.localization.LocalizationManager;
 import org.sola.clients.swing.ui.DesktopClientExceptionHandler;
@@ -88,7 +89,7 @@ public class DesktopApplication {
                         if (evt.getPropertyName().equals(LoginPanel.LOGIN_RESULT)) {
                             if (((Boolean) evt.getNewValue())) {
                                 loginForm.dispose();
-                                MainForm.getInstance().setVisible(true);
+                                openMainForm();
                             }
                         }
                     }
@@ -98,4 +99,36 @@ public class DesktopApplication {
             }
         });
     }
+
+    /**
+     * Shows splash screen while reference data lists are loaded into the
+     * cache and opens main form afterwards.
+     */
+    private static void openMainForm() {
+        final SplashForm splash = new SplashForm();
+        WindowUtility.centerForm(splash);
+        splash.setVisible(true);
+
+        Thread warmUpThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    CacheManager.loadSnapshot();
+                    CacheManager.warmUp();
+                } finally {
+                    java.awt.EventQueue.invokeLater(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            splash.setVisible(false);
+                            splash.dispose();
+                            MainForm.getInstance().setVisible(true);
+                        }
+                    });
+                }
+            }
+        }, "CacheManager-warmUp");
+        warmUpThread.start();
+    }
 }
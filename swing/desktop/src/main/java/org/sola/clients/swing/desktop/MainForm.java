@@ -44,6 +44,7 @@ import javax.swing.plaf.ToolBarUI;
 import net.sf.jasperreports.engine.JasperPrint;
 import org.sola.clients.beans.AbstractBindingBean;
 import org.sola.clients.beans.application.ApplicationBean;
+import org.sola.clients.beans.cache.CacheManager;
 import org.sola.clients.beans.security.SecurityBean;
 import org.sola.clients.beans.source.PowerOfAttorneyBean;
 import org.sola.clients.beans.system.LanguageBean;
@@ -198,6 +199,8 @@ public class MainForm extends javax.swing.JFrame {
         URL imgURL = this.getClass().getResource("/images/sola/sola_icon.png");
         this.setIconImage(new ImageIcon(imgURL).getImage());
 
+        // Use reference data saved during previous sessions
+        CacheManager.loadSnapshot();
         initComponents();
         HelpUtility.getInstance().registerHelpMenu(jmiContextHelp, "overview");
 
@@ -228,6 +231,7 @@ public class MainForm extends javax.swing.JFrame {
         // Set screen size and location 
         configureForm();
         loadLanguages();
+        CacheManager.refreshSnapshot();
         // Customize buttons
         btnNewApplication.setEnabled(SecurityBean.isInRole(RolesConstants.APPLICATION_CREATE_APPS));
         btnOpenMap.setEnabled(SecurityBean.isInRole(RolesConstants.GIS_VIEW_MAP));
@@ -305,6 +309,7 @@ public class MainForm extends javax.swing.JFrame {
      * preference just before the screen is is closed.
      */
     private void preClose() {
+        CacheManager.saveSnapshot();
         if (WindowUtility.hasUserPreferences()) {
             Preferences prefs = WindowUtility.getUserPreferences();
             prefs.put(MAIN_FORM_HEIGHT, Integer.toString(this.getHeight()));
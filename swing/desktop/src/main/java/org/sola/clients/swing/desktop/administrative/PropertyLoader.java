@@ -0,0 +1,198 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.swing.desktop.administrative;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import org.sola.clients.beans.administrative.BaUnitAreaBean;
+import org.sola.clients.beans.administrative.BaUnitBean;
+import org.sola.clients.beans.cadastre.CadastreObjectBean;
+import org.sola.clients.beans.converters.TypeConverters;
+import org.sola.services.boundary.wsclients.WSManager;
+
+/**
+ * Loads the data of the {@link PropertyPanel} from the server. The BA unit,
+ * its areas and its new parcels do not depend on each other, so they are
+ * retrieved at the same time. The loading starts when the loader is created,
+ * which can be before the property form is opened, e.g. when the property is
+ * selected in the list. <br/> If the thread waiting for the data is
+ * interrupted, the loading is cancelled and a {@link CancellationException} is
+ * thrown, so the task opening the form fails instead of opening it without
+ * data.
+ */
+public class PropertyLoader {
+
+    /**
+     * Time in milliseconds after which the loaded data are not used anymore to
+     * open the property form.
+     */
+    private static final long MAX_AGE = 60000;
+    private static final ExecutorService loader = Executors.newFixedThreadPool(3, new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Property loader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private final String baUnitId;
+    private final long created = System.currentTimeMillis();
+    private final BaUnitBean loadedBaUnit;
+    private final Future<BaUnitBean> baUnit;
+    private final Future<BaUnitAreaBean> baUnitArea;
+    private final Future<List<CadastreObjectBean>> newParcels;
+
+    /**
+     * Starts loading the BA unit with its areas and new parcels.
+     *
+     * @param baUnitId The ID of the BA unit.
+     */
+    public PropertyLoader(String baUnitId) {
+        this(baUnitId, null);
+    }
+
+    /**
+     * Starts loading the areas and new parcels of a BA unit that is already
+     * loaded.
+     *
+     * @param baUnitBean The BA unit.
+     */
+    public PropertyLoader(BaUnitBean baUnitBean) {
+        this(baUnitBean.getId(), baUnitBean);
+    }
+
+    private PropertyLoader(final String baUnitId, final BaUnitBean baUnitBean) {
+        this.baUnitId = baUnitId;
+        this.loadedBaUnit = baUnitBean;
+        if (baUnitBean == null) {
+            baUnit = loader.submit(new Callable<BaUnitBean>() {
+
+                @Override
+                public BaUnitBean call() throws Exception {
+                    return BaUnitBean.getBaUnitsById(baUnitId);
+                }
+            });
+        } else {
+            baUnit = null;
+        }
+        baUnitArea = loader.submit(new Callable<BaUnitAreaBean>() {
+
+            @Override
+            public BaUnitAreaBean call() throws Exception {
+                BaUnitAreaBean baUnitAreaBean = TypeConverters.TransferObjectToBean(
+                        WSManager.getInstance().getAdministrative().getBaUnitAreas(baUnitId),
+                        BaUnitAreaBean.class, null);
+                // The BA unit has no area yet, the form fills in a new one
+                return baUnitAreaBean == null ? new BaUnitAreaBean() : baUnitAreaBean;
+            }
+        });
+        newParcels = loader.submit(new Callable<List<CadastreObjectBean>>() {
+
+            @Override
+            public List<CadastreObjectBean> call() throws Exception {
+                return BaUnitBean.getNewParcels(baUnitId);
+            }
+        });
+    }
+
+    public String getBaUnitId() {
+        return baUnitId;
+    }
+
+    /**
+     * Returns true if the loader is for the given BA unit and its data are
+     * recent enough to open the property form.
+     *
+     * @param baUnitId The ID of the BA unit.
+     */
+    public boolean canLoad(String baUnitId) {
+        return this.baUnitId != null && this.baUnitId.equals(baUnitId)
+                && System.currentTimeMillis() - created < MAX_AGE;
+    }
+
+    /**
+     * Returns the BA unit, with the new parcels set. It waits until both are
+     * loaded.
+     */
+    public BaUnitBean getBaUnit() {
+        BaUnitBean baUnitBean = baUnit == null ? loadedBaUnit : get(baUnit);
+        List<CadastreObjectBean> parcels = get(newParcels);
+        if (baUnitBean != null && parcels != null) {
+            baUnitBean.setNewCadastreObjectList(parcels);
+        }
+        return baUnitBean;
+    }
+
+    /**
+     * Returns the areas of the BA unit. It waits until they are loaded. If the
+     * BA unit has no areas, a new empty {@link BaUnitAreaBean} is returned, so
+     * the property form does not ask the server again.
+     */
+    public BaUnitAreaBean getBaUnitArea() {
+        return get(baUnitArea);
+    }
+
+    /**
+     * Stops the loading, if the data are not needed anymore.
+     */
+    public void cancel() {
+        if (baUnit != null) {
+            baUnit.cancel(true);
+        }
+        baUnitArea.cancel(true);
+        newParcels.cancel(true);
+    }
+
+    private static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            CancellationException cancelled = new CancellationException(
+                    "Loading of the property was interrupted");
+            cancelled.initCause(ex);
+            throw cancelled;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+}
@@ -242,7 +242,27 @@ public class PropertyPanel extends ContentPanel {
     public PropertyPanel(ApplicationBean applicationBean,
             ApplicationServiceBean applicationService,
             BaUnitBean baUnitBean, boolean readOnly) {
+        this(applicationBean, applicationService, baUnitBean, null, readOnly);
+    }
+
+    /**
+     * Form constructor.
+     *
+     * @param applicationBean {@link ApplicationBean} instance, used to get list
+     * of documents.
+     * @param applicationService {@link ApplicationServiceBean} instance, used
+     * to determine what actions should be taken on this form.
+     * @param BaUnitBean Instance of {@link BaUnitBean}, used to bind data on
+     * the form.
+     * @param baUnitAreaBean Areas of the BA unit, if they are already loaded
+     * with {@link PropertyLoader}. If null, they are loaded by the form.
+     * @param readOnly If true, opens form in read only mode.
+     */
+    public PropertyPanel(ApplicationBean applicationBean,
+            ApplicationServiceBean applicationService,
+            BaUnitBean baUnitBean, BaUnitAreaBean baUnitAreaBean, boolean readOnly) {
         this.baUnitBean1 = baUnitBean;
+        this.baUnitAreaBean1 = baUnitAreaBean;
         this.readOnly = readOnly || !SecurityBean.isInRole(RolesConstants.ADMINISTRATIVE_BA_UNIT_SAVE);
         this.applicationBean = applicationBean;
         this.applicationService = applicationService;
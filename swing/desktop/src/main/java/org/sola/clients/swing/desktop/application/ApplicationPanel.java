@@ -71,6 +71,7 @@ import org.sola.clients.swing.desktop.DashBoardPanel;
 import org.sola.clients.swing.desktop.MainForm;
 import org.sola.clients.swing.desktop.ReportViewerForm;
 import org.sola.clients.swing.desktop.administrative.DisputePanelForm;
+import org.sola.clients.swing.desktop.administrative.PropertyLoader;
 import org.sola.clients.swing.desktop.administrative.PropertyPanel;
 import org.sola.clients.swing.desktop.cadastre.CadastreTransactionMapPanel;
 import org.sola.clients.swing.desktop.cadastre.MapPanelForm;
@@ -108,6 +109,7 @@ public class ApplicationPanel extends ContentPanel {
     private String applicationID;
     private boolean isDashboard = false;
     private boolean flagDisableProperty = false;
+    private PropertyLoader propertyLoader;
     ApplicationPropertyBean property;
 
     /**
@@ -294,6 +296,7 @@ public class ApplicationPanel extends ContentPanel {
                     customizePropertyButtons();
                 } else if (evt.getPropertyName().equals(ApplicationBean.SELECTED_PROPPERTY_PROPERTY)) {
                     customizePropertyButtons();
+                    prefetchProperty((ApplicationPropertyBean) evt.getNewValue());
                 } else if (evt.getPropertyName().equals(ApplicationBean.FEE_PAID_PROPERTY)) {
                     setDefaultFeePaidAmount();
                 }
@@ -543,16 +546,69 @@ public class ApplicationPanel extends ContentPanel {
         return agentsList;
     }
 
+    /**
+     * Starts loading the BA unit of the selected property, before the user
+     * opens the property form.
+     */
+    private void prefetchProperty(ApplicationPropertyBean property) {
+        if (property == null || property.getBaUnitId() == null) {
+            return;
+        }
+        if (propertyLoader != null) {
+            if (propertyLoader.canLoad(property.getBaUnitId())) {
+                return;
+            }
+            propertyLoader.cancel();
+        }
+        propertyLoader = new PropertyLoader(property.getBaUnitId());
+    }
+
+    /**
+     * Returns the loader started for the BA unit on the property selection or
+     * a new one if there is none. The loader is used only once.
+     */
+    private PropertyLoader getPropertyLoader(String baUnitId) {
+        PropertyLoader loader = propertyLoader;
+        propertyLoader = null;
+        if (loader != null && loader.canLoad(baUnitId)) {
+            return loader;
+        }
+        if (loader != null) {
+            loader.cancel();
+        }
+        return new PropertyLoader(baUnitId);
+    }
+
+    /**
+     * Returns the application for the property form. The form can change the
+     * application, so it gets a copy of it, unless it is opened in read only
+     * mode.
+     */
+    private ApplicationBean getApplicationForPropertyForm(boolean readOnly) {
+        if (readOnly) {
+            return appBean;
+        }
+        return appBean.copy();
+    }
+
     private void openPropertyForm(final ApplicationServiceBean service,
             final BaUnitBean baUnitBean, final boolean readOnly) {
         if (baUnitBean != null) {
+            // The areas and new parcels are loaded while the application is copied
+            final PropertyLoader loader = baUnitBean.isNew() ? null : new PropertyLoader(baUnitBean);
             SolaTask t = new SolaTask<Void, Void>() {
 
                 @Override
                 public Void doTask() {
                     setMessage(MessageUtility.getLocalizedMessageText(ClientMessage.PROGRESS_MSG_OPEN_PROPERTY));
-                    ApplicationBean applicationBean = appBean.copy();
-                    PropertyPanel propertyPnl = new PropertyPanel(applicationBean, service, baUnitBean, readOnly);
+                    ApplicationBean applicationBean = getApplicationForPropertyForm(readOnly);
+                    PropertyPanel propertyPnl;
+                    if (loader != null) {
+                        propertyPnl = new PropertyPanel(applicationBean, service,
+                                loader.getBaUnit(), loader.getBaUnitArea(), readOnly);
+                    } else {
+                        propertyPnl = new PropertyPanel(applicationBean, service, baUnitBean, readOnly);
+                    }
                     getMainContentPanel().addPanel(propertyPnl, MainContentPanel.CARD_PROPERTY_PANEL, true);
                     return null;
                 }
@@ -571,18 +627,20 @@ public class ApplicationPanel extends ContentPanel {
     private void openPropertyForm(final ApplicationServiceBean service,
             final ApplicationPropertyBean applicationProperty, final boolean readOnly) {
         if (applicationProperty != null) {
+            final PropertyLoader loader = applicationProperty.getBaUnitId() == null
+                    ? null : getPropertyLoader(applicationProperty.getBaUnitId());
 
             SolaTask t = new SolaTask<Void, Void>() {
 
                 @Override
                 public Void doTask() {
-                    ApplicationBean applicationBean = appBean.copy();
+                    ApplicationBean applicationBean = getApplicationForPropertyForm(readOnly);
                     PropertyPanel propertyPnl;
 
-                    if (applicationProperty.getBaUnitId() != null) {
+                    if (loader != null) {
                         setMessage(MessageUtility.getLocalizedMessageText(ClientMessage.PROGRESS_MSG_BA_UNIT_GETTING));
-                        BaUnitBean baUnitBean = BaUnitBean.getBaUnitsById(applicationProperty.getBaUnitId());
-                        propertyPnl = new PropertyPanel(applicationBean, service, baUnitBean, readOnly);
+                        propertyPnl = new PropertyPanel(applicationBean, service,
+                                loader.getBaUnit(), loader.getBaUnitArea(), readOnly);
                     } else {
                         propertyPnl = new PropertyPanel(applicationBean,
                                 service, applicationProperty.getNameFirstpart(),
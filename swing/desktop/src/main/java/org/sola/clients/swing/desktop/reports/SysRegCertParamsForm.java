@@ -27,28 +27,29 @@
  */
 package org.sola.clients.swing.desktop.reports;
 
-import com.vividsolutions.jts.io.ParseException;
+import com.lowagie.text.DocumentException;
 import java.awt.Desktop;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JFormattedTextField;
-import net.sf.jasperreports.engine.JRException;
-import net.sf.jasperreports.engine.JRExporter;
+import javax.swing.JOptionPane;
 import net.sf.jasperreports.engine.JasperPrint;
 import net.sf.jasperreports.engine.export.JRPdfExporter;
 import net.sf.jasperreports.engine.export.JRPdfExporterParameter;
 import net.sf.jasperreports.engine.export.JRXlsExporterParameter;
-import org.geotools.feature.SchemaException;
 import org.geotools.swing.extended.exception.InitializeLayerException;
-import org.geotools.swing.extended.exception.InitializeMapException;
-import org.opengis.referencing.FactoryException;
-import org.opengis.referencing.operation.TransformException;
 import org.sola.clients.beans.administrative.BaUnitBean;
 import org.sola.clients.beans.application.ApplicationBean;
 import org.sola.clients.beans.cadastre.CadastreObjectBean;
@@ -93,7 +94,11 @@ public class SysRegCertParamsForm extends javax.swing.JDialog {
     private Integer rowVersion=0;
     private ReportViewerForm form;
     private String prefix;
-    private CadastreObjectBean cadastreObject;
+    private static final int WORKERS = Math.min(4, Runtime.getRuntime().availableProcessors());
+    private final ThreadLocal<MapImageGeneratorForSelectedParcel> mapImageGenerators =
+            new ThreadLocal<MapImageGeneratorForSelectedParcel>();
+    private SysRegCertificatesBatch batch;
+    private List<File> stagedFiles = new ArrayList<File>();
 
     /**
      * Creates new form SysRegCertParamsForm
@@ -136,8 +141,10 @@ public class SysRegCertParamsForm extends javax.swing.JDialog {
 
     /**
      * Opens {@link ReportViewerForm} to display report.
+     *
+     * @return true if the report has been saved
      */
-    private void showReport(JasperPrint report, String parcelLabel, String docType) {
+    private boolean showReport(JasperPrint report, String parcelLabel, String docType) {
         
         if ((this.nr != "" && this.nr != null)) {
              ReportViewerForm form = new ReportViewerForm(report);
@@ -147,8 +154,10 @@ public class SysRegCertParamsForm extends javax.swing.JDialog {
         }
         try {
             postProcessReport(report, parcelLabel, docType);
+            return true;
         } catch (Exception ex) {
             Logger.getLogger(SysRegListingParamsForm.class.getName()).log(Level.SEVERE, null, ex);
+            return false;
         }
     }
     
@@ -165,7 +174,9 @@ public class SysRegCertParamsForm extends javax.swing.JDialog {
         exporterPdf.setParameter(JRXlsExporterParameter.OUTPUT_FILE_NAME, cachePath + this.reportTogenerate);
         exporterPdf.setParameter(JRPdfExporterParameter.FORCE_SVG_SHAPES, Boolean.TRUE);
         exporterPdf.exportReport();
-        
+        if (this.batch != null) {
+            this.stagedFiles.add(this.batch.stage(new File(cachePath + this.reportTogenerate)));
+        }
         
         
         FileUtility.saveFileFromStream(null, this.reportTogenerate);
@@ -197,6 +208,17 @@ public class SysRegCertParamsForm extends javax.swing.JDialog {
         MessageUtility.displayMessage(ClientMessage.SOURCE_SYS_REP_GENERATED, new Object[]{params, prevCofO});
         
     }
+
+    /**
+     * Tells the user that the batch has stopped and that running it again
+     * resumes from the last completed parcel.
+     */
+    private void showBatchFailedMessage(Throwable failure) {
+        String message = MessageFormat.format(java.util.ResourceBundle.getBundle(
+                "org/sola/clients/swing/desktop/reports/Bundle").getString(
+                "SysRegCertParamsForm.batchFailed.message"), failure.getLocalizedMessage());
+        JOptionPane.showMessageDialog(this, message, this.title, JOptionPane.ERROR_MESSAGE);
+    }
     
     private void showCalendar(JFormattedTextField dateField) {
         CalendarForm calendar = new CalendarForm(null, true, dateField);
@@ -305,93 +327,110 @@ public class SysRegCertParamsForm extends javax.swing.JDialog {
         }
         
         String prefix = getPrefix();
-        String baUnitId = null;
-        String nrTmp = null;
-        String appId = null;
         Integer prevCofO = 0;
-        String sourceRef="";
         int i = 0;
+        Throwable failure = null;
+        boolean allSaved = true;
         
+        List<SysRegCertificatesBean> certificates = new ArrayList<SysRegCertificatesBean>(
+                sysRegCertificatesListBean.getSysRegCertificates());
+        ExecutorService workers = Executors.newFixedThreadPool(WORKERS, new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "SysRegCertParamsForm-worker-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
         
-                int imageWidth   = 520;
-                int imageHeight  = 300;
-                int sketchWidth  = 200;
-                int sketchHeight = 200;
-                
         try {
-           
-                           
-            MapImageGeneratorForSelectedParcel mapImage = new MapImageGeneratorForSelectedParcel(imageWidth, imageHeight,sketchWidth,sketchHeight,false, 0, 0);
-            
-            List<JasperPrint> jprintlist = new ArrayList<JasperPrint>();
-            JasperPrint CofO = null;
-            JasperPrint ParcelPlan = null;
-            for (Iterator<SysRegCertificatesBean> it = sysRegCertificatesListBean.getSysRegCertificates().iterator(); it.hasNext();) {
-                final SysRegCertificatesBean appBaunit = it.next();
-                baUnitId = appBaunit.getBaUnitId();
-                appId = appBaunit.getAppId();
-                prevCofO = appBaunit.getCofO();
-                cadastreObject=this.getCadastre(appBaunit.getNameFirstpart());
-                if(cadastreObject!=null)
-                {
-                    sourceRef=cadastreObject.getSourceReference();
+            if (this.nr == "" || this.nr == null) {
+                whichFile= "TOTAL_"+this.whichReport+"-"+ this.location.replace('/', '-');
+                for(int c=0; c<whichFile.length(); c++){
+                    if (!Character.isLetterOrDigit(whichFile.charAt(c)))
+                    {
+                        whichFile = whichFile.replace(whichFile.charAt(c),'-');
+                    }
                 }
-                else sourceRef="";
-                this.reportTogenerate = baUnitId + "_" + tmpLocation + "_" + this.reportdate + ".pdf";
-                this.reportTogenerate = this.reportTogenerate.replace(" ", "_");
-                this.reportTogenerate = this.reportTogenerate.replace("/", "_");
-                final BaUnitBean baUnit = getBaUnit(baUnitId);
-                final ApplicationBean applicationBean = getApplication(appId);
-                String parcelLabel = tmpLocation + '/' + appBaunit.getNameFirstpart();
-                final String featureFront = null;
-                final String featureBack = null;
-                MapImageInformation mapImageInfo = mapImage.getInformation(appBaunit.getId());
-                final String featureImageFileName = mapImageInfo.getMapImageLocation();
-                final String featureScalebarFileName = mapImageInfo.getScalebarImageLocation();
-                final Number scale = mapImageInfo.getScale();
-                final Integer srid = mapImageInfo.getSrid();
-                final String featureImageFileNameSmall = mapImageInfo.getSketchMapImageLocation();
-                    
-                if (this.whichReport.contains("parcelPlan")){  
-                    ParcelPlan = ReportManager.getSysRegSlrtPlanReport(baUnit, tmpLocation, applicationBean, appBaunit, featureImageFileName, featureScalebarFileName, srid, scale, featureFront, featureBack, featureImageFileNameSmall);
-                    showReport(ParcelPlan, parcelLabel, this.whichReport);
-                    jprintlist.add(ParcelPlan);
-                } else if (this.whichReport.contains("title")){  
-                    CofO = ReportManager.getSysRegCertificatesReport(baUnit, tmpLocation, applicationBean, appBaunit, featureImageFileName, featureScalebarFileName, srid, scale, featureFront, featureBack, featureImageFileNameSmall,sourceRef);
-                    showReport(CofO, parcelLabel, this.whichReport);
-                    jprintlist.add(CofO);
+                // Pages are appended to the merged PDF as soon as each parcel is done
+                // and the progress is journaled so a failed batch can be resumed.
+                // The journal is used only by a run of the same day over the same parcels.
+                List<String> ids = new ArrayList<String>(certificates.size());
+                for (SysRegCertificatesBean certificate : certificates) {
+                    ids.add(certificate.getId());
                 }
-                else {  
-                    CofO = ReportManager.getSysRegCertificatesReport(baUnit, tmpLocation, applicationBean, appBaunit, featureImageFileName, featureScalebarFileName, srid, scale, featureFront, featureBack, featureImageFileNameSmall,sourceRef);
-                    showReport(CofO, parcelLabel, "title");
-                    ParcelPlan = ReportManager.getSysRegSlrtPlanReport(baUnit, tmpLocation, applicationBean, appBaunit, featureImageFileName, featureScalebarFileName, srid, scale, featureFront, featureBack, featureImageFileNameSmall);
-                    showReport(ParcelPlan, parcelLabel,"parcelPlan");
-                    jprintlist.add(CofO);
-                    jprintlist.add(ParcelPlan);
-                }
-                 
-                 i = i + 1;
+                String runKey = this.reportdate + "-" + ids.size() + "-"
+                        + Integer.toHexString(ids.hashCode());
+                this.batch = new SysRegCertificatesBatch(cachePath, whichFile, runKey);
+                this.batch.open(new File(cachePath + whichFile + ".pdf"));
             }
-
-         if (this.nr == "" || this.nr == null) {         
-            whichFile= "TOTAL_"+this.whichReport+"-"+ this.location.replace('/', '-');
-            for(int c=0; c<whichFile.length(); c++){
-                if (!Character.isLetterOrDigit(whichFile.charAt(c)))
-                {
-                    whichFile = whichFile.replace(whichFile.charAt(c),'-');
+            
+            // Data fetch, map rendering and report filling run in the workers. The 
+            // documents are saved in the original order and only a few parcels are 
+            // kept in memory at any time.
+            LinkedList<Future<ParcelReports>> pending = new LinkedList<Future<ParcelReports>>();
+            Iterator<SysRegCertificatesBean> it = certificates.iterator();
+            while (it.hasNext() || !pending.isEmpty()) {
+                while (it.hasNext() && pending.size() < WORKERS * 2) {
+                    SysRegCertificatesBean appBaunit = it.next();
+                    boolean completed = this.batch != null && this.batch.isCompleted(appBaunit.getId());
+                    pending.add(workers.submit(new ParcelReportsTask(appBaunit, completed)));
                 }
+                ParcelReports reports = pending.removeFirst().get();
+                SysRegCertificatesBean appBaunit = reports.certificate;
+                prevCofO = appBaunit.getCofO();
+                if (!reports.completed) {
+                    this.reportTogenerate = appBaunit.getBaUnitId() + "_" + tmpLocation + "_" + this.reportdate + ".pdf";
+                    this.reportTogenerate = this.reportTogenerate.replace(" ", "_");
+                    this.reportTogenerate = this.reportTogenerate.replace("/", "_");
+                    this.stagedFiles = new ArrayList<File>();
+                    boolean saved = true;
+                    for (int d = 0; d < reports.prints.size(); d++) {
+                        saved &= showReport(reports.prints.get(d), reports.parcelLabel, reports.docTypes.get(d));
+                    }
+                    // A parcel whose documents are not saved is done again by the next run
+                    if (this.batch != null && saved) {
+                        this.batch.complete(appBaunit.getId(), this.stagedFiles);
+                    }
+                    allSaved &= saved;
+                }
+                 
+                i = i + 1;
             }
-            JRExporter exporter = new JRPdfExporter();
-            exporter.setParameter(JRPdfExporterParameter.JASPER_PRINT_LIST, jprintlist);
-            OutputStream output = new FileOutputStream(new File(cachePath +whichFile+ ".pdf"));
-            exporter.setParameter(JRPdfExporterParameter.OUTPUT_STREAM, output);
-            try {
-                exporter.exportReport();
-                output.close();
-            } catch (JRException ex) {
-                Logger.getLogger(SysRegCertParamsForm.class.getName()).log(Level.SEVERE, null, ex);
+        } catch (ExecutionException ex) {
+            failure = ex.getCause();
+        } catch (InterruptedException ex) {
+            failure = ex;
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            failure = ex;
+        } catch (DocumentException ex) {
+            failure = ex;
+        } catch (RuntimeException ex) {
+            failure = ex;
+        } finally {
+            workers.shutdownNow();
+        }
+        
+        boolean merged = false;
+        if (this.batch != null) {
+            if (failure == null && allSaved) {
+                // All parcels are in the merged PDF, the journal is not needed anymore
+                merged = this.batch.finish();
+            } else {
+                // The journal is kept, running the batch again resumes from the last completed parcel
+                merged = this.batch.close() && failure == null;
             }
-            
+            this.batch = null;
+        }
+        if (failure != null) {
+            Logger.getLogger(SysRegCertParamsForm.class.getName()).log(Level.SEVERE, null, failure);
+        }
+        
+        if (merged && i > 0) {
             try {    
                 FileUtility.saveFileFromStream(null, cachePath + whichFile+ ".pdf");
                 saveDocument(whichFile + ".pdf", this.currentDate, this.reportdate, whichFile, whichReport);
@@ -399,22 +438,11 @@ public class SysRegCertParamsForm extends javax.swing.JDialog {
             } catch (Exception ex) {
                 Logger.getLogger(SysRegCertParamsForm.class.getName()).log(Level.SEVERE, null, ex);
             }
-           }  
-        } catch (InitializeMapException ex) {
-            Logger.getLogger(SysRegCertParamsForm.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (SchemaException ex) {
-            Logger.getLogger(SysRegCertParamsForm.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (IOException ex) {
-            Logger.getLogger(SysRegCertParamsForm.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (FactoryException ex) {
-            Logger.getLogger(SysRegCertParamsForm.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (TransformException ex) {
-            Logger.getLogger(SysRegCertParamsForm.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (ParseException ex) {
-            Logger.getLogger(SysRegCertParamsForm.class.getName()).log(Level.SEVERE, null, ex);
         }
         
-        if (i == 0) {
+        if (failure != null) {
+            showBatchFailedMessage(failure);
+        } else if (i == 0) {
             MessageUtility.displayMessage(ClientMessage.NO_CERTIFICATE_GENERATION);
         } else {
             showDocMessage(this.tmpLocation, prevCofO.toString());
@@ -424,11 +452,14 @@ public class SysRegCertParamsForm extends javax.swing.JDialog {
         this.dispose();
         
         if (Desktop.isDesktopSupported()&&(this.nr == "" || this.nr == null)) {         
-            try {
-                File myFile = new File(cachePath + whichFile+ ".pdf");
-                Desktop.getDesktop().open(myFile);
-            } catch (IOException ex) {
-                // no application registered for PDFs
+            // A stopped batch has no complete document to open
+            if (failure == null) {
+                try {
+                    File myFile = new File(cachePath + whichFile+ ".pdf");
+                    Desktop.getDesktop().open(myFile);
+                } catch (IOException ex) {
+                    // no application registered for PDFs
+                }
             }
         }
         else {
@@ -436,6 +467,84 @@ public class SysRegCertParamsForm extends javax.swing.JDialog {
             this.form.setAlwaysOnTop(true);
         }
     }
+    /**
+     * The reports filled for one parcel of the batch.
+     */
+    private static class ParcelReports {
+
+        private SysRegCertificatesBean certificate;
+        private boolean completed;
+        private String parcelLabel;
+        private List<JasperPrint> prints = new ArrayList<JasperPrint>();
+        private List<String> docTypes = new ArrayList<String>();
+    }
+
+    /**
+     * Fetches the data of a parcel, renders its map images and fills its
+     * reports. Each worker thread uses its own map image generator.
+     */
+    private class ParcelReportsTask implements Callable<ParcelReports> {
+
+        private SysRegCertificatesBean appBaunit;
+        private boolean completed;
+
+        public ParcelReportsTask(SysRegCertificatesBean appBaunit, boolean completed) {
+            this.appBaunit = appBaunit;
+            this.completed = completed;
+        }
+
+        @Override
+        public ParcelReports call() throws Exception {
+            ParcelReports reports = new ParcelReports();
+            reports.certificate = appBaunit;
+            reports.completed = completed;
+            if (completed) {
+                return reports;
+            }
+            
+            int imageWidth   = 520;
+            int imageHeight  = 300;
+            int sketchWidth  = 200;
+            int sketchHeight = 200;
+            MapImageGeneratorForSelectedParcel mapImage = mapImageGenerators.get();
+            if (mapImage == null) {
+                mapImage = new MapImageGeneratorForSelectedParcel(imageWidth, imageHeight,sketchWidth,sketchHeight,false, 0, 0);
+                mapImageGenerators.set(mapImage);
+            }
+            
+            String sourceRef = "";
+            CadastreObjectBean cadastre = getCadastre(appBaunit.getNameFirstpart());
+            if (cadastre != null) {
+                sourceRef = cadastre.getSourceReference();
+            }
+            BaUnitBean baUnit = getBaUnit(appBaunit.getBaUnitId());
+            ApplicationBean applicationBean = getApplication(appBaunit.getAppId());
+            reports.parcelLabel = tmpLocation + '/' + appBaunit.getNameFirstpart();
+            String featureFront = null;
+            String featureBack = null;
+            MapImageInformation mapImageInfo = mapImage.getInformation(appBaunit.getId());
+            String featureImageFileName = mapImageInfo.getMapImageLocation();
+            String featureScalebarFileName = mapImageInfo.getScalebarImageLocation();
+            Number scale = mapImageInfo.getScale();
+            Integer srid = mapImageInfo.getSrid();
+            String featureImageFileNameSmall = mapImageInfo.getSketchMapImageLocation();
+
+            if (whichReport.contains("parcelPlan")) {
+                reports.prints.add(ReportManager.getSysRegSlrtPlanReport(baUnit, tmpLocation, applicationBean, appBaunit, featureImageFileName, featureScalebarFileName, srid, scale, featureFront, featureBack, featureImageFileNameSmall));
+                reports.docTypes.add(whichReport);
+            } else if (whichReport.contains("title")) {
+                reports.prints.add(ReportManager.getSysRegCertificatesReport(baUnit, tmpLocation, applicationBean, appBaunit, featureImageFileName, featureScalebarFileName, srid, scale, featureFront, featureBack, featureImageFileNameSmall, sourceRef));
+                reports.docTypes.add(whichReport);
+            } else {
+                reports.prints.add(ReportManager.getSysRegCertificatesReport(baUnit, tmpLocation, applicationBean, appBaunit, featureImageFileName, featureScalebarFileName, srid, scale, featureFront, featureBack, featureImageFileNameSmall, sourceRef));
+                reports.docTypes.add("title");
+                reports.prints.add(ReportManager.getSysRegSlrtPlanReport(baUnit, tmpLocation, applicationBean, appBaunit, featureImageFileName, featureScalebarFileName, srid, scale, featureFront, featureBack, featureImageFileNameSmall));
+                reports.docTypes.add("parcelPlan");
+            }
+            return reports;
+        }
+    }
+    
     private void btnGenCertificateActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnGenCertificateActionPerformed
         SolaTask t = new SolaTask<Void, Void>() {
             
@@ -0,0 +1,328 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.swing.desktop.reports;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.pdf.PdfCopy;
+import com.lowagie.text.pdf.PdfReader;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps track of the progress of a batch of systematic registration documents
+ * and streams the filled pages into the merged PDF as each parcel completes.
+ * <p>
+ * The PDF of every completed parcel is kept in a journal folder under the
+ * cache together with a progress file listing the parcels already done. If the
+ * batch fails before {@link #finish()} is called, the next run for the same
+ * batch name and run key skips the parcels listed in the progress file and
+ * replays their pages into the new merged PDF, so the work done before the
+ * failure is not lost.</p>
+ * <p>
+ * The run key identifies the parameters of the run. A journal left by a run
+ * with another key is discarded, as are the journals not used for
+ * {@link #MAX_JOURNAL_AGE_DAYS} days.</p>
+ */
+public class SysRegCertificatesBatch {
+
+    /**
+     * The number of days after which an unused journal is removed.
+     */
+    public static final int MAX_JOURNAL_AGE_DAYS = 7;
+    private static final String BATCH_FOLDER = "batch";
+    private static final String PROGRESS_FILE = "progress.txt";
+    private static final String RUN_KEY_PREFIX = "#run";
+    private static final String SEPARATOR = "\t";
+    private File folder;
+    private File progressFile;
+    private String runKey;
+    private List<List<File>> completedFiles = new ArrayList<List<File>>();
+    private Set<String> completed = new HashSet<String>();
+    private Document mergedDocument;
+    private PdfCopy mergedCopy;
+    private int pageCount = 0;
+
+    /**
+     * Creates the batch and reads the progress left by a previous run with
+     * the same name and run key, if any. The journals of other batches that
+     * are not used anymore are removed.
+     *
+     * @param cachePath The cache folder where the journal is kept.
+     * @param batchName The name of the batch. It is used as the name of the
+     * journal folder.
+     * @param runKey The key of the run parameters. The progress of a previous
+     * run is used only if it has the same key.
+     */
+    public SysRegCertificatesBatch(String cachePath, String batchName, String runKey)
+            throws IOException {
+        File batchFolder = new File(cachePath, BATCH_FOLDER);
+        removeExpiredJournals(batchFolder);
+        folder = new File(batchFolder, batchName);
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Unable to create folder " + folder.getAbsolutePath());
+        }
+        progressFile = new File(folder, PROGRESS_FILE);
+        this.runKey = runKey;
+        readProgress();
+    }
+
+    /**
+     * Removes the journal folders whose progress has not been updated for
+     * {@link #MAX_JOURNAL_AGE_DAYS} days.
+     */
+    private static void removeExpiredJournals(File batchFolder) {
+        File[] journals = batchFolder.listFiles();
+        if (journals == null) {
+            return;
+        }
+        long expiry = System.currentTimeMillis() - MAX_JOURNAL_AGE_DAYS * 24L * 60 * 60 * 1000;
+        for (File journal : journals) {
+            if (journal.isDirectory()
+                    && new File(journal, PROGRESS_FILE).lastModified() < expiry) {
+                deleteJournal(journal);
+            }
+        }
+    }
+
+    private static void deleteJournal(File journal) {
+        File[] files = journal.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        journal.delete();
+    }
+
+    private void readProgress() throws IOException {
+        if (progressFile.exists()) {
+            BufferedReader reader = new BufferedReader(new FileReader(progressFile));
+            boolean sameRun;
+            try {
+                sameRun = (RUN_KEY_PREFIX + SEPARATOR + runKey).equals(reader.readLine());
+                if (sameRun) {
+                    readCompleted(reader);
+                }
+            } finally {
+                reader.close();
+            }
+            if (sameRun) {
+                return;
+            }
+            // The journal belongs to a run with other parameters
+            deleteJournal(folder);
+            if (!folder.exists() && !folder.mkdirs()) {
+                throw new IOException("Unable to create folder " + folder.getAbsolutePath());
+            }
+        }
+        FileWriter writer = new FileWriter(progressFile);
+        try {
+            writer.write(RUN_KEY_PREFIX + SEPARATOR + runKey + "\n");
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void readCompleted(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] parts = line.split(SEPARATOR);
+            if (parts.length < 2) {
+                // A line cut short by a failure while it was being written
+                continue;
+            }
+            List<File> files = new ArrayList<File>();
+            for (int i = 1; i < parts.length; i++) {
+                files.add(new File(folder, parts[i]));
+            }
+            if (completed.add(parts[0])) {
+                completedFiles.add(files);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the parcel with the given key has been completed by a
+     * previous run of the batch.
+     */
+    public boolean isCompleted(String key) {
+        return completed.contains(key);
+    }
+
+    /**
+     * Returns the number of parcels completed so far.
+     */
+    public int getCompletedCount() {
+        return completed.size();
+    }
+
+    /**
+     * Returns the number of pages written to the merged PDF so far.
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Opens the merged PDF and writes in it the pages of the parcels completed
+     * by a previous run.
+     *
+     * @param mergedFile The merged PDF file
+     */
+    public void open(File mergedFile) throws IOException, DocumentException {
+        mergedDocument = new Document();
+        mergedCopy = new PdfCopy(mergedDocument, new FileOutputStream(mergedFile));
+        mergedDocument.open();
+        for (List<File> files : completedFiles) {
+            appendPages(files);
+        }
+    }
+
+    /**
+     * Copies the PDF of a parcel in the journal folder. It must be called
+     * before the original file is removed from the cache.
+     *
+     * @param pdfFile The PDF of the parcel
+     * @return The copy in the journal folder
+     */
+    public File stage(File pdfFile) throws IOException {
+        File staged = new File(folder, pdfFile.getName());
+        InputStream in = new FileInputStream(pdfFile);
+        try {
+            OutputStream out = new FileOutputStream(staged);
+            try {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+        return staged;
+    }
+
+    /**
+     * Appends the pages of a parcel to the merged PDF and records the parcel
+     * as completed.
+     *
+     * @param key The key of the parcel
+     * @param stagedFiles The PDFs of the parcel as returned by {@link #stage}
+     */
+    public void complete(String key, List<File> stagedFiles) throws IOException, DocumentException {
+        if (mergedCopy != null) {
+            appendPages(stagedFiles);
+        }
+        StringBuilder line = new StringBuilder(key);
+        for (File file : stagedFiles) {
+            line.append(SEPARATOR).append(file.getName());
+        }
+        FileWriter writer = new FileWriter(progressFile, true);
+        try {
+            writer.write(line.append("\n").toString());
+        } finally {
+            writer.close();
+        }
+        if (completed.add(key)) {
+            completedFiles.add(stagedFiles);
+        }
+    }
+
+    private void appendPages(List<File> files) throws IOException, DocumentException {
+        for (File file : files) {
+            PdfReader reader = new PdfReader(file.getAbsolutePath());
+            try {
+                for (int page = 1; page <= reader.getNumberOfPages(); page++) {
+                    mergedCopy.addPage(mergedCopy.getImportedPage(reader, page));
+                    pageCount++;
+                }
+                mergedCopy.freeReader(reader);
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Closes the merged PDF. The journal is kept so the batch can be resumed
+     * if the merged PDF is not used.
+     *
+     * @return true if the merged PDF has been written without errors
+     */
+    public boolean close() {
+        if (mergedDocument == null) {
+            return true;
+        }
+        boolean closed = true;
+        try {
+            if (pageCount > 0) {
+                mergedDocument.close();
+            } else {
+                mergedCopy.close();
+            }
+        } catch (RuntimeException ex) {
+            closed = false;
+            Logger.getLogger(SysRegCertificatesBatch.class.getName()).log(Level.WARNING, null, ex);
+        }
+        mergedDocument = null;
+        mergedCopy = null;
+        return closed;
+    }
+
+    /**
+     * Closes the merged PDF and, if it has been written without errors,
+     * removes the journal. It is called when the whole batch has been
+     * completed.
+     *
+     * @return true if the merged PDF has been written without errors
+     */
+    public boolean finish() {
+        if (!close()) {
+            return false;
+        }
+        deleteJournal(folder);
+        return true;
+    }
+}
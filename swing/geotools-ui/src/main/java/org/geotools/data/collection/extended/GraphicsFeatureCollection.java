@@ -27,6 +27,7 @@
  */
 package org.geotools.data.collection.extended;
 
+import java.util.HashMap;
 import org.geotools.data.DataUtilities;
 import org.geotools.data.collection.ListFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
@@ -44,6 +45,7 @@ import org.geotools.swing.extended.util.Messaging;
  * The extra functionality added are: <br/>
  * Check the documentation about the constructors.
  * The geometry field is named "geom".
+ * The features are indexed by their fid, so searching a feature does not visit all features.
  * 
  * @author: Elton Manoku 
  */
@@ -51,6 +53,7 @@ public class GraphicsFeatureCollection extends ListFeatureCollection {
 
     private SimpleFeatureBuilder builder;
     private static final String FIELD_NAME_GEOMETRY = "geom";
+    private HashMap<String, SimpleFeature> featuresByFid = new HashMap<String, SimpleFeature>();
 
     /**
      * Use this constructor for use in 
@@ -112,6 +115,9 @@ public class GraphicsFeatureCollection extends ListFeatureCollection {
     public boolean add(SimpleFeature feature){
         boolean result = super.add(feature);
         if (result) {
+            if (!this.featuresByFid.containsKey(feature.getID())) {
+                this.featuresByFid.put(feature.getID(), feature);
+            }
             this.notifyListeners(feature, CollectionEvent.FEATURES_ADDED);
         }
         return result;        
@@ -142,31 +148,50 @@ public class GraphicsFeatureCollection extends ListFeatureCollection {
     public boolean remove(Object feature) {
         boolean result = super.remove(feature);
         if (result) {
+            String fid = ((SimpleFeature) feature).getID();
+            if (this.featuresByFid.get(fid) == feature) {
+                this.featuresByFid.remove(fid);
+            }
             this.notifyListeners((SimpleFeature)feature, CollectionEvent.FEATURES_REMOVED);
         }
         return result;
     }
 
+    /**
+     * It overrides the clear method of the collection to clear also the index of features.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        this.featuresByFid.clear();
+    }
+
     /**
      * Gets a feature searching by the fid.
      * @param fid
      * @return if found returns the feature otherwise returns null.
      */
     public SimpleFeature getFeature(String fid) {
-        SimpleFeature feature = null;
-        SimpleFeature currentFeature = null;
+        if (this.featuresByFid.size() != this.size()) {
+            // The collection is changed without passing from add or remove of this class
+            // or it has features with the same fid
+            this.rebuildIndex();
+        }
+        return this.featuresByFid.get(fid);
+    }
+
+    private void rebuildIndex() {
+        this.featuresByFid.clear();
         SimpleFeatureIterator iterator = this.features();
         while (iterator.hasNext()) {
-            currentFeature = iterator.next();
-            if (currentFeature.getID().equals(fid)) {
-                feature = currentFeature;
-                break;
+            SimpleFeature currentFeature = iterator.next();
+            if (!this.featuresByFid.containsKey(currentFeature.getID())) {
+                this.featuresByFid.put(currentFeature.getID(), currentFeature);
             }
         }
-         this.close(iterator);
-        return feature;
+        this.close(iterator);
     }
-    
+
     /**
      * It notifies the listeners attached to the collection for events associated with a feature.
      * @param feature
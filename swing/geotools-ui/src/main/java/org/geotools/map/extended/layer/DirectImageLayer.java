@@ -28,16 +28,19 @@
 package org.geotools.map.extended.layer;
 
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.logging.Level;
 import javax.imageio.ImageIO;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.map.DirectLayer;
 import org.geotools.map.MapContent;
 import org.geotools.map.MapViewport;
 import org.geotools.swing.extended.exception.DirectImageNotValidFileException;
+import org.geotools.swing.extended.util.ImagePyramid;
 import org.geotools.swing.extended.util.ImageUtility;
 
 /**
@@ -51,6 +54,8 @@ public class DirectImageLayer extends DirectLayer {
     private ReferencedEnvelope bounds;
     private File rasterFile = null;
     private BufferedImage loadedBufferedImage = null;
+    private volatile ImagePyramid pyramid = null;
+    private boolean tiled = true;
     private double minX;
     private double minY;
     private double maxX;
@@ -66,6 +71,28 @@ public class DirectImageLayer extends DirectLayer {
     public DirectImageLayer() {
     }
 
+    /**
+     * Gets if large images are drawn from a pyramid of tiles.
+     *
+     * @return
+     */
+    public boolean isTiled() {
+        return tiled;
+    }
+
+    /**
+     * Sets if images larger than 2000x2000 pixels are drawn from a pyramid of
+     * tiles instead of one subsampled image. In tiled mode only the tiles of
+     * the visible area are read from the file, in the resolution needed for
+     * the current scale, so the image stays sharp when zoomed in. It applies
+     * to the raster files set after the call.
+     *
+     * @param tiled
+     */
+    public void setTiled(boolean tiled) {
+        this.tiled = tiled;
+    }
+
     /**
      * Sets the raster file. If set to null the current image will disappear.
      * This is the way to remove the image.
@@ -79,6 +106,22 @@ public class DirectImageLayer extends DirectLayer {
     public void setRasterFile(File rasterFile)
             throws IOException, DirectImageNotValidFileException {
         this.rasterFile = rasterFile;
+        if (this.pyramid != null) {
+            this.pyramid.dispose();
+            this.pyramid = null;
+        }
+        this.loadedBufferedImage = null;
+        if (this.rasterFile != null && this.tiled) {
+            ImagePyramid imagePyramid = new ImagePyramid(
+                    this.rasterFile, MAX_PIXEL_WIDTH, MAX_PIXEL_HEIGHT);
+            if (imagePyramid.getLevelCount() > 1) {
+                this.imageWidth = imagePyramid.getWidth();
+                this.imageHeight = imagePyramid.getHeight();
+                this.pyramid = imagePyramid;
+                return;
+            }
+            imagePyramid.dispose();
+        }
         if (this.rasterFile != null) {
             // #285 Subsample large images to avoid Java Heap error
             this.loadedBufferedImage = ImageUtility.subsampleImage(
@@ -89,8 +132,6 @@ public class DirectImageLayer extends DirectLayer {
             }
             this.imageWidth = this.loadedBufferedImage.getWidth();
             this.imageHeight = this.loadedBufferedImage.getHeight();
-        } else {
-            this.loadedBufferedImage = null;
         }
     }
 
@@ -146,7 +187,10 @@ public class DirectImageLayer extends DirectLayer {
     @Override
     public void draw(Graphics2D graphics, MapContent map, MapViewport viewport) {
         this.bounds = viewport.getBounds();
-        if (this.loadedBufferedImage != null) {
+        ImagePyramid imagePyramid = this.pyramid;
+        if (imagePyramid != null) {
+            drawTiles(graphics, viewport, imagePyramid);
+        } else if (this.loadedBufferedImage != null) {
             Point2D pixelStartPoint = new Point2D.Double(this.minX, this.maxY);
             Point2D pixelEndPoint = new Point2D.Double(this.maxX, this.minY);
             viewport.getWorldToScreen().transform(pixelStartPoint, pixelStartPoint);
@@ -159,6 +203,65 @@ public class DirectImageLayer extends DirectLayer {
         }
     }
 
+    /**
+     * Draws the tiles of the pyramid that are visible in the viewport, from
+     * the level that matches the current scale.
+     */
+    private void drawTiles(Graphics2D graphics, MapViewport viewport, ImagePyramid imagePyramid) {
+        Point2D startPoint = new Point2D.Double(this.minX, this.maxY);
+        Point2D endPoint = new Point2D.Double(this.maxX, this.minY);
+        viewport.getWorldToScreen().transform(startPoint, startPoint);
+        viewport.getWorldToScreen().transform(endPoint, endPoint);
+        double scaleX = (endPoint.getX() - startPoint.getX()) / this.imageWidth;
+        double scaleY = (endPoint.getY() - startPoint.getY()) / this.imageHeight;
+        if (scaleX == 0 || scaleY == 0) {
+            return;
+        }
+        Rectangle clip = graphics.getClipBounds();
+        if (clip == null) {
+            clip = viewport.getScreenArea();
+        }
+
+        // The visible part of the image in full resolution pixels
+        double x0 = (clip.getMinX() - startPoint.getX()) / scaleX;
+        double x1 = (clip.getMaxX() - startPoint.getX()) / scaleX;
+        double y0 = (clip.getMinY() - startPoint.getY()) / scaleY;
+        double y1 = (clip.getMaxY() - startPoint.getY()) / scaleY;
+        double visibleMinX = Math.max(0, Math.min(x0, x1));
+        double visibleMaxX = Math.min(this.imageWidth, Math.max(x0, x1));
+        double visibleMinY = Math.max(0, Math.min(y0, y1));
+        double visibleMaxY = Math.min(this.imageHeight, Math.max(y0, y1));
+        if (visibleMinX >= visibleMaxX || visibleMinY >= visibleMaxY) {
+            return;
+        }
+
+        int level = imagePyramid.getLevel(Math.min(Math.abs(scaleX), Math.abs(scaleY)));
+        int span = imagePyramid.getTileSpan(level);
+        int firstCol = (int) (visibleMinX / span);
+        int lastCol = Math.min(imagePyramid.getColumnCount(level) - 1, (int) (visibleMaxX / span));
+        int firstRow = (int) (visibleMinY / span);
+        int lastRow = Math.min(imagePyramid.getRowCount(level) - 1, (int) (visibleMaxY / span));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                BufferedImage tile;
+                try {
+                    tile = imagePyramid.getTile(level, col, row);
+                } catch (IOException ex) {
+                    LOGGER.log(Level.WARNING, "Image tile cannot be read.", ex);
+                    continue;
+                }
+                Rectangle region = imagePyramid.getTileRegion(level, col, row);
+                // Neighbour tiles share the rounded border so no gaps appear
+                graphics.drawImage(tile,
+                        (int) Math.round(startPoint.getX() + region.getMinX() * scaleX),
+                        (int) Math.round(startPoint.getY() + region.getMinY() * scaleY),
+                        (int) Math.round(startPoint.getX() + region.getMaxX() * scaleX),
+                        (int) Math.round(startPoint.getY() + region.getMaxY() * scaleY),
+                        0, 0, tile.getWidth(), tile.getHeight(), null);
+            }
+        }
+    }
+
     @Override
     public ReferencedEnvelope getBounds() {
         return this.bounds;
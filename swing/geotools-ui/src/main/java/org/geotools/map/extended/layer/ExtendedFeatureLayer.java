@@ -157,6 +157,17 @@ public class ExtendedFeatureLayer extends ExtendedLayer {
         this.filterExpressionForSnapping = filterExpressionForSnapping;
     }
 
+    /**
+     * Gets the version of the features of the layer. The snapping tools rebuild their index of
+     * the layer when the version changes. The layers whose feature collection notifies every
+     * change to its listeners do not need it and return always 0. The layers whose features are
+     * replaced without notification must return a new version after every replacement.
+     * @return 
+     */
+    public int getFeaturesVersion() {
+        return 0;
+    }
+
     /**
      * It retrieves the list of symbols that represent the symbology. For each rule in the style
      * a symbol is created.
@@ -275,11 +286,7 @@ public class ExtendedFeatureLayer extends ExtendedLayer {
         Filter filterBbox = filterFactory.bbox(filterFactory.property(geometryPropertyName), bbox);
         Filter filter;
         if (whereAttributeFilter != null) {
-            String[] filterSides = whereAttributeFilter.split("=");
-            Filter filterExtra = filterFactory.equals(
-                    filterFactory.property(filterSides[0]),
-                    filterFactory.literal(filterSides[1]));
-            filter = filterFactory.and(filterBbox, filterExtra);
+            filter = filterFactory.and(filterBbox, this.getAttributeFilter(whereAttributeFilter));
         } else {
             filter = filterBbox;
         }
@@ -292,6 +299,20 @@ public class ExtendedFeatureLayer extends ExtendedLayer {
         return null;
     }
     
+    /**
+     * Gets the filter for an attribute based filter expression.
+     *
+     * @param whereAttributeFilter The filter as in sql in the form
+     * attribute=value
+     * @return
+     */
+    public Filter getAttributeFilter(String whereAttributeFilter) {
+        String[] filterSides = whereAttributeFilter.split("=");
+        return filterFactory.equals(
+                filterFactory.property(filterSides[0]),
+                filterFactory.literal(filterSides[1]));
+    }
+
     /**
      * Gets first feature within bounding box.
      * @param bbox
@@ -101,6 +101,24 @@ public class ExtendedImageLayer extends ExtendedLayer {
         this.getMapControl().refresh();
     }
 
+    /**
+     * Gets if large images are drawn from a pyramid of tiles.
+     * @return 
+     */
+    public boolean isTiled() {
+        return this.rasterLayer.isTiled();
+    }
+
+    /**
+     * Sets if large images are drawn from a pyramid of tiles. It applies to the raster files
+     * set after the call.
+     * @param tiled
+     * @see org.geotools.map.extended.layer.DirectImageLayer#setTiled(boolean)
+     */
+    public void setTiled(boolean tiled) {
+        this.rasterLayer.setTiled(tiled);
+    }
+
     /**
      * Sets the raster file. If set to null the current image will disappear. This is the way
      * to remove the image.
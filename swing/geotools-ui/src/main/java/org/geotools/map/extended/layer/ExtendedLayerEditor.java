@@ -38,6 +38,8 @@ import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.Point;
 import com.vividsolutions.jts.io.ParseException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import org.geotools.feature.CollectionEvent;
 import org.geotools.geometry.DirectPosition2D;
@@ -45,6 +47,7 @@ import org.geotools.geometry.jts.Geometries;
 import org.geotools.swing.extended.Map;
 import org.geotools.swing.extended.exception.InitializeLayerException;
 import org.geotools.swing.extended.util.GeometryUtility;
+import org.geotools.swing.extended.util.VertexIndex;
 import org.opengis.feature.simple.SimpleFeature;
 import org.geotools.swing.extended.util.Messaging;
 
@@ -52,7 +55,9 @@ import org.geotools.swing.extended.util.Messaging;
  * The layer is used to handle the editing of features. Features in this layer can be added, removed
  * and also the vertexes can be modified and snapped. <br/> It adds an extra {
  *
- * @see ExtendedLayerGraphics} to show vertexes of the features.
+ * @see ExtendedLayerGraphics} to show vertexes of the features. <br/> The
+ * vertexes are kept in a spatial index that is updated when features are
+ * added, removed or changed, so finding a vertex does not visit all of them.
  *
  * @author Elton Manoku
  */
@@ -61,7 +66,10 @@ public class ExtendedLayerEditor extends ExtendedLayerGraphics {
     private final static String VERTICES_LAYER_NAME_POSTFIX = " vertices";
     private final static String VERTICES_LAYER_STYLE_RESOURCE = "editor_vertices.xml";
     private ExtendedLayerGraphics verticesLayer = null;
-    private List<VertexInformation> vertexList = new ArrayList<VertexInformation>();
+    private LinkedHashMap<String, List<VertexInformation>> vertexesByFeature =
+            new LinkedHashMap<String, List<VertexInformation>>();
+    private VertexIndex<VertexInformation> vertexIndex = new VertexIndex<VertexInformation>();
+    private List<VertexInformation> vertexList = null;
 
     /**
      * It creates an instance of this layer.
@@ -109,12 +117,34 @@ public class ExtendedLayerEditor extends ExtendedLayerGraphics {
     /**
      * The list of {
      *
-     * @see VertexInformation} for the features in this layer
+     * @see VertexInformation} for the features in this layer. The list is read
+     * only. To search vertexes by position use
+     * {@link #getVertexesWithinDistance(double, double, double)}.
      */
     public final List<VertexInformation> getVertexList() {
+        if (vertexList == null) {
+            List<VertexInformation> list = new ArrayList<VertexInformation>(vertexIndex.size());
+            for (List<VertexInformation> featureVertexes : vertexesByFeature.values()) {
+                list.addAll(featureVertexes);
+            }
+            vertexList = Collections.unmodifiableList(list);
+        }
         return vertexList;
     }
 
+    /**
+     * Gets the vertexes within the distance from the position, in the order
+     * they are added.
+     *
+     * @param x
+     * @param y
+     * @param distance The distance. 0 gives the vertexes exactly in the position.
+     * @return
+     */
+    public List<VertexInformation> getVertexesWithinDistance(double x, double y, double distance) {
+        return vertexIndex.findAll(x, y, distance);
+    }
+
     @Override
     public void setMapControl(Map mapControl) {
         super.setMapControl(mapControl);
@@ -143,7 +173,7 @@ public class ExtendedLayerEditor extends ExtendedLayerGraphics {
         SimpleFeature featureAdded = super.addFeature(fid, geom, fieldsWithValues, false);
         this.addVertexes(featureAdded);
         if (refreshMap){
-            this.getMapControl().refresh();
+            this.getMapControl().refresh(this);
         }
         return featureAdded;
     }
@@ -162,7 +192,7 @@ public class ExtendedLayerEditor extends ExtendedLayerGraphics {
             this.removeVertexes(result);
         }
         if (refreshMap){
-            this.getMapControl().refresh();
+            this.getMapControl().refresh(this);
         }
         return result;
     }
@@ -175,8 +205,11 @@ public class ExtendedLayerEditor extends ExtendedLayerGraphics {
     public void removeFeatures(boolean refreshMap) {
         super.removeFeatures(false);
         this.verticesLayer.removeFeatures(false);
+        this.vertexesByFeature.clear();
+        this.vertexIndex.clear();
+        this.vertexList = null;
         if (refreshMap){
-            this.getMapControl().refresh();
+            this.getMapControl().refresh(this);
         }
     }
 
@@ -188,7 +221,8 @@ public class ExtendedLayerEditor extends ExtendedLayerGraphics {
     }
 
     /**
-     * It searches for a vertex in the layer within the distance. It returns the first found vertex.
+     * It searches for a vertex in the layer within the distance. It returns the nearest vertex. If
+     * more vertexes are in the same position, the first added is returned.
      *
      * @param fromPosition Position from where to search for. Normally is the mouse position in the
      * map
@@ -197,13 +231,7 @@ public class ExtendedLayerEditor extends ExtendedLayerGraphics {
      */
     public VertexInformation getFirstVertexWithinDistance(
             DirectPosition2D fromPosition, double distance) {
-        Coordinate coordinateToFind = new Coordinate(fromPosition.x, fromPosition.y);
-        for (VertexInformation vertexInformation : this.vertexList) {
-            if (vertexInformation.getVertex().distance(coordinateToFind) <= distance) {
-                return vertexInformation;
-            }
-        }
-        return null;
+        return vertexIndex.findNearest(fromPosition.x, fromPosition.y, distance);
     }
 
     /**
@@ -221,13 +249,21 @@ public class ExtendedLayerEditor extends ExtendedLayerGraphics {
         vertexInformation.getVertex().y = newPosition.y;
         SimpleFeature featureChanged = vertexInformation.getFeature();
         if (this.validateGeometry((Geometry) featureChanged.getDefaultGeometry())) {
+            // Other vertexes can share the same coordinate object, like the
+            // first and last vertex of a ring, so they are moved as well
+            for (VertexInformation vertexAtPosition
+                    : vertexIndex.findAll(currentX, currentY, 0)) {
+                if (vertexAtPosition.getVertex() == vertexInformation.getVertex()) {
+                    vertexIndex.move(vertexAtPosition, newPosition.x, newPosition.y);
+                }
+            }
             ((Geometry) featureChanged.getDefaultGeometry()).geometryChanged();
             this.getFeatureCollection().notifyListeners(
                     vertexInformation.getFeature(), CollectionEvent.FEATURES_CHANGED);
             ((Geometry) vertexInformation.getVertexFeature().getDefaultGeometry()).geometryChanged();
             this.verticesLayer.getFeatureCollection().notifyListeners(
                     vertexInformation.getVertexFeature(), CollectionEvent.FEATURES_CHANGED);
-            this.getMapControl().refresh();
+            this.getMapControl().refresh(this);
         } else {
             featureChanged = null;
             vertexInformation.getVertex().x = currentX;
@@ -244,36 +280,57 @@ public class ExtendedLayerEditor extends ExtendedLayerGraphics {
         if (!super.replaceFeatureGeometry(ofFeature, newGeometry, false)) {
             return false;
         }
-        this.removeVertexes(ofFeature);
-        this.addVertexes(ofFeature);
+        this.refreshVertexes(ofFeature);
         this.getFeatureCollection().notifyListeners(ofFeature, CollectionEvent.FEATURES_CHANGED);
         return true;
     }
 
+    /**
+     * Rebuilds the vertexes of the feature from its geometry. It must be called
+     * if the geometry of the feature is set directly instead of through
+     * {@link #replaceFeatureGeometry(SimpleFeature, Geometry)}, otherwise the
+     * vertexes of the feature are not found anymore.
+     *
+     * @param ofFeature The feature
+     */
+    public void refreshVertexes(SimpleFeature ofFeature) {
+        this.removeVertexes(ofFeature);
+        this.addVertexes(ofFeature);
+    }
+
     private void addVertexes(SimpleFeature ofFeature) {
         Geometry geom = (Geometry) ofFeature.getDefaultGeometry();
         com.vividsolutions.jts.geom.CoordinateList coordinates =
                 new CoordinateList(geom.getCoordinates(), false);
 
+        List<VertexInformation> featureVertexes = this.vertexesByFeature.get(ofFeature.getID());
+        if (featureVertexes == null) {
+            featureVertexes = new ArrayList<VertexInformation>(coordinates.size());
+            this.vertexesByFeature.put(ofFeature.getID(), featureVertexes);
+        }
         Coordinate coordinate;
         for (Object coordinateObj : coordinates) {
             coordinate = (Coordinate) coordinateObj;
             Point vertex = this.verticesLayer.getGeometryFactory().createPoint(coordinate);
 
-            this.vertexList.add(new VertexInformation(
+            VertexInformation vertexInformation = new VertexInformation(
                     coordinate, ofFeature, 
-                    this.verticesLayer.addFeature(null, vertex, null, false)));
+                    this.verticesLayer.addFeature(null, vertex, null, false));
+            featureVertexes.add(vertexInformation);
+            this.vertexIndex.add(vertexInformation, coordinate.x, coordinate.y);
         }
+        this.vertexList = null;
     }
 
     private void removeVertexes(SimpleFeature ofFeature) {
-        List<VertexInformation> vertexesToRemove = new ArrayList<VertexInformation>();
-        for (VertexInformation vertexInfo : this.vertexList) {
-            if (vertexInfo.getFeature().equals(ofFeature)) {
-                vertexesToRemove.add(vertexInfo);
-                this.verticesLayer.removeFeature(vertexInfo.getVertexFeature().getID(), false);
-            }
+        List<VertexInformation> vertexesToRemove = this.vertexesByFeature.remove(ofFeature.getID());
+        if (vertexesToRemove == null) {
+            return;
+        }
+        for (VertexInformation vertexInfo : vertexesToRemove) {
+            this.vertexIndex.remove(vertexInfo);
+            this.verticesLayer.removeFeature(vertexInfo.getVertexFeature().getID(), false);
         }
-        this.vertexList.removeAll(vertexesToRemove);
+        this.vertexList = null;
     }
 }
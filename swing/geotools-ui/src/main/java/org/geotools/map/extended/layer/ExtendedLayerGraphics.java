@@ -133,7 +133,7 @@ public class ExtendedLayerGraphics extends ExtendedFeatureLayer {
         }
         SimpleFeature feature = this.getFeatureCollection().addFeature(fid, geom, fieldsWithValues);
         if (refreshMap) {
-            this.getMapControl().refresh();
+            this.getMapControl().refresh(this);
         }
         return feature;
     }
@@ -165,7 +165,7 @@ public class ExtendedLayerGraphics extends ExtendedFeatureLayer {
     public SimpleFeature removeFeature(String fid, boolean refreshMap) {
         SimpleFeature feature = this.getFeatureCollection().removeFeature(fid);
         if (feature != null && refreshMap) {
-            this.getMapControl().refresh();
+            this.getMapControl().refresh(this);
         }
         return feature;
     }
@@ -176,7 +176,7 @@ public class ExtendedLayerGraphics extends ExtendedFeatureLayer {
     public void removeFeatures(boolean refreshMap) {
         this.getFeatureCollection().clear();
         if (refreshMap) {
-            this.getMapControl().refresh();
+            this.getMapControl().refresh(this);
         }
     }
 
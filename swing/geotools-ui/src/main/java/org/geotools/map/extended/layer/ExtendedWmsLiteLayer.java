@@ -64,5 +64,34 @@ public class ExtendedWmsLiteLayer extends ExtendedLayer {
         if (format != null) {
             this.layer.setFormat(format);
         }
-    }    
+    }
+
+    /**
+     * Gets if the layer is drawn from tiles.
+     *
+     * @return
+     */
+    public boolean isTiled() {
+        return this.layer.isTiled();
+    }
+
+    /**
+     * Sets if the layer is drawn from tiles that are cached in memory.
+     *
+     * @param tiled
+     * @see WmsLiteLayer#setTiled(boolean)
+     */
+    public void setTiled(boolean tiled) {
+        this.layer.setTiled(tiled);
+    }
+
+    /**
+     * Sets if the tiles are kept also in the disk between sessions.
+     *
+     * @param diskCacheEnabled
+     * @see WmsLiteLayer#setDiskCacheEnabled(boolean)
+     */
+    public void setDiskCacheEnabled(boolean diskCacheEnabled) {
+        this.layer.setDiskCacheEnabled(diskCacheEnabled);
+    }
 }
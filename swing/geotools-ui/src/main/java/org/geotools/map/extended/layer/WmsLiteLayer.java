@@ -31,16 +31,37 @@
  */
 package org.geotools.map.extended.layer;
 
+import java.awt.Dimension;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import org.geotools.data.ows.SimpleHttpClient;
 import org.geotools.data.wms.WMS1_0_0;
 import org.geotools.data.wms.WMS1_1_0;
@@ -51,28 +72,60 @@ import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.map.DirectLayer;
 import org.geotools.map.MapContent;
 import org.geotools.map.MapViewport;
+import org.geotools.map.event.MapLayerEvent;
 import org.geotools.ows.ServiceException;
 import org.geotools.swing.extended.exception.InitializeLayerException;
 import org.geotools.swing.extended.util.CRSUtility;
+import org.geotools.swing.extended.util.MapImageGenerator;
 import org.geotools.swing.extended.util.Messaging;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 /**
  * This layer acts as a client to a wms server. It relies in the configuration
  * that the user does. If does not consult the WMS server to check if the layer
  * (s) exist and/or supported formats exist. Not checking the capability file of
- * the WMS Server makes the layer to work fast.
- *
+ * the WMS Server makes the layer to work fast. <br/> In tiled mode, the layer
+ * asks the server for tiles of 256x256 pixels in a fixed grid for each scale
+ * level. The tiles are kept in a {@link WmsTileCache} and are retrieved in
+ * background, while the tiles already available are drawn. Map images (e.g.
+ * printing) are always generated with one request for the whole extent.
  *
  * @author Elton Manoku
  */
 public class WmsLiteLayer extends DirectLayer {
 
+    /**
+     * The size in pixels of the tiles in tiled mode.
+     */
+    public static final int TILE_SIZE = 256;
+    private static final int TILE_LOADER_THREADS = 4;
+    private static final int REPAINT_DELAY = 200;
+    private static final String DISK_CACHE_LOCATION = System.getProperty("user.home")
+            + File.separator + "sola" + File.separator + "wms-cache";
+    private static final ExecutorService tileLoader = Executors.newFixedThreadPool(
+            TILE_LOADER_THREADS, new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "WmsLiteLayer-tiles");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
     private ReferencedEnvelope lastUsedBounds = null;
     private BufferedImage image;
     private org.geotools.data.wms.request.GetMapRequest getMapRequest;
     //private Integer srid;
     private String wmsServerUrl = "";
     private String format = "image/png";
+    private String layerNamesAsString;
+    private boolean tiled = false;
+    private File diskCacheDirectory = null;
+    private boolean diskCacheEnabled = false;
+    private WmsTileCache tileCache = null;
+    private final Map<String, Future<?>> pendingTiles = new ConcurrentHashMap<String, Future<?>>();
+    private volatile boolean tileErrorShown = false;
+    private Timer repaintTimer = null;
 
     /**
      * Constructor of the layer.
@@ -105,6 +158,7 @@ public class WmsLiteLayer extends DirectLayer {
             for (String layerName : layerNames) {
                 getMapRequest.addLayer(layerName, "");
             }
+            this.layerNamesAsString = layerNames.toString();
         } catch (MalformedURLException ex) {
             throw new InitializeLayerException(
                     Messaging.Ids.WMSLAYER_NOT_INITIALIZED_ERROR.toString(), ex);
@@ -130,22 +184,132 @@ public class WmsLiteLayer extends DirectLayer {
         this.format = format;
     }
 
+    /**
+     * Gets if the layer asks the server for tiles instead of one image for the
+     * whole extent.
+     *
+     * @return
+     */
+    public boolean isTiled() {
+        return tiled;
+    }
+
+    /**
+     * Sets if the layer asks the server for tiles instead of one image for the
+     * whole extent. The tiled mode suits layers without labels, like
+     * orthophotos, because labels are cut in the borders of the tiles.
+     *
+     * @param tiled
+     */
+    public void setTiled(boolean tiled) {
+        this.tiled = tiled;
+    }
+
+    /**
+     * Gets if the tiles are kept also in the disk in tiled mode.
+     *
+     * @return
+     */
+    public boolean isDiskCacheEnabled() {
+        return diskCacheEnabled;
+    }
+
+    /**
+     * Sets if the tiles are kept also in the disk in tiled mode, so they are
+     * reused from one session to the other. By default the tiles are kept
+     * only in memory. It must be set before the layer is drawn.
+     *
+     * @param diskCacheEnabled
+     */
+    public void setDiskCacheEnabled(boolean diskCacheEnabled) {
+        this.diskCacheEnabled = diskCacheEnabled;
+    }
+
+    /**
+     * Sets the folder where the tiles are kept in tiled mode and enables the
+     * disk cache. If it is null, a folder under sola/wms-cache in the user
+     * home is used. It must be set before the layer is drawn.
+     *
+     * @param diskCacheDirectory
+     */
+    public void setDiskCacheDirectory(File diskCacheDirectory) {
+        this.diskCacheDirectory = diskCacheDirectory;
+        this.diskCacheEnabled = true;
+    }
+
+    /**
+     * Gets the cache of the tiles used in tiled mode.
+     *
+     * @return
+     */
+    public synchronized WmsTileCache getTileCache() {
+        if (this.tileCache == null) {
+            File directory = null;
+            if (this.diskCacheEnabled) {
+                directory = this.diskCacheDirectory;
+                if (directory == null) {
+                    // Each server, list of layers and format get their own folder
+                    directory = new File(DISK_CACHE_LOCATION, Integer.toHexString(
+                            (this.wmsServerUrl + "|" + this.layerNamesAsString + "|"
+                            + this.format).hashCode()));
+                }
+            }
+            this.tileCache = new WmsTileCache(directory, WmsTileCache.DEFAULT_MEMORY_TILES);
+            if (directory != null) {
+                // Keep the disk cache within its age and size limits
+                final WmsTileCache cache = this.tileCache;
+                tileLoader.submit(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        cache.prune();
+                    }
+                });
+            }
+        }
+        return this.tileCache;
+    }
+
+    /**
+     * Gets if there are tiles being retrieved in background.
+     *
+     * @return
+     */
+    public boolean isLoadingTiles() {
+        return !this.pendingTiles.isEmpty();
+    }
+
     @Override
     public void draw(Graphics2D gd, MapContent mc, MapViewport mv) {
+        if (this.tiled && !MapImageGenerator.isGeneratingImage()) {
+            this.drawTiles(gd, mv);
+        } else {
+            this.drawImage(gd, mv);
+        }
+    }
+
+    /**
+     * It draws the layer with one request for the whole extent.
+     */
+    private void drawImage(Graphics2D gd, MapViewport mv) {
         if (this.lastUsedBounds != null && this.lastUsedBounds.equals(mv.getBounds()) && this.image != null) {
             gd.drawImage(this.image, 0, 0, null);
         } else {
             this.lastUsedBounds = mv.getBounds();
             SimpleHttpClient httpClient = new SimpleHttpClient();
-            getMapRequest.setBBox(this.lastUsedBounds);
-            getMapRequest.setDimensions(mv.getScreenArea().getSize());
-            getMapRequest.setFormat(this.format);
-            getMapRequest.setSRS(String.format("EPSG:%s", CRSUtility.getInstance().getSrid(mv.getCoordinateReferenceSystem())));
-            //The transparency will not work if the format does not support transparency
-            getMapRequest.setTransparent(true);
             GetMapResponse response = null;
             try {
-                response = new GetMapResponse(httpClient.get(getMapRequest.getFinalURL()));
+                URL url;
+                synchronized (getMapRequest) {
+                    getMapRequest.setBBox(this.lastUsedBounds);
+                    getMapRequest.setDimensions(mv.getScreenArea().getSize());
+                    getMapRequest.setFormat(this.format);
+                    getMapRequest.setSRS(String.format("EPSG:%s", CRSUtility.getInstance().getSrid(mv.getCoordinateReferenceSystem())));
+                    //The transparency will not work if the format does not support transparency
+                    getMapRequest.setTransparent(true);
+                    url = getMapRequest.getFinalURL();
+                }
+                response = new GetMapResponse(httpClient.get(url));
                 this.image = ImageIO.read(response.getInputStream());
                 response.getInputStream().close();
                 if (CRSUtility.getInstance().crsIsSouthOriented(mv.getCoordinateReferenceSystem())){
@@ -164,6 +328,193 @@ public class WmsLiteLayer extends DirectLayer {
         }
     }
 
+    /**
+     * It draws the tiles of the extent that are available and asks for the
+     * missing ones in background. The scale level is the power of two that is
+     * just below the pixel resolution, so the tiles are never enlarged. Tiles
+     * still waiting for an extent that is not shown anymore are cancelled.
+     */
+    private void drawTiles(Graphics2D gd, MapViewport mv) {
+        this.lastUsedBounds = mv.getBounds();
+        Rectangle screenArea = mv.getScreenArea();
+        if (screenArea.getWidth() <= 0 || this.lastUsedBounds.getWidth() <= 0) {
+            return;
+        }
+        CoordinateReferenceSystem crs = mv.getCoordinateReferenceSystem();
+        String srid = CRSUtility.getInstance().getSrid(crs);
+        boolean southOriented = CRSUtility.getInstance().crsIsSouthOriented(crs);
+        double resolution = this.lastUsedBounds.getWidth() / screenArea.getWidth();
+        int level = (int) Math.floor(Math.log(resolution) / Math.log(2));
+        double tileSpan = TILE_SIZE * Math.pow(2, level);
+        AffineTransform worldToScreen = mv.getWorldToScreen();
+        WmsTileCache cache = this.getTileCache();
+        Set<String> visibleTiles = new HashSet<String>();
+        long firstCol = (long) Math.floor(this.lastUsedBounds.getMinX() / tileSpan);
+        long lastCol = (long) Math.floor(this.lastUsedBounds.getMaxX() / tileSpan);
+        long firstRow = (long) Math.floor(this.lastUsedBounds.getMinY() / tileSpan);
+        long lastRow = (long) Math.floor(this.lastUsedBounds.getMaxY() / tileSpan);
+        for (long col = firstCol; col <= lastCol; col++) {
+            for (long row = firstRow; row <= lastRow; row++) {
+                String key = String.format("%s/%s/%s_%s", srid, level, col, row);
+                ReferencedEnvelope tileBounds = new ReferencedEnvelope(
+                        col * tileSpan, (col + 1) * tileSpan,
+                        row * tileSpan, (row + 1) * tileSpan, crs);
+                visibleTiles.add(key);
+                BufferedImage tile = cache.get(key);
+                if (tile == null) {
+                    this.requestTile(key, tileBounds, srid, southOriented);
+                } else {
+                    this.drawTile(gd, tile, tileBounds, worldToScreen);
+                }
+            }
+        }
+        Iterator<Map.Entry<String, Future<?>>> pendingIterator =
+                this.pendingTiles.entrySet().iterator();
+        while (pendingIterator.hasNext()) {
+            Map.Entry<String, Future<?>> pending = pendingIterator.next();
+            if (!visibleTiles.contains(pending.getKey())) {
+                pending.getValue().cancel(false);
+                pendingIterator.remove();
+            }
+        }
+    }
+
+    private void drawTile(Graphics2D gd, BufferedImage tile,
+            ReferencedEnvelope tileBounds, AffineTransform worldToScreen) {
+        Point2D corner1 = worldToScreen.transform(
+                new Point2D.Double(tileBounds.getMinX(), tileBounds.getMinY()), null);
+        Point2D corner2 = worldToScreen.transform(
+                new Point2D.Double(tileBounds.getMaxX(), tileBounds.getMaxY()), null);
+        int x1 = (int) Math.floor(Math.min(corner1.getX(), corner2.getX()));
+        int y1 = (int) Math.floor(Math.min(corner1.getY(), corner2.getY()));
+        int x2 = (int) Math.ceil(Math.max(corner1.getX(), corner2.getX()));
+        int y2 = (int) Math.ceil(Math.max(corner1.getY(), corner2.getY()));
+        gd.drawImage(tile, x1, y1, x2 - x1, y2 - y1, null);
+    }
+
+    /**
+     * It retrieves the tile in background, first from the disk and if it is
+     * not found there from the server. When the tile is available, the map is
+     * asked to redraw.
+     */
+    private void requestTile(final String key, final ReferencedEnvelope tileBounds,
+            final String srid, final boolean southOriented) {
+        if (this.pendingTiles.containsKey(key)) {
+            return;
+        }
+        FutureTask<Object> task = new FutureTask<Object>(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    WmsTileCache cache = getTileCache();
+                    BufferedImage tile = null;
+                    byte[] content = cache.readFromDisk(key);
+                    if (content != null) {
+                        tile = ImageIO.read(new ByteArrayInputStream(content));
+                    }
+                    if (tile == null) {
+                        content = getTileFromServer(tileBounds, srid);
+                        tile = ImageIO.read(new ByteArrayInputStream(content));
+                        if (tile != null) {
+                            cache.writeToDisk(key, content);
+                        }
+                    }
+                    if (tile != null) {
+                        if (southOriented) {
+                            tile = flipImageIfSouthOriented(tile);
+                        }
+                        cache.put(key, tile);
+                        tileErrorShown = false;
+                        scheduleRepaint();
+                    }
+                } catch (IOException ex) {
+                    treatTileError(ex);
+                } catch (ServiceException ex) {
+                    treatTileError(ex);
+                } finally {
+                    pendingTiles.remove(key);
+                }
+            }
+        }, null);
+        // The task is registered before it starts, so it cannot finish before
+        this.pendingTiles.put(key, task);
+        tileLoader.execute(task);
+    }
+
+    private byte[] getTileFromServer(ReferencedEnvelope tileBounds, String srid)
+            throws IOException, ServiceException {
+        URL url;
+        synchronized (getMapRequest) {
+            getMapRequest.setBBox(tileBounds);
+            getMapRequest.setDimensions(new Dimension(TILE_SIZE, TILE_SIZE));
+            getMapRequest.setFormat(this.format);
+            getMapRequest.setSRS(String.format("EPSG:%s", srid));
+            getMapRequest.setTransparent(true);
+            url = getMapRequest.getFinalURL();
+        }
+        GetMapResponse response = new GetMapResponse(new SimpleHttpClient().get(url));
+        try {
+            InputStream input = response.getInputStream();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            input.close();
+            return output.toByteArray();
+        } finally {
+            response.dispose();
+        }
+    }
+
+    /**
+     * It asks the map to redraw the layer. The tiles arriving close to each
+     * other cause only one redraw.
+     */
+    private void scheduleRepaint() {
+        SwingUtilities.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+                if (repaintTimer == null) {
+                    repaintTimer = new Timer(REPAINT_DELAY, new ActionListener() {
+
+                        @Override
+                        public void actionPerformed(ActionEvent e) {
+                            fireMapLayerListenerLayerChanged(MapLayerEvent.DATA_CHANGED);
+                        }
+                    });
+                    repaintTimer.setRepeats(false);
+                }
+                if (!repaintTimer.isRunning()) {
+                    repaintTimer.start();
+                }
+            }
+        });
+    }
+
+    /**
+     * The error of a tile is logged, but it is shown to the user only once
+     * until a tile is retrieved successfully.
+     */
+    private void treatTileError(final Exception ex) {
+        this.LOGGER.log(Level.WARNING, Messaging.getInstance().getMessageText(
+                Messaging.Ids.WMSLAYER_LAYER_RENDER_ERROR.toString(), this.wmsServerUrl), ex);
+        if (!this.tileErrorShown) {
+            this.tileErrorShown = true;
+            SwingUtilities.invokeLater(new Runnable() {
+
+                @Override
+                public void run() {
+                    Messaging.getInstance().show(
+                            Messaging.Ids.WMSLAYER_LAYER_RENDER_ERROR.toString(), wmsServerUrl);
+                }
+            });
+        }
+    }
+
     private void treatRenderingError(Exception ex) {
         Messaging.getInstance().show(
                 Messaging.Ids.WMSLAYER_LAYER_RENDER_ERROR.toString(), this.wmsServerUrl);
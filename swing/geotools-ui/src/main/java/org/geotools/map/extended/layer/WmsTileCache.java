@@ -0,0 +1,299 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.geotools.map.extended.layer;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The cache of the tiles of a tiled WMS layer. The decoded tiles are kept in
+ * memory on least recently used basis. The tiles as retrieved from the server
+ * are also kept in a folder in the disk, so they are reused from one session
+ * to the other. The folder is limited in age and size by {@link #prune()}.
+ */
+public class WmsTileCache {
+
+    /**
+     * The default number of tiles kept in memory. A 256x256 tile takes 256 KB.
+     */
+    public static final int DEFAULT_MEMORY_TILES = 200;
+    /**
+     * The default age in milliseconds after which a tile in the disk is asked
+     * again from the server (7 days).
+     */
+    public static final long DEFAULT_DISK_MAX_AGE = 7L * 24 * 60 * 60 * 1000;
+    /**
+     * The default maximum size in bytes of the tiles kept in the disk (200 MB).
+     */
+    public static final long DEFAULT_DISK_MAX_SIZE = 200L * 1024 * 1024;
+    private static final String TILE_EXTENSION = ".tile";
+    private static final String TMP_EXTENSION = ".tmp";
+    /**
+     * The age in milliseconds after which a temporary file is considered left
+     * by an interrupted write (1 hour). Younger ones may still be written.
+     */
+    private static final long TMP_MAX_AGE = 60L * 60 * 1000;
+    private final LinkedHashMap<String, BufferedImage> memory;
+    private final File directory;
+    private long diskMaxAge = DEFAULT_DISK_MAX_AGE;
+    private long diskMaxSize = DEFAULT_DISK_MAX_SIZE;
+
+    /**
+     * Constructor.
+     *
+     * @param directory The folder where the tiles are kept. If it is null,
+     * the tiles are kept only in memory.
+     * @param memoryTiles The maximum number of tiles kept in memory
+     */
+    public WmsTileCache(File directory, final int memoryTiles) {
+        this.directory = directory;
+        this.memory = new LinkedHashMap<String, BufferedImage>(64, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+                return size() > memoryTiles;
+            }
+        };
+    }
+
+    /**
+     * Gets the folder where the tiles are kept.
+     *
+     * @return
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Sets the age in milliseconds after which a tile in the disk is not used
+     * anymore.
+     *
+     * @param diskMaxAge
+     */
+    public void setDiskMaxAge(long diskMaxAge) {
+        this.diskMaxAge = diskMaxAge;
+    }
+
+    /**
+     * Sets the maximum size in bytes of the tiles kept in the disk. It is
+     * applied by {@link #prune()}.
+     *
+     * @param diskMaxSize
+     */
+    public void setDiskMaxSize(long diskMaxSize) {
+        this.diskMaxSize = diskMaxSize;
+    }
+
+    /**
+     * Gets the tile from memory.
+     *
+     * @param key
+     * @return The tile or null if it is not in memory
+     */
+    public synchronized BufferedImage get(String key) {
+        return memory.get(key);
+    }
+
+    /**
+     * Puts the tile in memory.
+     *
+     * @param key
+     * @param tile
+     */
+    public synchronized void put(String key, BufferedImage tile) {
+        memory.put(key, tile);
+    }
+
+    /**
+     * Gets the number of tiles in memory.
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return memory.size();
+    }
+
+    /**
+     * Removes the tiles from memory. The tiles in disk are not removed.
+     */
+    public synchronized void clear() {
+        memory.clear();
+    }
+
+    /**
+     * Reads the tile as retrieved from the server from the disk.
+     *
+     * @param key
+     * @return The content of the tile or null if it is not in disk or it is
+     * expired.
+     * @throws IOException
+     */
+    public byte[] readFromDisk(String key) throws IOException {
+        if (directory == null) {
+            return null;
+        }
+        File file = getFile(key);
+        if (!file.exists()
+                || System.currentTimeMillis() - file.lastModified() > diskMaxAge) {
+            return null;
+        }
+        InputStream input = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Writes the tile as retrieved from the server in the disk. It is written
+     * first in a temporary file, so a tile that is not written completely is
+     * never read.
+     *
+     * @param key
+     * @param content
+     * @throws IOException
+     */
+    public void writeToDisk(String key, byte[] content) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        File file = getFile(key);
+        file.getParentFile().mkdirs();
+        File tmpFile = new File(file.getPath() + "." + Thread.currentThread().getId() + TMP_EXTENSION);
+        OutputStream output = new FileOutputStream(tmpFile);
+        try {
+            output.write(content);
+        } finally {
+            output.close();
+        }
+        if (!tmpFile.renameTo(file)) {
+            file.delete();
+            if (!tmpFile.renameTo(file)) {
+                tmpFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Removes from the disk the tiles that are expired and the temporary files
+     * left by an interrupted write. Temporary files younger than one hour are
+     * kept, because they may belong to a tile still being written. If the remaining tiles are still bigger
+     * than the maximum size, the least recently written are removed until
+     * they fit. It is meant to be called once when the cache is created.
+     *
+     * @return The number of files removed
+     */
+    public int prune() {
+        if (directory == null || !directory.isDirectory()) {
+            return 0;
+        }
+        List<File> files = new ArrayList<File>();
+        listFiles(directory, files);
+        final Map<File, Long> modified = new HashMap<File, Long>();
+        long now = System.currentTimeMillis();
+        long totalSize = 0;
+        int removed = 0;
+        List<File> tiles = new ArrayList<File>();
+        for (File file : files) {
+            long lastModified = file.lastModified();
+            if (file.getName().endsWith(TMP_EXTENSION)) {
+                if (now - lastModified > TMP_MAX_AGE && file.delete()) {
+                    removed++;
+                }
+            } else if (now - lastModified > diskMaxAge) {
+                if (file.delete()) {
+                    removed++;
+                }
+            } else {
+                modified.put(file, lastModified);
+                totalSize += file.length();
+                tiles.add(file);
+            }
+        }
+        if (totalSize > diskMaxSize) {
+            Collections.sort(tiles, new Comparator<File>() {
+
+                @Override
+                public int compare(File file1, File file2) {
+                    return modified.get(file1).compareTo(modified.get(file2));
+                }
+            });
+            for (File file : tiles) {
+                if (totalSize <= diskMaxSize) {
+                    break;
+                }
+                long length = file.length();
+                if (file.delete()) {
+                    totalSize -= length;
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    private void listFiles(File folder, List<File> files) {
+        File[] children = folder.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                listFiles(child, files);
+            } else if (child.getName().endsWith(TILE_EXTENSION)
+                    || child.getName().endsWith(TMP_EXTENSION)) {
+                files.add(child);
+            }
+        }
+    }
+
+    private File getFile(String key) {
+        return new File(directory, key.replace('/', File.separatorChar) + TILE_EXTENSION);
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.geotools.swing.control.extended;
+
+import java.awt.Dimension;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import javax.swing.JProgressBar;
+import org.geotools.swing.control.StatusBarItem;
+import org.geotools.swing.extended.Map;
+
+/**
+ * A status bar item that shows the progress of the layers that are loading
+ * their data in background. It is visible only while there is at least one
+ * layer loading. The number of the layers being loaded is shown inside the
+ * progress bar.
+ */
+public class LoadingStatusBarItem extends StatusBarItem {
+
+    private static final String COMPONENT_NAME = "loadingItem";
+    private final JProgressBar progressBar;
+
+    /**
+     * Initializes the loading status bar item.
+     *
+     * @param map The map whose layers are followed
+     */
+    public LoadingStatusBarItem(Map map) {
+        super(COMPONENT_NAME, false);
+        progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setStringPainted(true);
+        progressBar.setPreferredSize(new Dimension(60, 14));
+        this.add(progressBar);
+        setLoadingLayers(map.getLoadingLayers());
+
+        map.addPropertyChangeListener(Map.LOADING_LAYERS_PROPERTY, new PropertyChangeListener() {
+
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+                setLoadingLayers((Integer) evt.getNewValue());
+            }
+        });
+    }
+
+    private void setLoadingLayers(int loadingLayers) {
+        progressBar.setString(Integer.toString(loadingLayers));
+        this.setVisible(loadingLayers > 0);
+    }
+}
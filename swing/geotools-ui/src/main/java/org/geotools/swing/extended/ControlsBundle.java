@@ -41,6 +41,7 @@ import javax.swing.JToolBar;
 import org.geotools.swing.control.extended.JCoordsStatusBarItem;
 import org.geotools.swing.control.extended.JMapStatusBar;
 import org.geotools.swing.control.extended.JRendererStatusBarItem;
+import org.geotools.swing.control.extended.LoadingStatusBarItem;
 import org.geotools.swing.control.extended.CRSStatusBarItem;
 import org.geotools.swing.control.extended.MapScaleStatusBarItem;
 import org.geotools.swing.control.extended.ScaleBarStatusBarItem;
@@ -156,6 +157,7 @@ public class ControlsBundle extends javax.swing.JPanel {
         statusBar.addItem(new CRSStatusBarItem(this.getMap()));
         JCoordsStatusBarItem coordStatusItem = new JCoordsStatusBarItem(this.getMap());
         statusBar.addItem(coordStatusItem);
+        statusBar.addItem(new LoadingStatusBarItem(this.getMap()), false, true);
         // Adds the Scale Bar and Map Scale to the status bar of the map. Uses MigLayout constraints
         // to position the items on the status bar. 
         statusBar.addItem(new ScaleBarStatusBarItem(this.getMap()), false, true, "push, align center");
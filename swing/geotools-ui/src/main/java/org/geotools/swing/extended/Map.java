@@ -33,12 +33,20 @@ package org.geotools.swing.extended;
 
 import com.vividsolutions.jts.geom.Geometry;
 import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.event.MouseWheelEvent;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.swing.*;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.geometry.jts.Geometries;
@@ -60,6 +68,7 @@ import org.geotools.swing.extended.exception.InitializeCRSException;
 import org.geotools.swing.extended.exception.InitializeLayerException;
 import org.geotools.swing.extended.exception.InitializeMapException;
 import org.geotools.swing.extended.util.CRSUtility;
+import org.geotools.swing.extended.util.LayerImageCache;
 import org.geotools.swing.extended.util.Messaging;
 import org.geotools.swing.mapaction.extended.ExtendedAction;
 import org.geotools.swing.tool.CursorTool;
@@ -79,12 +88,19 @@ import org.opengis.referencing.operation.TransformException;
  * the mouse pressed</li> <li> Get current pixel resolution for the map
  * control</li> <li> Helper methods for transforming points map from/to
  * screen</li> <li> Defining a custom full extent that is not dependent in the
- * full extent of all layers found in the map</li> </ul>
+ * full extent of all layers found in the map</li> <li> Rendering the layers
+ * in groups with an image cached for each group, so a change in a layer
+ * renders again only its group</li> </ul>
  * @author Elton Manoku
  *
  */
 public class Map extends JMapPane {
 
+    /**
+     * The name of the bound property that holds the number of layers loading
+     * their data in background.
+     */
+    public static final String LOADING_LAYERS_PROPERTY = "loadingLayers";
     private static String SELECTION_SLD_FILE = "selection.xml";
     private static String SELECTION_LAYER_NAME = "selection";
     private static String LAYER_FIELD_GEOMETRY_TYPE = "geometryType";
@@ -97,6 +113,43 @@ public class Map extends JMapPane {
     private double pixelResolution = 0;
     private Toc toc;
     private CursorTool activeTool = null;
+    private final AtomicInteger loadingLayers = new AtomicInteger(0);
+    private final Set<Layer> dynamicLayers = Collections.synchronizedSet(
+            Collections.newSetFromMap(new IdentityHashMap<Layer, Boolean>()));
+    private final LayerImageCache layerImageCache = new LayerImageCache(
+            new LayerImageCache.Source() {
+
+                @Override
+                public MapContent getMapContent() {
+                    return Map.this.getMapContent();
+                }
+
+                @Override
+                public ReferencedEnvelope getDisplayArea() {
+                    return Map.this.getDisplayArea();
+                }
+
+                @Override
+                public Rectangle getImageArea() {
+                    Rectangle visibleRect = Map.this.getVisibleRect();
+                    return new Rectangle(0, 0, visibleRect.width, visibleRect.height);
+                }
+
+                @Override
+                public boolean isDynamicLayer(Layer layer) {
+                    return dynamicLayers.contains(layer);
+                }
+
+                @Override
+                public void renderingStarted() {
+                    publishRenderingEvent(MapPaneEvent.Type.RENDERING_STARTED, false);
+                }
+
+                @Override
+                public void renderingStopped(boolean imageChanged) {
+                    publishRenderingEvent(MapPaneEvent.Type.RENDERING_STOPPED, imageChanged);
+                }
+            });
 
     /**
      * This constructor is used only for the graphical designer. Use the other
@@ -394,6 +447,11 @@ public class Map extends JMapPane {
      */
     public ExtendedLayer addLayer(ExtendedLayer solaLayer) {
         this.getSolaLayers().put(solaLayer.getLayerName(), solaLayer);
+        if (solaLayer instanceof ExtendedLayerGraphics) {
+            // Graphics and editor layers change while the user works, they are
+            // rendered apart from the layers with data from the server
+            this.dynamicLayers.addAll(solaLayer.getMapLayers());
+        }
         for (Layer layer : solaLayer.getMapLayers()) {
             this.getMapContent().addLayer(layer);
         }
@@ -652,6 +710,42 @@ public class Map extends JMapPane {
         return toc;
     }
 
+    /**
+     * Gets the number of layers that are loading their data in background.
+     *
+     * @return
+     */
+    public int getLoadingLayers() {
+        return loadingLayers.get();
+    }
+
+    /**
+     * It is called from a layer when it starts loading data in background. The
+     * change is notified to the listeners of {@link #LOADING_LAYERS_PROPERTY}
+     * in the event dispatch thread. Every call must be followed by a call of
+     * {@link #endLoading()}.
+     */
+    public void beginLoading() {
+        fireLoadingLayersChanged(loadingLayers.incrementAndGet());
+    }
+
+    /**
+     * It is called from a layer when it finishes or cancels a background load.
+     */
+    public void endLoading() {
+        fireLoadingLayersChanged(loadingLayers.decrementAndGet());
+    }
+
+    private void fireLoadingLayersChanged(final int newValue) {
+        SwingUtilities.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+                firePropertyChange(LOADING_LAYERS_PROPERTY, -1, newValue);
+            }
+        });
+    }
+
     /**
      * It refreshes the map.
      */
@@ -659,6 +753,16 @@ public class Map extends JMapPane {
         this.drawLayers(false);
     }
 
+    /**
+     * It refreshes only the layer. The other layers are drawn from the images
+     * cached for them.
+     *
+     * @param layer The layer that changed
+     */
+    public void refresh(ExtendedLayer layer) {
+        this.layerImageCache.invalidate(layer.getMapLayers());
+    }
+
     /**
      * Gets the current scale of the map. The calculation happens according to
      * OGC specification.
@@ -670,15 +774,53 @@ public class Map extends JMapPane {
     }
 
     /**
-     * It overrides the default behavior of drawLayers by resetting always the
-     * labelcache.
+     * It overrides the default behavior of drawLayers. All layers are rendered
+     * again in background in the images of their groups.
      *
      * @param createNewImage
+     * @see LayerImageCache
      */
     @Override
     protected void drawLayers(boolean createNewImage) {
-        clearLabelCache.set(true);
-        super.drawLayers(createNewImage);
+        // It can be called from the constructor of JMapPane
+        if (this.layerImageCache != null) {
+            this.layerImageCache.invalidateAll();
+        }
+    }
+
+    /**
+     * It draws the image composed from the images of the layer groups. While
+     * panning the image is moved with the mouse.
+     *
+     * @param g
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        AffineTransform worldToScreen = this.getWorldToScreenTransform();
+        if (worldToScreen == null || this.layerImageCache == null) {
+            return;
+        }
+        AffineTransform transform = new AffineTransform(worldToScreen);
+        if (imageOrigin != null) {
+            transform.preConcatenate(
+                    AffineTransform.getTranslateInstance(imageOrigin.x, imageOrigin.y));
+        }
+        this.layerImageCache.draw((Graphics2D) g, transform);
+    }
+
+    private void publishRenderingEvent(
+            final MapPaneEvent.Type type, final boolean imageChanged) {
+        SwingUtilities.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+                publishEvent(new MapPaneEvent(Map.this, type));
+                if (imageChanged) {
+                    repaint();
+                }
+            }
+        });
     }
 
     /**
@@ -696,7 +838,8 @@ public class Map extends JMapPane {
     /**
      * Overrides the default behavior of layerChanged. The repaint() is
      * commented so when the layer is changed and the map is refreshed the image
-     * is not reseted completely.
+     * is not reseted completely. Only the group of the changed layer is
+     * rendered again.
      */
     @Override
     public void layerChanged(MapLayerListEvent event) {
@@ -709,8 +852,11 @@ public class Map extends JMapPane {
             }
 
             if (reason != MapLayerEvent.SELECTION_CHANGED) {
-                clearLabelCache.set(true);
-                drawLayers(false);
+                if (event.getLayer() == null) {
+                    this.layerImageCache.invalidateAll();
+                } else {
+                    this.layerImageCache.invalidate(Collections.singletonList(event.getLayer()));
+                }
             }
 
         } finally {
@@ -870,6 +1016,7 @@ public class Map extends JMapPane {
      * It disposes the map control.
      */
     protected void dispose(){
+        this.layerImageCache.dispose();
         this.mapContent.dispose();
     }
 }
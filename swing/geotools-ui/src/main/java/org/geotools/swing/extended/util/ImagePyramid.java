@@ -0,0 +1,274 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.geotools.swing.extended.util;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import org.geotools.swing.extended.exception.DirectImageNotValidFileException;
+
+/**
+ * Gives access to a large image as a pyramid of tiles without loading the
+ * whole image in memory. Level 0 is the image in full resolution and every
+ * next level halves the resolution, until the image fits in the given maximum
+ * width and height. The tiles of a level are read from disk only when asked
+ * for, using a source region and subsampling of the image reader, and the
+ * last used tiles are kept in memory within a memory budget.
+ * <br/>Formats that store the image in tiles or strips (e.g. TIFF) are read
+ * faster because the reader can skip to the region of the tile.
+ *
+ * @author soladev
+ */
+public class ImagePyramid {
+
+    /**
+     * The width and height in pixels of a tile in every level.
+     */
+    public static final int TILE_SIZE = 512;
+    private static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+    private ImageInputStream inputStream;
+    private ImageReader reader;
+    private int width;
+    private int height;
+    private int levelCount;
+    private long memoryBudget;
+    private long memoryUsed = 0;
+    private LinkedHashMap<String, BufferedImage> tiles =
+            new LinkedHashMap<String, BufferedImage>(64, 0.75f, true);
+
+    /**
+     * Constructor of the pyramid with the default memory budget.
+     *
+     * @param file The image file
+     * @param maxWidth The max width in pixels of the last level
+     * @param maxHeight The max height in pixels of the last level
+     * @throws IOException
+     * @throws DirectImageNotValidFileException It is thrown if the File is not
+     * image.
+     */
+    public ImagePyramid(File file, int maxWidth, int maxHeight)
+            throws IOException, DirectImageNotValidFileException {
+        this(file, maxWidth, maxHeight, DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Constructor of the pyramid.
+     *
+     * @param file The image file
+     * @param maxWidth The max width in pixels of the last level
+     * @param maxHeight The max height in pixels of the last level
+     * @param memoryBudget The max memory in bytes used by the tiles kept in
+     * memory
+     * @throws IOException
+     * @throws DirectImageNotValidFileException It is thrown if the File is not
+     * image.
+     */
+    public ImagePyramid(File file, int maxWidth, int maxHeight, long memoryBudget)
+            throws IOException, DirectImageNotValidFileException {
+        this.memoryBudget = memoryBudget;
+        this.inputStream = ImageIO.createImageInputStream(file);
+        if (this.inputStream == null) {
+            throw new DirectImageNotValidFileException();
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(this.inputStream);
+        if (!readers.hasNext()) {
+            this.inputStream.close();
+            throw new DirectImageNotValidFileException();
+        }
+        this.reader = readers.next();
+        this.reader.setInput(this.inputStream);
+        this.width = this.reader.getWidth(0);
+        this.height = this.reader.getHeight(0);
+        this.levelCount = 1;
+        while (getLevelSize(this.width, this.levelCount - 1) > maxWidth
+                || getLevelSize(this.height, this.levelCount - 1) > maxHeight) {
+            this.levelCount++;
+        }
+    }
+
+    private static int getLevelSize(int size, int level) {
+        return (size + (1 << level) - 1) >> level;
+    }
+
+    /**
+     * Gets the width in pixels of the image in full resolution.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height in pixels of the image in full resolution.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the number of levels of the pyramid. The last level fits in the
+     * maximum width and height given in the constructor.
+     */
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    /**
+     * Gets the level that has to be used to draw the image with the given
+     * scale. It is the level with the lowest resolution that still has at
+     * least one pixel for every pixel in the screen.
+     *
+     * @param screenPixelsPerImagePixel The number of pixels in the screen
+     * for a pixel of the image in full resolution.
+     * @return
+     */
+    public int getLevel(double screenPixelsPerImagePixel) {
+        if (screenPixelsPerImagePixel <= 0) {
+            return levelCount - 1;
+        }
+        int level = (int) Math.floor(Math.log(1 / screenPixelsPerImagePixel) / Math.log(2));
+        return Math.max(0, Math.min(levelCount - 1, level));
+    }
+
+    /**
+     * Gets the width and height in full resolution pixels covered by a tile
+     * of the given level.
+     *
+     * @param level
+     * @return
+     */
+    public int getTileSpan(int level) {
+        return TILE_SIZE << level;
+    }
+
+    /**
+     * Gets the number of tile columns in the given level.
+     */
+    public int getColumnCount(int level) {
+        return (width + getTileSpan(level) - 1) / getTileSpan(level);
+    }
+
+    /**
+     * Gets the number of tile rows in the given level.
+     */
+    public int getRowCount(int level) {
+        return (height + getTileSpan(level) - 1) / getTileSpan(level);
+    }
+
+    /**
+     * Gets the region of the image in full resolution pixels covered by a
+     * tile.
+     *
+     * @param level
+     * @param col
+     * @param row
+     * @return
+     */
+    public Rectangle getTileRegion(int level, int col, int row) {
+        int span = getTileSpan(level);
+        int x = col * span;
+        int y = row * span;
+        return new Rectangle(x, y, Math.min(span, width - x), Math.min(span, height - y));
+    }
+
+    /**
+     * Gets a tile. If it is not in memory, it is read from the image file.
+     *
+     * @param level
+     * @param col
+     * @param row
+     * @return
+     * @throws IOException
+     */
+    public synchronized BufferedImage getTile(int level, int col, int row) throws IOException {
+        if (reader == null) {
+            throw new IOException("The image pyramid is disposed.");
+        }
+        String key = level + "/" + col + "_" + row;
+        BufferedImage tile = tiles.get(key);
+        if (tile != null) {
+            return tile;
+        }
+        int subsampling = 1 << level;
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(getTileRegion(level, col, row));
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        tile = reader.read(0, param);
+        tiles.put(key, tile);
+        memoryUsed += getMemorySize(tile);
+        Iterator<Map.Entry<String, BufferedImage>> it = tiles.entrySet().iterator();
+        while (memoryUsed > memoryBudget && tiles.size() > 1) {
+            memoryUsed -= getMemorySize(it.next().getValue());
+            it.remove();
+        }
+        return tile;
+    }
+
+    private static long getMemorySize(BufferedImage image) {
+        int bytesPerPixel = Math.max(1, image.getColorModel().getPixelSize() / 8);
+        return (long) image.getWidth() * image.getHeight() * bytesPerPixel;
+    }
+
+    /**
+     * Gets the number of tiles kept in memory.
+     */
+    public synchronized int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * Gets the memory in bytes used by the tiles kept in memory.
+     */
+    public synchronized long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    /**
+     * Releases the tiles and closes the image file.
+     */
+    public synchronized void dispose() {
+        tiles.clear();
+        memoryUsed = 0;
+        if (reader != null) {
+            reader.dispose();
+            reader = null;
+        }
+        try {
+            inputStream.close();
+        } catch (IOException ex) {
+            // The file is not used anymore
+        }
+    }
+}
@@ -0,0 +1,421 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.geotools.swing.extended.util;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.Layer;
+import org.geotools.map.MapContent;
+import org.geotools.map.MapViewport;
+import org.geotools.renderer.lite.StreamingRenderer;
+
+/**
+ * It renders the layers of a map in groups, each group in its own image, and
+ * composes the images of the groups in the image that is shown. A group is a
+ * run of consecutive layers that are either all static (data from the server,
+ * WMS, shapefiles) or all dynamic (graphics and editing layers). The images of
+ * the groups are kept while the viewport does not change, so when a layer
+ * changes only its group is rendered again. <br/> The rendering happens in a
+ * background thread. Invalidations that arrive while rendering are collected
+ * and rendered together in the next pass.
+ */
+public class LayerImageCache {
+
+    /**
+     * The information the cache needs from the map control.
+     */
+    public interface Source {
+
+        /**
+         * Gets the map content with all layers in drawing order.
+         */
+        MapContent getMapContent();
+
+        /**
+         * Gets the area of the map that is shown.
+         */
+        ReferencedEnvelope getDisplayArea();
+
+        /**
+         * Gets the size of the image in pixels.
+         */
+        Rectangle getImageArea();
+
+        /**
+         * Gets if the layer changes often, so it should not be rendered
+         * together with the static layers.
+         */
+        boolean isDynamicLayer(Layer layer);
+
+        /**
+         * It is called in the rendering thread before a pass starts.
+         */
+        void renderingStarted();
+
+        /**
+         * It is called in the rendering thread after a pass finishes. If the
+         * image changed, the map control has to be repainted.
+         */
+        void renderingStopped(boolean imageChanged);
+    }
+    private static final Logger LOGGER = Logger.getLogger(LayerImageCache.class.getName());
+    private static final ExecutorService renderer = Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "LayerImageCache-renderer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    private final Source source;
+    private final Set<Layer> dirtyLayers =
+            Collections.newSetFromMap(new IdentityHashMap<Layer, Boolean>());
+    private boolean allDirty = true;
+    private boolean renderScheduled = false;
+    private int generation = 0;
+    private boolean disposed = false;
+    // Only accessed from the rendering thread
+    private List<Group> groups = new ArrayList<Group>();
+    private ReferencedEnvelope groupsArea = null;
+    private Rectangle groupsImageArea = null;
+    private volatile StreamingRenderer activeRenderer = null;
+    private volatile Composition composition = null;
+    private final Runnable renderTask = new Runnable() {
+
+        @Override
+        public void run() {
+            render();
+        }
+    };
+
+    /**
+     * Constructor.
+     *
+     * @param source The map control the layers are rendered for
+     */
+    public LayerImageCache(Source source) {
+        this.source = source;
+    }
+
+    /**
+     * It draws the last composed image of all layers. While the map is moved
+     * or zoomed the image of the former viewport is drawn transformed to the
+     * new one until the new image is ready.
+     *
+     * @param graphics The graphics of the map control
+     * @param worldToScreen The current transformation of the map control
+     * @return false if nothing is rendered yet
+     */
+    public boolean draw(Graphics2D graphics, AffineTransform worldToScreen) {
+        Composition current = composition;
+        if (current == null || worldToScreen == null) {
+            return false;
+        }
+        AffineTransform imageToScreen = new AffineTransform(worldToScreen);
+        imageToScreen.concatenate(current.imageToWorld);
+        graphics.drawImage(current.image, imageToScreen, null);
+        return true;
+    }
+
+    /**
+     * Marks all layers to be rendered again. If a pass is running, it is
+     * stopped.
+     */
+    public synchronized void invalidateAll() {
+        allDirty = true;
+        dirtyLayers.clear();
+        generation++;
+        StreamingRenderer running = activeRenderer;
+        if (running != null) {
+            running.stopRendering();
+        }
+        schedule();
+    }
+
+    /**
+     * Marks the layers to be rendered again together with the other layers in
+     * their group. The other groups are taken from the cache.
+     *
+     * @param layers
+     */
+    public synchronized void invalidate(Collection<Layer> layers) {
+        if (!allDirty) {
+            dirtyLayers.addAll(layers);
+        }
+        schedule();
+    }
+
+    /**
+     * Releases the images. No more passes are done afterwards.
+     */
+    public synchronized void dispose() {
+        disposed = true;
+        composition = null;
+        StreamingRenderer running = activeRenderer;
+        if (running != null) {
+            running.stopRendering();
+        }
+    }
+
+    private void schedule() {
+        if (!renderScheduled && !disposed) {
+            renderScheduled = true;
+            renderer.submit(renderTask);
+        }
+    }
+
+    private void render() {
+        boolean all;
+        Set<Layer> dirty;
+        int startGeneration;
+        synchronized (this) {
+            renderScheduled = false;
+            if (disposed) {
+                return;
+            }
+            all = allDirty;
+            dirty = Collections.newSetFromMap(new IdentityHashMap<Layer, Boolean>());
+            dirty.addAll(dirtyLayers);
+            allDirty = false;
+            dirtyLayers.clear();
+            startGeneration = generation;
+        }
+        ReferencedEnvelope area = source.getDisplayArea();
+        Rectangle imageArea = source.getImageArea();
+        MapContent mapContent = source.getMapContent();
+        if (area == null || area.isEmpty() || imageArea == null
+                || imageArea.width <= 0 || imageArea.height <= 0 || mapContent == null) {
+            synchronized (this) {
+                // Nothing can be drawn yet, everything is drawn when the map is ready
+                allDirty = true;
+            }
+            return;
+        }
+        List<List<Layer>> structure = getStructure(mapContent);
+        if (!area.equals(groupsArea) || !imageArea.equals(groupsImageArea)
+                || !isSameStructure(structure)) {
+            all = true;
+        }
+        if (all) {
+            List<Group> newGroups = new ArrayList<Group>();
+            for (List<Layer> layers : structure) {
+                newGroups.add(new Group(layers, mapContent));
+            }
+            groups = newGroups;
+            groupsArea = area;
+            groupsImageArea = imageArea;
+        }
+        MapViewport viewport = new MapViewport(area, false);
+        viewport.setScreenArea(imageArea);
+        viewport.setCoordinateReferenceSystem(area.getCoordinateReferenceSystem());
+        AffineTransform worldToScreen = viewport.getWorldToScreen();
+        source.renderingStarted();
+        boolean imageChanged = false;
+        try {
+            for (Group group : groups) {
+                if (group.image != null && !group.contains(dirty)) {
+                    continue;
+                }
+                if (isCancelled(startGeneration)) {
+                    return;
+                }
+                group.render(viewport, imageArea, area, worldToScreen);
+            }
+            if (isCancelled(startGeneration)) {
+                return;
+            }
+            this.compose(imageArea, worldToScreen);
+            imageChanged = true;
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Error while rendering the map", ex);
+        } finally {
+            source.renderingStopped(imageChanged);
+        }
+    }
+
+    private synchronized boolean isCancelled(int startGeneration) {
+        return disposed || generation != startGeneration;
+    }
+
+    private void compose(Rectangle imageArea, AffineTransform worldToScreen) {
+        BufferedImage composed = new BufferedImage(
+                imageArea.width, imageArea.height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D graphics = composed.createGraphics();
+        try {
+            for (Group group : groups) {
+                if (group.image != null) {
+                    graphics.drawImage(group.image, 0, 0, null);
+                }
+            }
+        } finally {
+            graphics.dispose();
+        }
+        try {
+            composition = new Composition(composed, worldToScreen.createInverse());
+        } catch (NoninvertibleTransformException ex) {
+            LOGGER.log(Level.WARNING, "Error while rendering the map", ex);
+        }
+    }
+
+    /**
+     * Splits the layers of the map in runs of static and dynamic layers.
+     */
+    private List<List<Layer>> getStructure(MapContent mapContent) {
+        List<List<Layer>> structure = new ArrayList<List<Layer>>();
+        List<Layer> current = null;
+        boolean currentDynamic = false;
+        for (Layer layer : new ArrayList<Layer>(mapContent.layers())) {
+            boolean dynamic = source.isDynamicLayer(layer);
+            if (current == null || dynamic != currentDynamic) {
+                current = new ArrayList<Layer>();
+                structure.add(current);
+                currentDynamic = dynamic;
+            }
+            current.add(layer);
+        }
+        return structure;
+    }
+
+    private boolean isSameStructure(List<List<Layer>> structure) {
+        if (structure.size() != groups.size()) {
+            return false;
+        }
+        for (int i = 0; i < structure.size(); i++) {
+            List<Layer> layers = structure.get(i);
+            List<Layer> groupLayers = groups.get(i).content.layers();
+            if (layers.size() != groupLayers.size()) {
+                return false;
+            }
+            for (int j = 0; j < layers.size(); j++) {
+                if (layers.get(j) != groupLayers.get(j)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A run of layers that are rendered in the same image.
+     */
+    private class Group {
+
+        private final GroupContent content;
+        private final StreamingRenderer groupRenderer = new StreamingRenderer();
+        private BufferedImage image = null;
+
+        Group(List<Layer> layers, MapContent mapContent) {
+            this.content = new GroupContent(layers, mapContent);
+            this.groupRenderer.setJava2DHints(new RenderingHints(
+                    RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON));
+            this.groupRenderer.setMapContent(this.content);
+        }
+
+        boolean contains(Set<Layer> layers) {
+            for (Layer layer : content.layers()) {
+                if (layers.contains(layer)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void render(MapViewport viewport, Rectangle imageArea,
+                ReferencedEnvelope area, AffineTransform worldToScreen) {
+            BufferedImage groupImage = new BufferedImage(
+                    imageArea.width, imageArea.height, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D graphics = groupImage.createGraphics();
+            content.setViewport(viewport);
+            activeRenderer = groupRenderer;
+            try {
+                groupRenderer.paint(graphics, imageArea, area, worldToScreen);
+            } finally {
+                activeRenderer = null;
+                graphics.dispose();
+            }
+            image = groupImage;
+        }
+    }
+
+    /**
+     * A map content that shows only some of the layers of the map. The layers
+     * are not added to it, so they keep belonging only to the map.
+     */
+    private static class GroupContent extends MapContent {
+
+        private final List<Layer> groupLayers;
+        private final MapContent mapContent;
+
+        GroupContent(List<Layer> layers, MapContent mapContent) {
+            this.groupLayers = Collections.unmodifiableList(layers);
+            this.mapContent = mapContent;
+        }
+
+        @Override
+        public List<Layer> layers() {
+            return groupLayers;
+        }
+
+        @Override
+        public ReferencedEnvelope getMaxBounds() {
+            return mapContent.getMaxBounds();
+        }
+    }
+
+    /**
+     * The composed image with the transformation it was rendered with.
+     */
+    private static class Composition {
+
+        private final BufferedImage image;
+        private final AffineTransform imageToWorld;
+
+        Composition(BufferedImage image, AffineTransform imageToWorld) {
+            this.image = image;
+            this.imageToWorld = imageToWorld;
+        }
+    }
+}
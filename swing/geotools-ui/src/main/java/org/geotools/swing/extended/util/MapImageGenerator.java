@@ -54,6 +54,7 @@ public class MapImageGenerator {
     private final static String TEMPORARY_IMAGE_FILE_LOCATION =
             System.getProperty("user.home") + File.separator + "sola";
     private final static String TEMPORARY_IMAGE_FILE = "map";
+    private final static ThreadLocal<Boolean> generatingImage = new ThreadLocal<Boolean>();
     private MapContent mapContent;
     private Color textColor = Color.RED;
     private Font textFont = new Font(Font.SANS_SERIF, Font.BOLD, 10);
@@ -74,6 +75,17 @@ public class MapImageGenerator {
         return mapContent;
     }
 
+    /**
+     * Gets if the current thread is rendering an image. Layers that load their
+     * data in background must load it synchronously in this case, otherwise the
+     * image is generated without their features.
+     *
+     * @return
+     */
+    public static boolean isGeneratingImage() {
+        return Boolean.TRUE.equals(generatingImage.get());
+    }
+
     /**
      * Gets the color of the text used in the image
      *
@@ -193,7 +205,12 @@ public class MapImageGenerator {
         // Render map according to the new viewport. Use the viewport 
         // worldToScreen transformation to ensure the image is rendered 
         // with the same orientation as the map. 
-        renderer.paint(graphics, rectangle, extent, mapViewport.getWorldToScreen());
+        generatingImage.set(Boolean.TRUE);
+        try {
+            renderer.paint(graphics, rectangle, extent, mapViewport.getWorldToScreen());
+        } finally {
+            generatingImage.remove();
+        }
         //Set the previous viewport back
         this.mapContent.setViewport(mapViewportOriginal);
 
@@ -0,0 +1,240 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.geotools.swing.extended.util;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.index.ItemVisitor;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/**
+ * A spatial index of the segments and vertexes of a set of geometries. It is
+ * used to find the nearest vertex or the nearest point on a segment within a
+ * distance, as needed for snapping. <br/> The geometries are added first and
+ * then the index is built. After it is built, geometries cannot be added
+ * anymore. The search does not create objects, so it can be called on every
+ * mouse move. The index is meant to be used from one thread.
+ */
+public class SegmentIndex {
+
+    /**
+     * The type of the target found by the search.
+     */
+    public enum Match {
+
+        None,
+        Vertex,
+        Segment
+    }
+    private final STRtree tree = new STRtree();
+    private final Envelope searchEnvelope = new Envelope();
+    private final NearestVisitor visitor = new NearestVisitor();
+    private int size = 0;
+    private boolean built = false;
+
+    /**
+     * Adds the segments of the geometry. Points are added as vertexes. Empty
+     * geometries are ignored.
+     *
+     * @param geom
+     */
+    public void add(Geometry geom) {
+        if (geom == null || geom.isEmpty()) {
+            return;
+        }
+        if (geom instanceof Point) {
+            Point point = (Point) geom;
+            this.addSegment(point.getX(), point.getY(), point.getX(), point.getY());
+        } else if (geom instanceof LineString) {
+            CoordinateSequence sequence = ((LineString) geom).getCoordinateSequence();
+            if (sequence.size() == 1) {
+                this.addSegment(sequence.getX(0), sequence.getY(0),
+                        sequence.getX(0), sequence.getY(0));
+            }
+            for (int i = 1; i < sequence.size(); i++) {
+                this.addSegment(sequence.getX(i - 1), sequence.getY(i - 1),
+                        sequence.getX(i), sequence.getY(i));
+            }
+        } else if (geom instanceof Polygon) {
+            Polygon polygon = (Polygon) geom;
+            this.add(polygon.getExteriorRing());
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                this.add(polygon.getInteriorRingN(i));
+            }
+        } else {
+            for (int i = 0; i < geom.getNumGeometries(); i++) {
+                this.add(geom.getGeometryN(i));
+            }
+        }
+    }
+
+    private void addSegment(double x0, double y0, double x1, double y1) {
+        Segment segment = new Segment(x0, y0, x1, y1);
+        tree.insert(new Envelope(x0, x1, y0, y1), segment);
+        size++;
+    }
+
+    /**
+     * It builds the index. It is also built on the first search.
+     */
+    public void build() {
+        if (!built) {
+            tree.build();
+            built = true;
+        }
+    }
+
+    /**
+     * Gets the number of segments in the index. A point counts as one segment.
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * It searches the nearest vertex within the distance. If no vertex is
+     * found, it searches the nearest point on the segments within the distance.
+     *
+     * @param x The x of the search point
+     * @param y The y of the search point
+     * @param distance The maximum distance
+     * @param result The coordinate where the found point is written
+     * @return The type of the target found. If it is None, the result is not
+     * changed.
+     */
+    public Match findNearest(double x, double y, double distance, Coordinate result) {
+        this.build();
+        searchEnvelope.init(x - distance, x + distance, y - distance, y + distance);
+        visitor.reset(x, y, distance);
+        tree.query(searchEnvelope, visitor);
+        if (visitor.vertexFound) {
+            result.x = visitor.vertexX;
+            result.y = visitor.vertexY;
+            return Match.Vertex;
+        }
+        if (visitor.segmentFound) {
+            result.x = visitor.segmentX;
+            result.y = visitor.segmentY;
+            return Match.Segment;
+        }
+        return Match.None;
+    }
+
+    private static class Segment {
+
+        private final double x0;
+        private final double y0;
+        private final double x1;
+        private final double y1;
+
+        Segment(double x0, double y0, double x1, double y1) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+        }
+    }
+
+    /**
+     * Keeps the nearest vertex and the nearest point on a segment found while
+     * visiting the segments in the search envelope.
+     */
+    private static class NearestVisitor implements ItemVisitor {
+
+        private double x;
+        private double y;
+        private double vertexDistance;
+        private double segmentDistance;
+        private boolean vertexFound;
+        private boolean segmentFound;
+        private double vertexX;
+        private double vertexY;
+        private double segmentX;
+        private double segmentY;
+
+        void reset(double x, double y, double distance) {
+            this.x = x;
+            this.y = y;
+            this.vertexDistance = distance * distance;
+            this.segmentDistance = this.vertexDistance;
+            this.vertexFound = false;
+            this.segmentFound = false;
+        }
+
+        @Override
+        public void visitItem(Object item) {
+            Segment segment = (Segment) item;
+            checkVertex(segment.x0, segment.y0);
+            checkVertex(segment.x1, segment.y1);
+            double dx = segment.x1 - segment.x0;
+            double dy = segment.y1 - segment.y0;
+            double length = dx * dx + dy * dy;
+            if (length == 0) {
+                return;
+            }
+            double fraction = ((x - segment.x0) * dx + (y - segment.y0) * dy) / length;
+            if (fraction < 0) {
+                fraction = 0;
+            } else if (fraction > 1) {
+                fraction = 1;
+            }
+            double projectedX = segment.x0 + fraction * dx;
+            double projectedY = segment.y0 + fraction * dy;
+            double distance = distanceSquared(projectedX, projectedY);
+            if (distance < segmentDistance) {
+                segmentDistance = distance;
+                segmentX = projectedX;
+                segmentY = projectedY;
+                segmentFound = true;
+            }
+        }
+
+        private void checkVertex(double vertexX, double vertexY) {
+            double distance = distanceSquared(vertexX, vertexY);
+            if (distance < vertexDistance) {
+                this.vertexDistance = distance;
+                this.vertexX = vertexX;
+                this.vertexY = vertexY;
+                this.vertexFound = true;
+            }
+        }
+
+        private double distanceSquared(double otherX, double otherY) {
+            double dx = otherX - x;
+            double dy = otherY - y;
+            return dx * dx + dy * dy;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.geotools.swing.extended.util;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.index.ItemVisitor;
+import com.vividsolutions.jts.index.quadtree.Quadtree;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * A spatial index of vertexes that can be changed after it is built. Each item
+ * is indexed with the position it is added or moved to. It is used to find
+ * the vertex under the mouse and the vertexes that share a position, without
+ * visiting all vertexes. <br/> Unlike {@link SegmentIndex}, items can be
+ * added, removed and moved at any time. The index is meant to be used from one
+ * thread.
+ *
+ * @param <T> The type of the items
+ */
+public class VertexIndex<T> {
+
+    private Quadtree tree = new Quadtree();
+    private final IdentityHashMap<T, Entry<T>> entries = new IdentityHashMap<T, Entry<T>>();
+    private final Envelope searchEnvelope = new Envelope();
+    private long sequence = 0;
+
+    /**
+     * Adds the item in the position. If the item is already in the index, it
+     * is moved.
+     *
+     * @param item
+     * @param x
+     * @param y
+     */
+    public void add(T item, double x, double y) {
+        if (entries.containsKey(item)) {
+            this.move(item, x, y);
+            return;
+        }
+        Entry<T> entry = new Entry<T>(item, x, y, sequence++);
+        entries.put(item, entry);
+        tree.insert(entry.getEnvelope(), entry);
+    }
+
+    /**
+     * Removes the item.
+     *
+     * @param item
+     * @return True if the item was in the index
+     */
+    public boolean remove(T item) {
+        Entry<T> entry = entries.remove(item);
+        if (entry == null) {
+            return false;
+        }
+        tree.remove(entry.getEnvelope(), entry);
+        return true;
+    }
+
+    /**
+     * Moves the item to a new position. The order of the item, used to choose
+     * between vertexes at the same distance, is kept.
+     *
+     * @param item
+     * @param x
+     * @param y
+     * @return True if the item was in the index
+     */
+    public boolean move(T item, double x, double y) {
+        Entry<T> entry = entries.get(item);
+        if (entry == null) {
+            return false;
+        }
+        tree.remove(entry.getEnvelope(), entry);
+        entry.x = x;
+        entry.y = y;
+        tree.insert(entry.getEnvelope(), entry);
+        return true;
+    }
+
+    /**
+     * Removes all items.
+     */
+    public void clear() {
+        tree = new Quadtree();
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of items.
+     *
+     * @return
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * It searches the nearest item within the distance. If more items are at
+     * the same distance, the one added first is returned.
+     *
+     * @param x
+     * @param y
+     * @param distance
+     * @return The item or null if none is found
+     */
+    public T findNearest(final double x, final double y, double distance) {
+        final double maxDistance = distance * distance;
+        final Object[] found = new Object[1];
+        final double[] foundDistance = {Double.MAX_VALUE};
+        final long[] foundOrder = {Long.MAX_VALUE};
+        this.query(x, y, distance, new ItemVisitor() {
+
+            @Override
+            public void visitItem(Object item) {
+                Entry<?> entry = (Entry<?>) item;
+                double itemDistance = entry.distanceSquared(x, y);
+                if (itemDistance > maxDistance) {
+                    return;
+                }
+                if (itemDistance < foundDistance[0]
+                        || (itemDistance == foundDistance[0] && entry.order < foundOrder[0])) {
+                    found[0] = entry.item;
+                    foundDistance[0] = itemDistance;
+                    foundOrder[0] = entry.order;
+                }
+            }
+        });
+        @SuppressWarnings("unchecked")
+        T item = (T) found[0];
+        return item;
+    }
+
+    /**
+     * Gets all items within the distance, in the order they are added. A
+     * distance of 0 gives the items exactly in the position.
+     *
+     * @param x
+     * @param y
+     * @param distance
+     * @return
+     */
+    public List<T> findAll(final double x, final double y, double distance) {
+        final double maxDistance = distance * distance;
+        final List<Entry<T>> found = new ArrayList<Entry<T>>();
+        this.query(x, y, distance, new ItemVisitor() {
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void visitItem(Object item) {
+                Entry<T> entry = (Entry<T>) item;
+                if (entry.distanceSquared(x, y) <= maxDistance) {
+                    found.add(entry);
+                }
+            }
+        });
+        Collections.sort(found, new Comparator<Entry<T>>() {
+
+            @Override
+            public int compare(Entry<T> entry1, Entry<T> entry2) {
+                return entry1.order < entry2.order ? -1 : (entry1.order == entry2.order ? 0 : 1);
+            }
+        });
+        List<T> items = new ArrayList<T>(found.size());
+        for (Entry<T> entry : found) {
+            items.add(entry.item);
+        }
+        return items;
+    }
+
+    private void query(double x, double y, double distance, ItemVisitor visitor) {
+        searchEnvelope.init(x - distance, x + distance, y - distance, y + distance);
+        // The quadtree returns the candidates of the nodes the envelope
+        // overlaps, so the visitor checks the exact distance
+        tree.query(searchEnvelope, visitor);
+    }
+
+    private static class Entry<T> {
+
+        private final T item;
+        private final long order;
+        private double x;
+        private double y;
+
+        Entry(T item, double x, double y, long order) {
+            this.item = item;
+            this.x = x;
+            this.y = y;
+            this.order = order;
+        }
+
+        Envelope getEnvelope() {
+            return new Envelope(x, x, y, y);
+        }
+
+        double distanceSquared(double otherX, double otherY) {
+            double dx = otherX - x;
+            double dy = otherY - y;
+            return dx * dx + dy * dy;
+        }
+    }
+}
@@ -34,24 +34,27 @@ package org.geotools.swing.tool.extended;
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
-import com.vividsolutions.jts.geom.LineString;
 import com.vividsolutions.jts.geom.Point;
-import com.vividsolutions.jts.geom.Polygon;
-import com.vividsolutions.jts.linearref.LinearLocation;
-import com.vividsolutions.jts.linearref.LocationIndexedLine;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.Point2D;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.CollectionEvent;
+import org.geotools.feature.CollectionListener;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.geometry.DirectPosition2D;
 import org.geotools.geometry.jts.JTS;
-import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.swing.event.MapMouseEvent;
+import org.geotools.swing.extended.util.Messaging;
+import org.geotools.swing.extended.util.SegmentIndex;
 import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.Filter;
 import org.geotools.map.extended.layer.ExtendedFeatureLayer;
 
 /**
@@ -77,6 +80,29 @@ public abstract class ExtendedDrawToolWithSnapping extends ExtendedDrawTool {
     private double snapDistanceInMeters = 5;
     private com.vividsolutions.jts.geom.Point snappingPoint = null;
     private SNAPPED_TARGET_TYPE snappedTarget = SNAPPED_TARGET_TYPE.None;
+    private final Coordinate snappedCoordinate = new Coordinate();
+    private final Map<ExtendedFeatureLayer, SnappingTarget> snappingTargets =
+            new HashMap<ExtendedFeatureLayer, SnappingTarget>();
+
+    /**
+     * The snapping index of a target layer and the state it is built from. It listens to the
+     * feature collection of the layer and marks the index as changed when the features are
+     * added, removed or changed.
+     */
+    private static class SnappingTarget implements CollectionListener {
+
+        private FeatureCollection collection;
+        private String filterExpression;
+        private int version;
+        private Envelope extent;
+        private volatile boolean changed = false;
+        private SegmentIndex index;
+
+        @Override
+        public void collectionChanged(CollectionEvent event) {
+            this.changed = true;
+        }
+    }
 
     /**
      * Gets features layers to be target for snapping
@@ -225,7 +251,8 @@ public abstract class ExtendedDrawToolWithSnapping extends ExtendedDrawTool {
 
     /**
      * It searches for points within the range of the mouse to snap to. 
-     * Priority is given to vertexes and then lines.
+     * Priority is given to vertexes and then lines. The target layers are searched in the order
+     * they are added and the first layer with a target in range is used.
      * 
      * @param mousePosition
      * @return 
@@ -234,84 +261,109 @@ public abstract class ExtendedDrawToolWithSnapping extends ExtendedDrawTool {
 
         this.snappedTarget = SNAPPED_TARGET_TYPE.None;
         Point resultPoint = mousePosition;
-        Coordinate mouseCoordinate = mousePosition.getCoordinate();
-        Envelope search = new Envelope(mouseCoordinate);
-        search.expandBy(this.snapDistanceInMeters);
-        double distance = this.snapDistanceInMeters;
-        Coordinate coordinate = null;
-        ReferencedEnvelope bbox = new ReferencedEnvelope(search, null);
+        SegmentIndex.Match match = SegmentIndex.Match.None;
         for (ExtendedFeatureLayer targetLayer : this.targetSnappingLayers) {
-            // Only search the layer if it is displayed onscreen and a 
-            // coordinate has not been found
-            if (!targetLayer.isVisible() || coordinate != null) {
+            // Only search the layer if it is displayed onscreen
+            if (!targetLayer.isVisible()) {
                 continue;
             }
-            FeatureCollection featuresFound = targetLayer.getFeaturesInRange(
-                    bbox, targetLayer.getFilterExpressionForSnapping());
-            SimpleFeatureIterator iterator = (SimpleFeatureIterator) featuresFound.features();
-            while (iterator.hasNext()) {
-                SimpleFeature currentFeature = iterator.next();
-                Geometry geom = (Geometry) currentFeature.getDefaultGeometry();
-                if (geom == null) {
-                    continue;
-                }
-                //Check first points
-                for (Coordinate currentCoordinate : geom.getCoordinates()) {
-                    double currentDistance = currentCoordinate.distance(mouseCoordinate);
-                    if (currentDistance < distance) {
-                        distance = currentDistance;
-                        coordinate = currentCoordinate;
-                    }
-                }
-                if (coordinate != null) {
-                    this.snappedTarget = SNAPPED_TARGET_TYPE.Vertex;
-                    break;
-                }
-                //Check linestrings
-                for (LineString lineString : this.getLines(geom)) {
-                    LocationIndexedLine line = new LocationIndexedLine(lineString);
-                    LinearLocation linearLocation = line.project(mouseCoordinate);
-                    Coordinate currentCoordinate = line.extractPoint(linearLocation);
-                    double currentDistance = currentCoordinate.distance(mouseCoordinate);
-                    if (currentDistance < distance) {
-                        distance = currentDistance;
-                        coordinate = currentCoordinate;
-                    }
-                }
+            SegmentIndex index = this.getSnappingIndex(targetLayer);
+            if (index == null) {
+                continue;
             }
-            iterator.close();
-        }
-        if (coordinate != null) {
-            if (this.snappedTarget == SNAPPED_TARGET_TYPE.None) {
-                this.snappedTarget = SNAPPED_TARGET_TYPE.Line;
+            match = index.findNearest(mousePosition.getX(), mousePosition.getY(),
+                    this.snapDistanceInMeters, this.snappedCoordinate);
+            if (match != SegmentIndex.Match.None) {
+                break;
             }
-            resultPoint = JTS.toGeometry(new DirectPosition2D(coordinate.x, coordinate.y));
+        }
+        if (match != SegmentIndex.Match.None) {
+            this.snappedTarget = (match == SegmentIndex.Match.Vertex
+                    ? SNAPPED_TARGET_TYPE.Vertex : SNAPPED_TARGET_TYPE.Line);
+            resultPoint = JTS.toGeometry(
+                    new DirectPosition2D(this.snappedCoordinate.x, this.snappedCoordinate.y));
         }
         return resultPoint;
     }
 
     /**
-     * Gives a list of lines composing a geometry
+     * It marks the snapping indexes of the target layers as out of date. They are rebuilt the next
+     * time they are searched. The index of a layer is rebuilt anyway when its feature collection
+     * notifies a change or the features version of the layer changes. Call it if the geometries
+     * of the target layers are changed without any of these.
+     */
+    public void invalidateSnappingIndexes() {
+        for (SnappingTarget target : this.snappingTargets.values()) {
+            target.changed = true;
+        }
+    }
+
+    /**
+     * Gets the snapping index of the layer. Only the features around the displayed area are
+     * indexed. The index is rebuilt if the features of the layer are changed after it is built
+     * or if the displayed area moves out of the indexed extent.
      * 
-     * @param geom
-     * @return 
+     * @param layer
+     * @return The index or null if the features of the layer cannot be retrieved
      */
-    private List<LineString> getLines(Geometry geom) {
-        List<LineString> result = new ArrayList<LineString>();
-        if (geom.getGeometryType().contains("Multi")) {
-            for (int geomIndex = 0; geomIndex < geom.getNumGeometries(); geomIndex++) {
-                result.addAll(this.getLines(geom.getGeometryN(geomIndex)));
+    private SegmentIndex getSnappingIndex(ExtendedFeatureLayer layer) {
+        FeatureCollection collection;
+        try {
+            collection = layer.getFeatureSource().getFeatures();
+        } catch (IOException ex) {
+            Messaging.getInstance().show(
+                    Messaging.Ids.GEOTOOL_GET_FEATURE_IN_RANGLE_ERROR.toString(), ex.getMessage());
+            return null;
+        }
+        int version = layer.getFeaturesVersion();
+        Envelope displayArea = this.getMapControl().getDisplayArea();
+        String filterExpression = layer.getFilterExpressionForSnapping();
+        SnappingTarget target = this.snappingTargets.get(layer);
+        if (target == null) {
+            target = new SnappingTarget();
+            this.snappingTargets.put(layer, target);
+        }
+        if (target.collection != collection) {
+            if (target.collection != null) {
+                target.collection.removeListener(target);
             }
-        } else if (geom.getGeometryType().equals("LineString")) {
-            result.add((LineString) geom);
-        } else if (geom.getGeometryType().equals("Polygon")) {
-            Polygon pol = (Polygon) geom;
-            result.add(pol.getExteriorRing());
-            for (int geomIndex = 0; geomIndex < pol.getNumInteriorRing(); geomIndex++) {
-                result.add(pol.getInteriorRingN(geomIndex));
+            collection.addListener(target);
+            target.collection = collection;
+            target.index = null;
+        }
+        if (target.index == null || target.changed || target.version != version
+                || !target.extent.contains(displayArea)
+                || (filterExpression == null ? target.filterExpression != null
+                : !filterExpression.equals(target.filterExpression))) {
+            target.changed = false;
+            // The extent is bigger than the displayed area so panning does not rebuild every time
+            Envelope extent = new Envelope(displayArea);
+            extent.expandBy(displayArea.getWidth() / 2, displayArea.getHeight() / 2);
+            Filter filter = null;
+            if (filterExpression != null) {
+                filter = layer.getAttributeFilter(filterExpression);
             }
+            SegmentIndex index = new SegmentIndex();
+            SimpleFeatureIterator iterator = (SimpleFeatureIterator) collection.features();
+            try {
+                while (iterator.hasNext()) {
+                    SimpleFeature feature = iterator.next();
+                    Geometry geom = (Geometry) feature.getDefaultGeometry();
+                    if (geom != null && geom.getEnvelopeInternal().intersects(extent)
+                            && (filter == null || filter.evaluate(feature))) {
+                        index.add(geom);
+                    }
+                }
+            } finally {
+                iterator.close();
+            }
+            index.build();
+            target.index = index;
+            target.version = version;
+            target.extent = extent;
+            target.filterExpression = filterExpression;
         }
-        return result;
+        return target.index;
     }
 
     /**
@@ -0,0 +1,68 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.geotools.data.collection.extended;
+
+import com.vividsolutions.jts.io.WKTReader;
+import org.geotools.geometry.jts.Geometries;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the search of features by fid when features are added and removed.
+ */
+public class GraphicsFeatureCollectionTest {
+
+    @Test
+    public void testGetFeature() throws Exception {
+        System.out.println("Get feature by fid");
+        WKTReader reader = new WKTReader();
+        GraphicsFeatureCollection collection = new GraphicsFeatureCollection(Geometries.POINT);
+        int featureCount = 5000;
+        for (int i = 0; i < featureCount; i++) {
+            collection.addFeature("f" + i, reader.read(String.format("POINT(%s 0)", i)), null);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < featureCount; i++) {
+            assertEquals("f" + i, collection.getFeature("f" + i).getID());
+        }
+        long time = System.nanoTime() - start;
+        System.out.println(String.format("%s features, %s microseconds per search",
+                featureCount, time / featureCount / 1000.0));
+
+        assertNotNull(collection.removeFeature("f10"));
+        assertNull(collection.getFeature("f10"));
+        assertNull(collection.removeFeature("f10"));
+        assertNotNull(collection.getFeature("f11"));
+
+        collection.clear();
+        assertNull(collection.getFeature("f11"));
+        collection.addFeature("f11", reader.read("POINT(1 1)"), null);
+        assertNotNull(collection.getFeature("f11"));
+    }
+}
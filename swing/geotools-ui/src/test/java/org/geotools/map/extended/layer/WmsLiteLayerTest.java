@@ -0,0 +1,163 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.geotools.map.extended.layer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.MapViewport;
+import org.geotools.referencing.CRS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * Tests the tiled mode of the WmsLiteLayer against a stub WMS server that
+ * answers every GetMap with a red png.
+ */
+public class WmsLiteLayerTest {
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger(0);
+    private File cacheDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BufferedImage tile = new BufferedImage(
+                WmsLiteLayer.TILE_SIZE, WmsLiteLayer.TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = tile.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, tile.getWidth(), tile.getHeight());
+        graphics.dispose();
+        ImageIO.write(tile, "png", output);
+        final byte[] content = output.toByteArray();
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/wms", new HttpHandler() {
+
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                exchange.getResponseHeaders().add("Content-Type", "image/png");
+                exchange.sendResponseHeaders(200, content.length);
+                OutputStream body = exchange.getResponseBody();
+                body.write(content);
+                body.close();
+            }
+        });
+        server.start();
+        cacheDirectory = new File(System.getProperty("java.io.tmpdir"),
+                "wms-cache-test-" + System.currentTimeMillis());
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        deleteFolder(cacheDirectory);
+    }
+
+    @Test
+    public void testTiledDraw() throws Exception {
+        System.out.println("Tiled draw with memory and disk cache");
+        CoordinateReferenceSystem crs = CRS.decode("EPSG:2193");
+        // 512x512 pixels at 1 metre per pixel are 4 tiles
+        MapViewport viewport = new MapViewport(
+                new ReferencedEnvelope(1776384, 1776896, 5919744, 5920256, crs));
+        viewport.setScreenArea(new Rectangle(512, 512));
+
+        WmsLiteLayer layer = createLayer();
+        BufferedImage image = draw(layer, viewport);
+        waitForTiles(layer);
+        assertEquals(4, requests.get());
+        assertEquals(0, image.getRGB(256, 256));
+
+        image = draw(layer, viewport);
+        assertEquals(4, requests.get());
+        assertEquals(Color.RED.getRGB(), image.getRGB(10, 10));
+        assertEquals(Color.RED.getRGB(), image.getRGB(500, 500));
+
+        // A new layer for the same server reads the tiles from the disk
+        WmsLiteLayer otherLayer = createLayer();
+        draw(otherLayer, viewport);
+        waitForTiles(otherLayer);
+        assertEquals(4, requests.get());
+        assertEquals(4, otherLayer.getTileCache().size());
+    }
+
+    private WmsLiteLayer createLayer() throws Exception {
+        WmsLiteLayer layer = new WmsLiteLayer(
+                String.format("http://localhost:%s/wms", server.getAddress().getPort()),
+                Arrays.asList("orthophoto"), "1.1.1");
+        layer.setFormat("image/png");
+        layer.setTiled(true);
+        layer.setDiskCacheDirectory(cacheDirectory);
+        return layer;
+    }
+
+    private BufferedImage draw(WmsLiteLayer layer, MapViewport viewport) {
+        BufferedImage image = new BufferedImage(512, 512, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        layer.draw(graphics, null, viewport);
+        graphics.dispose();
+        return image;
+    }
+
+    private void waitForTiles(WmsLiteLayer layer) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 10000;
+        while (layer.isLoadingTiles() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(20);
+        }
+        assertFalse(layer.isLoadingTiles());
+    }
+
+    private void deleteFolder(File folder) {
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                deleteFolder(file);
+            }
+        }
+        folder.delete();
+    }
+}
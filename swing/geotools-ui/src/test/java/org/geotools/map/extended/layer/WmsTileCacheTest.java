@@ -0,0 +1,100 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.geotools.map.extended.layer;
+
+import java.io.File;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the limits in age and size of the disk cache of the WmsTileCache.
+ */
+public class WmsTileCacheTest {
+
+    private File cacheDirectory;
+
+    @Before
+    public void setUp() {
+        cacheDirectory = new File(System.getProperty("java.io.tmpdir"),
+                "wms-tile-cache-test-" + System.currentTimeMillis());
+    }
+
+    @After
+    public void tearDown() {
+        deleteFolder(cacheDirectory);
+    }
+
+    @Test
+    public void testPrune() throws Exception {
+        System.out.println("Prune the disk cache by age and size");
+        WmsTileCache cache = new WmsTileCache(cacheDirectory, 10);
+        cache.setDiskMaxAge(60 * 60 * 1000);
+        cache.setDiskMaxSize(250);
+        long now = System.currentTimeMillis();
+        byte[] content = new byte[100];
+        cache.writeToDisk("1/0/0", content);
+        cache.writeToDisk("1/0/1", content);
+        cache.writeToDisk("1/1/0", content);
+        cache.writeToDisk("1/1/1", content);
+        getFile("1/0/0").setLastModified(now - 2 * 60 * 60 * 1000);
+        getFile("1/0/1").setLastModified(now - 3 * 60 * 1000);
+        getFile("1/1/0").setLastModified(now - 2 * 60 * 1000);
+        getFile("1/1/1").setLastModified(now - 60 * 1000);
+        File tmpFile = new File(getFile("1/1/1").getPath() + ".1.tmp");
+        assertTrue(tmpFile.createNewFile());
+        tmpFile.setLastModified(now - 2 * 60 * 60 * 1000);
+        File writingFile = new File(getFile("1/1/1").getPath() + ".2.tmp");
+        assertTrue(writingFile.createNewFile());
+
+        // The expired tile, the stale temporary file and the oldest tile over the size
+        assertEquals(3, cache.prune());
+        assertFalse(tmpFile.exists());
+        assertTrue(writingFile.exists());
+        assertNull(cache.readFromDisk("1/0/0"));
+        assertNull(cache.readFromDisk("1/0/1"));
+        assertNotNull(cache.readFromDisk("1/1/0"));
+        assertNotNull(cache.readFromDisk("1/1/1"));
+        assertEquals(0, cache.prune());
+    }
+
+    private File getFile(String key) {
+        return new File(cacheDirectory, key.replace('/', File.separatorChar) + ".tile");
+    }
+
+    private void deleteFolder(File folder) {
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                deleteFolder(file);
+            }
+        }
+        folder.delete();
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.geotools.swing.extended.util;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import javax.imageio.ImageIO;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the levels and tiles of the image pyramid.
+ */
+public class ImagePyramidTest {
+
+    private static File imageFile;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        // A 5000x3000 image with the left half red and the right half blue
+        BufferedImage image = new BufferedImage(5000, 3000, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, 2500, 3000);
+        graphics.setColor(Color.BLUE);
+        graphics.fillRect(2500, 0, 2500, 3000);
+        graphics.dispose();
+        imageFile = File.createTempFile("pyramid", ".png");
+        ImageIO.write(image, "png", imageFile);
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        imageFile.delete();
+    }
+
+    @Test
+    public void testLevels() throws Exception {
+        System.out.println("Levels of the pyramid");
+        ImagePyramid pyramid = new ImagePyramid(imageFile, 2000, 2000);
+        try {
+            assertEquals(5000, pyramid.getWidth());
+            assertEquals(3000, pyramid.getHeight());
+            // 5000 -> 2500 -> 1250
+            assertEquals(3, pyramid.getLevelCount());
+            assertEquals(0, pyramid.getLevel(1));
+            assertEquals(0, pyramid.getLevel(4));
+            assertEquals(1, pyramid.getLevel(0.5));
+            assertEquals(1, pyramid.getLevel(0.3));
+            assertEquals(2, pyramid.getLevel(0.01));
+            assertEquals(10, pyramid.getColumnCount(0));
+            assertEquals(6, pyramid.getRowCount(0));
+            assertEquals(3, pyramid.getColumnCount(2));
+            assertEquals(2, pyramid.getRowCount(2));
+        } finally {
+            pyramid.dispose();
+        }
+    }
+
+    @Test
+    public void testTiles() throws Exception {
+        System.out.println("Tiles of the pyramid");
+        ImagePyramid pyramid = new ImagePyramid(imageFile, 2000, 2000);
+        try {
+            BufferedImage tile = pyramid.getTile(0, 0, 0);
+            assertEquals(ImagePyramid.TILE_SIZE, tile.getWidth());
+            assertEquals(ImagePyramid.TILE_SIZE, tile.getHeight());
+            assertEquals(Color.RED.getRGB(), tile.getRGB(10, 10));
+
+            // The tile of level 1 covers 2048..3072 x 2048..3000 in full resolution
+            Rectangle region = pyramid.getTileRegion(1, 2, 2);
+            assertEquals(new Rectangle(2048, 2048, 1024, 952), region);
+            tile = pyramid.getTile(1, 2, 2);
+            assertEquals(512, tile.getWidth());
+            assertEquals(476, tile.getHeight());
+            assertEquals(Color.RED.getRGB(), tile.getRGB(10, 10));
+            assertEquals(Color.BLUE.getRGB(), tile.getRGB(400, 10));
+
+            assertSame(tile, pyramid.getTile(1, 2, 2));
+            assertEquals(2, pyramid.getTileCount());
+        } finally {
+            pyramid.dispose();
+        }
+    }
+
+    @Test
+    public void testMemoryBudget() throws Exception {
+        System.out.println("Memory budget of the tiles");
+        ImagePyramid pyramid = new ImagePyramid(imageFile, 2000, 2000);
+        pyramid.getTile(0, 0, 0);
+        long tileMemory = pyramid.getMemoryUsed();
+        pyramid.dispose();
+        pyramid = new ImagePyramid(imageFile, 2000, 2000, tileMemory * 3);
+        try {
+            for (int col = 0; col < 6; col++) {
+                pyramid.getTile(0, col, 0);
+            }
+            assertEquals(3, pyramid.getTileCount());
+            assertTrue(pyramid.getMemoryUsed() <= tileMemory * 3);
+        } finally {
+            pyramid.dispose();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.geotools.swing.extended.util;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.DirectLayer;
+import org.geotools.map.Layer;
+import org.geotools.map.MapContent;
+import org.geotools.map.MapViewport;
+import org.geotools.referencing.crs.DefaultEngineeringCRS;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that only the group of the changed layer is rendered again.
+ */
+public class LayerImageCacheTest {
+
+    @Test
+    public void testInvalidate() throws Exception {
+        System.out.println("Render only the group of the changed layer");
+        final CountingLayer base1 = new CountingLayer();
+        final CountingLayer base2 = new CountingLayer();
+        final CountingLayer editor = new CountingLayer();
+        final MapContent mapContent = new MapContent();
+        mapContent.addLayer(base1);
+        mapContent.addLayer(base2);
+        mapContent.addLayer(editor);
+        final ReferencedEnvelope area = new ReferencedEnvelope(
+                0, 200, 0, 100, DefaultEngineeringCRS.GENERIC_2D);
+        final Semaphore passes = new Semaphore(0);
+        LayerImageCache cache = new LayerImageCache(new LayerImageCache.Source() {
+
+            @Override
+            public MapContent getMapContent() {
+                return mapContent;
+            }
+
+            @Override
+            public ReferencedEnvelope getDisplayArea() {
+                return area;
+            }
+
+            @Override
+            public Rectangle getImageArea() {
+                return new Rectangle(0, 0, 200, 100);
+            }
+
+            @Override
+            public boolean isDynamicLayer(Layer layer) {
+                return layer == editor;
+            }
+
+            @Override
+            public void renderingStarted() {
+            }
+
+            @Override
+            public void renderingStopped(boolean imageChanged) {
+                passes.release();
+            }
+        });
+
+        cache.invalidateAll();
+        assertTrue(passes.tryAcquire(10, TimeUnit.SECONDS));
+        assertEquals(1, base1.draws);
+        assertEquals(1, base2.draws);
+        assertEquals(1, editor.draws);
+
+        cache.invalidate(Collections.<Layer>singletonList(editor));
+        assertTrue(passes.tryAcquire(10, TimeUnit.SECONDS));
+        assertEquals(1, base1.draws);
+        assertEquals(1, base2.draws);
+        assertEquals(2, editor.draws);
+
+        cache.invalidate(Arrays.<Layer>asList(base2));
+        assertTrue(passes.tryAcquire(10, TimeUnit.SECONDS));
+        assertEquals(2, base1.draws);
+        assertEquals(2, base2.draws);
+        assertEquals(2, editor.draws);
+
+        BufferedImage screen = new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB);
+        MapViewport viewport = new MapViewport(area, false);
+        viewport.setScreenArea(new Rectangle(0, 0, 200, 100));
+        Graphics2D graphics = screen.createGraphics();
+        assertTrue(cache.draw(graphics, viewport.getWorldToScreen()));
+        graphics.dispose();
+        cache.dispose();
+        mapContent.dispose();
+    }
+
+    private static class CountingLayer extends DirectLayer {
+
+        private volatile int draws = 0;
+
+        @Override
+        public void draw(Graphics2D graphics, MapContent map, MapViewport viewport) {
+            draws++;
+        }
+
+        @Override
+        public ReferencedEnvelope getBounds() {
+            return null;
+        }
+    }
+}
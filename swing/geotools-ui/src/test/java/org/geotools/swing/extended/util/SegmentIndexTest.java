@@ -0,0 +1,97 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.geotools.swing.extended.util;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.WKTReader;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the search of the nearest vertex and segment of the segment index.
+ */
+public class SegmentIndexTest {
+
+    @Test
+    public void testFindNearest() throws Exception {
+        System.out.println("Find nearest vertex and segment");
+        WKTReader reader = new WKTReader();
+        SegmentIndex index = new SegmentIndex();
+        index.add(reader.read("POLYGON((0 0, 10 0, 10 10, 0 10, 0 0))"));
+        index.add(reader.read("LINESTRING(20 0, 30 0)"));
+        index.add(reader.read("POINT(50 50)"));
+        Coordinate result = new Coordinate();
+
+        assertEquals(SegmentIndex.Match.Vertex, index.findNearest(9, 9.5, 2, result));
+        assertEquals(10, result.x, 0);
+        assertEquals(10, result.y, 0);
+
+        assertEquals(SegmentIndex.Match.Segment, index.findNearest(5, 11, 2, result));
+        assertEquals(5, result.x, 0);
+        assertEquals(10, result.y, 0);
+
+        assertEquals(SegmentIndex.Match.Vertex, index.findNearest(31, 0, 2, result));
+        assertEquals(30, result.x, 0);
+
+        assertEquals(SegmentIndex.Match.Vertex, index.findNearest(51, 51, 2, result));
+        assertEquals(50, result.x, 0);
+
+        assertEquals(SegmentIndex.Match.None, index.findNearest(5, 5, 2, result));
+    }
+
+    @Test
+    public void testFindNearestTime() throws Exception {
+        System.out.println("Find nearest in 10000 parcels");
+        WKTReader reader = new WKTReader();
+        SegmentIndex index = new SegmentIndex();
+        for (int col = 0; col < 100; col++) {
+            for (int row = 0; row < 100; row++) {
+                double x = col * 20;
+                double y = row * 20;
+                Geometry parcel = reader.read(String.format(
+                        "POLYGON((%1$s %2$s, %3$s %2$s, %3$s %4$s, %1$s %4$s, %1$s %2$s))",
+                        x, y, x + 20, y + 20));
+                index.add(parcel);
+            }
+        }
+        index.build();
+        Random random = new Random(1);
+        Coordinate result = new Coordinate();
+        int searches = 100000;
+        long start = System.nanoTime();
+        for (int i = 0; i < searches; i++) {
+            index.findNearest(random.nextDouble() * 2000, random.nextDouble() * 2000, 1, result);
+        }
+        long time = System.nanoTime() - start;
+        System.out.println(String.format("%s segments, %s microseconds per search",
+                index.size(), time / searches / 1000.0));
+        assertTrue(time / searches < 1000000);
+    }
+}
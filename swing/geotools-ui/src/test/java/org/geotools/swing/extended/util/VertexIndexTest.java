@@ -0,0 +1,139 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.geotools.swing.extended.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the vertex index when vertexes are added, moved and removed.
+ */
+public class VertexIndexTest {
+
+    @Test
+    public void testFind() throws Exception {
+        System.out.println("Find nearest and all vertexes");
+        VertexIndex<String> index = new VertexIndex<String>();
+        index.add("a", 0, 0);
+        index.add("b", 10, 0);
+        index.add("c", 10, 0);
+        index.add("d", 11, 0);
+        assertEquals(4, index.size());
+
+        assertEquals("a", index.findNearest(1, 1, 2));
+        assertEquals("b", index.findNearest(10.2, 0, 2));
+        assertEquals("d", index.findNearest(10.8, 0, 2));
+        assertNull(index.findNearest(5, 5, 2));
+
+        List<String> all = index.findAll(10, 0, 0);
+        assertEquals(2, all.size());
+        assertEquals("b", all.get(0));
+        assertEquals("c", all.get(1));
+        assertEquals(3, index.findAll(10.5, 0, 1).size());
+    }
+
+    @Test
+    public void testMoveAndRemove() throws Exception {
+        System.out.println("Move and remove vertexes");
+        VertexIndex<String> index = new VertexIndex<String>();
+        index.add("a", 0, 0);
+        index.add("b", 10, 0);
+
+        assertTrue(index.move("a", 10, 0));
+        assertTrue(index.findAll(0, 0, 1).isEmpty());
+        // The order of adding is kept after the move
+        assertEquals("a", index.findNearest(10, 0, 1));
+
+        assertTrue(index.remove("a"));
+        assertFalse(index.remove("a"));
+        assertFalse(index.move("a", 0, 0));
+        assertEquals("b", index.findNearest(10, 0, 1));
+        assertEquals(1, index.size());
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertNull(index.findNearest(10, 0, 1));
+    }
+
+    @Test
+    public void testFindTime() throws Exception {
+        System.out.println("Find and move in 50000 vertexes");
+        int vertexCount = 50000;
+        Random random = new Random(1);
+        VertexIndex<double[]> index = new VertexIndex<double[]>();
+        List<double[]> vertexes = new ArrayList<double[]>(vertexCount);
+        for (int i = 0; i < vertexCount; i++) {
+            double[] vertex = {random.nextDouble() * 5000, random.nextDouble() * 5000};
+            vertexes.add(vertex);
+            index.add(vertex, vertex[0], vertex[1]);
+        }
+
+        int searches = 2000;
+        long start = System.nanoTime();
+        int linearFound = 0;
+        for (int i = 0; i < searches; i++) {
+            double x = random.nextDouble() * 5000;
+            double y = random.nextDouble() * 5000;
+            for (double[] vertex : vertexes) {
+                double dx = vertex[0] - x;
+                double dy = vertex[1] - y;
+                if (Math.sqrt(dx * dx + dy * dy) <= 10) {
+                    linearFound++;
+                    break;
+                }
+            }
+        }
+        long linearTime = System.nanoTime() - start;
+
+        random = new Random(2);
+        start = System.nanoTime();
+        int indexFound = 0;
+        for (int i = 0; i < searches; i++) {
+            double x = random.nextDouble() * 5000;
+            double y = random.nextDouble() * 5000;
+            if (index.findNearest(x, y, 10) != null) {
+                indexFound++;
+            }
+            // Move a vertex as it is done while dragging it
+            double[] vertex = vertexes.get(i);
+            vertex[0] = x;
+            vertex[1] = y;
+            index.move(vertex, x, y);
+        }
+        long indexTime = System.nanoTime() - start;
+        System.out.println(String.format(
+                "Linear scan %s microseconds, index %s microseconds per search",
+                linearTime / searches / 1000.0, indexTime / searches / 1000.0));
+        assertTrue(linearFound > 0 && indexFound > 0);
+        assertEquals(vertexCount, index.size());
+        assertTrue(indexTime < linearTime);
+    }
+}
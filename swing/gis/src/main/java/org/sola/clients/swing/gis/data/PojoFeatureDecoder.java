@@ -0,0 +1,190 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.swing.gis.data;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.sola.common.logging.LogUtility;
+import org.sola.webservices.spatial.SpatialResult;
+
+/**
+ * It translates the results retrieved from the server to features. Large
+ * result lists are split in chunks that are decoded in parallel, each worker
+ * with its own WKB reader and feature builder. Small lists are decoded in the
+ * calling thread.
+ */
+public class PojoFeatureDecoder {
+
+    /**
+     * The default number of results from which the decoding is done in
+     * parallel.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 2000;
+    private static final int MIN_CHUNK_SIZE = 500;
+    private static final int WORKERS = Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService decoders = Executors.newFixedThreadPool(
+            WORKERS, new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "PojoFeatureDecoder");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static final ThreadLocal<WKBReader> wkbReaders = new ThreadLocal<WKBReader>() {
+
+        @Override
+        protected WKBReader initialValue() {
+            return new WKBReader();
+        }
+    };
+    private final SimpleFeatureType type;
+    private final int parallelThreshold;
+
+    /**
+     * Constructor.
+     *
+     * @param type The type of the features that are built
+     */
+    public PojoFeatureDecoder(SimpleFeatureType type) {
+        this(type, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param type The type of the features that are built
+     * @param parallelThreshold The number of results from which the decoding
+     * is done in parallel
+     */
+    public PojoFeatureDecoder(SimpleFeatureType type, int parallelThreshold) {
+        this.type = type;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Gets the WKB reader of the current thread. WKBReader is not thread safe
+     * so every thread gets its own instance.
+     *
+     * @return
+     */
+    public static WKBReader getWkbReader() {
+        return wkbReaders.get();
+    }
+
+    /**
+     * It translates the results to features. The order of the results is
+     * kept. Results whose geometry cannot be read are logged and skipped. If
+     * the calling thread is interrupted while waiting for the workers, the
+     * decoding is cancelled and an empty list is returned.
+     *
+     * @param spatialResultList
+     * @return
+     */
+    public List<SimpleFeature> decode(final List<SpatialResult> spatialResultList) {
+        final int size = spatialResultList.size();
+        final SimpleFeature[] decoded = new SimpleFeature[size];
+        if (size < parallelThreshold || WORKERS < 2) {
+            decodeRange(spatialResultList, 0, size, decoded);
+            return compact(decoded);
+        }
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (size + WORKERS - 1) / WORKERS);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int from = chunkSize; from < size; from += chunkSize) {
+            final int chunkFrom = from;
+            final int chunkTo = Math.min(size, from + chunkSize);
+            futures.add(decoders.submit(new Callable<Object>() {
+
+                @Override
+                public Object call() {
+                    decodeRange(spatialResultList, chunkFrom, chunkTo, decoded);
+                    return null;
+                }
+            }));
+        }
+        // The first chunk is decoded in the calling thread
+        decodeRange(spatialResultList, 0, Math.min(size, chunkSize), decoded);
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            return new ArrayList<SimpleFeature>();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new RuntimeException(ex.getCause());
+        }
+        return compact(decoded);
+    }
+
+    private void decodeRange(List<SpatialResult> spatialResultList,
+            int from, int to, SimpleFeature[] decoded) {
+        WKBReader reader = getWkbReader();
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(type);
+        for (int i = from; i < to; i++) {
+            SpatialResult spatialResult = spatialResultList.get(i);
+            try {
+                Geometry geomValue = reader.read(spatialResult.getTheGeom());
+                builder.set("theGeom", geomValue);
+                builder.set("label", spatialResult.getLabel());
+                decoded[i] = builder.buildFeature(spatialResult.getId());
+            } catch (ParseException ex) {
+                LogUtility.log("Error converting row to feature", ex);
+            }
+        }
+    }
+
+    private static List<SimpleFeature> compact(SimpleFeature[] decoded) {
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>(decoded.length);
+        for (SimpleFeature feature : decoded) {
+            if (feature != null) {
+                features.add(feature);
+            }
+        }
+        return features;
+    }
+}
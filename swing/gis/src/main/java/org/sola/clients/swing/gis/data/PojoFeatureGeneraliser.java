@@ -0,0 +1,196 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.swing.gis.data;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Puntal;
+import com.vividsolutions.jts.simplify.TopologyPreservingSimplifier;
+import java.util.ArrayList;
+import java.util.List;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * It prepares the features retrieved from the server for drawing at the
+ * resolution of a zoom band. The geometries are simplified to the pixel
+ * tolerance, the features smaller than the minimum size are dropped and the
+ * labels of the features smaller than the minimum label size are removed. The
+ * generalised features are used only for drawing; the features kept in the
+ * tile cache and used for snapping or queries stay as retrieved from the
+ * server. <br/> All thresholds are in pixels. A threshold of 0 disables the
+ * corresponding step. Point features are never dropped or simplified.
+ */
+public class PojoFeatureGeneraliser {
+
+    /**
+     * The default tolerance of the simplification in pixels.
+     */
+    public static final double DEFAULT_SIMPLIFY_TOLERANCE = 0.5;
+    /**
+     * The default size in pixels under which the features are not drawn.
+     */
+    public static final double DEFAULT_MIN_FEATURE_SIZE = 1;
+    /**
+     * The default size in pixels under which the labels are not drawn.
+     */
+    public static final double DEFAULT_MIN_LABEL_SIZE = 20;
+    private static final String LABEL_ATTRIBUTE = "label";
+    // Geometries with fewer points cannot be simplified any further
+    private static final int MIN_POINTS_TO_SIMPLIFY = 5;
+    private final SimpleFeatureType type;
+    private double simplifyTolerance = DEFAULT_SIMPLIFY_TOLERANCE;
+    private double minFeatureSize = DEFAULT_MIN_FEATURE_SIZE;
+    private double minLabelSize = DEFAULT_MIN_LABEL_SIZE;
+
+    /**
+     * Constructor.
+     *
+     * @param type The type of the features that are generalised
+     */
+    public PojoFeatureGeneraliser(SimpleFeatureType type) {
+        this.type = type;
+    }
+
+    public double getSimplifyTolerance() {
+        return simplifyTolerance;
+    }
+
+    /**
+     * Sets the tolerance of the geometry simplification.
+     *
+     * @param simplifyTolerance The tolerance in pixels
+     */
+    public void setSimplifyTolerance(double simplifyTolerance) {
+        this.simplifyTolerance = simplifyTolerance;
+    }
+
+    public double getMinFeatureSize() {
+        return minFeatureSize;
+    }
+
+    /**
+     * Sets the size under which a feature is not drawn. The size of a feature
+     * is the biggest side of its envelope.
+     *
+     * @param minFeatureSize The size in pixels
+     */
+    public void setMinFeatureSize(double minFeatureSize) {
+        this.minFeatureSize = minFeatureSize;
+    }
+
+    public double getMinLabelSize() {
+        return minLabelSize;
+    }
+
+    /**
+     * Sets the size under which the label of a feature is not drawn.
+     *
+     * @param minLabelSize The size in pixels
+     */
+    public void setMinLabelSize(double minLabelSize) {
+        this.minLabelSize = minLabelSize;
+    }
+
+    /**
+     * Gets if generalising does not change any feature.
+     *
+     * @return
+     */
+    public boolean isDisabled() {
+        return simplifyTolerance <= 0 && minFeatureSize <= 0 && minLabelSize <= 0;
+    }
+
+    /**
+     * It generalises the features for the zoom band. The resolution of the
+     * band is the finest resolution that falls in it, so the features stay
+     * accurate enough for all resolutions of the band. The features that are
+     * not changed are returned as they are.
+     *
+     * @param zoomBand The zoom band as given from
+     * {@link PojoFeatureTileCache#getZoomBand(double)}
+     * @param features
+     * @return
+     */
+    public List<SimpleFeature> generalise(int zoomBand, List<SimpleFeature> features) {
+        if (this.isDisabled()) {
+            return features;
+        }
+        List<SimpleFeature> generalised = new ArrayList<SimpleFeature>(features.size());
+        for (SimpleFeature feature : features) {
+            SimpleFeature result = this.generalise(zoomBand, feature);
+            if (result != null) {
+                generalised.add(result);
+            }
+        }
+        return generalised;
+    }
+
+    /**
+     * It generalises one feature for the zoom band.
+     *
+     * @param zoomBand The zoom band as given from
+     * {@link PojoFeatureTileCache#getZoomBand(double)}
+     * @param feature
+     * @return The feature itself if it is not changed, a new feature with the
+     * same id if it is changed or null if it is too small to be drawn
+     */
+    public SimpleFeature generalise(int zoomBand, SimpleFeature feature) {
+        Geometry geom = (Geometry) feature.getDefaultGeometry();
+        if (this.isDisabled() || geom == null || geom instanceof Puntal) {
+            return feature;
+        }
+        double pixelResolution = Math.pow(2, zoomBand);
+        Envelope extent = geom.getEnvelopeInternal();
+        double size = Math.max(extent.getWidth(), extent.getHeight());
+        if (size < minFeatureSize * pixelResolution) {
+            return null;
+        }
+        double tolerance = simplifyTolerance * pixelResolution;
+        Geometry simplified = geom;
+        if (tolerance > 0 && geom.getNumPoints() >= MIN_POINTS_TO_SIMPLIFY) {
+            simplified = TopologyPreservingSimplifier.simplify(geom, tolerance);
+            if (simplified.isEmpty() || simplified.getNumPoints() == geom.getNumPoints()) {
+                simplified = geom;
+            }
+        }
+        boolean dropLabel = size < minLabelSize * pixelResolution
+                && feature.getAttribute(LABEL_ATTRIBUTE) != null;
+        if (simplified == geom && !dropLabel) {
+            return feature;
+        }
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(type);
+        builder.init(feature);
+        builder.set(type.getGeometryDescriptor().getLocalName(), simplified);
+        if (dropLabel) {
+            builder.set(LABEL_ATTRIBUTE, null);
+        }
+        return builder.buildFeature(feature.getID());
+    }
+}
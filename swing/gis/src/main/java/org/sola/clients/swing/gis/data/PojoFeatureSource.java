@@ -33,16 +33,21 @@ package org.sola.clients.swing.gis.data;
 
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
-import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKBReader;
 import java.awt.RenderingHints.Key;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
+import javax.swing.SwingUtilities;
 import org.geotools.data.DataAccess;
 import org.geotools.data.DataUtilities;
 import org.geotools.data.FeatureListener;
@@ -52,8 +57,9 @@ import org.geotools.data.ResourceInfo;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.feature.SchemaException;
-import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.swing.extended.Map;
+import org.geotools.swing.extended.util.MapImageGenerator;
 import org.geotools.swing.extended.util.Messaging;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -70,24 +76,48 @@ import org.sola.webservices.spatial.SpatialResult;
 
 /**
  * A FeatureSource for the Sola Feature layers. The features from this source
- * are drawn in the map control.
+ * are drawn in the map control. The renderer gets the features generalised for
+ * the zoom band, while the other users of the source, like snapping and feature
+ * queries, get the features as retrieved from the server.
  *
  * @author Elton Manoku
  */
 public class PojoFeatureSource implements SimpleFeatureSource {
 
+    private static final int LOADER_THREADS = 4;
+    private static final ExecutorService loader = Executors.newFixedThreadPool(
+            LOADER_THREADS, new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "PojoFeatureSource-loader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
     protected PojoFeatureCollection collection = null;
+    protected PojoFeatureCollection drawCollection = null;
     protected List<FeatureListener> listeners = null;
     private QueryCapabilities capabilities;
     private Set<Key> hints;
     private PojoDataAccess dataSource;
-    private static WKBReader wkbReader = new WKBReader();
-    private SimpleFeatureBuilder builder;
+    private PojoFeatureDecoder decoder;
+    private PojoFeatureGeneraliser generaliser;
+    private IdentityHashMap<SimpleFeature, SimpleFeature> generalisedFeatures =
+            new IdentityHashMap<SimpleFeature, SimpleFeature>();
+    private int generalisedZoomBand;
     private double lastWest;
     private double lastSouth;
     private double lastEast;
     private double lastNorth;
     private PojoBaseLayer layer;
+    private PojoFeatureTileCache tileCache = new PojoFeatureTileCache();
+    private Future<?> pendingLoad = null;
+    private List<Envelope> pendingExtents = null;
+    private int pendingZoomBand;
+    private int loadSequence = 0;
+    private volatile boolean loadArrived = false;
+    private volatile int featuresVersion = 0;
 
     /**
      * Constructor.
@@ -104,17 +134,19 @@ public class PojoFeatureSource implements SimpleFeatureSource {
                 this.dataSource.getMapLayerInfoList().get(
                 this.layer.getLayerName()).getPojoStructure());
         this.collection = new PojoFeatureCollection(type);
-        this.builder = new SimpleFeatureBuilder(type);
+        this.drawCollection = new PojoFeatureCollection(type);
+        this.decoder = new PojoFeatureDecoder(type);
+        this.generaliser = new PojoFeatureGeneraliser(type);
     }
 
     /**
      * The WKB reader used to translate the WKB geometries into geotools
-     * geometries
+     * geometries. Each thread gets its own reader.
      *
      * @return
      */
     public static WKBReader getWkbReader() {
-        return wkbReader;
+        return PojoFeatureDecoder.getWkbReader();
     }
 
     private SimpleFeatureType getNewFeatureType(String name, String structure)
@@ -221,7 +253,8 @@ public class PojoFeatureSource implements SimpleFeatureSource {
      * It retrieves the features falling into the query condition. If the filter
      * is not changed from the previous filter and the layer is not marked to be
      * forcibly refreshed, it does not ask for features from the server, but it
-     * returns the former ones
+     * returns the former ones. <br/> This is the query used by the renderer, so
+     * the features returned are generalised for drawing.
      *
      * @param query The query (geotools) used to filter features
      *
@@ -247,7 +280,7 @@ public class PojoFeatureSource implements SimpleFeatureSource {
         double south = boundingBox.getMinY();
         double north = boundingBox.getMaxY();
         this.ModifyFeatureCollection(west, south, east, north);
-        return this.collection;
+        return this.drawCollection;
     }
 
     public final PojoDataAccess getDataSource() {
@@ -255,7 +288,38 @@ public class PojoFeatureSource implements SimpleFeatureSource {
     }
 
     /**
-     * Given the extent, modifies the feature collection
+     * Gets the version of the features of the source. It changes every time
+     * the features are replaced with the features of a new extent or with new
+     * features retrieved from the server.
+     *
+     * @return
+     */
+    public int getFeaturesVersion() {
+        return featuresVersion;
+    }
+
+    /**
+     * Gets the tile cache that keeps the features already retrieved for this
+     * source.
+     *
+     * @return
+     */
+    public PojoFeatureTileCache getTileCache() {
+        return tileCache;
+    }
+
+    /**
+     * Given the extent, modifies the feature collection. Only the tiles of the
+     * extent that are not found in the tile cache are asked from the server,
+     * one request for each rectangle of contiguous missing tiles. If
+     * the layer is marked to be forcibly refreshed, the tile cache is cleared
+     * first. If the layer is marked to be generalised again, the features of
+     * the cache are generalised even if the extent is not changed. <br/> The
+     * missing tiles are loaded in background, while the features already in
+     * the cache are drawn. When the load finishes the map is refreshed. A load
+     * that is not finished when the map moves to another extent is cancelled.
+     * If an image of the map is being generated, the missing tiles are loaded
+     * synchronously.
      *
      * @param west
      * @param south
@@ -263,30 +327,152 @@ public class PojoFeatureSource implements SimpleFeatureSource {
      * @param north
      */
     protected void ModifyFeatureCollection(double west, double south, double east, double north) {
-        if (!this.layer.isForceRefresh()) {
-            if (this.lastWest == west && this.lastSouth == south
-                    && this.lastEast == east && this.lastNorth == north) {
-                return;
-            }
-        } else {
+        boolean forceRefresh = this.layer.isForceRefresh();
+        boolean regeneralise = this.layer.isRegeneralise();
+        this.layer.setRegeneralise(false);
+        if (forceRefresh) {
             this.layer.setForceRefresh(false);
+            this.cancelPendingLoad();
+            this.tileCache.clear();
+        } else if (!this.loadArrived && !regeneralise && this.lastWest == west && this.lastSouth == south
+                && this.lastEast == east && this.lastNorth == north) {
+            return;
         }
+        this.loadArrived = false;
         this.lastWest = west;
         this.lastSouth = south;
         this.lastEast = east;
         this.lastNorth = north;
-        try {
-            ResultForNavigationInfo resultInfo = getResultForNavigation(west, south, east, north);
-            List<SimpleFeature> featuresToAdd = this.getFeaturesFromData(resultInfo.getToAdd());
-            this.collection.clear();
-            this.collection.addAll(featuresToAdd);
-        } catch (WebServiceClientException ex) {
-            LogUtility.log(
-                    String.format(GisMessage.GENERAL_RETRIEVE_FEATURES_ERROR,
-                    this.getLayer().getTitle()), ex);
-            Messaging.getInstance().show(
-                    GisMessage.GENERAL_RETRIEVE_FEATURES_ERROR, this.getLayer().getTitle());
+        int zoomBand = PojoFeatureTileCache.getZoomBand(
+                this.getLayer().getMapControl().getPixelResolution());
+        Envelope viewport = new Envelope(west, east, south, north);
+        List<Envelope> missingExtents = this.tileCache.getMissingExtents(
+                zoomBand, west, south, east, north);
+        if (missingExtents.isEmpty()) {
+            this.cancelPendingLoad();
+        } else if (MapImageGenerator.isGeneratingImage()) {
+            try {
+                for (Envelope missingExtent : missingExtents) {
+                    this.loadTiles(zoomBand, missingExtent, viewport);
+                }
+            } catch (WebServiceClientException ex) {
+                this.handleLoadError(ex);
+            }
+        } else {
+            this.startLoad(zoomBand, missingExtents, viewport);
+            if (forceRefresh) {
+                // The features drawn so far stay until the new ones arrive
+                return;
+            }
         }
+        List<SimpleFeature> features = this.tileCache.getFeatures(
+                zoomBand, west, south, east, north);
+        this.collection.clear();
+        this.collection.addAll(features);
+        this.featuresVersion++;
+        this.drawCollection.clear();
+        this.drawCollection.addAll(this.generalise(zoomBand, features));
+    }
+
+    /**
+     * It retrieves the features of the extent from the server and adds them to
+     * the tile cache.
+     */
+    private void loadTiles(int zoomBand, Envelope extent, Envelope viewport) {
+        ResultForNavigationInfo resultInfo = getResultForNavigation(
+                extent.getMinX(), extent.getMinY(), extent.getMaxX(), extent.getMaxY());
+        this.tileCache.addTiles(zoomBand, extent,
+                this.getFeaturesFromData(resultInfo.getToAdd()), viewport);
+    }
+
+    /**
+     * It starts loading the extents in background. If the same extents are
+     * already being loaded nothing is done, otherwise the pending load is
+     * cancelled. The map is refreshed once all extents are loaded.
+     */
+    private synchronized void startLoad(final int zoomBand, final List<Envelope> extents,
+            final Envelope viewport) {
+        if (this.pendingLoad != null && !this.pendingLoad.isDone()
+                && this.pendingZoomBand == zoomBand && extents.equals(this.pendingExtents)) {
+            return;
+        }
+        this.cancelPendingLoad();
+        final int sequence = ++this.loadSequence;
+        final Map map = this.getLayer().getMapControl();
+        this.pendingZoomBand = zoomBand;
+        this.pendingExtents = extents;
+        this.pendingLoad = loader.submit(new Runnable() {
+
+            @Override
+            public void run() {
+                if (!isCurrentLoad(sequence)) {
+                    return;
+                }
+                map.beginLoading();
+                try {
+                    for (Envelope extent : extents) {
+                        ResultForNavigationInfo resultInfo = getResultForNavigation(
+                                extent.getMinX(), extent.getMinY(),
+                                extent.getMaxX(), extent.getMaxY());
+                        List<SimpleFeature> features = getFeaturesFromData(resultInfo.getToAdd());
+                        synchronized (PojoFeatureSource.this) {
+                            if (!isCurrentLoad(sequence)) {
+                                return;
+                            }
+                            tileCache.addTiles(zoomBand, extent, features, viewport);
+                        }
+                    }
+                    synchronized (PojoFeatureSource.this) {
+                        if (!isCurrentLoad(sequence)) {
+                            return;
+                        }
+                        loadArrived = true;
+                    }
+                    SwingUtilities.invokeLater(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            map.refresh(getLayer());
+                        }
+                    });
+                } catch (WebServiceClientException ex) {
+                    if (isCurrentLoad(sequence)) {
+                        handleLoadError(ex);
+                    }
+                } finally {
+                    map.endLoading();
+                }
+            }
+        });
+    }
+
+    private synchronized boolean isCurrentLoad(int sequence) {
+        return sequence == this.loadSequence && !Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * It cancels the load that is running in background if any. A load that
+     * cannot be interrupted anymore is discarded when it finishes.
+     */
+    private synchronized void cancelPendingLoad() {
+        this.loadSequence++;
+        if (this.pendingLoad != null) {
+            this.pendingLoad.cancel(true);
+            this.pendingLoad = null;
+            this.pendingExtents = null;
+        }
+    }
+
+    private void handleLoadError(WebServiceClientException ex) {
+        final String title = this.getLayer().getTitle();
+        LogUtility.log(String.format(GisMessage.GENERAL_RETRIEVE_FEATURES_ERROR, title), ex);
+        SwingUtilities.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+                Messaging.getInstance().show(GisMessage.GENERAL_RETRIEVE_FEATURES_ERROR, title);
+            }
+        });
     }
 
     /**
@@ -307,26 +493,59 @@ public class PojoFeatureSource implements SimpleFeatureSource {
 
     /**
      * It translates the result retrieved from the server to features recognized
-     * by map control
+     * by map control. Large results are decoded in parallel.
      *
      * @param spatialResultList
      * @return
+     * @see PojoFeatureDecoder
      */
     protected final List<SimpleFeature> getFeaturesFromData(List<SpatialResult> spatialResultList) {
-        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
-        for (SpatialResult spatialResult : spatialResultList) {
-            try {
-                Geometry geomValue = getWkbReader().read(spatialResult.getTheGeom());
-                String fid = spatialResult.getId();
-                this.builder.set("theGeom", geomValue);
-                this.builder.set("label", spatialResult.getLabel());
-                features.add(this.builder.buildFeature(fid));
-            } catch (ParseException ex) {
-                org.sola.common.logging.LogUtility.log(
-                        "Error converting row to feature", ex);
+        return this.decoder.decode(spatialResultList);
+    }
+
+    /**
+     * It generalises the features for drawing in the zoom band, using the
+     * thresholds set in the layer. The generalised features are remembered
+     * while the features stay in view, so panning at the same zoom band
+     * generalises only the features that come into view.
+     *
+     * @param zoomBand
+     * @param features
+     * @return
+     * @see PojoFeatureGeneraliser
+     */
+    protected List<SimpleFeature> generalise(int zoomBand, List<SimpleFeature> features) {
+        if (zoomBand != this.generalisedZoomBand
+                || this.generaliser.getSimplifyTolerance() != this.layer.getSimplifyTolerance()
+                || this.generaliser.getMinFeatureSize() != this.layer.getMinFeatureSize()
+                || this.generaliser.getMinLabelSize() != this.layer.getMinLabelSize()) {
+            this.generaliser.setSimplifyTolerance(this.layer.getSimplifyTolerance());
+            this.generaliser.setMinFeatureSize(this.layer.getMinFeatureSize());
+            this.generaliser.setMinLabelSize(this.layer.getMinLabelSize());
+            this.generalisedZoomBand = zoomBand;
+            this.generalisedFeatures.clear();
+        }
+        if (this.generaliser.isDisabled()) {
+            return features;
+        }
+        IdentityHashMap<SimpleFeature, SimpleFeature> inView =
+                new IdentityHashMap<SimpleFeature, SimpleFeature>(features.size());
+        List<SimpleFeature> generalised = new ArrayList<SimpleFeature>(features.size());
+        for (SimpleFeature feature : features) {
+            SimpleFeature result;
+            if (this.generalisedFeatures.containsKey(feature)) {
+                result = this.generalisedFeatures.get(feature);
+            } else {
+                result = this.generaliser.generalise(zoomBand, feature);
+            }
+            // Features too small to draw are remembered with null
+            inView.put(feature, result);
+            if (result != null) {
+                generalised.add(result);
             }
         }
-        return features;
+        this.generalisedFeatures = inView;
+        return generalised;
     }
 
     public PojoBaseLayer getLayer() {
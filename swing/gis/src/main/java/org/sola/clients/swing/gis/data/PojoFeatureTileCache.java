@@ -0,0 +1,351 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.swing.gis.data;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.opengis.feature.simple.SimpleFeature;
+
+/**
+ * A grid-tiled cache of the features of a pojo layer. The map is split in
+ * square tiles whose size depends on the zoom band (derived from the pixel
+ * resolution), so the same tiles are reused while the user pans at the same
+ * scale. Only the tiles that are not yet cached need to be asked from the
+ * server. Tiles are evicted on least recently used basis when the estimated
+ * memory used by the layer exceeds the budget. Every lookup of a cached tile
+ * makes it recently used.
+ */
+public class PojoFeatureTileCache {
+
+    /**
+     * The size of a tile in pixels.
+     */
+    public static final int TILE_SIZE_PIXELS = 256;
+    /**
+     * The default memory budget for the tiles of one layer (16 MB).
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 16L * 1024 * 1024;
+    private static final int FEATURE_OVERHEAD_BYTES = 256;
+    private static final int COORDINATE_BYTES = 24;
+    private final long memoryBudget;
+    private long memoryUsed = 0;
+    private final LinkedHashMap<TileKey, Tile> tiles =
+            new LinkedHashMap<TileKey, Tile>(64, 0.75f, true);
+
+    public PojoFeatureTileCache() {
+        this(DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param memoryBudget The approximate number of bytes the cached features
+     * can occupy before the least recently used tiles are evicted
+     */
+    public PojoFeatureTileCache(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Gets the zoom band for the pixel resolution. Resolutions within the same
+     * power of two share the band and so the tiles.
+     *
+     * @param pixelResolution The map units per pixel
+     * @return
+     */
+    public static int getZoomBand(double pixelResolution) {
+        if (pixelResolution <= 0 || Double.isNaN(pixelResolution)
+                || Double.isInfinite(pixelResolution)) {
+            return 0;
+        }
+        return (int) Math.floor(Math.log(pixelResolution) / Math.log(2));
+    }
+
+    /**
+     * Gets the size in map units of a tile for the zoom band.
+     *
+     * @param zoomBand
+     * @return
+     */
+    public static double getTileSize(int zoomBand) {
+        return TILE_SIZE_PIXELS * Math.pow(2, zoomBand);
+    }
+
+    /**
+     * Gets the extents that have to be asked from the server so all tiles that
+     * cover the given extent are in the cache. Each extent is a rectangle of
+     * contiguous missing tiles, so the tiles already cached are not asked
+     * again. The cached tiles of the extent are marked as recently used.
+     *
+     * @param zoomBand
+     * @param west
+     * @param south
+     * @param east
+     * @param north
+     * @return The extents to fetch. The list is empty if all tiles are cached
+     */
+    public synchronized List<Envelope> getMissingExtents(
+            int zoomBand, double west, double south, double east, double north) {
+        double tileSize = getTileSize(zoomBand);
+        long firstCol = firstIndex(west, tileSize);
+        long lastCol = lastIndex(east, tileSize);
+        List<Envelope> missing = new ArrayList<Envelope>();
+        // The runs of missing tiles of the previous row, that can still grow
+        List<Envelope> previousRuns = new ArrayList<Envelope>();
+        for (long row = firstIndex(south, tileSize); row <= lastIndex(north, tileSize); row++) {
+            List<Envelope> runs = new ArrayList<Envelope>();
+            Envelope run = null;
+            for (long col = firstCol; col <= lastCol; col++) {
+                if (tiles.get(new TileKey(zoomBand, col, row)) != null) {
+                    run = null;
+                } else if (run == null) {
+                    run = getTileExtent(col, row, tileSize);
+                    runs.add(run);
+                } else {
+                    run.expandToInclude(getTileExtent(col, row, tileSize));
+                }
+            }
+            List<Envelope> currentRuns = new ArrayList<Envelope>(runs.size());
+            for (Envelope rowRun : runs) {
+                Envelope merged = null;
+                for (Envelope previousRun : previousRuns) {
+                    if (previousRun.getMinX() == rowRun.getMinX()
+                            && previousRun.getMaxX() == rowRun.getMaxX()) {
+                        merged = previousRun;
+                        break;
+                    }
+                }
+                if (merged == null) {
+                    missing.add(rowRun);
+                    currentRuns.add(rowRun);
+                } else {
+                    merged.expandToInclude(rowRun);
+                    currentRuns.add(merged);
+                }
+            }
+            previousRuns = currentRuns;
+        }
+        return missing;
+    }
+
+    /**
+     * Adds the features retrieved for the extent. The extent must be aligned
+     * with the tile grid as returned from
+     * {@link #getMissingExtents(int, double, double, double, double)}. All
+     * tiles of the extent are marked as cached even if they have no features.
+     * The tiles covering the viewport are not evicted, so the view stays
+     * complete even if it alone exceeds the memory budget.
+     *
+     * @param zoomBand
+     * @param extent The extent that the features are retrieved for
+     * @param features The features found in the extent
+     * @param viewport The extent of the map that the tiles are retrieved for
+     */
+    public synchronized void addTiles(int zoomBand, Envelope extent,
+            List<SimpleFeature> features, Envelope viewport) {
+        double tileSize = getTileSize(zoomBand);
+        long firstCol = firstIndex(extent.getMinX(), tileSize);
+        long lastCol = lastIndex(extent.getMaxX(), tileSize);
+        long firstRow = firstIndex(extent.getMinY(), tileSize);
+        long lastRow = lastIndex(extent.getMaxY(), tileSize);
+        Map<TileKey, Tile> newTiles = new LinkedHashMap<TileKey, Tile>();
+        for (long col = firstCol; col <= lastCol; col++) {
+            for (long row = firstRow; row <= lastRow; row++) {
+                newTiles.put(new TileKey(zoomBand, col, row), new Tile());
+            }
+        }
+        for (SimpleFeature feature : features) {
+            Geometry geom = (Geometry) feature.getDefaultGeometry();
+            if (geom == null) {
+                continue;
+            }
+            Envelope featureExtent = geom.getEnvelopeInternal();
+            int size = FEATURE_OVERHEAD_BYTES + geom.getNumPoints() * COORDINATE_BYTES;
+            long colFrom = Math.max(firstCol, firstIndex(featureExtent.getMinX(), tileSize));
+            long colTo = Math.min(lastCol, lastIndex(featureExtent.getMaxX(), tileSize));
+            long rowFrom = Math.max(firstRow, firstIndex(featureExtent.getMinY(), tileSize));
+            long rowTo = Math.min(lastRow, lastIndex(featureExtent.getMaxY(), tileSize));
+            for (long col = colFrom; col <= colTo; col++) {
+                for (long row = rowFrom; row <= rowTo; row++) {
+                    Tile tile = newTiles.get(new TileKey(zoomBand, col, row));
+                    tile.features.add(feature);
+                    tile.size += size;
+                }
+            }
+        }
+        for (Map.Entry<TileKey, Tile> entry : newTiles.entrySet()) {
+            Tile previous = tiles.put(entry.getKey(), entry.getValue());
+            if (previous != null) {
+                memoryUsed -= previous.size;
+            }
+            memoryUsed += entry.getValue().size;
+        }
+        evict(zoomBand, viewport == null ? extent : viewport);
+    }
+
+    /**
+     * Gets the cached features that fall in the tiles covering the extent.
+     * Features spanning more than one tile are returned once.
+     *
+     * @param zoomBand
+     * @param west
+     * @param south
+     * @param east
+     * @param north
+     * @return
+     */
+    public synchronized List<SimpleFeature> getFeatures(
+            int zoomBand, double west, double south, double east, double north) {
+        double tileSize = getTileSize(zoomBand);
+        Map<String, SimpleFeature> found = new LinkedHashMap<String, SimpleFeature>();
+        for (long col = firstIndex(west, tileSize); col <= lastIndex(east, tileSize); col++) {
+            for (long row = firstIndex(south, tileSize); row <= lastIndex(north, tileSize); row++) {
+                Tile tile = tiles.get(new TileKey(zoomBand, col, row));
+                if (tile == null) {
+                    continue;
+                }
+                for (SimpleFeature feature : tile.features) {
+                    found.put(feature.getID(), feature);
+                }
+            }
+        }
+        return new ArrayList<SimpleFeature>(found.values());
+    }
+
+    /**
+     * Removes all cached tiles.
+     */
+    public synchronized void clear() {
+        tiles.clear();
+        memoryUsed = 0;
+    }
+
+    /**
+     * Gets the number of cached tiles.
+     *
+     * @return
+     */
+    public synchronized int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * Gets the estimated memory used by the cached features.
+     *
+     * @return
+     */
+    public synchronized long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    /**
+     * Removes the least recently used tiles until the memory is within budget.
+     * The tiles covering the viewport are never evicted.
+     */
+    private void evict(int zoomBand, Envelope viewport) {
+        if (memoryUsed <= memoryBudget) {
+            return;
+        }
+        double tileSize = getTileSize(zoomBand);
+        long firstCol = firstIndex(viewport.getMinX(), tileSize);
+        long lastCol = lastIndex(viewport.getMaxX(), tileSize);
+        long firstRow = firstIndex(viewport.getMinY(), tileSize);
+        long lastRow = lastIndex(viewport.getMaxY(), tileSize);
+        Iterator<Map.Entry<TileKey, Tile>> iterator = tiles.entrySet().iterator();
+        while (memoryUsed > memoryBudget && iterator.hasNext()) {
+            Map.Entry<TileKey, Tile> entry = iterator.next();
+            TileKey key = entry.getKey();
+            if (key.zoomBand == zoomBand && key.col >= firstCol && key.col <= lastCol
+                    && key.row >= firstRow && key.row <= lastRow) {
+                continue;
+            }
+            memoryUsed -= entry.getValue().size;
+            iterator.remove();
+        }
+    }
+
+    private static long firstIndex(double coordinate, double tileSize) {
+        return (long) Math.floor(coordinate / tileSize);
+    }
+
+    private static long lastIndex(double coordinate, double tileSize) {
+        long index = (long) Math.floor(coordinate / tileSize);
+        // A coordinate on the tile border belongs to the previous tile
+        if (index * tileSize == coordinate) {
+            index--;
+        }
+        return index;
+    }
+
+    private static Envelope getTileExtent(long col, long row, double tileSize) {
+        return new Envelope(col * tileSize, (col + 1) * tileSize,
+                row * tileSize, (row + 1) * tileSize);
+    }
+
+    private static class TileKey {
+
+        private final int zoomBand;
+        private final long col;
+        private final long row;
+
+        TileKey(int zoomBand, long col, long row) {
+            this.zoomBand = zoomBand;
+            this.col = col;
+            this.row = row;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof TileKey)) {
+                return false;
+            }
+            TileKey other = (TileKey) obj;
+            return zoomBand == other.zoomBand && col == other.col && row == other.row;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 7;
+            hash = 31 * hash + zoomBand;
+            hash = 31 * hash + (int) (col ^ (col >>> 32));
+            hash = 31 * hash + (int) (row ^ (row >>> 32));
+            return hash;
+        }
+    }
+
+    private static class Tile {
+
+        private final List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+        private long size = 0;
+    }
+}
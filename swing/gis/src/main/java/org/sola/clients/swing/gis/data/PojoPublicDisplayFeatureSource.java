@@ -65,6 +65,11 @@ public class PojoPublicDisplayFeatureSource extends PojoFeatureSource {
     }
 
     public void setNameLastPart(String nameLastPart) {
+        if (nameLastPart == null ? this.nameLastPart != null
+                : !nameLastPart.equals(this.nameLastPart)) {
+            // The cached tiles belong to the former filter
+            this.getTileCache().clear();
+        }
         this.nameLastPart = nameLastPart;
     }
 }
@@ -38,6 +38,7 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.*;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import org.geotools.feature.CollectionEvent;
 import org.geotools.feature.CollectionListener;
 import org.geotools.geometry.jts.Geometries;
@@ -58,7 +59,9 @@ import org.sola.webservices.transferobjects.EntityAction;
  * Abstract Layer that maintains a list of beans, which is synchronized with the feature collection.
  * For each feature there is a bean and viceversa. Not all attributes in the bean need to be in the
  * feature and viceversa. <br/> Optionally, it offers the interface for a host form to show
- * information about the beans. Using the form the information about the beans can change.
+ * information about the beans. Using the form the information about the beans can change. <br/>
+ * The beans are indexed by their row id. The map is not refreshed for every change in the beans,
+ * but once after all changes of the same event are done.
  *
  * @author Elton Manoku
  */
@@ -68,6 +71,8 @@ public abstract class AbstractSpatialObjectLayer extends ExtendedLayerEditor {
     private Class beanClass = null;
     private PropertyChangeListener beanPropertyChangeListener;
     private List<SpatialBean> removedItems = new ArrayList<SpatialBean>();
+    private HashMap<String, SpatialBean> beansByRowId = new HashMap<String, SpatialBean>();
+    private boolean mapRefreshScheduled = false;
     protected AbstractListSpatialBean listBean;
 
     /**
@@ -121,11 +126,14 @@ public abstract class AbstractSpatialObjectLayer extends ExtendedLayerEditor {
 
             @Override
             public void listElementsRemoved(ObservableList ol, int i, List list) {
+                unindexBeans(list);
                 removeFeatures(list);
             }
 
             @Override
             public void listElementReplaced(ObservableList ol, int i, Object o) {
+                unindexBeans(Collections.singletonList(o));
+                indexBean((SpatialBean) ol.get(i));
             }
 
             @Override
@@ -168,7 +176,7 @@ public abstract class AbstractSpatialObjectLayer extends ExtendedLayerEditor {
             return;
         }
         feature.setAttribute(propertyName, newValue);
-        this.getMapControl().refresh();
+        this.scheduleMapRefresh();
     }
 
     /**
@@ -202,7 +210,7 @@ public abstract class AbstractSpatialObjectLayer extends ExtendedLayerEditor {
             }
         }
         if (featuresAreRemoved) {
-            this.getMapControl().refresh();
+            this.scheduleMapRefresh();
         }
     }
 
@@ -216,6 +224,11 @@ public abstract class AbstractSpatialObjectLayer extends ExtendedLayerEditor {
     protected void newBeansAdded(ObservableList fromList, int startIndex, int total) {
         int endIndex = startIndex + total;
         boolean featureIsAdded = false;
+        // The beans are indexed before the features are added, because adding a feature looks
+        // for its bean
+        for (int elementIndex = startIndex; elementIndex < endIndex; elementIndex++) {
+            this.indexBean((SpatialBean) fromList.get(elementIndex));
+        }
         for (int elementIndex = startIndex; elementIndex < endIndex; elementIndex++) {
             SpatialBean bean = (SpatialBean) fromList.get(elementIndex);
             bean.addPropertyChangeListener(this.beanPropertyChangeListener);
@@ -240,7 +253,43 @@ public abstract class AbstractSpatialObjectLayer extends ExtendedLayerEditor {
             }
         }
         if (featureIsAdded) {
-            this.getMapControl().refresh();
+            this.scheduleMapRefresh();
+        }
+    }
+
+    /**
+     * It refreshes the layer in the map after the current event is handled. If it is called more
+     * than once before that, the layer is refreshed only once. In this way loading or changing
+     * many beans does not redraw the map for every bean.
+     */
+    protected void scheduleMapRefresh() {
+        if (this.mapRefreshScheduled) {
+            return;
+        }
+        this.mapRefreshScheduled = true;
+        SwingUtilities.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+                mapRefreshScheduled = false;
+                if (getMapControl() != null) {
+                    getMapControl().refresh(AbstractSpatialObjectLayer.this);
+                }
+            }
+        });
+    }
+
+    private void indexBean(SpatialBean bean) {
+        if (!this.beansByRowId.containsKey(bean.getRowId())) {
+            this.beansByRowId.put(bean.getRowId(), bean);
+        }
+    }
+
+    private void unindexBeans(List beanList) {
+        for (SpatialBean bean : (List<SpatialBean>) beanList) {
+            if (this.beansByRowId.get(bean.getRowId()) == bean) {
+                this.beansByRowId.remove(bean.getRowId());
+            }
         }
     }
 
@@ -366,15 +415,14 @@ public abstract class AbstractSpatialObjectLayer extends ExtendedLayerEditor {
      * @return
      */
     public final <T extends SpatialBean> T getBean(SimpleFeature feature) {
-        T bean = this.getNewBeanInstance();
-        bean.setRowId(feature.getID());
-        int foundIndex = this.getBeanList().indexOf(bean);
-        if (foundIndex > -1) {
-            bean = (T) this.getBeanList().get(foundIndex);
-        } else {
-            bean = null;
+        if (this.beansByRowId.size() != this.getBeanList().size()) {
+            // The list has beans with the same row id
+            this.beansByRowId.clear();
+            for (SpatialBean bean : (List<SpatialBean>) this.getBeanList()) {
+                this.indexBean(bean);
+            }
         }
-        return bean;
+        return (T) this.beansByRowId.get(feature.getID());
     }
 
     /**
@@ -124,12 +124,8 @@ public final class CadastreChangeNewSurveyPointLayer extends AbstractSpatialObje
      */
     private boolean pointIsUsedInNewCadastreObject(SimpleFeature feature) {
         Coordinate pointCoord = ((Point) feature.getDefaultGeometry()).getCoordinate();
-        for (VertexInformation vertexInformation : this.newCadastreObjectLayer.getVertexList()) {
-            if (vertexInformation.getVertex().equals2D(pointCoord)) {
-                return true;
-            }
-        }
-        return false;
+        return !this.newCadastreObjectLayer.getVertexesWithinDistance(
+                pointCoord.x, pointCoord.y, 0).isEmpty();
     }
 
     @Override
@@ -186,12 +182,12 @@ public final class CadastreChangeNewSurveyPointLayer extends AbstractSpatialObje
     @Override
     public SimpleFeature changeVertex(
             VertexInformation vertexInformation, DirectPosition2D newPosition) {
-        for (VertexInformation vertexCOInformation : this.newCadastreObjectLayer.getVertexList()) {
-            if (vertexInformation.getVertex().distance(vertexCOInformation.getVertex()) <= 0.01) {
-                if (this.newCadastreObjectLayer.changeVertex(
-                        vertexCOInformation, newPosition) == null) {
-                    return null;
-                }
+        for (VertexInformation vertexCOInformation
+                : this.newCadastreObjectLayer.getVertexesWithinDistance(
+                vertexInformation.getVertex().x, vertexInformation.getVertex().y, 0.01)) {
+            if (this.newCadastreObjectLayer.changeVertex(
+                    vertexCOInformation, newPosition) == null) {
+                return null;
             }
         }
         return super.changeVertex(vertexInformation, newPosition);
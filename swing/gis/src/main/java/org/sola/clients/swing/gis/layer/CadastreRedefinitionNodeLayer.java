@@ -34,6 +34,11 @@ package org.sola.clients.swing.gis.layer;
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.CoordinateList;
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.linearref.LinearLocation;
+import com.vividsolutions.jts.linearref.LocationIndexedLine;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -176,18 +181,84 @@ public class CadastreRedefinitionNodeLayer extends AbstractSpatialObjectLayer {
             this.getFeatureCollection().notifyListeners(
                     nodeFeature, CollectionEvent.FEATURES_CHANGED);
             this.removeIfNodeNotUsed(nodeFeature);
-            this.getMapControl().refresh();
+            this.getMapControl().refresh(this);
+            this.getMapControl().refresh(this.cadastreObjectModifiedLayer);
         } else {
             for (SimpleFeature cadastreObjectFeature : cadastreObjects) {
                 if (backup.containsKey(cadastreObjectFeature.getID())) {
                     cadastreObjectFeature.setDefaultGeometry(
                             backup.get(cadastreObjectFeature.getID()));
+                    this.cadastreObjectModifiedLayer.refreshVertexes(cadastreObjectFeature);
                 }
             }
         }
         return success;
     }
 
+    /**
+     * It inserts the node to the target cadastre objects. The node is inserted
+     * in the nearest segment of each ring of the cadastre objects.
+     *
+     * @param nodeFeature
+     * @param cadastreObjectTargetIds The target cadastre object ids
+     */
+    public void insertNode(SimpleFeature nodeFeature, List<String> cadastreObjectTargetIds) {
+        Geometry nodeFeatureGeom = (Geometry) nodeFeature.getDefaultGeometry();
+        Coordinate coordinate = nodeFeatureGeom.getCoordinate();
+        for (String cadastreObjectId : cadastreObjectTargetIds) {
+            SimpleFeature cadastreObjectFeature =
+                    this.cadastreObjectModifiedLayer.getFeatureByCadastreObjectId(cadastreObjectId);
+            if (cadastreObjectFeature == null) {
+                continue;
+            }
+            Polygon cadastreObjectGeom = (Polygon) cadastreObjectFeature.getDefaultGeometry();
+            LinearRing exteriorRing = this.insertCoordinateInRing(
+                    cadastreObjectGeom.getExteriorRing(), coordinate);
+
+            LinearRing[] interiorRings = new LinearRing[cadastreObjectGeom.getNumInteriorRing()];
+            for (int interiorRingIndex = 0;
+                    interiorRingIndex < interiorRings.length;
+                    interiorRingIndex++) {
+                interiorRings[interiorRingIndex] = this.insertCoordinateInRing(
+                        cadastreObjectGeom.getInteriorRingN(interiorRingIndex), coordinate);
+            }
+
+            cadastreObjectGeom =
+                    this.cadastreObjectModifiedLayer.getGeometryFactory().createPolygon(
+                    exteriorRing, interiorRings);
+            cadastreObjectFeature.setDefaultGeometry(cadastreObjectGeom);
+            cadastreObjectGeom.geometryChanged();
+            this.cadastreObjectModifiedLayer.refreshVertexes(cadastreObjectFeature);
+        }
+    }
+
+    /**
+     * Inserts a coordinate into a ring
+     *
+     * @param target The target ring
+     * @param coordinate The coordinate to insert
+     * @return The ring with the new coordinate
+     */
+    private LinearRing insertCoordinateInRing(
+            LineString target, Coordinate coordinate) {
+        LocationIndexedLine line = new LocationIndexedLine(target);
+        LinearLocation linearLocation = line.project(coordinate);
+
+        int newCoordIndex = linearLocation.getSegmentIndex() + 1;
+
+        com.vividsolutions.jts.geom.CoordinateList coordinates =
+                new CoordinateList(target.getCoordinates(), false);
+
+        coordinates.add(newCoordIndex,
+                new Coordinate(coordinate.x, coordinate.y), true);
+
+        coordinates.closeRing();
+
+        return this.cadastreObjectModifiedLayer.getGeometryFactory().createLinearRing(
+                coordinates.toCoordinateArray());
+
+    }
+
     /**
      * Removes a node if there is no cadastre object connected with it. This situation happen when
      * the cadastre objects are removed from the list of target objects because they did not change
@@ -33,6 +33,8 @@ package org.sola.clients.swing.gis.layer;
 
 import org.geotools.map.extended.layer.ExtendedFeatureLayer;
 import org.sola.clients.swing.gis.data.PojoDataAccess;
+import org.sola.clients.swing.gis.data.PojoFeatureGeneraliser;
+import org.sola.clients.swing.gis.data.PojoFeatureSource;
 import org.sola.webservices.search.ConfigMapLayerTO;
 
 /**
@@ -45,6 +47,10 @@ public abstract class PojoBaseLayer extends ExtendedFeatureLayer {
     public static final String CONFIG_PENDING_PARCELS_LAYER_NAME = "pending-parcels";
     private PojoDataAccess dataAccess;
     private boolean forceRefresh = false;
+    private boolean regeneralise = false;
+    private double simplifyTolerance = PojoFeatureGeneraliser.DEFAULT_SIMPLIFY_TOLERANCE;
+    private double minFeatureSize = PojoFeatureGeneraliser.DEFAULT_MIN_FEATURE_SIZE;
+    private double minLabelSize = PojoFeatureGeneraliser.DEFAULT_MIN_LABEL_SIZE;
 
     public PojoDataAccess getDataAccess() {
         return dataAccess;
@@ -72,6 +78,116 @@ public abstract class PojoBaseLayer extends ExtendedFeatureLayer {
         this.forceRefresh = forceRefresh;
     }
 
+    /**
+     * Gets if the features already retrieved must be generalised again before
+     * the layer is drawn, because the thresholds have changed.
+     *
+     * @return
+     */
+    public boolean isRegeneralise() {
+        return regeneralise;
+    }
+
+    /**
+     * Sets if the features already retrieved must be generalised again before
+     * the layer is drawn.
+     *
+     * @param regeneralise
+     */
+    public void setRegeneralise(boolean regeneralise) {
+        this.regeneralise = regeneralise;
+    }
+
+    /**
+     * Gets the version of the features retrieved for the current extent.
+     *
+     * @return
+     * @see PojoFeatureSource#getFeaturesVersion()
+     */
+    @Override
+    public int getFeaturesVersion() {
+        if (this.getFeatureSource() instanceof PojoFeatureSource) {
+            return ((PojoFeatureSource) this.getFeatureSource()).getFeaturesVersion();
+        }
+        return super.getFeaturesVersion();
+    }
+
+    /**
+     * Gets the tolerance in pixels used to simplify the geometries before
+     * drawing them.
+     *
+     * @return
+     */
+    public double getSimplifyTolerance() {
+        return simplifyTolerance;
+    }
+
+    /**
+     * Sets the tolerance in pixels used to simplify the geometries before
+     * drawing them. 0 means the geometries are drawn as they come from the
+     * server. The features already retrieved are generalised again and the
+     * layer is redrawn.
+     *
+     * @param simplifyTolerance
+     */
+    public void setSimplifyTolerance(double simplifyTolerance) {
+        this.simplifyTolerance = simplifyTolerance;
+        this.redrawGeneralised();
+    }
+
+    /**
+     * Gets the size in pixels under which the features are not drawn.
+     *
+     * @return
+     */
+    public double getMinFeatureSize() {
+        return minFeatureSize;
+    }
+
+    /**
+     * Sets the size in pixels under which the features are not drawn. 0 means
+     * all features are drawn. The features already retrieved are generalised
+     * again and the layer is redrawn.
+     *
+     * @param minFeatureSize
+     */
+    public void setMinFeatureSize(double minFeatureSize) {
+        this.minFeatureSize = minFeatureSize;
+        this.redrawGeneralised();
+    }
+
+    /**
+     * Gets the size in pixels of a feature under which its label is not drawn.
+     *
+     * @return
+     */
+    public double getMinLabelSize() {
+        return minLabelSize;
+    }
+
+    /**
+     * Sets the size in pixels of a feature under which its label is not drawn.
+     * 0 means all labels are drawn. The features already retrieved are
+     * generalised again and the layer is redrawn.
+     *
+     * @param minLabelSize
+     */
+    public void setMinLabelSize(double minLabelSize) {
+        this.minLabelSize = minLabelSize;
+        this.redrawGeneralised();
+    }
+
+    /**
+     * Marks the features to be generalised again with the current thresholds
+     * and redraws the layer. The features are not asked again from the server.
+     */
+    private void redrawGeneralised() {
+        this.setRegeneralise(true);
+        if (this.getMapControl() != null) {
+            this.getMapControl().refresh(this);
+        }
+    }
+
     /**
      * Gets the configuration of the layer
      *
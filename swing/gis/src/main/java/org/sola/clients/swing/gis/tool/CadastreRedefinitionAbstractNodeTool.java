@@ -220,6 +220,7 @@ public abstract class CadastreRedefinitionAbstractNodeTool
                 if (backup.containsKey(cadastreObjectFeature.getID())) {
                     cadastreObjectFeature.setDefaultGeometry(
                             backup.get(cadastreObjectFeature.getID()));
+                    this.cadastreObjectModifiedLayer.refreshVertexes(cadastreObjectFeature);
                 }
             }
         }
@@ -27,9 +27,6 @@
  */
 package org.sola.clients.swing.gis.tool;
 
-import com.vividsolutions.jts.geom.*;
-import com.vividsolutions.jts.linearref.LinearLocation;
-import com.vividsolutions.jts.linearref.LocationIndexedLine;
 import java.util.ArrayList;
 import java.util.List;
 import org.geotools.geometry.Envelope2D;
@@ -134,59 +131,7 @@ public class CadastreRedefinitionAddNodeTool extends CadastreRedefinitionAbstrac
      * @param cadastreObjectTargetIds The target cadastre object ids
      */
     private void insertNode(SimpleFeature nodeFeature, List<String> cadastreObjectTargetIds) {
-        Geometry nodeFeatureGeom = (Geometry) nodeFeature.getDefaultGeometry();
-        Coordinate coordinate = nodeFeatureGeom.getCoordinate();
-        for (String cadastreObjectId : cadastreObjectTargetIds) {
-            SimpleFeature cadastreObjectFeature =
-                    this.cadastreObjectModifiedLayer.getFeatureByCadastreObjectId(cadastreObjectId);
-            if (cadastreObjectFeature == null) {
-                continue;
-            }
-            Polygon cadastreObjectGeom = (Polygon) cadastreObjectFeature.getDefaultGeometry();
-            LinearRing exteriorRing = this.insertCoordinateInRing(
-                    cadastreObjectGeom.getExteriorRing(), coordinate);
-
-            LinearRing[] interiorRings = new LinearRing[cadastreObjectGeom.getNumInteriorRing()];
-            for (int interiorRingIndex = 0;
-                    interiorRingIndex < interiorRings.length;
-                    interiorRingIndex++) {
-                interiorRings[interiorRingIndex] = this.insertCoordinateInRing(
-                        cadastreObjectGeom.getInteriorRingN(interiorRingIndex), coordinate);
-            }
-
-            cadastreObjectGeom =
-                    this.cadastreObjectModifiedLayer.getGeometryFactory().createPolygon(
-                    exteriorRing, interiorRings);
-            cadastreObjectFeature.setDefaultGeometry(cadastreObjectGeom);
-            cadastreObjectGeom.geometryChanged();
-        }
+        this.cadastreObjectNodeModifiedLayer.insertNode(nodeFeature, cadastreObjectTargetIds);
         this.getMapControl().refresh();
     }
-
-    /**
-     * Inserts a coordinate into a ring
-     *
-     * @param target The target ring
-     * @param coordinate The coordinate to insert
-     * @return The ring with the new coordinate
-     */
-    private LinearRing insertCoordinateInRing(
-            LineString target, Coordinate coordinate) {
-        LocationIndexedLine line = new LocationIndexedLine(target);
-        LinearLocation linearLocation = line.project(coordinate);
-
-        int newCoordIndex = linearLocation.getSegmentIndex() + 1;
-
-        com.vividsolutions.jts.geom.CoordinateList coordinates =
-                new CoordinateList(target.getCoordinates(), false);
-
-        coordinates.add(newCoordIndex,
-                new Coordinate(coordinate.x, coordinate.y), true);
-
-        coordinates.closeRing();
-
-        return this.cadastreObjectModifiedLayer.getGeometryFactory().createLinearRing(
-                coordinates.toCoordinateArray());
-
-    }
 }
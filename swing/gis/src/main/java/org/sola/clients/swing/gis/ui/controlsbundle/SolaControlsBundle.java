@@ -28,9 +28,11 @@
 package org.sola.clients.swing.gis.ui.controlsbundle;
 
 import java.util.ArrayList;
+import java.util.List;
 import org.geotools.feature.SchemaException;
 import org.geotools.map.extended.layer.ExtendedFeatureLayer;
 import org.geotools.map.extended.layer.ExtendedLayer;
+import org.geotools.map.extended.layer.ExtendedWmsLiteLayer;
 import org.geotools.swing.extended.ControlsBundle;
 import org.geotools.swing.extended.exception.InitializeLayerException;
 import org.geotools.swing.extended.exception.InitializeMapException;
@@ -68,6 +70,7 @@ public abstract class SolaControlsBundle extends ControlsBundle {
     private static String extraSldResources = "/org/sola/clients/swing/gis/layer/resources/";
     private static boolean gisInitialized = false;
     private PojoDataAccess pojoDataAccess = null;
+    private List<String> tiledWmsLayers = null;
 // CHOOSE WHICH TOOL IS PREFERRED FOR THE MAP PRINT COMMENTING AND UNCOMMENTING THE FOLLOWING LINES
 //this is used for creating a pdf map print
 //    private SolaPrint solaPrint = null;
@@ -161,9 +164,16 @@ public abstract class SolaControlsBundle extends ControlsBundle {
             String wmsVersion = configMapLayer.getWmsVersion();
             String format = configMapLayer.getWmsFormat();
             java.util.Collections.addAll(wmsLayerNames, layerNameList);
-            this.getMap().addLayerWms(
+            ExtendedWmsLiteLayer wmsLayer = this.getMap().addLayerWms(
                     configMapLayer.getId(), configMapLayer.getTitle(), wmsServerURL, wmsLayerNames,
                     configMapLayer.isVisible(), wmsVersion, format);
+            // Only layers without labels (e.g. imagery) are set to be drawn from tiles
+            if (wmsLayer != null && getTiledWmsLayers().contains(configMapLayer.getId())) {
+                wmsLayer.setTiled(true);
+                wmsLayer.setDiskCacheEnabled(Boolean.parseBoolean(
+                        this.pojoDataAccess.getWSManager().getAdminService().getSetting(
+                        "map-wms-tile-disk-cache", "false")));
+            }
         } else if (configMapLayer.getTypeCode().equals("shape")) {
             this.getMap().addLayerShapefile(
                     configMapLayer.getId(),
@@ -178,6 +188,25 @@ public abstract class SolaControlsBundle extends ControlsBundle {
         }
     }
 
+    /**
+     * Gets the ids of the WMS layers drawn from tiles. They are set in the
+     * map-wms-tiled-layers setting separated by comma. By default no layer is
+     * tiled.
+     */
+    private List<String> getTiledWmsLayers() {
+        if (this.tiledWmsLayers == null) {
+            this.tiledWmsLayers = new ArrayList<String>();
+            String setting = this.pojoDataAccess.getWSManager().getAdminService().getSetting(
+                    "map-wms-tiled-layers", "");
+            for (String layerId : setting.split(",")) {
+                if (!layerId.trim().isEmpty()) {
+                    this.tiledWmsLayers.add(layerId.trim());
+                }
+            }
+        }
+        return this.tiledWmsLayers;
+    }
+
     /**
      * Gets the Data access that is used to communicate with the server
      *
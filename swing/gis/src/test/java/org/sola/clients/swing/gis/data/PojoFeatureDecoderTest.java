@@ -0,0 +1,128 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.swing.gis.data;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.io.WKBWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.geotools.data.DataUtilities;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.sola.webservices.spatial.SpatialResult;
+
+/**
+ * Checks that the parallel decoding gives the same features as the serial one
+ * and prints the time of both on synthetic parcels.
+ */
+public class PojoFeatureDecoderTest {
+
+    private static final int PARCELS = 50000;
+    private static final int ROUNDS = 3;
+
+    @Test
+    public void testDecode() throws Exception {
+        System.out.println("Decode synthetic parcels");
+        SimpleFeatureType type = DataUtilities.createType(
+                "parcels", "theGeom:Polygon,label:String");
+        List<SpatialResult> results = createParcels(PARCELS);
+        PojoFeatureDecoder serial = new PojoFeatureDecoder(type, Integer.MAX_VALUE);
+        PojoFeatureDecoder parallel = new PojoFeatureDecoder(type);
+
+        List<SimpleFeature> serialFeatures = null;
+        List<SimpleFeature> parallelFeatures = null;
+        long serialTime = Long.MAX_VALUE;
+        long parallelTime = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            serialFeatures = serial.decode(results);
+            serialTime = Math.min(serialTime, System.nanoTime() - start);
+            start = System.nanoTime();
+            parallelFeatures = parallel.decode(results);
+            parallelTime = Math.min(parallelTime, System.nanoTime() - start);
+        }
+        System.out.println(String.format("%s parcels, serial: %s ms, parallel: %s ms",
+                PARCELS, serialTime / 1000000, parallelTime / 1000000));
+
+        assertEquals(PARCELS, serialFeatures.size());
+        assertEquals(PARCELS, parallelFeatures.size());
+        for (int i = 0; i < PARCELS; i++) {
+            assertEquals(serialFeatures.get(i).getID(), parallelFeatures.get(i).getID());
+            assertTrue(((Polygon) serialFeatures.get(i).getDefaultGeometry()).equalsExact(
+                    (Polygon) parallelFeatures.get(i).getDefaultGeometry()));
+        }
+    }
+
+    @Test
+    public void testDecodeSkipsInvalidGeometry() throws Exception {
+        System.out.println("Decode with invalid geometry");
+        SimpleFeatureType type = DataUtilities.createType(
+                "parcels", "theGeom:Polygon,label:String");
+        List<SpatialResult> results = createParcels(10);
+        results.get(3).setTheGeom(new byte[]{0, 0, 0, 0, 99});
+        List<SimpleFeature> features = new PojoFeatureDecoder(type, 2).decode(results);
+        assertEquals(9, features.size());
+        assertEquals("id4", features.get(3).getID());
+    }
+
+    /**
+     * Creates parcels of 5 to 20 vertices laid out in a grid.
+     */
+    private List<SpatialResult> createParcels(int count) {
+        GeometryFactory factory = new GeometryFactory();
+        WKBWriter writer = new WKBWriter();
+        Random random = new Random(1);
+        int columns = (int) Math.sqrt(count);
+        List<SpatialResult> results = new ArrayList<SpatialResult>(count);
+        for (int i = 0; i < count; i++) {
+            double centerX = 1750000 + (i % columns) * 50;
+            double centerY = 5900000 + (i / columns) * 50;
+            int vertices = 5 + random.nextInt(16);
+            Coordinate[] coordinates = new Coordinate[vertices + 1];
+            for (int v = 0; v < vertices; v++) {
+                double angle = 2 * Math.PI * v / vertices;
+                double radius = 15 + random.nextDouble() * 8;
+                coordinates[v] = new Coordinate(
+                        centerX + radius * Math.cos(angle), centerY + radius * Math.sin(angle));
+            }
+            coordinates[vertices] = coordinates[0];
+            Polygon parcel = factory.createPolygon(factory.createLinearRing(coordinates), null);
+            SpatialResult result = new SpatialResult();
+            result.setId("id" + i);
+            result.setLabel("Lot " + i);
+            result.setTheGeom(writer.write(parcel));
+            results.add(result);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.swing.gis.data;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Polygon;
+import java.util.ArrayList;
+import java.util.List;
+import org.geotools.data.DataUtilities;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Checks the generalisation of features for a zoom band and prints the number
+ * of vertices before and after on synthetic parcels.
+ */
+public class PojoFeatureGeneraliserTest {
+
+    private static final int PARCELS = 10000;
+    private static final int VERTICES = 200;
+
+    @Test
+    public void testGeneralise() throws Exception {
+        System.out.println("Generalise synthetic parcels");
+        SimpleFeatureType type = DataUtilities.createType(
+                "parcels", "theGeom:Polygon,label:String");
+        List<SimpleFeature> features = createParcels(type, PARCELS, 80);
+        PojoFeatureGeneraliser generaliser = new PojoFeatureGeneraliser(type);
+        // 2 map units per pixel, the parcels are 40 pixels wide
+        int zoomBand = PojoFeatureTileCache.getZoomBand(2);
+
+        long start = System.nanoTime();
+        List<SimpleFeature> generalised = generaliser.generalise(zoomBand, features);
+        long time = System.nanoTime() - start;
+        int before = 0;
+        int after = 0;
+        for (int i = 0; i < PARCELS; i++) {
+            Geometry original = (Geometry) features.get(i).getDefaultGeometry();
+            Geometry simplified = (Geometry) generalised.get(i).getDefaultGeometry();
+            before += original.getNumPoints();
+            after += simplified.getNumPoints();
+            assertEquals(features.get(i).getID(), generalised.get(i).getID());
+            // The features kept for snapping are not changed
+            assertEquals(VERTICES + 1, original.getNumPoints());
+            assertTrue(simplified.isValid());
+            assertEquals(original.getArea(), simplified.getArea(), original.getArea() * 0.05);
+        }
+        System.out.println(String.format("%s parcels, vertices before: %s, after: %s, %s ms",
+                PARCELS, before, after, time / 1000000));
+        assertEquals(PARCELS, generalised.size());
+        assertTrue(after < before / 4);
+        assertEquals("Lot 0", generalised.get(0).getAttribute("label"));
+    }
+
+    @Test
+    public void testDropSmallFeaturesAndLabels() throws Exception {
+        System.out.println("Drop sub-pixel features and small labels");
+        SimpleFeatureType type = DataUtilities.createType(
+                "parcels", "theGeom:Polygon,label:String");
+        PojoFeatureGeneraliser generaliser = new PojoFeatureGeneraliser(type);
+        int zoomBand = PojoFeatureTileCache.getZoomBand(1);
+
+        // Half a pixel wide: dropped
+        List<SimpleFeature> generalised = generaliser.generalise(
+                zoomBand, createParcels(type, 3, 0.5));
+        assertEquals(0, generalised.size());
+        assertNull(generaliser.generalise(zoomBand, createParcels(type, 1, 0.5).get(0)));
+
+        // 10 pixels wide: drawn without label
+        generalised = generaliser.generalise(zoomBand, createParcels(type, 3, 10));
+        assertEquals(3, generalised.size());
+        assertNull(generalised.get(0).getAttribute("label"));
+
+        // Thresholds disabled: the features are returned as they are
+        generaliser.setSimplifyTolerance(0);
+        generaliser.setMinFeatureSize(0);
+        generaliser.setMinLabelSize(0);
+        List<SimpleFeature> features = createParcels(type, 3, 0.5);
+        generalised = generaliser.generalise(zoomBand, features);
+        assertSame(features.get(0), generalised.get(0));
+        assertEquals("Lot 0", generalised.get(0).getAttribute("label"));
+    }
+
+    /**
+     * Creates round parcels with many vertices laid out in a grid.
+     */
+    private List<SimpleFeature> createParcels(SimpleFeatureType type, int count, double width) {
+        GeometryFactory factory = new GeometryFactory();
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(type);
+        int columns = (int) Math.ceil(Math.sqrt(count));
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>(count);
+        for (int i = 0; i < count; i++) {
+            double centerX = 1750000 + (i % columns) * width * 2;
+            double centerY = 5900000 + (i / columns) * width * 2;
+            Coordinate[] coordinates = new Coordinate[VERTICES + 1];
+            for (int v = 0; v < VERTICES; v++) {
+                double angle = 2 * Math.PI * v / VERTICES;
+                coordinates[v] = new Coordinate(centerX + width / 2 * Math.cos(angle),
+                        centerY + width / 2 * Math.sin(angle));
+            }
+            coordinates[VERTICES] = coordinates[0];
+            Polygon parcel = factory.createPolygon(factory.createLinearRing(coordinates), null);
+            builder.set("theGeom", parcel);
+            builder.set("label", "Lot " + i);
+            features.add(builder.buildFeature("id" + i));
+        }
+        return features;
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.swing.gis.data;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.geotools.data.DataUtilities;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Checks the missing extents and the eviction of the tile cache. In zoom band 0
+ * a tile is 256 map units wide.
+ */
+public class PojoFeatureTileCacheTest {
+
+    private static final double TILE = PojoFeatureTileCache.getTileSize(0);
+    private SimpleFeatureType type;
+    private int featureCount = 0;
+
+    @Before
+    public void setUp() throws Exception {
+        type = DataUtilities.createType("points", "theGeom:Point,label:String");
+    }
+
+    @Test
+    public void testMissingExtents() throws Exception {
+        System.out.println("Missing extents are runs of missing tiles");
+        PojoFeatureTileCache cache = new PojoFeatureTileCache();
+        cache.addTiles(0, tile(1, 0), new ArrayList<SimpleFeature>(), null);
+
+        // 3 x 2 tiles, the middle tile of the first row is cached
+        List<Envelope> missing = cache.getMissingExtents(0, 0, 0, 3 * TILE, 2 * TILE);
+        assertEquals(3, missing.size());
+        assertEquals(tile(0, 0), missing.get(0));
+        assertEquals(tile(2, 0), missing.get(1));
+        assertEquals(new Envelope(0, 3 * TILE, TILE, 2 * TILE), missing.get(2));
+
+        // Runs with the same columns in adjacent rows are merged
+        cache.addTiles(0, tile(1, 1), new ArrayList<SimpleFeature>(), null);
+        missing = cache.getMissingExtents(0, 0, 0, 3 * TILE, 2 * TILE);
+        assertEquals(2, missing.size());
+        assertEquals(new Envelope(0, TILE, 0, 2 * TILE), missing.get(0));
+        assertEquals(new Envelope(2 * TILE, 3 * TILE, 0, 2 * TILE), missing.get(1));
+
+        cache.addTiles(0, missing.get(0), new ArrayList<SimpleFeature>(), null);
+        cache.addTiles(0, missing.get(1), new ArrayList<SimpleFeature>(), null);
+        assertTrue(cache.getMissingExtents(0, 0, 0, 3 * TILE, 2 * TILE).isEmpty());
+    }
+
+    @Test
+    public void testViewportIsNotEvicted() throws Exception {
+        System.out.println("Tiles of the viewport are not evicted");
+        PojoFeatureTileCache cache = new PojoFeatureTileCache(1);
+        Envelope viewport = new Envelope(0, 2 * TILE, 0, TILE);
+        cache.addTiles(0, tile(0, 0), points(tile(0, 0), 2), viewport);
+        cache.addTiles(0, tile(1, 0), points(tile(1, 0), 2), viewport);
+        assertEquals(2, cache.getTileCount());
+        assertEquals(4, cache.getFeatures(0, 0, 0, 2 * TILE, TILE).size());
+
+        // Moving away evicts the tiles of the former viewport
+        cache.addTiles(0, tile(5, 5), points(tile(5, 5), 2), tile(5, 5));
+        assertEquals(1, cache.getTileCount());
+    }
+
+    @Test
+    public void testLookupMakesTileRecent() throws Exception {
+        System.out.println("Looked up tiles are evicted last");
+        PojoFeatureTileCache cache = new PojoFeatureTileCache(1);
+        cache.addTiles(0, tile(0, 0), points(tile(0, 0), 2), null);
+        long tileMemory = cache.getMemoryUsed();
+        cache = new PojoFeatureTileCache(tileMemory * 2);
+        cache.addTiles(0, tile(0, 0), points(tile(0, 0), 2), null);
+        cache.addTiles(0, tile(1, 0), points(tile(1, 0), 2), null);
+
+        // The first tile is used again, so the second one is evicted
+        assertEquals(2, cache.getFeatures(0, 0, 0, TILE, TILE).size());
+        cache.addTiles(0, tile(2, 0), points(tile(2, 0), 2), null);
+        assertTrue(cache.getMissingExtents(0, 0, 0, TILE, TILE).isEmpty());
+        assertEquals(1, cache.getMissingExtents(0, TILE, 0, 2 * TILE, TILE).size());
+    }
+
+    private static Envelope tile(int col, int row) {
+        return new Envelope(col * TILE, (col + 1) * TILE, row * TILE, (row + 1) * TILE);
+    }
+
+    /**
+     * Creates point features inside the extent.
+     */
+    private List<SimpleFeature> points(Envelope extent, int count) {
+        GeometryFactory factory = new GeometryFactory();
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(type);
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>(count);
+        for (int i = 0; i < count; i++) {
+            builder.set("theGeom", factory.createPoint(new Coordinate(
+                    extent.getMinX() + (i + 1) * extent.getWidth() / (count + 1),
+                    extent.centre().y)));
+            builder.set("label", "Point " + featureCount);
+            features.add(builder.buildFeature("id" + featureCount++));
+        }
+        return features;
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.swing.gis.layer;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.geotools.swing.extended.Map;
+import org.geotools.swing.extended.util.GeometryUtility;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.opengis.feature.simple.SimpleFeature;
+import org.sola.clients.swing.gis.beans.CadastreObjectBean;
+import org.sola.clients.swing.gis.beans.CadastreObjectNodeBean;
+
+/**
+ * Inserts a node in the boundary shared by two parcels and moves it, as the
+ * add node tool of the cadastre redefinition does.
+ */
+public class CadastreRedefinitionNodeLayerTest {
+
+    private static final String WKT_OF_CRS = "PROJCS[\"NZGD2000 / New Zealand Transverse Mercator 2000\",GEOGCS[\"NZGD2000\",DATUM[\"New_Zealand_Geodetic_Datum_2000\",SPHEROID[\"GRS 1980\",6378137,298.257222101,AUTHORITY[\"EPSG\",\"7019\"]],TOWGS84[0,0,0,0,0,0,0],AUTHORITY[\"EPSG\",\"6167\"]],PRIMEM[\"Greenwich\",0,AUTHORITY[\"EPSG\",\"8901\"]],UNIT[\"degree\",0.01745329251994328,AUTHORITY[\"EPSG\",\"9122\"]],AUTHORITY[\"EPSG\",\"4167\"]],UNIT[\"metre\",1,AUTHORITY[\"EPSG\",\"9001\"]],PROJECTION[\"Transverse_Mercator\"],PARAMETER[\"latitude_of_origin\",0],PARAMETER[\"central_meridian\",173],PARAMETER[\"scale_factor\",0.9996],PARAMETER[\"false_easting\",1600000],PARAMETER[\"false_northing\",10000000],AUTHORITY[\"EPSG\",\"2193\"],AXIS[\"Easting\",EAST],AXIS[\"Northing\",NORTH]]";
+    private static final double X = 1780000;
+    private static final double Y = 5920000;
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+    private CadastreRedefinitionObjectLayer objectLayer;
+    private CadastreRedefinitionNodeLayer nodeLayer;
+
+    @Before
+    public void setUp() throws Exception {
+        Map map = new Map(2193, WKT_OF_CRS);
+        map.setFullExtent(X + 100, X - 100, Y + 100, Y - 100);
+        objectLayer = new CadastreRedefinitionObjectLayer();
+        map.addLayer(objectLayer);
+        nodeLayer = new CadastreRedefinitionNodeLayer();
+        nodeLayer.setCadastreObjectModifiedLayer(objectLayer);
+        map.addLayer(nodeLayer);
+
+        List<CadastreObjectBean> parcels = new ArrayList<CadastreObjectBean>();
+        parcels.add(createParcel("left", X, Y, X + 10, Y + 10));
+        parcels.add(createParcel("right", X + 10, Y, X + 20, Y + 10));
+        objectLayer.addCadastreObjects(parcels);
+    }
+
+    @Test
+    public void testInsertAndMoveNode() throws Exception {
+        System.out.println("Insert a node in a shared boundary and move it");
+        CadastreObjectNodeBean nodeBean = new CadastreObjectNodeBean();
+        nodeBean.setId("node");
+        nodeBean.setGeom(GeometryUtility.getWkbFromGeometry(
+                geometryFactory.createPoint(new Coordinate(X + 10, Y + 5))));
+        nodeLayer.addNodeTarget(nodeBean);
+        SimpleFeature nodeFeature = nodeLayer.getFeatureByNodeId("node");
+
+        nodeLayer.insertNode(nodeFeature, Arrays.asList("left", "right"));
+        assertTrue(hasVertex("left", X + 10, Y + 5));
+        assertTrue(hasVertex("right", X + 10, Y + 5));
+        assertEquals(2, objectLayer.getCadastreObjectFeatures(nodeFeature).size());
+        assertEquals(2, objectLayer.getVertexesWithinDistance(X + 10, Y + 5, 0.01).size());
+
+        assertTrue(nodeLayer.modifyNode(nodeFeature, X + 11, Y + 5));
+        assertNotNull(nodeLayer.getFeatureByNodeId("node"));
+        assertTrue(hasVertex("left", X + 11, Y + 5));
+        assertTrue(hasVertex("right", X + 11, Y + 5));
+        assertFalse(hasVertex("left", X + 10, Y + 5));
+        assertFalse(hasVertex("right", X + 10, Y + 5));
+        assertEquals(2, objectLayer.getVertexesWithinDistance(X + 11, Y + 5, 0.01).size());
+        assertTrue(objectLayer.getVertexesWithinDistance(X + 10, Y + 5, 0.01).isEmpty());
+    }
+
+    private CadastreObjectBean createParcel(
+            String id, double minX, double minY, double maxX, double maxY) {
+        Geometry polygon = geometryFactory.createPolygon(
+                geometryFactory.createLinearRing(new Coordinate[]{
+                    new Coordinate(minX, minY), new Coordinate(maxX, minY),
+                    new Coordinate(maxX, maxY), new Coordinate(minX, maxY),
+                    new Coordinate(minX, minY)}), null);
+        CadastreObjectBean parcel = new CadastreObjectBean();
+        parcel.setId(id);
+        parcel.setGeomPolygon(GeometryUtility.getWkbFromGeometry(polygon));
+        return parcel;
+    }
+
+    private boolean hasVertex(String cadastreObjectId, double x, double y) {
+        Geometry geometry = (Geometry) objectLayer.getFeatureByCadastreObjectId(
+                cadastreObjectId).getDefaultGeometry();
+        for (Coordinate coordinate : geometry.getCoordinates()) {
+            if (coordinate.equals2D(new Coordinate(x, y))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
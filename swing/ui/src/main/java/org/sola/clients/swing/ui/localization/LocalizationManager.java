@@ -111,9 +111,9 @@ public class LocalizationManager {
         prefs.put(COUNTRY, country);
         try {
             prefs.flush();
-            CacheManager.clear();
             ResourceBundle.clearCache();
             loadLanguage();
+            CacheManager.clear();
         } catch (BackingStoreException ex) {
         }
  // Check if the Font must change due to the change in Language. 
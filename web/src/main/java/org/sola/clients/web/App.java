@@ -43,8 +43,10 @@ import java.util.List;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
 import javax.faces.application.FacesMessage;
 import javax.faces.bean.ManagedBean;
+import javax.faces.bean.ManagedProperty;
 import javax.faces.bean.SessionScoped;
 import javax.faces.context.FacesContext;
 import javax.servlet.http.HttpServletRequest;
@@ -69,16 +71,23 @@ public class App {
 
     /** Creates a new instance of App */
     private TestWSService wsService = new TestWSService();
+    @ManagedProperty(value = "#{referenceDataCache}")
+    private ReferenceDataCache referenceDataCache;
 
     public App() {
-        init();
     }
 
+    public void setReferenceDataCache(ReferenceDataCache referenceDataCache) {
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    @PostConstruct
     private void init() {
-        wsService.getTestWSPort();
-        services = wsService.getTestWSPort().getRequestTypes();
+        // The cached lists are shared with other sessions, services is changed
+        // when the user selects services so it gets its own copy
+        services = new LinkedList<RequestType>(referenceDataCache.getRequestTypes());
         selectedServices = new LinkedList<RequestType>();
-        agents = wsService.getTestWSPort().getApplicants();
+        agents = referenceDataCache.getApplicants();
 
         String addressID = UUID.randomUUID().toString();
         contactAddress = new Address();
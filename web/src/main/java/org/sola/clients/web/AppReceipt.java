@@ -67,7 +67,10 @@ public class AppReceipt {
         agent = wsService.getTestWSPort().getPartyByID(application.getApplicantId());
         contactPerson = wsService.getTestWSPort().getPartyByID(application.getContactPersonId());
         contactPersonAddress = wsService.getTestWSPort().getAddress(contactPerson.getAddressId());
-        List<RequestType> allServices = wsService.getTestWSPort().getRequestTypes();
+        ReferenceDataCache referenceDataCache = FacesContext.getCurrentInstance().getApplication()
+                .evaluateExpressionGet(FacesContext.getCurrentInstance(),
+                "#{referenceDataCache}", ReferenceDataCache.class);
+        List<RequestType> allServices = referenceDataCache.getRequestTypes();
         List<ServicesInApplication> applicationServices = wsService.getTestWSPort().getApplicationServices(application.getId());
         
         SimpleDateFormat sdf = new SimpleDateFormat("MMM d, yyyy HH:mm");
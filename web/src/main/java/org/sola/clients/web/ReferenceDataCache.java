@@ -0,0 +1,229 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.web;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.faces.bean.ApplicationScoped;
+import javax.faces.bean.ManagedBean;
+import javax.faces.context.FacesContext;
+import org.sola.services.casemanagement.boundry.Party;
+import org.sola.services.casemanagement.boundry.RequestType;
+
+/**
+ * Keeps the request types and the agents for all sessions, so a new session
+ * does not have to ask them from the web service. The first request loads the
+ * data, the requests arriving meanwhile wait for the same load. When the data
+ * is older than the maximum age, it is still returned and a refresh is started
+ * in background. If the refresh fails the former data is kept and the refresh
+ * is tried again after {@link #RETRY_DELAY}. <br/> The lists returned are
+ * read only and shared between sessions, they must be copied before changing
+ * them.<br/> The maximum age in seconds can be set in web.xml with the context
+ * parameter {@link #MAX_AGE_PARAM}.
+ */
+@ManagedBean(eager = true)
+@ApplicationScoped
+public class ReferenceDataCache {
+
+    public static final String MAX_AGE_PARAM = "org.sola.clients.web.REFERENCE_DATA_MAX_AGE";
+    /**
+     * The default maximum age of the data in milliseconds (5 minutes).
+     */
+    public static final long DEFAULT_MAX_AGE = 5 * 60 * 1000L;
+    /**
+     * The time in milliseconds to wait before trying again a refresh that
+     * failed.
+     */
+    public static final long RETRY_DELAY = 10 * 1000L;
+    private static final Logger logger = Logger.getLogger(ReferenceDataCache.class.getName());
+    private ReferenceDataSource source;
+    private long maxAge;
+    private volatile Snapshot snapshot = null;
+    private volatile long lastFailure = 0;
+    private final Object loadLock = new Object();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ReferenceDataCache-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    public ReferenceDataCache() {
+        this(new ReferenceDataSource.WebService(), DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param source The source the data is loaded from
+     * @param maxAge The age in milliseconds after which the data is refreshed
+     */
+    public ReferenceDataCache(ReferenceDataSource source, long maxAge) {
+        this.source = source;
+        this.maxAge = maxAge;
+    }
+
+    @PostConstruct
+    private void init() {
+        FacesContext ctx = FacesContext.getCurrentInstance();
+        if (ctx == null) {
+            return;
+        }
+        String maxAgeValue = ctx.getExternalContext().getInitParameter(MAX_AGE_PARAM);
+        if (maxAgeValue != null && !maxAgeValue.trim().equals("")) {
+            try {
+                maxAge = Long.parseLong(maxAgeValue.trim()) * 1000;
+            } catch (NumberFormatException ex) {
+                logger.log(Level.WARNING, "Invalid value for " + MAX_AGE_PARAM, ex);
+            }
+        }
+    }
+
+    @PreDestroy
+    private void destroy() {
+        refresher.shutdownNow();
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Gets the request types.
+     *
+     * @return A read only list
+     */
+    public List<RequestType> getRequestTypes() {
+        return getSnapshot().requestTypes;
+    }
+
+    /**
+     * Gets the agents.
+     *
+     * @return A read only list
+     */
+    public List<Party> getApplicants() {
+        return getSnapshot().applicants;
+    }
+
+    /**
+     * Marks the data as stale, so the next request starts a refresh.
+     */
+    public void invalidate() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            snapshot = new Snapshot(current.requestTypes, current.applicants, 0);
+        }
+        lastFailure = 0;
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (loadLock) {
+                current = snapshot;
+                if (current == null) {
+                    current = load();
+                    snapshot = current;
+                }
+            }
+        } else if (System.currentTimeMillis() - current.loadedAt > maxAge) {
+            startRefresh();
+        }
+        return current;
+    }
+
+    private void startRefresh() {
+        if (System.currentTimeMillis() - lastFailure < RETRY_DELAY
+                || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.submit(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        snapshot = load();
+                        lastFailure = 0;
+                    } catch (RuntimeException ex) {
+                        lastFailure = System.currentTimeMillis();
+                        logger.log(Level.WARNING, "Failed to refresh the reference data", ex);
+                    } finally {
+                        refreshing.set(false);
+                    }
+                }
+            });
+        } catch (RuntimeException ex) {
+            // The executor is shut down
+            refreshing.set(false);
+        }
+    }
+
+    private Snapshot load() {
+        List<RequestType> requestTypes = source.getRequestTypes();
+        List<Party> applicants = source.getApplicants();
+        return new Snapshot(
+                Collections.unmodifiableList(requestTypes == null
+                ? new ArrayList<RequestType>() : new ArrayList<RequestType>(requestTypes)),
+                Collections.unmodifiableList(applicants == null
+                ? new ArrayList<Party>() : new ArrayList<Party>(applicants)),
+                System.currentTimeMillis());
+    }
+
+    private static class Snapshot {
+
+        private final List<RequestType> requestTypes;
+        private final List<Party> applicants;
+        private final long loadedAt;
+
+        Snapshot(List<RequestType> requestTypes, List<Party> applicants, long loadedAt) {
+            this.requestTypes = requestTypes;
+            this.applicants = applicants;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
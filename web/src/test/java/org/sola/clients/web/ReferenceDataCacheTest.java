@@ -0,0 +1,211 @@
+/**
+ * ******************************************************************************************
+ * Copyright (C) 2015 - Food and Agriculture Organization of the United Nations (FAO).
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice,this list
+ *       of conditions and the following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice,this list
+ *       of conditions and the following disclaimer in the documentation and/or other
+ *       materials provided with the distribution.
+ *    3. Neither the name of FAO nor the names of its contributors may be used to endorse or
+ *       promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,STRICT LIABILITY,OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * *********************************************************************************************
+ */
+package org.sola.clients.web;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import org.sola.services.casemanagement.boundry.Party;
+import org.sola.services.casemanagement.boundry.RequestType;
+
+/**
+ * Load test of the reference data cache. It simulates a burst of sessions that
+ * start at the same time against a stub service that answers slowly, and
+ * prints the time with and without the cache.
+ */
+public class ReferenceDataCacheTest extends TestCase {
+
+    private static final int SESSIONS = 200;
+    private static final int THREADS = 50;
+    private static final long SERVICE_LATENCY = 20;
+
+    public ReferenceDataCacheTest(String testName) {
+        super(testName);
+    }
+
+    public void testConcurrentSessions() throws Exception {
+        System.out.println("Concurrent sessions");
+        final StubSource source = new StubSource();
+        final ReferenceDataCache cache = new ReferenceDataCache(source, 60 * 1000L);
+
+        long cachedTime = runSessions(new Callable<Integer>() {
+
+            @Override
+            public Integer call() {
+                return cache.getRequestTypes().size() + cache.getApplicants().size();
+            }
+        });
+        assertEquals(1, source.requestTypeCalls.get());
+        assertEquals(1, source.applicantCalls.get());
+
+        final StubSource directSource = new StubSource();
+        long directTime = runSessions(new Callable<Integer>() {
+
+            @Override
+            public Integer call() {
+                return directSource.getRequestTypes().size()
+                        + directSource.getApplicants().size();
+            }
+        });
+        assertEquals(SESSIONS, directSource.requestTypeCalls.get());
+        System.out.println(String.format(
+                "%s sessions, service calls with cache: %s, without: %s, "
+                + "time with cache: %s ms, without: %s ms",
+                SESSIONS, source.requestTypeCalls.get() + source.applicantCalls.get(),
+                directSource.requestTypeCalls.get() + directSource.applicantCalls.get(),
+                cachedTime, directTime));
+    }
+
+    public void testBackgroundRefresh() throws Exception {
+        System.out.println("Background refresh");
+        StubSource source = new StubSource();
+        ReferenceDataCache cache = new ReferenceDataCache(source, 50);
+        List<RequestType> first = cache.getRequestTypes();
+        assertEquals(1, source.requestTypeCalls.get());
+
+        Thread.sleep(100);
+        // Stale data is returned at once and one refresh starts in background
+        for (int i = 0; i < 10; i++) {
+            assertSame(first, cache.getRequestTypes());
+        }
+        Thread.sleep(SERVICE_LATENCY * 10);
+        assertEquals(2, source.requestTypeCalls.get());
+        assertNotSame(first, cache.getRequestTypes());
+    }
+
+    public void testFailedRefreshKeepsData() throws Exception {
+        System.out.println("Failed refresh keeps data");
+        StubSource source = new StubSource();
+        ReferenceDataCache cache = new ReferenceDataCache(source, 50);
+        List<RequestType> first = cache.getRequestTypes();
+
+        source.failing = true;
+        Thread.sleep(100);
+        assertSame(first, cache.getRequestTypes());
+        Thread.sleep(SERVICE_LATENCY * 10);
+        assertSame(first, cache.getRequestTypes());
+        // The refresh is not tried again before the retry delay
+        assertEquals(2, source.requestTypeCalls.get());
+    }
+
+    public void testReadOnly() throws Exception {
+        System.out.println("Read only lists");
+        ReferenceDataCache cache = new ReferenceDataCache(new StubSource(), 60 * 1000L);
+        try {
+            cache.getRequestTypes().remove(0);
+            fail("The cached list must not be changed");
+        } catch (UnsupportedOperationException ex) {
+        }
+    }
+
+    /**
+     * Starts the sessions at the same time and waits for all of them.
+     *
+     * @return The time in milliseconds
+     */
+    private long runSessions(final Callable<Integer> session) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        try {
+            for (int i = 0; i < SESSIONS; i++) {
+                futures.add(executor.submit(new Callable<Integer>() {
+
+                    @Override
+                    public Integer call() throws Exception {
+                        start.await();
+                        return session.call();
+                    }
+                }));
+            }
+            long startTime = System.nanoTime();
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                assertEquals(Integer.valueOf(StubSource.ITEMS * 2), future.get());
+            }
+            return (System.nanoTime() - startTime) / 1000000;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stub of the web service that counts the calls and answers after a
+     * delay.
+     */
+    private static class StubSource implements ReferenceDataSource {
+
+        private static final int ITEMS = 30;
+        private final AtomicInteger requestTypeCalls = new AtomicInteger();
+        private final AtomicInteger applicantCalls = new AtomicInteger();
+        private volatile boolean failing = false;
+
+        @Override
+        public List<RequestType> getRequestTypes() {
+            requestTypeCalls.incrementAndGet();
+            waitLatency();
+            List<RequestType> requestTypes = new ArrayList<RequestType>();
+            for (int i = 0; i < ITEMS; i++) {
+                RequestType requestType = new RequestType();
+                requestType.setCode("code" + i);
+                requestTypes.add(requestType);
+            }
+            return requestTypes;
+        }
+
+        @Override
+        public List<Party> getApplicants() {
+            applicantCalls.incrementAndGet();
+            waitLatency();
+            List<Party> applicants = new ArrayList<Party>();
+            for (int i = 0; i < ITEMS; i++) {
+                Party party = new Party();
+                party.setId("id" + i);
+                applicants.add(party);
+            }
+            return applicants;
+        }
+
+        private void waitLatency() {
+            try {
+                Thread.sleep(SERVICE_LATENCY);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (failing) {
+                throw new RuntimeException("Service not available");
+            }
+        }
+    }
+}